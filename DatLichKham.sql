@@ -138,6 +138,7 @@ CREATE TABLE BacSi (
     SoNgayPhepNam INT DEFAULT 12 COMMENT 'Tổng số ngày phép/năm',
     SoNgayPhepDaSuDung INT DEFAULT 0 COMMENT 'Số ngày phép đã sử dụng',
     NamApDung INT COMMENT 'Năm áp dụng (reset đầu năm)',
+    SoNgayPhepChuyenSang INT NOT NULL DEFAULT 0 COMMENT 'Số ngày phép năm trước chuyển sang',
     
     -- Audit fields
     CreatedAt DATETIME DEFAULT CURRENT_TIMESTAMP,
@@ -326,6 +327,8 @@ CREATE TABLE DatLichKham (
     -- ========== REMINDER ==========
     DaNhacNho BIT NOT NULL DEFAULT 0,
     NgayNhacNho DATETIME COMMENT 'Thời gian gửi email nhắc nhở',
+    DaNhacNho1h BIT NOT NULL DEFAULT 0 COMMENT 'Đã gửi nhắc 1 giờ trước giờ khám',
+    NgayNhacNho1h DATETIME,
     
     -- ========== HOÀN TIỀN ==========
     NgayHoanTien DATETIME,
@@ -362,6 +365,7 @@ CREATE TABLE DatLichKham (
     INDEX idx_maxacnhan (MaXacNhan),
     INDEX idx_trangthai_ngay (TrangThai, NgayKham),
     INDEX idx_bacsi_trangthai (BacSiID, TrangThai),
+    INDEX idx_nhac_lich_1h (NgayKham, GioKham, TrangThai),
     
     -- ========== UNIQUE CONSTRAINTS ==========
     -- NOTE: Không thể dùng UNIQUE với TrangThai vì MySQL không hỗ trợ partial unique index
@@ -416,6 +420,9 @@ CREATE TABLE ThongBao (
     -- ========== EMAIL ==========
     DaGuiEmail BIT NOT NULL DEFAULT 0,
     NgayGuiEmail DATETIME,
+    SoLanGuiEmailLoi INT NOT NULL DEFAULT 0 COMMENT 'Số lần gửi email thất bại',
+    EmailGuiLaiLuc DATETIME COMMENT 'Thời điểm sớm nhất được gửi lại email',
+    LoiEmailCuoi VARCHAR(500),
     
     -- ========== METADATA ==========
     MetaData TEXT COMMENT 'JSON string chứa dữ liệu bổ sung',
@@ -437,10 +444,51 @@ CREATE TABLE ThongBao (
     INDEX idx_nguoinhan_dadoc (NguoiNhanID, DaDoc),
     INDEX idx_nguoinhan_thoigian (NguoiNhanID, ThoiGian),
     INDEX idx_loai (LoaiThongBao),
-    INDEX idx_datlich (DatLichID)
+    INDEX idx_datlich (DatLichID),
+    INDEX idx_email_cho_gui (DaGuiEmail, CreatedAt),
+    INDEX idx_email_gui_lai (DaGuiEmail, EmailGuiLaiLuc)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
 COMMENT='Notification system with email tracking';
 
+-- Thông báo cũ được job dọn (app.notification-retention.archive=true) chuyển sang
+CREATE TABLE ThongBaoLuuTru (
+    ThongBaoID INT PRIMARY KEY COMMENT 'Giữ nguyên ID gốc',
+    NguoiNhanID INT NOT NULL,
+    LoaiThongBao VARCHAR(50) NOT NULL,
+    TieuDe VARCHAR(200) NOT NULL,
+    NoiDung TEXT NOT NULL,
+    ThoiGian DATETIME NOT NULL,
+    NgayDoc DATETIME,
+    DatLichID INT,
+    LinkDinhKem VARCHAR(500),
+    DaGuiEmail BIT NOT NULL DEFAULT 0,
+    NgayGuiEmail DATETIME,
+    MetaData TEXT,
+    CreatedAt DATETIME,
+    IsDeleted BIT DEFAULT 0,
+    NgayLuuTru DATETIME NOT NULL,
+
+    INDEX idx_luutru_nguoinhan_thoigian (NguoiNhanID, ThoiGian)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Archived notifications (moved by retention job)';
+
+-- Email thông báo gửi thất bại vĩnh viễn / quá số lần thử (app.email.retry.max-attempts)
+CREATE TABLE ThongBaoEmailLoi (
+    EmailLoiID BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ThongBaoID INT NOT NULL,
+    NguoiNhanID INT NOT NULL,
+    Email VARCHAR(100) NOT NULL,
+    LoaiThongBao VARCHAR(50) NOT NULL,
+    TieuDe VARCHAR(200) NOT NULL,
+    SoLanThu INT NOT NULL,
+    LoiCuoi VARCHAR(500),
+    NgayTao DATETIME NOT NULL,
+
+    INDEX idx_emailloi_thongbao (ThongBaoID),
+    INDEX idx_emailloi_ngaytao (NgayTao)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Dead-letter: notification emails that failed permanently';
+
 -- ==========================================
 -- 10. BẢNG HỒ SƠ BỆNH ÁN
 -- ==========================================
@@ -470,6 +518,52 @@ CREATE TABLE HoSoBenhAn (
     FOREIGN KEY (BenhNhanID) REFERENCES NguoiDung(NguoiDungID) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- ==========================================
+-- 11. BẢNG THỐNG KÊ ĐẶT LỊCH THEO NGÀY (ROLLUP)
+-- ==========================================
+CREATE TABLE ThongKeDatLichNgay (
+    ThongKeID BIGINT AUTO_INCREMENT PRIMARY KEY,
+    Ngay DATE NOT NULL COMMENT 'Ngày khám (SoLich...) hoặc ngày thanh toán (SoThanhToan...)',
+    BacSiID INT NOT NULL,
+    TrangThai VARCHAR(30) NOT NULL,
+    TrangThaiThanhToan VARCHAR(20) NOT NULL,
+
+    -- Theo ngày khám
+    SoLich BIGINT NOT NULL DEFAULT 0,
+    TongGiaKham DECIMAL(15,2) NOT NULL DEFAULT 0,
+    SoHoanTien BIGINT NOT NULL DEFAULT 0,
+    TongTienHoan DECIMAL(15,2) NOT NULL DEFAULT 0,
+
+    -- Theo ngày thanh toán (chỉ THANH_CONG)
+    SoThanhToan BIGINT NOT NULL DEFAULT 0,
+    DoanhThuThanhToan DECIMAL(15,2) NOT NULL DEFAULT 0,
+
+    UpdatedAt DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    FOREIGN KEY (BacSiID) REFERENCES BacSi(BacSiID) ON DELETE CASCADE,
+    UNIQUE KEY uk_thongke_ngay (Ngay, BacSiID, TrangThai, TrangThaiThanhToan),
+    INDEX idx_thongke_bacsi_ngay (BacSiID, Ngay)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Daily booking statistics rollup (maintained incrementally)';
+
+-- ==========================================
+-- 12. BẢNG TỔNG HỢP ĐÁNH GIÁ BÁC SĨ
+-- ==========================================
+CREATE TABLE ThongKeDanhGiaBacSi (
+    BacSiID INT PRIMARY KEY,
+    SoDanhGia BIGINT NOT NULL DEFAULT 0,
+    TongSoSao BIGINT NOT NULL DEFAULT 0,
+    SoMotSao BIGINT NOT NULL DEFAULT 0,
+    SoHaiSao BIGINT NOT NULL DEFAULT 0,
+    SoBaSao BIGINT NOT NULL DEFAULT 0,
+    SoBonSao BIGINT NOT NULL DEFAULT 0,
+    SoNamSao BIGINT NOT NULL DEFAULT 0,
+    UpdatedAt DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    FOREIGN KEY (BacSiID) REFERENCES BacSi(BacSiID) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Per-doctor rating summary (count, sum, 1-5 star histogram)';
+
 -- ==========================================
 
 
@@ -707,7 +801,7 @@ SELECT
     u.HoTen,
     b.SoNgayPhepNam AS TongPhep,
     b.SoNgayPhepDaSuDung AS DaSuDung,
-    (b.SoNgayPhepNam - b.SoNgayPhepDaSuDung) AS ConLai,
+    (b.SoNgayPhepNam + b.SoNgayPhepChuyenSang - b.SoNgayPhepDaSuDung) AS ConLai,
     COUNT(n.NghiID) AS SoLanXinNghi,
     SUM(CASE WHEN n.TrangThai = 'DA_DUYET' THEN 1 ELSE 0 END) AS SoLanDuocDuyet
 FROM BacSi b
@@ -0,0 +1,170 @@
+-- ==========================================
+-- MIGRATION SCRIPT FOR PHASE 3: PERFORMANCE
+-- ==========================================
+-- Date: 2026-10-19
+-- Description: Bảng tổng hợp / chỉ mục phục vụ thống kê và job nền
+
+USE DatLichKham;
+
+-- ==========================================
+-- STEP 1: BẢNG THỐNG KÊ ĐẶT LỊCH THEO NGÀY
+-- ==========================================
+-- Ứng dụng cập nhật tăng dần khi booking đổi trạng thái / thanh toán,
+-- job đối soát chạy mỗi đêm (app.stats-rollup.reconcile-cron)
+CREATE TABLE ThongKeDatLichNgay (
+    ThongKeID BIGINT AUTO_INCREMENT PRIMARY KEY,
+    Ngay DATE NOT NULL COMMENT 'Ngày khám (SoLich...) hoặc ngày thanh toán (SoThanhToan...)',
+    BacSiID INT NOT NULL,
+    TrangThai VARCHAR(30) NOT NULL,
+    TrangThaiThanhToan VARCHAR(20) NOT NULL,
+
+    -- Theo ngày khám
+    SoLich BIGINT NOT NULL DEFAULT 0,
+    TongGiaKham DECIMAL(15,2) NOT NULL DEFAULT 0,
+    SoHoanTien BIGINT NOT NULL DEFAULT 0,
+    TongTienHoan DECIMAL(15,2) NOT NULL DEFAULT 0,
+
+    -- Theo ngày thanh toán (chỉ THANH_CONG)
+    SoThanhToan BIGINT NOT NULL DEFAULT 0,
+    DoanhThuThanhToan DECIMAL(15,2) NOT NULL DEFAULT 0,
+
+    UpdatedAt DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    FOREIGN KEY (BacSiID) REFERENCES BacSi(BacSiID) ON DELETE CASCADE,
+    UNIQUE KEY uk_thongke_ngay (Ngay, BacSiID, TrangThai, TrangThaiThanhToan),
+    INDEX idx_thongke_bacsi_ngay (BacSiID, Ngay)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Daily booking statistics rollup (maintained incrementally)';
+
+-- Backfill từ dữ liệu hiện có
+INSERT INTO ThongKeDatLichNgay
+    (Ngay, BacSiID, TrangThai, TrangThaiThanhToan,
+     SoLich, TongGiaKham, SoHoanTien, TongTienHoan, SoThanhToan, DoanhThuThanhToan)
+SELECT Ngay, BacSiID, TrangThai, TrangThaiThanhToan,
+       SUM(SoLich), SUM(TongGiaKham), SUM(SoHoanTien), SUM(TongTienHoan),
+       SUM(SoThanhToan), SUM(DoanhThuThanhToan)
+FROM (
+    SELECT NgayKham AS Ngay, BacSiID, TrangThai, TrangThaiThanhToan,
+           COUNT(*) AS SoLich, SUM(GiaKham) AS TongGiaKham,
+           COUNT(SoTienHoan) AS SoHoanTien, COALESCE(SUM(SoTienHoan), 0) AS TongTienHoan,
+           0 AS SoThanhToan, 0 AS DoanhThuThanhToan
+    FROM DatLichKham
+    WHERE IsDeleted = 0
+    GROUP BY NgayKham, BacSiID, TrangThai, TrangThaiThanhToan
+
+    UNION ALL
+
+    SELECT DATE(NgayThanhToan), BacSiID, TrangThai, TrangThaiThanhToan,
+           0, 0, 0, 0,
+           COUNT(*), SUM(GiaKham)
+    FROM DatLichKham
+    WHERE IsDeleted = 0
+      AND TrangThaiThanhToan = 'THANH_CONG'
+      AND NgayThanhToan IS NOT NULL
+    GROUP BY DATE(NgayThanhToan), BacSiID, TrangThai, TrangThaiThanhToan
+) src
+GROUP BY Ngay, BacSiID, TrangThai, TrangThaiThanhToan;
+
+-- ==========================================
+-- STEP 2: BẢNG TỔNG HỢP ĐÁNH GIÁ BÁC SĨ
+-- ==========================================
+-- Cập nhật cùng transaction khi bệnh nhân đánh giá,
+-- job đối soát chạy định kỳ (app.rating-summary.verify-cron)
+CREATE TABLE ThongKeDanhGiaBacSi (
+    BacSiID INT PRIMARY KEY,
+    SoDanhGia BIGINT NOT NULL DEFAULT 0,
+    TongSoSao BIGINT NOT NULL DEFAULT 0,
+    SoMotSao BIGINT NOT NULL DEFAULT 0,
+    SoHaiSao BIGINT NOT NULL DEFAULT 0,
+    SoBaSao BIGINT NOT NULL DEFAULT 0,
+    SoBonSao BIGINT NOT NULL DEFAULT 0,
+    SoNamSao BIGINT NOT NULL DEFAULT 0,
+    UpdatedAt DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    FOREIGN KEY (BacSiID) REFERENCES BacSi(BacSiID) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Per-doctor rating summary (count, sum, 1-5 star histogram)';
+
+-- Backfill từ dữ liệu hiện có
+INSERT INTO ThongKeDanhGiaBacSi
+    (BacSiID, SoDanhGia, TongSoSao, SoMotSao, SoHaiSao, SoBaSao, SoBonSao, SoNamSao)
+SELECT BacSiID, COUNT(*), SUM(SoSao),
+       SUM(SoSao = 1), SUM(SoSao = 2), SUM(SoSao = 3), SUM(SoSao = 4), SUM(SoSao = 5)
+FROM DatLichKham
+WHERE SoSao IS NOT NULL
+  AND IsDeleted = 0
+GROUP BY BacSiID;
+
+-- ==========================================
+-- STEP 3: NGÀY PHÉP CHUYỂN SANG NĂM MỚI
+-- ==========================================
+-- Job chuyển năm (app.annual-leave.rollover-cron) reset SoNgayPhepDaSuDung = 0
+-- và chuyển tối đa app.annual-leave.carry-over-max-days ngày chưa dùng sang năm mới
+ALTER TABLE BacSi
+ADD COLUMN SoNgayPhepChuyenSang INT NOT NULL DEFAULT 0 COMMENT 'Số ngày phép năm trước chuyển sang' AFTER NamApDung;
+
+-- ==========================================
+-- STEP 4: NHẮC LỊCH 1 GIỜ TRƯỚC GIỜ KHÁM
+-- ==========================================
+-- Job nhắc 1h (app.reminder.1h-interval-ms) quét cửa sổ (NgayKham, GioKham) vài phút / lần
+ALTER TABLE DatLichKham
+ADD COLUMN DaNhacNho1h BIT NOT NULL DEFAULT 0 COMMENT 'Đã gửi nhắc 1 giờ trước giờ khám' AFTER NgayNhacNho,
+ADD COLUMN NgayNhacNho1h DATETIME AFTER DaNhacNho1h;
+
+CREATE INDEX idx_nhac_lich_1h ON DatLichKham (NgayKham, GioKham, TrangThai);
+
+-- ==========================================
+-- STEP 5: LƯU TRỮ THÔNG BÁO CŨ
+-- ==========================================
+-- Job dọn thông báo (app.notification-retention.*) chép sang đây trước khi xóa khi archive=true.
+-- Không khóa ngoại: dòng lưu trữ không chặn xóa người dùng / lịch khám
+CREATE TABLE ThongBaoLuuTru (
+    ThongBaoID INT PRIMARY KEY COMMENT 'Giữ nguyên ID gốc',
+    NguoiNhanID INT NOT NULL,
+    LoaiThongBao VARCHAR(50) NOT NULL,
+    TieuDe VARCHAR(200) NOT NULL,
+    NoiDung TEXT NOT NULL,
+    ThoiGian DATETIME NOT NULL,
+    NgayDoc DATETIME,
+    DatLichID INT,
+    LinkDinhKem VARCHAR(500),
+    DaGuiEmail BIT NOT NULL DEFAULT 0,
+    NgayGuiEmail DATETIME,
+    MetaData TEXT,
+    CreatedAt DATETIME,
+    IsDeleted BIT DEFAULT 0,
+    NgayLuuTru DATETIME NOT NULL,
+
+    INDEX idx_luutru_nguoinhan_thoigian (NguoiNhanID, ThoiGian)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Archived notifications (moved by retention job)';
+
+-- ==========================================
+-- STEP 6: GỬI LẠI EMAIL THÔNG BÁO (BACKOFF) + DEAD-LETTER
+-- ==========================================
+-- Email lỗi được gửi lại sau EmailGuiLaiLuc (backoff lũy thừa + jitter, app.email.retry.*),
+-- quá max-attempts hoặc lỗi vĩnh viễn → chép sang ThongBaoEmailLoi
+ALTER TABLE ThongBao
+ADD COLUMN SoLanGuiEmailLoi INT NOT NULL DEFAULT 0 COMMENT 'Số lần gửi email thất bại' AFTER NgayGuiEmail,
+ADD COLUMN EmailGuiLaiLuc DATETIME COMMENT 'Thời điểm sớm nhất được gửi lại email' AFTER SoLanGuiEmailLoi,
+ADD COLUMN LoiEmailCuoi VARCHAR(500) AFTER EmailGuiLaiLuc;
+
+CREATE INDEX idx_email_cho_gui ON ThongBao (DaGuiEmail, CreatedAt);
+-- Email đã hẹn gửi lại: quét theo EmailGuiLaiLuc, không giới hạn tuổi thông báo
+CREATE INDEX idx_email_gui_lai ON ThongBao (DaGuiEmail, EmailGuiLaiLuc);
+
+CREATE TABLE ThongBaoEmailLoi (
+    EmailLoiID BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ThongBaoID INT NOT NULL,
+    NguoiNhanID INT NOT NULL,
+    Email VARCHAR(100) NOT NULL,
+    LoaiThongBao VARCHAR(50) NOT NULL,
+    TieuDe VARCHAR(200) NOT NULL,
+    SoLanThu INT NOT NULL,
+    LoiCuoi VARCHAR(500),
+    NgayTao DATETIME NOT NULL,
+
+    INDEX idx_emailloi_thongbao (ThongBaoID),
+    INDEX idx_emailloi_ngaytao (NgayTao)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Dead-letter: notification emails that failed permanently';
@@ -0,0 +1,12 @@
+package org.example.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật @Scheduled cho các job nền (đối soát thống kê, nhắc lịch...)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
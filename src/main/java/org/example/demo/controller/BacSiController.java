@@ -12,10 +12,16 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.example.demo.dto.request.BacSiRequest;
 import org.example.demo.dto.request.CreateDoctorAccountRequest;
+import org.example.demo.dto.request.DoctorFacetFilterRequest;
+import org.example.demo.dto.response.AutocompleteSuggestionResponse;
 import org.example.demo.dto.response.BacSiDetailResponse;
 import org.example.demo.dto.response.BacSiResponse;
+import org.example.demo.dto.response.DoctorFacetSearchResponse;
 import org.example.demo.dto.response.ErrorResponse;
 import org.example.demo.dto.response.MessageResponse;
+import org.example.demo.enums.KhoangGiaKham;
+import org.example.demo.enums.KhoangKinhNghiem;
+import org.example.demo.service.AutocompleteService;
 import org.example.demo.service.BacSiService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -38,6 +44,8 @@ import java.util.List;
  * - GET    /api/doctors/{id}         (Public) - Lấy chi tiết
  * - GET    /api/doctors/specialty/{chuyenKhoaId}  (Public) - Lấy theo chuyên khoa
  * - GET    /api/doctors/search       (Public) - Tìm kiếm
+ * - GET    /api/doctors/autocomplete (Public) - Gợi ý theo tiền tố (bác sĩ, chuyên khoa, trình độ)
+ * - GET    /api/doctors/facets       (Public) - Lọc theo facet kèm số lượng
  * - GET    /api/doctors/top-experienced (Public) - Lấy top bác sĩ kinh nghiệm
  * - PUT    /api/doctors/{id}         (Admin) - Cập nhật
  * - DELETE /api/doctors/{id}         (Admin) - Xóa (soft delete cascade)
@@ -51,6 +59,7 @@ import java.util.List;
 public class BacSiController {
     
     private final BacSiService bacSiService;
+    private final AutocompleteService autocompleteService;
     
     // ==================== CREATE ====================
     
@@ -226,7 +235,8 @@ public class BacSiController {
     @GetMapping("/search")
     @Operation(
         summary = "Tìm kiếm bác sĩ (Public)",
-        description = "Tìm kiếm bác sĩ theo tên hoặc tên chuyên khoa"
+        description = "Tìm kiếm bác sĩ theo tên hoặc tên chuyên khoa (không phân biệt dấu, VD: \"nguyen\" khớp \"Nguyễn\"). " +
+                      "Kết quả được xếp hạng theo độ khớp, hoặc theo sortBy nếu truyền (field không hỗ trợ → 400)."
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -242,14 +252,96 @@ public class BacSiController {
             @RequestParam(defaultValue = "0") int page,
             
             @Parameter(description = "Số lượng bản ghi mỗi trang")
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            
+            @Parameter(description = "Sắp xếp theo field: relevance, hoTen, tenChuyenKhoa, soNamKinhNghiem, giaKham, " +
+                                     "danhGiaTrungBinh (bỏ trống: theo độ khớp)")
+            @RequestParam(required = false) String sortBy,
+            
+            @Parameter(description = "Hướng sắp xếp (asc/desc)")
+            @RequestParam(defaultValue = "asc") String direction
     ) {
-        Pageable pageable = PageRequest.of(page, size);
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("desc")
+                ? Sort.Direction.DESC
+                : Sort.Direction.ASC;
+        
+        Pageable pageable = sortBy == null || sortBy.isBlank()
+                ? PageRequest.of(page, size)
+                : PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
         Page<BacSiResponse> doctors = bacSiService.search(keyword, pageable);
         
         return ResponseEntity.ok(doctors);
     }
     
+    @GetMapping("/autocomplete")
+    @Operation(
+        summary = "Gợi ý tìm kiếm theo tiền tố (Public)",
+        description = "Trả về tối đa `limit` gợi ý (bác sĩ, chuyên khoa, trình độ) khớp tiền tố đã gõ. " +
+                      "Không phân biệt dấu; phục vụ từ bộ nhớ nên có thể gọi ở mỗi lần gõ phím."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Lấy gợi ý thành công"
+        )
+    })
+    public ResponseEntity<List<AutocompleteSuggestionResponse>> autocomplete(
+            @Parameter(description = "Tiền tố đang gõ (VD: \"nguy\", \"tim\")")
+            @RequestParam String q,
+            
+            @Parameter(description = "Số gợi ý tối đa (mặc định 10, tối đa 20)")
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.ok(autocompleteService.suggest(q, limit));
+    }
+    
+    @GetMapping("/facets")
+    @Operation(
+        summary = "Lọc bác sĩ theo facet kèm số lượng (Public)",
+        description = "Lọc bác sĩ đang nhận khám theo chuyên khoa, trình độ, khoảng giá, khoảng kinh nghiệm " +
+                      "và còn lịch trống trong 7 ngày tới. Cùng facet: OR, khác facet: AND. " +
+                      "Mỗi giá trị facet kèm số bác sĩ nếu chọn thêm giá trị đó."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Lọc thành công",
+            content = @Content(schema = @Schema(implementation = DoctorFacetSearchResponse.class))
+        )
+    })
+    public ResponseEntity<DoctorFacetSearchResponse> facetSearchDoctors(
+            @Parameter(description = "Danh sách ID chuyên khoa")
+            @RequestParam(required = false) List<Integer> chuyenKhoaIDs,
+            
+            @Parameter(description = "Danh sách ID trình độ")
+            @RequestParam(required = false) List<Integer> trinhDoIDs,
+            
+            @Parameter(description = "Danh sách khoảng giá khám")
+            @RequestParam(required = false) List<KhoangGiaKham> khoangGia,
+            
+            @Parameter(description = "Danh sách khoảng kinh nghiệm")
+            @RequestParam(required = false) List<KhoangKinhNghiem> kinhNghiem,
+            
+            @Parameter(description = "Chỉ lấy bác sĩ còn slot trống trong 7 ngày tới")
+            @RequestParam(required = false) Boolean coLichTuanNay,
+            
+            @Parameter(description = "Số trang (bắt đầu từ 0)")
+            @RequestParam(defaultValue = "0") int page,
+            
+            @Parameter(description = "Số lượng bản ghi mỗi trang")
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        DoctorFacetFilterRequest filter = DoctorFacetFilterRequest.builder()
+                .chuyenKhoaIDs(chuyenKhoaIDs)
+                .trinhDoIDs(trinhDoIDs)
+                .khoangGia(khoangGia)
+                .kinhNghiem(kinhNghiem)
+                .coLichTuanNay(coLichTuanNay)
+                .build();
+        
+        return ResponseEntity.ok(bacSiService.facetSearch(filter, PageRequest.of(page, size)));
+    }
+    
     @GetMapping("/top-experienced")
     @Operation(
         summary = "Lấy top bác sĩ có kinh nghiệm cao (Public)",
@@ -16,6 +16,8 @@ import org.example.demo.dto.request.SearchNgayNghiRequest;
 import org.example.demo.dto.request.UpdateNgayNghiRequest;
 import org.example.demo.dto.response.*;
 import org.example.demo.service.BacSiNgayNghiService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -136,20 +138,36 @@ public class BacSiNgayNghiController {
     
     @Operation(
         summary = "Admin: Lấy yêu cầu chờ duyệt",
-        description = "Lấy danh sách yêu cầu nghỉ chờ duyệt, sắp xếp theo thời gian tạo (cũ nhất trước). Chỉ Admin có quyền."
+        description = "Lấy hàng đợi yêu cầu nghỉ chờ duyệt có phân trang, mặc định theo thời gian tạo (cũ nhất trước). Mỗi yêu cầu kèm số lịch khám sẽ bị hủy nếu duyệt. Chỉ Admin có quyền."
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
             description = "Lấy danh sách thành công",
             content = @Content(schema = @Schema(implementation = NgayNghiPendingResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "sortBy không được hỗ trợ",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class))
         )
     })
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasAuthority('Admin')")
     @GetMapping("/pending")
-    public ResponseEntity<List<NgayNghiPendingResponse>> getPending() {
-        List<NgayNghiPendingResponse> responses = bacSiNgayNghiService.getPendingRequests();
+    public ResponseEntity<Page<NgayNghiPendingResponse>> getPending(
+            @Parameter(description = "Số trang (bắt đầu từ 0)")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Số lượng bản ghi mỗi trang (tối đa 100)")
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Sắp xếp theo field: createdAt, ngayNghiCuThe, loaiNghiPhep")
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "Hướng sắp xếp (asc/desc)")
+            @RequestParam(defaultValue = "asc") String direction) {
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("desc")
+                ? Sort.Direction.DESC
+                : Sort.Direction.ASC;
+        Page<NgayNghiPendingResponse> responses = bacSiNgayNghiService.getPendingRequests(page, size, sortBy, sortDirection);
         return ResponseEntity.ok(responses);
     }
     
@@ -176,21 +194,26 @@ public class BacSiNgayNghiController {
     
     @Operation(
         summary = "Tìm kiếm/filter yêu cầu nghỉ",
-        description = "Tìm kiếm yêu cầu nghỉ với nhiều tiêu chí. Chỉ Admin có quyền."
+        description = "Tìm kiếm yêu cầu nghỉ với nhiều tiêu chí, có phân trang (page, size) và sắp xếp (sortBy, sortDirection). Chỉ Admin có quyền."
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
             description = "Tìm kiếm thành công",
             content = @Content(schema = @Schema(implementation = NgayNghiResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Tiêu chí không hợp lệ hoặc sortBy không được hỗ trợ",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class))
         )
     })
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasAuthority('Admin')")
     @PostMapping("/search")
-    public ResponseEntity<List<NgayNghiResponse>> search(
+    public ResponseEntity<Page<NgayNghiResponse>> search(
             @Valid @RequestBody SearchNgayNghiRequest request) {
-        List<NgayNghiResponse> responses = bacSiNgayNghiService.search(request);
+        Page<NgayNghiResponse> responses = bacSiNgayNghiService.search(request);
         return ResponseEntity.ok(responses);
     }
     
@@ -253,13 +276,14 @@ public class BacSiNgayNghiController {
     
     @Operation(
         summary = "Admin: Duyệt/từ chối yêu cầu nghỉ (Batch)",
-        description = "Admin duyệt hoặc từ chối nhiều yêu cầu nghỉ cùng lúc. Chỉ Admin có quyền."
+        description = "Admin duyệt hoặc từ chối nhiều yêu cầu nghỉ cùng lúc. Khi duyệt, các lịch khám trùng ca nghỉ bị hủy, " +
+                      "lịch đã thanh toán được đánh dấu hoàn tiền và bệnh nhân nhận thông báo. dryRun = true để xem trước tác động. Chỉ Admin có quyền."
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
             description = "Xử lý yêu cầu thành công",
-            content = @Content(schema = @Schema(implementation = NgayNghiResponse.class))
+            content = @Content(schema = @Schema(implementation = NgayNghiApprovalResponse.class))
         ),
         @ApiResponse(
             responseCode = "400",
@@ -275,9 +299,9 @@ public class BacSiNgayNghiController {
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasAuthority('Admin')")
     @PatchMapping("/approve")
-    public ResponseEntity<List<NgayNghiResponse>> approve(
+    public ResponseEntity<NgayNghiApprovalResponse> approve(
             @Valid @RequestBody ApproveNgayNghiRequest request) {
-        List<NgayNghiResponse> responses = bacSiNgayNghiService.approve(request);
+        NgayNghiApprovalResponse responses = bacSiNgayNghiService.approve(request);
         return ResponseEntity.ok(responses);
     }
     
@@ -16,22 +16,35 @@ import org.example.demo.dto.response.AvailableSlotsResponse;
 import org.example.demo.dto.response.BookingStatisticsResponse;
 import org.example.demo.dto.response.SpecialtyRevenueResponse;
 import org.example.demo.dto.response.DoctorRevenueResponse;
+import org.example.demo.dto.response.DoctorRankingResponse;
+import org.example.demo.dto.response.SpecialtyRankingResponse;
+import org.example.demo.dto.response.DoctorUtilizationResponse;
+import org.example.demo.dto.response.RevenueTimeSeriesResponse;
 import org.example.demo.security.CustomUserDetails;
 import org.example.demo.service.BookingService;
+import org.example.demo.service.BookingStatisticsCache;
+import org.example.demo.service.UtilizationReportExporter;
 import org.example.demo.enums.TrangThaiDatLich;
 import org.example.demo.enums.PhuongThucThanhToan;
+import org.example.demo.enums.KyThongKe;
+import org.example.demo.enums.NhomThongKe;
+import org.example.demo.enums.TieuChiXepHang;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -60,6 +73,12 @@ public class BookingController {
     @Autowired
     private BookingService bookingService;
 
+    @Autowired
+    private BookingStatisticsCache bookingStatisticsCache;
+
+    @Autowired
+    private UtilizationReportExporter utilizationReportExporter;
+
     // ========================================
     // PATIENT ENDPOINTS
     // ========================================
@@ -71,10 +90,11 @@ public class BookingController {
     @PreAuthorize("hasAuthority('Admin')")
     @Operation(
         summary = "Thống kê booking",
-        description = "Thống kê tổng quan: số lượng theo trạng thái, theo ngày/tuần/tháng, doanh thu, đánh giá, hoàn tiền"
+        description = "Thống kê tổng quan: số lượng theo trạng thái, theo ngày/tuần/tháng, doanh thu, đánh giá, hoàn tiền. "
+            + "Kết quả được cache, có thể trễ tối đa app.stats-cache.fresh-seconds"
     )
     public ResponseEntity<ApiResponseDTO<BookingStatisticsResponse>> getStatistics() {
-        BookingStatisticsResponse response = bookingService.getBookingStatistics();
+        BookingStatisticsResponse response = bookingStatisticsCache.getBookingStatistics();
         return ResponseEntity.ok(ApiResponseDTO.success(response, "Lấy thống kê booking thành công"));
     }
 
@@ -88,7 +108,7 @@ public class BookingController {
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate
     ) {
-        List<SpecialtyRevenueResponse> data = bookingService.getRevenueBySpecialty(fromDate, toDate);
+        List<SpecialtyRevenueResponse> data = bookingStatisticsCache.getRevenueBySpecialty(fromDate, toDate);
         return ResponseEntity.ok(ApiResponseDTO.success(data, "Lấy doanh thu theo chuyên khoa thành công"));
     }
 
@@ -102,10 +122,30 @@ public class BookingController {
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate
     ) {
-        List<DoctorRevenueResponse> data = bookingService.getRevenueByDoctor(fromDate, toDate);
+        List<DoctorRevenueResponse> data = bookingStatisticsCache.getRevenueByDoctor(fromDate, toDate);
         return ResponseEntity.ok(ApiResponseDTO.success(data, "Lấy doanh thu theo bác sĩ thành công"));
     }
 
+    /**
+     * Chuỗi doanh thu theo ngày/tuần/tháng (biểu đồ xu hướng)
+     */
+    @GetMapping("/statistics/revenue/time-series")
+    @PreAuthorize("hasAuthority('Admin')")
+    @Operation(
+        summary = "Chuỗi doanh thu theo thời gian",
+        description = "Doanh thu, số lịch, số ca hoàn thành, hoàn tiền theo từng kỳ (NGAY/TUAN/THANG). "
+            + "nhom = BAC_SI/CHUYEN_KHOA để tách chuỗi. Mặc định: 30 ngày / 12 tuần / 12 tháng gần nhất"
+    )
+    public ResponseEntity<ApiResponseDTO<RevenueTimeSeriesResponse>> revenueTimeSeries(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+        @Parameter(description = "Độ chia: NGAY, TUAN, THANG") @RequestParam(defaultValue = "NGAY") KyThongKe ky,
+        @Parameter(description = "Nhóm: TONG, BAC_SI, CHUYEN_KHOA") @RequestParam(defaultValue = "TONG") NhomThongKe nhom
+    ) {
+        RevenueTimeSeriesResponse data = bookingStatisticsCache.getRevenueTimeSeries(fromDate, toDate, ky, nhom);
+        return ResponseEntity.ok(ApiResponseDTO.success(data, "Lấy chuỗi doanh thu thành công"));
+    }
+
     /**
      * Top bác sĩ doanh thu cao nhất
      */
@@ -117,7 +157,7 @@ public class BookingController {
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
         @RequestParam(defaultValue = "10") int size
     ) {
-        List<DoctorRevenueResponse> data = bookingService.getTopDoctorRevenue(fromDate, toDate, size);
+        List<DoctorRevenueResponse> data = bookingStatisticsCache.getTopDoctorRevenue(fromDate, toDate, size);
         return ResponseEntity.ok(ApiResponseDTO.success(data, "Lấy top doanh thu bác sĩ thành công"));
     }
 
@@ -132,10 +172,87 @@ public class BookingController {
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
         @RequestParam(defaultValue = "10") int size
     ) {
-        List<DoctorRevenueResponse> data = bookingService.getTopDoctorCompleted(fromDate, toDate, size);
+        List<DoctorRevenueResponse> data = bookingStatisticsCache.getTopDoctorCompleted(fromDate, toDate, size);
         return ResponseEntity.ok(ApiResponseDTO.success(data, "Lấy top bác sĩ theo số ca hoàn thành thành công"));
     }
 
+    /**
+     * Xếp hạng top-K bác sĩ theo tiêu chí (toàn hệ thống hoặc 1 chuyên khoa)
+     */
+    @GetMapping("/statistics/rankings")
+    @PreAuthorize("hasAuthority('Admin')")
+    @Operation(
+        summary = "Xếp hạng bác sĩ",
+        description = "Top-K theo DOANH_THU, SO_CA_HOAN_THANH, DANH_GIA (toàn thời gian) hoặc TY_LE_HUY. "
+            + "Tính từ bảng tổng hợp, K tối đa 200"
+    )
+    public ResponseEntity<ApiResponseDTO<List<DoctorRankingResponse>>> doctorRanking(
+        @RequestParam TieuChiXepHang tieuChi,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+        @RequestParam(defaultValue = "10") int k,
+        @Parameter(description = "Chỉ xếp hạng trong 1 chuyên khoa") @RequestParam(required = false) Integer chuyenKhoaID
+    ) {
+        List<DoctorRankingResponse> data = bookingStatisticsCache.getRanking(tieuChi, fromDate, toDate, k, chuyenKhoaID);
+        return ResponseEntity.ok(ApiResponseDTO.success(data, "Lấy xếp hạng bác sĩ thành công"));
+    }
+
+    /**
+     * Xếp hạng top-K bác sĩ của từng chuyên khoa
+     */
+    @GetMapping("/statistics/rankings/specialties")
+    @PreAuthorize("hasAuthority('Admin')")
+    @Operation(summary = "Xếp hạng bác sĩ theo từng chuyên khoa")
+    public ResponseEntity<ApiResponseDTO<List<SpecialtyRankingResponse>>> doctorRankingBySpecialty(
+        @RequestParam TieuChiXepHang tieuChi,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+        @RequestParam(defaultValue = "5") int k
+    ) {
+        List<SpecialtyRankingResponse> data = bookingStatisticsCache.getRankingBySpecialty(tieuChi, fromDate, toDate, k);
+        return ResponseEntity.ok(ApiResponseDTO.success(data, "Lấy xếp hạng theo chuyên khoa thành công"));
+    }
+
+    /**
+     * Báo cáo công suất bác sĩ (tỷ lệ slot được đặt / hoàn thành / hủy / không đến)
+     */
+    @GetMapping("/statistics/utilization")
+    @PreAuthorize("hasAuthority('Admin')")
+    @Operation(
+        summary = "Báo cáo công suất bác sĩ",
+        description = "Mỗi bác sĩ × mỗi kỳ: số slot (lịch mặc định trừ nghỉ phép), số lịch đặt/hoàn thành/hủy/không đến và tỷ lệ %. "
+            + "Mặc định 4 tuần gần nhất"
+    )
+    public ResponseEntity<ApiResponseDTO<DoctorUtilizationResponse>> utilizationReport(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+        @Parameter(description = "Độ chia: NGAY, TUAN, THANG") @RequestParam(defaultValue = "TUAN") KyThongKe ky,
+        @RequestParam(required = false) Integer chuyenKhoaID
+    ) {
+        DoctorUtilizationResponse data = bookingStatisticsCache.getUtilizationReport(fromDate, toDate, ky, chuyenKhoaID);
+        return ResponseEntity.ok(ApiResponseDTO.success(data, "Lấy báo cáo công suất thành công"));
+    }
+
+    /**
+     * Xuất báo cáo công suất bác sĩ ra CSV
+     */
+    @GetMapping("/statistics/utilization/export")
+    @PreAuthorize("hasAuthority('Admin')")
+    @Operation(summary = "Xuất báo cáo công suất bác sĩ (CSV)")
+    public ResponseEntity<StreamingResponseBody> exportUtilizationReport(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+        @RequestParam(defaultValue = "TUAN") KyThongKe ky,
+        @RequestParam(required = false) Integer chuyenKhoaID
+    ) {
+        DoctorUtilizationResponse data = bookingStatisticsCache.getUtilizationReport(fromDate, toDate, ky, chuyenKhoaID);
+        String fileName = String.format("cong-suat-bac-si_%s_%s.csv", data.getFromDate(), data.getToDate());
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+            .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+            .body(out -> utilizationReportExporter.writeCsv(data, out));
+    }
+
     /**
      * Tìm slot trống theo bác sĩ / ngày / ca
      */
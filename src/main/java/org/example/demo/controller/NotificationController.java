@@ -0,0 +1,99 @@
+package org.example.demo.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.example.demo.dto.response.ApiResponseDTO;
+import org.example.demo.dto.response.EmailDeliveryStatsResponse;
+import org.example.demo.dto.response.NotificationStreamStatsResponse;
+import org.example.demo.security.CustomUserDetails;
+import org.example.demo.service.EmailDeliveryService;
+import org.example.demo.service.NotificationService;
+import org.example.demo.service.NotificationStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * NotificationController - Stream thông báo in-app (SSE) + badge chưa đọc + số liệu gửi email
+ *
+ * Client mở 1 kết nối /api/notifications/stream thay cho polling số thông báo chưa đọc;
+ * khi kết nối lại, gửi header Last-Event-ID (hoặc ?lastEventId=) để nhận phần bị lỡ.
+ */
+@RestController
+@RequestMapping("/api/notifications")
+@Tag(name = "Notification", description = "APIs thông báo in-app")
+@SecurityRequirement(name = "bearerAuth")
+public class NotificationController {
+
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private EmailDeliveryService emailDeliveryService;
+
+    /**
+     * Số thông báo chưa đọc của người dùng hiện tại (badge), trả từ bộ đếm trong bộ nhớ
+     */
+    @GetMapping("/unread-count")
+    @Operation(summary = "Số thông báo chưa đọc", description = "Dùng cho badge; không COUNT DB mỗi lần tải trang")
+    public ResponseEntity<ApiResponseDTO<Long>> unreadCount(
+        @AuthenticationPrincipal CustomUserDetails userDetails
+    ) {
+        return ResponseEntity.ok(ApiResponseDTO.success(
+            notificationService.countUnread(userDetails.getNguoiDungID()), "Lấy số thông báo chưa đọc thành công"));
+    }
+
+    /**
+     * Stream thông báo của người dùng hiện tại
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Stream thông báo (SSE)",
+        description = "Sự kiện 'notification' (id = ThongBaoID) cho mỗi thông báo mới; comment 'ping' định kỳ. "
+            + "Sự kiện 'resync' nghĩa là bị lỡ quá nhiều, client nên tải lại danh sách"
+    )
+    public SseEmitter stream(
+        @AuthenticationPrincipal CustomUserDetails userDetails,
+        @Parameter(description = "ID sự kiện cuối đã nhận (EventSource tự gửi khi kết nối lại)")
+        @RequestHeader(value = "Last-Event-ID", required = false) Integer lastEventIdHeader,
+        @Parameter(description = "Như Last-Event-ID, cho client không gửi được header")
+        @RequestParam(required = false) Integer lastEventId
+    ) {
+        Integer resumeFrom = lastEventIdHeader != null ? lastEventIdHeader : lastEventId;
+        return notificationStreamService.subscribe(userDetails.getNguoiDungID(), resumeFrom);
+    }
+
+    /**
+     * Số liệu kết nối SSE (Admin)
+     */
+    @GetMapping("/stream/stats")
+    @PreAuthorize("hasAuthority('Admin')")
+    @Operation(summary = "Số liệu SSE thông báo", description = "Số người dùng / kết nối đang mở, số sự kiện đã gửi")
+    public ResponseEntity<ApiResponseDTO<NotificationStreamStatsResponse>> streamStats() {
+        return ResponseEntity.ok(ApiResponseDTO.success(
+            notificationStreamService.getStats(), "Lấy số liệu stream thông báo thành công"));
+    }
+
+    /**
+     * Số liệu hàng đợi / gửi lại email thông báo (Admin)
+     */
+    @GetMapping("/email/stats")
+    @PreAuthorize("hasAuthority('Admin')")
+    @Operation(
+        summary = "Số liệu gửi email thông báo",
+        description = "Độ sâu hàng đợi, số lần lỗi / gửi lại, dead-letter; lỗi và gửi lại tăng nhanh → nhà cung cấp email đang gặp sự cố"
+    )
+    public ResponseEntity<ApiResponseDTO<EmailDeliveryStatsResponse>> emailStats() {
+        return ResponseEntity.ok(ApiResponseDTO.success(
+            emailDeliveryService.getStats(), "Lấy số liệu gửi email thành công"));
+    }
+}
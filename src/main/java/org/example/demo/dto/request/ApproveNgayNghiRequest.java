@@ -80,6 +80,16 @@ public class ApproveNgayNghiRequest {
     )
     private String ghiChu;
     
+    /**
+     * Chế độ xem trước (optional, default false)
+     * true: chỉ trả về các lịch khám sẽ bị hủy, không lưu thay đổi
+     */
+    @Schema(
+        description = "Xem trước tác động (không lưu thay đổi)",
+        example = "false"
+    )
+    private Boolean dryRun;
+    
     /**
      * Enum cho approval action
      */
@@ -145,6 +155,13 @@ public class ApproveNgayNghiRequest {
         return action == ApprovalAction.APPROVE;
     }
     
+    /**
+     * Helper method: Check xem có phải chế độ xem trước không
+     */
+    public boolean isDryRun() {
+        return Boolean.TRUE.equals(dryRun);
+    }
+    
     /**
      * Helper method: Check xem có phải reject không
      */
@@ -0,0 +1,42 @@
+package org.example.demo.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.demo.enums.KhoangGiaKham;
+import org.example.demo.enums.KhoangKinhNghiem;
+
+import java.util.List;
+
+/**
+ * DTO Request lọc bác sĩ theo facet
+ *
+ * Quy tắc kết hợp:
+ * - Trong cùng 1 facet: OR (VD: chuyên khoa Tim mạch HOẶC Nhi)
+ * - Giữa các facet: AND (VD: Tim mạch VÀ giá 200k-500k)
+ * - Facet rỗng/null = không lọc theo facet đó
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Bộ lọc facet bác sĩ")
+public class DoctorFacetFilterRequest {
+
+    @Schema(description = "Danh sách ID chuyên khoa", example = "[1, 3]")
+    private List<Integer> chuyenKhoaIDs;
+
+    @Schema(description = "Danh sách ID trình độ", example = "[2]")
+    private List<Integer> trinhDoIDs;
+
+    @Schema(description = "Danh sách khoảng giá khám", example = "[\"TU_200K_DEN_500K\"]")
+    private List<KhoangGiaKham> khoangGia;
+
+    @Schema(description = "Danh sách khoảng kinh nghiệm", example = "[\"TU_10_DEN_20_NAM\"]")
+    private List<KhoangKinhNghiem> kinhNghiem;
+
+    @Schema(description = "Chỉ lấy bác sĩ còn slot trống trong 7 ngày tới", example = "true")
+    private Boolean coLichTuanNay;
+}
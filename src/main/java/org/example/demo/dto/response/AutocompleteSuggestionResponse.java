@@ -0,0 +1,30 @@
+package org.example.demo.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO gợi ý cho ô tìm kiếm (typeahead)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Gợi ý tìm kiếm (bác sĩ / chuyên khoa / trình độ)")
+public class AutocompleteSuggestionResponse {
+
+    @Schema(description = "Loại gợi ý: DOCTOR, SPECIALTY, DEGREE", example = "DOCTOR")
+    private String loai;
+
+    @Schema(description = "ID của bác sĩ / chuyên khoa / trình độ", example = "12")
+    private Integer id;
+
+    @Schema(description = "Tên hiển thị", example = "Nguyễn Văn An")
+    private String ten;
+
+    @Schema(description = "Thông tin phụ (VD: chuyên khoa của bác sĩ)", example = "Tim mạch")
+    private String moTa;
+}
@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * DTO cho response bác sĩ (thông tin chi tiết đầy đủ)
  * Dùng cho trang chi tiết bác sĩ
@@ -32,6 +34,6 @@ public class BacSiDetailResponse extends BacSiResponse {
     // Thống kê (có thể thêm sau)
     private Integer tongLichKham; // Tổng số lịch đã khám
     private Integer lichDaHoanThanh; // Số lịch hoàn thành
-    private Double danhGiaTrungBinh; // Rating trung bình (có thể thêm sau)
+    private List<Long> phanBoDanhGia; // Số đánh giá 1 → 5 sao (5 phần tử)
 }
 
@@ -44,4 +44,8 @@ public class BacSiResponse {
     // Metadata
     private Integer soBenhNhanToiDaMotNgay;
     private Integer thoiGianKhamMotCa;
+    
+    // Đánh giá (từ ThongKeDanhGiaBacSi)
+    private Double danhGiaTrungBinh; // null nếu chưa có đánh giá
+    private Long soDanhGia;
 }
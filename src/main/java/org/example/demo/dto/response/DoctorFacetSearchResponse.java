@@ -0,0 +1,77 @@
+package org.example.demo.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO Response lọc bác sĩ theo facet
+ *
+ * Số lượng của mỗi giá trị facet được tính với TẤT CẢ bộ lọc
+ * của các facet KHÁC (không tính bộ lọc của chính facet đó),
+ * để UI hiển thị được "nếu chọn thêm giá trị này sẽ có bao nhiêu bác sĩ"
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Kết quả lọc bác sĩ theo facet kèm số lượng")
+public class DoctorFacetSearchResponse {
+
+    @Schema(description = "Danh sách bác sĩ của trang hiện tại")
+    private List<BacSiResponse> content;
+
+    @Schema(description = "Tổng số bác sĩ khớp bộ lọc", example = "42")
+    private Long totalElements;
+
+    @Schema(description = "Trang hiện tại (bắt đầu từ 0)", example = "0")
+    private Integer page;
+
+    @Schema(description = "Số bản ghi mỗi trang", example = "10")
+    private Integer size;
+
+    @Schema(description = "Tổng số trang", example = "5")
+    private Integer totalPages;
+
+    @Schema(description = "Facet chuyên khoa")
+    private List<FacetValue> chuyenKhoa;
+
+    @Schema(description = "Facet trình độ")
+    private List<FacetValue> trinhDo;
+
+    @Schema(description = "Facet khoảng giá khám")
+    private List<FacetValue> khoangGia;
+
+    @Schema(description = "Facet khoảng kinh nghiệm")
+    private List<FacetValue> kinhNghiem;
+
+    @Schema(description = "Facet còn lịch trống trong 7 ngày tới")
+    private FacetValue coLichTuanNay;
+
+    /**
+     * Nested DTO: 1 giá trị facet + số bác sĩ
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @Schema(description = "Giá trị facet")
+    public static class FacetValue {
+
+        @Schema(description = "Giá trị dùng để lọc (ID hoặc tên enum)", example = "3")
+        private String key;
+
+        @Schema(description = "Nhãn hiển thị", example = "Tim mạch")
+        private String label;
+
+        @Schema(description = "Số bác sĩ", example = "12")
+        private Long count;
+
+        @Schema(description = "Đang được chọn trong bộ lọc", example = "false")
+        private Boolean selected;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.demo.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "1 dòng xếp hạng bác sĩ")
+public class DoctorRankingResponse {
+
+    @Schema(description = "Thứ hạng (bắt đầu từ 1)", example = "1")
+    private Integer hang;
+
+    @Schema(description = "ID bác sĩ")
+    private Integer bacSiID;
+
+    @Schema(description = "Tên bác sĩ")
+    private String tenBacSi;
+
+    @Schema(description = "ID chuyên khoa")
+    private Integer chuyenKhoaID;
+
+    @Schema(description = "Tên chuyên khoa")
+    private String tenChuyenKhoa;
+
+    @Schema(description = "Giá trị của tiêu chí xếp hạng")
+    private BigDecimal giaTri;
+
+    @Schema(description = "Doanh thu (lịch hoàn thành đã thanh toán)")
+    private BigDecimal doanhThu;
+
+    @Schema(description = "Số ca hoàn thành")
+    private Long soCaHoanThanh;
+
+    @Schema(description = "Tổng số lịch")
+    private Long soLich;
+
+    @Schema(description = "Số lịch bị hủy")
+    private Long soLichHuy;
+
+    @Schema(description = "Điểm đánh giá trung bình (toàn thời gian)")
+    private Double danhGiaTrungBinh;
+
+    @Schema(description = "Số lượt đánh giá (toàn thời gian)")
+    private Long soDanhGia;
+}
@@ -0,0 +1,93 @@
+package org.example.demo.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.demo.enums.KyThongKe;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO Response báo cáo công suất bác sĩ
+ *
+ * - soSlot: số slot theo lịch làm việc mặc định, đã trừ ca nghỉ phép được duyệt
+ * - soLichDat: lịch chiếm slot (mọi trạng thái trừ TU_CHOI và HUY_*)
+ * - Tỷ lệ (%) = số lịch / soSlot, null nếu kỳ đó không có slot
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Báo cáo công suất (tỷ lệ lấp đầy slot) của bác sĩ theo kỳ")
+public class DoctorUtilizationResponse {
+
+    @Schema(description = "Từ ngày", example = "2026-01-05")
+    private LocalDate fromDate;
+
+    @Schema(description = "Đến ngày", example = "2026-02-01")
+    private LocalDate toDate;
+
+    @Schema(description = "Độ chia thời gian", example = "TUAN")
+    private KyThongKe ky;
+
+    @Schema(description = "1 dòng / bác sĩ / kỳ")
+    private List<Row> rows;
+
+    /**
+     * Nested DTO: công suất của 1 bác sĩ trong 1 kỳ
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Row {
+
+        @Schema(description = "ID bác sĩ")
+        private Integer bacSiID;
+
+        @Schema(description = "Tên bác sĩ")
+        private String tenBacSi;
+
+        @Schema(description = "Tên chuyên khoa")
+        private String tenChuyenKhoa;
+
+        @Schema(description = "Ngày đầu kỳ")
+        private LocalDate tuNgay;
+
+        @Schema(description = "Ngày cuối kỳ")
+        private LocalDate denNgay;
+
+        @Schema(description = "Số slot khả dụng (đã trừ nghỉ phép)")
+        private Integer soSlot;
+
+        @Schema(description = "Số slot mất do nghỉ phép")
+        private Integer soSlotNghi;
+
+        @Schema(description = "Số lịch chiếm slot")
+        private Long soLichDat;
+
+        @Schema(description = "Số lịch hoàn thành")
+        private Long soHoanThanh;
+
+        @Schema(description = "Số lịch bị hủy")
+        private Long soHuy;
+
+        @Schema(description = "Số lịch bệnh nhân không đến")
+        private Long soKhongDen;
+
+        @Schema(description = "Tỷ lệ đặt (%)")
+        private Double tyLeDat;
+
+        @Schema(description = "Tỷ lệ hoàn thành (%)")
+        private Double tyLeHoanThanh;
+
+        @Schema(description = "Tỷ lệ hủy (%)")
+        private Double tyLeHuy;
+
+        @Schema(description = "Tỷ lệ không đến (%)")
+        private Double tyLeKhongDen;
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.demo.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO Response số liệu gửi email thông báo (Admin theo dõi hàng đợi / gửi lại)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Số liệu hàng đợi và gửi lại email thông báo")
+public class EmailDeliveryStatsResponse {
+
+    @Schema(description = "Số email đang nằm trong hàng đợi các worker")
+    private Integer soEmailTrongHangDoi;
+
+    @Schema(description = "Số email loại không gấp đang giữ để gộp thành email tổng hợp")
+    private Integer soEmailDangGiuDeGop;
+
+    @Schema(description = "Số thông báo đang chờ gửi / chờ đánh dấu kết quả")
+    private Integer soThongBaoDangXuLy;
+
+    @Schema(description = "Số lần gửi lỗi chưa ghi vào DB")
+    private Integer soLoiChoGhiNhan;
+
+    @Schema(description = "Số email đã gửi thành công từ khi khởi động")
+    private Long soEmailDaGui;
+
+    @Schema(description = "Số lần gửi email thất bại từ khi khởi động")
+    private Long soLanGuiLoi;
+
+    @Schema(description = "Số email đã lỗi được đưa lại vào hàng đợi (đến hạn backoff)")
+    private Long soLanGuiLai;
+
+    @Schema(description = "Số thông báo bị chuyển sang dead-letter từ khi khởi động")
+    private Long soChuyenDeadLetter;
+
+    @Schema(description = "Tổng số email trong bảng dead-letter ThongBaoEmailLoi")
+    private Long tongDeadLetter;
+}
@@ -0,0 +1,97 @@
+package org.example.demo.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.demo.enums.CaLamViec;
+import org.example.demo.enums.TrangThaiDatLich;
+import org.example.demo.enums.TrangThaiThanhToan;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * DTO cho response duyệt/từ chối yêu cầu nghỉ kèm tác động lên lịch khám
+ * 
+ * - dryRun = true: chỉ xem trước, không thay đổi dữ liệu
+ * - Khi duyệt: các lịch active trùng ca nghỉ bị hủy (HUY_BOI_BAC_SI),
+ *   lịch đã thanh toán được đánh dấu chờ hoàn tiền, bệnh nhân nhận thông báo
+ * 
+ * @author Healthcare System Team
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Kết quả duyệt/từ chối yêu cầu nghỉ và tác động lên lịch khám")
+public class NgayNghiApprovalResponse {
+    
+    @Schema(description = "Chế độ xem trước (không lưu thay đổi)", example = "false")
+    private Boolean dryRun;
+    
+    @Schema(description = "Các yêu cầu nghỉ đã xử lý (dryRun: trạng thái hiện tại)")
+    private List<NgayNghiResponse> yeuCau;
+    
+    // ===== TÁC ĐỘNG =====
+    
+    @Schema(description = "Số lịch khám bị hủy (dryRun: sẽ bị hủy)", example = "4")
+    private Integer soLichBiHuy;
+    
+    @Schema(description = "Số lịch cần hoàn tiền", example = "2")
+    private Integer soLichHoanTien;
+    
+    @Schema(description = "Tổng tiền cần hoàn", example = "600000")
+    private BigDecimal tongTienHoan;
+    
+    @Schema(description = "Số thông báo đã gửi cho bệnh nhân (dryRun: 0)", example = "4")
+    private Integer soThongBao;
+    
+    @Schema(description = "Chi tiết các lịch khám bị ảnh hưởng")
+    private List<LichBiAnhHuong> lichBiAnhHuong;
+    
+    /**
+     * Nested DTO: 1 lịch khám bị ảnh hưởng bởi ca nghỉ
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @Schema(description = "Lịch khám bị ảnh hưởng")
+    public static class LichBiAnhHuong {
+        
+        @Schema(description = "ID lịch khám", example = "120")
+        private Integer datLichID;
+        
+        @Schema(description = "ID yêu cầu nghỉ gây ảnh hưởng", example = "15")
+        private Integer nghiID;
+        
+        @Schema(description = "Mã xác nhận", example = "DL7K2M9QX")
+        private String maXacNhan;
+        
+        @Schema(description = "Tên bệnh nhân", example = "Trần Thị B")
+        private String tenBenhNhan;
+        
+        @Schema(description = "Ngày khám", example = "2025-12-25")
+        private LocalDate ngayKham;
+        
+        @Schema(description = "Ca khám", example = "SANG")
+        private CaLamViec ca;
+        
+        @Schema(description = "Giờ khám", example = "08:30")
+        private LocalTime gioKham;
+        
+        @Schema(description = "Trạng thái trước khi hủy", example = "DA_XAC_NHAN")
+        private TrangThaiDatLich trangThaiTruoc;
+        
+        @Schema(description = "Trạng thái thanh toán", example = "THANH_CONG")
+        private TrangThaiThanhToan trangThaiThanhToan;
+        
+        @Schema(description = "Số tiền hoàn (null nếu chưa thanh toán)", example = "300000")
+        private BigDecimal soTienHoan;
+    }
+}
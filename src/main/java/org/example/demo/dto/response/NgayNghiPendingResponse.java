@@ -117,6 +117,11 @@ public class NgayNghiPendingResponse {
     @Schema(description = "Mô tả priority", example = "Khẩn cấp")
     private String moTaPriority;
     
+    // ===== TÁC ĐỘNG =====
+    
+    @Schema(description = "Số lịch khám active sẽ bị hủy nếu duyệt", example = "4")
+    private Long soLichBiAnhHuong;
+    
     /**
      * Static Factory Method: Tạo từ Entity
      */
@@ -133,7 +138,8 @@ public class NgayNghiPendingResponse {
             .bacSiID(entity.getBacSi().getBacSiID())
             .loaiNghi(entity.getLoaiNghi())
             .moTaLoaiNghi(getMoTaLoaiNghi(entity.getLoaiNghi()))
-            .thoiGianNghi(buildThoiGianNghi(entity))
+            .thoiGianNghi(buildThoiGianNghi(
+                entity.getLoaiNghi(), entity.getNgayNghiCuThe(), entity.getThuTrongTuan(), entity.getCa()))
             .lyDo(entity.getLyDo())
             .loaiNghiPhep(entity.getLoaiNghiPhep())
             .moTaLoaiPhep(getMoTaLoaiPhep(entity.getLoaiNghiPhep()))
@@ -159,27 +165,74 @@ public class NgayNghiPendingResponse {
             builder.soNgayPhepNam(bacSi.getSoNgayPhepNam());
             builder.soNgayPhepDaSuDung(bacSi.getSoNgayPhepDaSuDung());
             
-            Integer conLai = (bacSi.getSoNgayPhepNam() != null && bacSi.getSoNgayPhepDaSuDung() != null)
-                ? bacSi.getSoNgayPhepNam() - bacSi.getSoNgayPhepDaSuDung()
-                : 0;
+            Integer conLai = bacSi.getSoNgayPhepConLai();
             builder.soNgayPhepConLai(conLai);
             builder.duNgayPhep(conLai > 0);
         }
         
-        // Calculate số ngày chờ xử lý
+        applyPriority(builder, entity.getCreatedAt());
+        
+        return builder.build();
+    }
+    
+    /**
+     * Static Factory Method: Tạo từ 1 dòng projection (BacSiNgayNghiRepository.findPendingQueue)
+     * 
+     * @param soLichBiAnhHuong số lịch active bị ảnh hưởng (đếm gộp cho cả trang)
+     */
+    public static NgayNghiPendingResponse fromProjection(Object[] row, long soLichBiAnhHuong) {
+        LoaiNghi loaiNghi = (LoaiNghi) row[6];
+        LoaiNghiPhep loaiNghiPhep = (LoaiNghiPhep) row[11];
+        String fileDinhKem = (String) row[12];
+        Integer soNgayPhepNam = (Integer) row[13];
+        Integer soNgayPhepDaSuDung = (Integer) row[14];
+        Integer soNgayPhepChuyenSang = (Integer) row[16];
+        Integer conLai = (soNgayPhepNam != null && soNgayPhepDaSuDung != null)
+            ? soNgayPhepNam + (soNgayPhepChuyenSang != null ? soNgayPhepChuyenSang : 0) - soNgayPhepDaSuDung
+            : 0;
+        
+        NgayNghiPendingResponseBuilder builder = NgayNghiPendingResponse.builder()
+            .nghiID((Integer) row[0])
+            .bacSiID((Integer) row[1])
+            .tenBacSi((String) row[2])
+            .avatarBacSi((String) row[3])
+            .tenChuyenKhoa((String) row[4])
+            .trinhDo((String) row[5])
+            .loaiNghi(loaiNghi)
+            .moTaLoaiNghi(getMoTaLoaiNghi(loaiNghi))
+            .thoiGianNghi(buildThoiGianNghi(
+                loaiNghi, (java.time.LocalDate) row[7], (Integer) row[8], (org.example.demo.enums.CaLamViec) row[9]))
+            .lyDo((String) row[10])
+            .loaiNghiPhep(loaiNghiPhep)
+            .moTaLoaiPhep(getMoTaLoaiPhep(loaiNghiPhep))
+            .fileDinhKem(fileDinhKem)
+            .hasAttachment(fileDinhKem != null && !fileDinhKem.isBlank())
+            .soNgayPhepNam(soNgayPhepNam)
+            .soNgayPhepDaSuDung(soNgayPhepDaSuDung)
+            .soNgayPhepConLai(conLai)
+            .duNgayPhep(conLai > 0)
+            .createdAt((LocalDateTime) row[15])
+            .soLichBiAnhHuong(soLichBiAnhHuong);
+        
+        applyPriority(builder, (LocalDateTime) row[15]);
+        
+        return builder.build();
+    }
+    
+    /**
+     * Số ngày chờ xử lý + priority (> 3 ngày = khẩn cấp)
+     */
+    private static void applyPriority(NgayNghiPendingResponseBuilder builder, LocalDateTime createdAt) {
         int soNgayCho = (int) ChronoUnit.DAYS.between(
-            entity.getCreatedAt().toLocalDate(),
+            createdAt.toLocalDate(),
             java.time.LocalDate.now()
         );
         builder.soNgayChoXuLy(soNgayCho);
         
-        // Priority
         boolean isUrgent = soNgayCho > 3;
         builder.canXuLyGap(isUrgent);
         builder.mauSacPriority(isUrgent ? "#FF5722" : "#FFC107");
         builder.moTaPriority(isUrgent ? "Khẩn cấp" : "Bình thường");
-        
-        return builder.build();
     }
     
     // ===== HELPER METHODS =====
@@ -202,28 +255,31 @@ public class NgayNghiPendingResponse {
     }
     
     private static String buildThoiGianNghi(
-        org.example.demo.entity.BacSiNgayNghi entity
+        LoaiNghi loaiNghi,
+        java.time.LocalDate ngayNghiCuThe,
+        Integer thuTrongTuan,
+        org.example.demo.enums.CaLamViec ca
     ) {
         StringBuilder sb = new StringBuilder();
         
-        switch (entity.getLoaiNghi()) {
+        switch (loaiNghi) {
             case NGAY_CU_THE:
-                sb.append("Ngày ").append(formatDate(entity.getNgayNghiCuThe()));
+                sb.append("Ngày ").append(formatDate(ngayNghiCuThe));
                 break;
                 
             case CA_CU_THE:
-                if (entity.getCa() != null) {
-                    sb.append("Ca ").append(entity.getCa().getTenCa()).append(" - ");
+                if (ca != null) {
+                    sb.append("Ca ").append(ca.getTenCa()).append(" - ");
                 } else {
                     sb.append("Cả ngày - ");
                 }
-                sb.append("Ngày ").append(formatDate(entity.getNgayNghiCuThe()));
+                sb.append("Ngày ").append(formatDate(ngayNghiCuThe));
                 break;
                 
             case CA_HANG_TUAN:
-                sb.append("Mỗi ").append(getTenThu(entity.getThuTrongTuan()));
-                if (entity.getCa() != null) {
-                    sb.append(" - Ca ").append(entity.getCa().getTenCa());
+                sb.append("Mỗi ").append(getTenThu(thuTrongTuan));
+                if (ca != null) {
+                    sb.append(" - Ca ").append(ca.getTenCa());
                 } else {
                     sb.append(" (cả ngày)");
                 }
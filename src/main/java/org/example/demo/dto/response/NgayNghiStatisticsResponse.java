@@ -10,7 +10,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * DTO cho response thống kê yêu cầu nghỉ
@@ -120,88 +119,69 @@ public class NgayNghiStatisticsResponse {
     }
     
     /**
-     * Static Factory Method: Tạo từ list entities
+     * Static Factory Method: Tạo từ kết quả truy vấn gộp (GROUP BY) thay vì load toàn bộ entity
+     *
+     * @param groups  mỗi dòng: {trangThai, loaiNghiPhep, loaiNghi, tháng tạo (1-12), số yêu cầu}
+     * @param summary {số bác sĩ, số ngày xử lý trung bình, createdAt của yêu cầu chờ lâu nhất}
      */
-    public static NgayNghiStatisticsResponse fromEntities(
-        List<org.example.demo.entity.BacSiNgayNghi> entities
-    ) {
-        if (entities == null || entities.isEmpty()) {
+    public static NgayNghiStatisticsResponse fromAggregates(List<Object[]> groups, Object[] summary) {
+        if (groups == null || groups.isEmpty()) {
             return createEmpty();
         }
         
-        // Thống kê cơ bản
-        int total = entities.size();
+        Map<org.example.demo.enums.TrangThaiNghi, Integer> byStatus =
+            new java.util.EnumMap<>(org.example.demo.enums.TrangThaiNghi.class);
+        Map<String, Integer> byLoaiPhep = new HashMap<>();
+        Map<String, Integer> byLoaiNghi = new HashMap<>();
+        MonthlyStats[] months = new MonthlyStats[13];
+        int total = 0;
         
-        Map<org.example.demo.enums.TrangThaiNghi, Long> byStatus = entities.stream()
-            .collect(Collectors.groupingBy(
-                org.example.demo.entity.BacSiNgayNghi::getTrangThai,
-                Collectors.counting()
-            ));
+        for (Object[] row : groups) {
+            org.example.demo.enums.TrangThaiNghi trangThai = (org.example.demo.enums.TrangThaiNghi) row[0];
+            int count = ((Number) row[4]).intValue();
+            total += count;
+            byStatus.merge(trangThai, count, Integer::sum);
+            byLoaiPhep.merge(((Enum<?>) row[1]).name(), count, Integer::sum);
+            byLoaiNghi.merge(((Enum<?>) row[2]).name(), count, Integer::sum);
+            
+            if (row[3] == null) {
+                continue;
+            }
+            int month = ((Number) row[3]).intValue();
+            MonthlyStats stats = months[month];
+            if (stats == null) {
+                stats = MonthlyStats.builder()
+                    .thang(month)
+                    .tenThang("Tháng " + month)
+                    .soYeuCau(0)
+                    .soDaDuyet(0)
+                    .soTuChoi(0)
+                    .soChoXuLy(0)
+                    .build();
+                months[month] = stats;
+            }
+            stats.setSoYeuCau(stats.getSoYeuCau() + count);
+            switch (trangThai) {
+                case DA_DUYET -> stats.setSoDaDuyet(stats.getSoDaDuyet() + count);
+                case TU_CHOI -> stats.setSoTuChoi(stats.getSoTuChoi() + count);
+                case CHO_DUYET -> stats.setSoChoXuLy(stats.getSoChoXuLy() + count);
+                default -> { }
+            }
+        }
         
-        int choXuLy = byStatus.getOrDefault(org.example.demo.enums.TrangThaiNghi.CHO_DUYET, 0L).intValue();
-        int daDuyet = byStatus.getOrDefault(org.example.demo.enums.TrangThaiNghi.DA_DUYET, 0L).intValue();
-        int tuChoi = byStatus.getOrDefault(org.example.demo.enums.TrangThaiNghi.TU_CHOI, 0L).intValue();
-        int huy = byStatus.getOrDefault(org.example.demo.enums.TrangThaiNghi.HUY, 0L).intValue();
+        int choXuLy = byStatus.getOrDefault(org.example.demo.enums.TrangThaiNghi.CHO_DUYET, 0);
+        int daDuyet = byStatus.getOrDefault(org.example.demo.enums.TrangThaiNghi.DA_DUYET, 0);
+        int tuChoi = byStatus.getOrDefault(org.example.demo.enums.TrangThaiNghi.TU_CHOI, 0);
+        int huy = byStatus.getOrDefault(org.example.demo.enums.TrangThaiNghi.HUY, 0);
         
         // Tỷ lệ duyệt
         int processed = daDuyet + tuChoi; // Đã xử lý (duyệt + từ chối)
         double tyLeDuyet = processed > 0 ? (daDuyet * 100.0 / processed) : 0.0;
         
-        // Thống kê theo loại phép
-        Map<String, Integer> byLoaiPhep = entities.stream()
-            .collect(Collectors.groupingBy(
-                e -> e.getLoaiNghiPhep().name(),
-                Collectors.collectingAndThen(Collectors.counting(), Long::intValue)
-            ));
-        
-        String loaiPhepPhoBien = byLoaiPhep.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse(null);
-        
-        // Thống kê theo loại nghỉ
-        Map<String, Integer> byLoaiNghi = entities.stream()
-            .collect(Collectors.groupingBy(
-                e -> e.getLoaiNghi().name(),
-                Collectors.collectingAndThen(Collectors.counting(), Long::intValue)
-            ));
-        
-        String loaiNghiPhoBien = byLoaiNghi.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse(null);
-        
-        // Thống kê theo tháng
-        Map<Integer, List<org.example.demo.entity.BacSiNgayNghi>> byMonth = entities.stream()
-            .collect(Collectors.groupingBy(
-                e -> e.getCreatedAt().getMonthValue()
-            ));
-        
         List<MonthlyStats> monthlyStats = new ArrayList<>();
         for (int month = 1; month <= 12; month++) {
-            List<org.example.demo.entity.BacSiNgayNghi> monthEntities = 
-                byMonth.getOrDefault(month, List.of());
-            
-            if (!monthEntities.isEmpty()) {
-                int totalMonth = monthEntities.size();
-                long duyet = monthEntities.stream()
-                    .filter(e -> e.getTrangThai() == org.example.demo.enums.TrangThaiNghi.DA_DUYET)
-                    .count();
-                long reject = monthEntities.stream()
-                    .filter(e -> e.getTrangThai() == org.example.demo.enums.TrangThaiNghi.TU_CHOI)
-                    .count();
-                long pending = monthEntities.stream()
-                    .filter(e -> e.getTrangThai() == org.example.demo.enums.TrangThaiNghi.CHO_DUYET)
-                    .count();
-                
-                monthlyStats.add(MonthlyStats.builder()
-                    .thang(month)
-                    .tenThang("Tháng " + month)
-                    .soYeuCau(totalMonth)
-                    .soDaDuyet((int) duyet)
-                    .soTuChoi((int) reject)
-                    .soChoXuLy((int) pending)
-                    .build());
+            if (months[month] != null) {
+                monthlyStats.add(months[month]);
             }
         }
         
@@ -210,43 +190,20 @@ public class NgayNghiStatisticsResponse {
             .map(MonthlyStats::getThang)
             .orElse(null);
         
-        // Thống kê bác sĩ
-        long soBacSi = entities.stream()
-            .map(e -> e.getBacSi().getBacSiID())
-            .distinct()
-            .count();
-        
+        // Thống kê bác sĩ + thời gian xử lý
+        long soBacSi = summary != null && summary[0] != null ? ((Number) summary[0]).longValue() : 0L;
         double trungBinhYeuCau = soBacSi > 0 ? (total * 1.0 / soBacSi) : 0.0;
-        
-        // Thời gian xử lý
-        List<org.example.demo.entity.BacSiNgayNghi> processedList = entities.stream()
-            .filter(e -> e.getNgayDuyet() != null)
-            .toList();
-        
-        double avgProcessTime = 0.0;
-        if (!processedList.isEmpty()) {
-            avgProcessTime = processedList.stream()
-                .mapToLong(e -> 
-                    java.time.temporal.ChronoUnit.DAYS.between(
-                        e.getCreatedAt().toLocalDate(),
-                        e.getNgayDuyet().toLocalDate()
-                    )
-                )
-                .average()
-                .orElse(0.0);
-        }
+        double avgProcessTime = summary != null && summary[1] != null ? ((Number) summary[1]).doubleValue() : 0.0;
         
         // Yêu cầu chờ lâu nhất
-        Integer maxWaitDays = entities.stream()
-            .filter(e -> e.getTrangThai() == org.example.demo.enums.TrangThaiNghi.CHO_DUYET)
-            .mapToInt(e -> 
-                (int) java.time.temporal.ChronoUnit.DAYS.between(
-                    e.getCreatedAt().toLocalDate(),
-                    java.time.LocalDate.now()
-                )
-            )
-            .max()
-            .orElse(0);
+        int maxWaitDays = 0;
+        java.time.LocalDateTime oldestPending = summary != null ? toLocalDateTime(summary[2]) : null;
+        if (oldestPending != null) {
+            maxWaitDays = (int) java.time.temporal.ChronoUnit.DAYS.between(
+                oldestPending.toLocalDate(),
+                java.time.LocalDate.now()
+            );
+        }
         
         return NgayNghiStatisticsResponse.builder()
             .tongYeuCau(total)
@@ -256,9 +213,9 @@ public class NgayNghiStatisticsResponse {
             .daBiHuy(huy)
             .tyLeDuyet(Math.round(tyLeDuyet * 10) / 10.0)
             .thongKeTheoLoaiPhep(byLoaiPhep)
-            .loaiPhepPhoBienNhat(loaiPhepPhoBien)
+            .loaiPhepPhoBienNhat(mostFrequent(byLoaiPhep))
             .thongKeTheoLoaiNghi(byLoaiNghi)
-            .loaiNghiPhoBienNhat(loaiNghiPhoBien)
+            .loaiNghiPhoBienNhat(mostFrequent(byLoaiNghi))
             .thongKeTheoThang(monthlyStats)
             .thangNhieuYeuCauNhat(thangNhieu)
             .soBacSiCoYeuCau((int) soBacSi)
@@ -268,6 +225,26 @@ public class NgayNghiStatisticsResponse {
             .build();
     }
     
+    private static String mostFrequent(Map<String, Integer> counts) {
+        return counts.entrySet().stream()
+            .max(Map.Entry.comparingByValue())
+            .map(Map.Entry::getKey)
+            .orElse(null);
+    }
+    
+    /**
+     * Native query trả DATETIME dưới dạng Timestamp hoặc LocalDateTime tùy driver
+     */
+    private static java.time.LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof java.time.LocalDateTime ldt) {
+            return ldt;
+        }
+        if (value instanceof java.sql.Timestamp ts) {
+            return ts.toLocalDateTime();
+        }
+        return null;
+    }
+    
     /**
      * Create empty statistics
      */
@@ -0,0 +1,36 @@
+package org.example.demo.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO Response số liệu SSE stream thông báo (Admin theo dõi)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Số liệu kết nối SSE thông báo")
+public class NotificationStreamStatsResponse {
+
+    @Schema(description = "Số người dùng đang kết nối")
+    private Integer soNguoiDung;
+
+    @Schema(description = "Số kết nối đang mở (1 người dùng có thể mở nhiều tab)")
+    private Integer soKetNoi;
+
+    @Schema(description = "Tổng số kết nối đã mở từ khi khởi động")
+    private Long tongKetNoiDaMo;
+
+    @Schema(description = "Số sự kiện thông báo đã gửi")
+    private Long soSuKienDaGui;
+
+    @Schema(description = "Số sự kiện phát lại khi client kết nối lại (Last-Event-ID)")
+    private Long soSuKienPhatLai;
+
+    @Schema(description = "Số kết nối bị ngắt do buffer đầy (client chậm)")
+    private Long soKetNoiBiNgatDoTranBuffer;
+}
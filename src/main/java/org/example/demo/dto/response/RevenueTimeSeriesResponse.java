@@ -0,0 +1,99 @@
+package org.example.demo.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.demo.enums.KyThongKe;
+import org.example.demo.enums.NhomThongKe;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO Response chuỗi doanh thu theo thời gian (vẽ biểu đồ xu hướng)
+ *
+ * - Doanh thu: lịch THANH_CONG, tính theo ngày thanh toán
+ * - Số lịch / hoàn thành / hoàn tiền: tính theo ngày khám
+ * Mỗi chuỗi có đủ các kỳ trong khoảng (kỳ không có dữ liệu = 0)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Chuỗi doanh thu theo ngày/tuần/tháng")
+public class RevenueTimeSeriesResponse {
+
+    @Schema(description = "Từ ngày", example = "2026-01-01")
+    private LocalDate fromDate;
+
+    @Schema(description = "Đến ngày", example = "2026-03-31")
+    private LocalDate toDate;
+
+    @Schema(description = "Độ chia thời gian", example = "TUAN")
+    private KyThongKe ky;
+
+    @Schema(description = "Nhóm chuỗi", example = "TONG")
+    private NhomThongKe nhom;
+
+    @Schema(description = "Danh sách chuỗi (1 chuỗi nếu nhom = TONG)")
+    private List<Series> series;
+
+    /**
+     * Nested DTO: 1 chuỗi (toàn hệ thống / 1 bác sĩ / 1 chuyên khoa)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Series {
+
+        @Schema(description = "ID bác sĩ/chuyên khoa (null nếu TONG)", example = "3")
+        private Integer id;
+
+        @Schema(description = "Tên hiển thị", example = "Tim mạch")
+        private String ten;
+
+        @Schema(description = "Tổng doanh thu cả khoảng")
+        private BigDecimal tongDoanhThu;
+
+        @Schema(description = "Tổng số lịch cả khoảng")
+        private Long tongSoLich;
+
+        @Schema(description = "Các điểm theo kỳ")
+        private List<Point> points;
+    }
+
+    /**
+     * Nested DTO: số liệu của 1 kỳ
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Point {
+
+        @Schema(description = "Ngày đầu kỳ", example = "2026-01-05")
+        private LocalDate tuNgay;
+
+        @Schema(description = "Ngày cuối kỳ", example = "2026-01-11")
+        private LocalDate denNgay;
+
+        @Schema(description = "Doanh thu (theo ngày thanh toán)")
+        private BigDecimal doanhThu;
+
+        @Schema(description = "Số lịch (theo ngày khám)")
+        private Long soLich;
+
+        @Schema(description = "Số lịch hoàn thành")
+        private Long soHoanThanh;
+
+        @Schema(description = "Số lịch được hoàn tiền")
+        private Long soHoanTien;
+
+        @Schema(description = "Tổng tiền hoàn")
+        private BigDecimal tongTienHoan;
+    }
+}
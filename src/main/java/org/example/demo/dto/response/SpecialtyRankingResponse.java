@@ -0,0 +1,26 @@
+package org.example.demo.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Bảng xếp hạng bác sĩ trong 1 chuyên khoa")
+public class SpecialtyRankingResponse {
+
+    @Schema(description = "ID chuyên khoa")
+    private Integer chuyenKhoaID;
+
+    @Schema(description = "Tên chuyên khoa")
+    private String tenChuyenKhoa;
+
+    @Schema(description = "Top bác sĩ của chuyên khoa")
+    private List<DoctorRankingResponse> bacSi;
+}
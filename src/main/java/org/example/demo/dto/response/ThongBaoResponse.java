@@ -0,0 +1,82 @@
+package org.example.demo.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.demo.entity.ThongBao;
+import org.example.demo.enums.LoaiThongBao;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO Response thông báo in-app (dùng cho SSE stream)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Thông báo in-app")
+public class ThongBaoResponse {
+
+    @Schema(description = "ID thông báo (cũng là id sự kiện SSE)", example = "120")
+    private Integer thongBaoID;
+
+    @Schema(description = "Loại thông báo", example = "BAC_SI_XAC_NHAN")
+    private LoaiThongBao loaiThongBao;
+
+    @Schema(description = "Màu hiển thị theo loại", example = "#28A745")
+    private String mauSac;
+
+    @Schema(description = "Tiêu đề")
+    private String tieuDe;
+
+    @Schema(description = "Nội dung")
+    private String noiDung;
+
+    @Schema(description = "Thời gian tạo")
+    private LocalDateTime thoiGian;
+
+    @Schema(description = "Đã đọc chưa")
+    private Boolean daDoc;
+
+    @Schema(description = "ID lịch khám liên quan (nếu có)")
+    private Integer datLichID;
+
+    @Schema(description = "Link đến trang chi tiết", example = "/bookings/15")
+    private String linkDinhKem;
+
+    public static ThongBaoResponse fromEntity(ThongBao thongBao) {
+        return ThongBaoResponse.builder()
+            .thongBaoID(thongBao.getThongBaoID())
+            .loaiThongBao(thongBao.getLoaiThongBao())
+            .mauSac(thongBao.getLoaiThongBao() != null ? thongBao.getLoaiThongBao().getMauSac() : null)
+            .tieuDe(thongBao.getTieuDe())
+            .noiDung(thongBao.getNoiDung())
+            .thoiGian(thongBao.getThoiGian())
+            .daDoc(thongBao.getDaDoc())
+            .datLichID(thongBao.getDatLichKham() != null ? thongBao.getDatLichKham().getDatLichID() : null)
+            .linkDinhKem(thongBao.getLinkDinhKem())
+            .build();
+    }
+
+    /**
+     * Từ projection ThongBaoRepository.findStreamResume
+     * {thongBaoID, loaiThongBao, tieuDe, noiDung, thoiGian, daDoc, datLichID, linkDinhKem}
+     */
+    public static ThongBaoResponse fromProjection(Object[] row) {
+        LoaiThongBao loai = (LoaiThongBao) row[1];
+        return ThongBaoResponse.builder()
+            .thongBaoID((Integer) row[0])
+            .loaiThongBao(loai)
+            .mauSac(loai != null ? loai.getMauSac() : null)
+            .tieuDe((String) row[2])
+            .noiDung((String) row[3])
+            .thoiGian((LocalDateTime) row[4])
+            .daDoc((Boolean) row[5])
+            .datLichID((Integer) row[6])
+            .linkDinhKem((String) row[7])
+            .build();
+    }
+}
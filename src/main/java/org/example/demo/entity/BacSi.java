@@ -85,6 +85,13 @@ public class BacSi extends BaseEntity {
      */
     @Column(name = "NamApDung")
     private Integer namApDung;
+    
+    /**
+     * Số ngày phép chưa dùng của năm trước được chuyển sang năm áp dụng
+     * Job chuyển năm ghi lại (giới hạn bởi app.annual-leave.carry-over-max-days)
+     */
+    @Column(name = "SoNgayPhepChuyenSang", nullable = false)
+    private Integer soNgayPhepChuyenSang = 0;
 
     // ===== RELATIONSHIPS =====
 
@@ -104,13 +111,14 @@ public class BacSi extends BaseEntity {
     // ===== HELPER METHODS =====
     
     /**
-     * Tính số ngày phép còn lại
+     * Tính số ngày phép còn lại (bao gồm ngày phép chuyển sang từ năm trước)
      */
     public Integer getSoNgayPhepConLai() {
         if (soNgayPhepNam == null || soNgayPhepDaSuDung == null) {
             return 0;
         }
-        return soNgayPhepNam - soNgayPhepDaSuDung;
+        int chuyenSang = soNgayPhepChuyenSang != null ? soNgayPhepChuyenSang : 0;
+        return soNgayPhepNam + chuyenSang - soNgayPhepDaSuDung;
     }
     
     /**
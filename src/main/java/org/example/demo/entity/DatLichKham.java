@@ -26,7 +26,8 @@ import java.time.LocalTime;
            @Index(name = "idx_ngaykham", columnList = "NgayKham, Ca, TrangThai"),
            @Index(name = "idx_maxacnhan", columnList = "MaXacNhan"),
            @Index(name = "idx_trangthai_ngay", columnList = "TrangThai, NgayKham"),
-           @Index(name = "idx_bacsi_trangthai", columnList = "BacSiID, TrangThai")
+           @Index(name = "idx_bacsi_trangthai", columnList = "BacSiID, TrangThai"),
+           @Index(name = "idx_nhac_lich_1h", columnList = "NgayKham, GioKham, TrangThai")
        })
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -154,6 +155,12 @@ public class DatLichKham extends BaseEntity {
     @Column(name = "NgayNhacNho")
     private LocalDateTime ngayNhacNho; // Thời gian gửi email nhắc nhở
 
+    @Column(name = "DaNhacNho1h", nullable = false)
+    private Boolean daNhacNho1h = false;
+
+    @Column(name = "NgayNhacNho1h")
+    private LocalDateTime ngayNhacNho1h; // Thời gian gửi nhắc 1 giờ trước giờ khám
+
     // ========== HOÀN TIỀN ==========
 
     @Column(name = "NgayHoanTien")
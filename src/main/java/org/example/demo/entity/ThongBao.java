@@ -18,7 +18,9 @@ import java.time.LocalDateTime;
            @Index(name = "idx_nguoinhan_dadoc", columnList = "NguoiNhanID, DaDoc"),
            @Index(name = "idx_nguoinhan_thoigian", columnList = "NguoiNhanID, ThoiGian"),
            @Index(name = "idx_loai", columnList = "LoaiThongBao"),
-           @Index(name = "idx_datlich", columnList = "DatLichID")
+           @Index(name = "idx_datlich", columnList = "DatLichID"),
+           @Index(name = "idx_email_cho_gui", columnList = "DaGuiEmail, CreatedAt"),
+           @Index(name = "idx_email_gui_lai", columnList = "DaGuiEmail, EmailGuiLaiLuc")
        })
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -77,6 +79,15 @@ public class ThongBao extends BaseEntity {
     @Column(name = "NgayGuiEmail")
     private LocalDateTime ngayGuiEmail;
 
+    @Column(name = "SoLanGuiEmailLoi", nullable = false)
+    private Integer soLanGuiEmailLoi = 0; // Số lần gửi email thất bại
+
+    @Column(name = "EmailGuiLaiLuc")
+    private LocalDateTime emailGuiLaiLuc; // Thời điểm sớm nhất được gửi lại (backoff)
+
+    @Column(name = "LoiEmailCuoi", length = 500)
+    private String loiEmailCuoi;
+
     // ========== METADATA ==========
 
     @Column(name = "MetaData", columnDefinition = "TEXT")
@@ -0,0 +1,66 @@
+package org.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity tổng hợp đánh giá theo bác sĩ (1 dòng / bác sĩ)
+ *
+ * Giữ số đánh giá, tổng số sao và phân bố 1-5 sao để trang chi tiết/danh sách/xếp hạng
+ * không phải AVG/COUNT trên DatLichKham mỗi lần xem.
+ * Cập nhật cùng transaction với BookingService.rateBooking, đối soát định kỳ
+ * (DoctorRatingSummaryService). Không kế thừa BaseEntity: bảng tổng hợp, không xóa mềm.
+ */
+@Entity
+@Table(name = "ThongKeDanhGiaBacSi")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThongKeDanhGiaBacSi {
+
+    @Id
+    @Column(name = "BacSiID")
+    private Integer bacSiID;
+
+    @Column(name = "SoDanhGia", nullable = false)
+    private Long soDanhGia = 0L;
+
+    @Column(name = "TongSoSao", nullable = false)
+    private Long tongSoSao = 0L;
+
+    @Column(name = "SoMotSao", nullable = false)
+    private Long soMotSao = 0L;
+
+    @Column(name = "SoHaiSao", nullable = false)
+    private Long soHaiSao = 0L;
+
+    @Column(name = "SoBaSao", nullable = false)
+    private Long soBaSao = 0L;
+
+    @Column(name = "SoBonSao", nullable = false)
+    private Long soBonSao = 0L;
+
+    @Column(name = "SoNamSao", nullable = false)
+    private Long soNamSao = 0L;
+
+    @Column(name = "UpdatedAt")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Điểm trung bình (null nếu chưa có đánh giá)
+     */
+    public Double getTrungBinh() {
+        return soDanhGia != null && soDanhGia > 0 ? (double) tongSoSao / soDanhGia : null;
+    }
+
+    /**
+     * Phân bố [0..5], index = số sao (index 0 bỏ trống)
+     */
+    public long[] getPhanBo() {
+        return new long[] {0, soMotSao, soHaiSao, soBaSao, soBonSao, soNamSao};
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.demo.enums.TrangThaiDatLich;
+import org.example.demo.enums.TrangThaiThanhToan;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entity bảng tổng hợp thống kê đặt lịch theo ngày × bác sĩ × trạng thái
+ *
+ * Mỗi dòng gom 2 nhóm số liệu cùng khóa (Ngay, BacSiID, TrangThai, TrangThaiThanhToan):
+ * - Theo NGÀY KHÁM: SoLich, TongGiaKham, SoHoanTien, TongTienHoan
+ * - Theo NGÀY THANH TOÁN (chỉ lịch THANH_CONG): SoThanhToan, DoanhThuThanhToan
+ *
+ * Cập nhật tăng dần trong cùng transaction với mỗi lần đổi trạng thái/thanh toán
+ * (BookingStatsRollupService), đối soát lại toàn bộ mỗi đêm.
+ * Không kế thừa BaseEntity: bảng tổng hợp, không xóa mềm.
+ */
+@Entity
+@Table(name = "ThongKeDatLichNgay",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_thongke_ngay", columnNames = {"Ngay", "BacSiID", "TrangThai", "TrangThaiThanhToan"})
+       },
+       indexes = {
+           @Index(name = "idx_thongke_bacsi_ngay", columnList = "BacSiID, Ngay")
+       })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThongKeDatLichNgay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ThongKeID")
+    private Long thongKeID;
+
+    @Column(name = "Ngay", nullable = false)
+    private LocalDate ngay;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "BacSiID", nullable = false, insertable = false, updatable = false)
+    private BacSi bacSi;
+
+    @Column(name = "BacSiID", nullable = false)
+    private Integer bacSiID;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "TrangThai", nullable = false, length = 30)
+    private TrangThaiDatLich trangThai;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "TrangThaiThanhToan", nullable = false, length = 20)
+    private TrangThaiThanhToan trangThaiThanhToan;
+
+    // ========== THEO NGÀY KHÁM ==========
+
+    @Column(name = "SoLich", nullable = false)
+    private Long soLich = 0L;
+
+    @Column(name = "TongGiaKham", nullable = false, precision = 15, scale = 2)
+    private BigDecimal tongGiaKham = BigDecimal.ZERO;
+
+    @Column(name = "SoHoanTien", nullable = false)
+    private Long soHoanTien = 0L;
+
+    @Column(name = "TongTienHoan", nullable = false, precision = 15, scale = 2)
+    private BigDecimal tongTienHoan = BigDecimal.ZERO;
+
+    // ========== THEO NGÀY THANH TOÁN ==========
+
+    @Column(name = "SoThanhToan", nullable = false)
+    private Long soThanhToan = 0L;
+
+    @Column(name = "DoanhThuThanhToan", nullable = false, precision = 15, scale = 2)
+    private BigDecimal doanhThuThanhToan = BigDecimal.ZERO;
+
+    @Column(name = "UpdatedAt")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,40 @@
+package org.example.demo.enums;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Enum khoảng giá khám (facet lọc bác sĩ)
+ * Khoảng nửa mở [min, max), max = null nghĩa là không giới hạn trên
+ */
+@Getter
+public enum KhoangGiaKham {
+    DUOI_200K("Dưới 200.000đ", null, 200_000L),
+    TU_200K_DEN_500K("200.000đ - 500.000đ", 200_000L, 500_000L),
+    TU_500K_DEN_1TR("500.000đ - 1.000.000đ", 500_000L, 1_000_000L),
+    TREN_1TR("Từ 1.000.000đ", 1_000_000L, null);
+
+    private final String label;
+    private final Long min;
+    private final Long max;
+
+    KhoangGiaKham(String label, Long min, Long max) {
+        this.label = label;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Xác định khoảng giá của một mức giá (null → DUOI_200K)
+     */
+    public static KhoangGiaKham of(BigDecimal giaKham) {
+        long value = giaKham != null ? giaKham.longValue() : 0L;
+        for (KhoangGiaKham khoang : values()) {
+            if ((khoang.min == null || value >= khoang.min) && (khoang.max == null || value < khoang.max)) {
+                return khoang;
+            }
+        }
+        return TREN_1TR;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.demo.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum khoảng số năm kinh nghiệm (facet lọc bác sĩ)
+ * Khoảng nửa mở [min, max), max = null nghĩa là không giới hạn trên
+ */
+@Getter
+public enum KhoangKinhNghiem {
+    DUOI_5_NAM("Dưới 5 năm", 0, 5),
+    TU_5_DEN_10_NAM("5 - 10 năm", 5, 10),
+    TU_10_DEN_20_NAM("10 - 20 năm", 10, 20),
+    TREN_20_NAM("Từ 20 năm", 20, null);
+
+    private final String label;
+    private final Integer min;
+    private final Integer max;
+
+    KhoangKinhNghiem(String label, Integer min, Integer max) {
+        this.label = label;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Xác định khoảng kinh nghiệm (null → DUOI_5_NAM)
+     */
+    public static KhoangKinhNghiem of(Integer soNamKinhNghiem) {
+        int value = soNamKinhNghiem != null ? soNamKinhNghiem : 0;
+        for (KhoangKinhNghiem khoang : values()) {
+            if (value >= khoang.min && (khoang.max == null || value < khoang.max)) {
+                return khoang;
+            }
+        }
+        return DUOI_5_NAM;
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.demo.enums;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Enum độ chia thời gian cho chuỗi thống kê (biểu đồ xu hướng)
+ * maxDays: khoảng ngày tối đa cho 1 lần truy vấn
+ */
+@Getter
+public enum KyThongKe {
+    NGAY("Theo ngày", 366),
+    TUAN("Theo tuần (Thứ 2 - Chủ nhật)", 731),
+    THANG("Theo tháng", 1827);
+
+    private final String moTa;
+    private final int maxDays;
+
+    KyThongKe(String moTa, int maxDays) {
+        this.moTa = moTa;
+        this.maxDays = maxDays;
+    }
+
+    /**
+     * Ngày đầu kỳ chứa date
+     */
+    public LocalDate bucketStart(LocalDate date) {
+        return switch (this) {
+            case NGAY -> date;
+            case TUAN -> date.minusDays(date.getDayOfWeek().getValue() - 1L);
+            case THANG -> date.with(TemporalAdjusters.firstDayOfMonth());
+        };
+    }
+
+    /**
+     * Ngày đầu kỳ kế tiếp
+     */
+    public LocalDate nextBucket(LocalDate bucketStart) {
+        return switch (this) {
+            case NGAY -> bucketStart.plusDays(1);
+            case TUAN -> bucketStart.plusWeeks(1);
+            case THANG -> bucketStart.plusMonths(1);
+        };
+    }
+}
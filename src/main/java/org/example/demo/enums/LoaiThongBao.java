@@ -62,5 +62,18 @@ public enum LoaiThongBao {
                this == NGAY_NGHI_DUYET ||
                this == NGAY_NGHI_TU_CHOI;
     }
+
+    /**
+     * Email loại này không gấp → có thể giữ lại và gộp vào email tổng hợp (digest)
+     * Từ chối / hủy lịch / thanh toán thất bại / nhắc lịch luôn gửi ngay
+     */
+    public boolean canDigestEmail() {
+        return this == DAT_LICH_MOI ||
+               this == BAC_SI_XAC_NHAN ||
+               this == LICH_KHAM_HON_THANH ||
+               this == THANH_TOAN_THANH_CONG ||
+               this == HOAN_TIEN ||
+               this == NGAY_NGHI_DUYET;
+    }
 }
 
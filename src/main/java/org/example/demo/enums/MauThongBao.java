@@ -0,0 +1,123 @@
+package org.example.demo.enums;
+
+import java.util.List;
+
+/**
+ * Mẫu nội dung thông báo / email (biên dịch 1 lần lúc khởi động bởi NotificationTemplateService)
+ *
+ * - loaiThongBao: loại ThongBao tương ứng (null với email tài khoản, không lưu ThongBao)
+ * - tieuDe / noiDung: cú pháp MessageTemplate ({bien}, {?bien}...{/bien})
+ * - thamSo: thứ tự giá trị truyền vào khi render
+ */
+public enum MauThongBao {
+    // Booking
+    DAT_LICH_BENH_NHAN(LoaiThongBao.DAT_LICH_MOI,
+        "Đặt lịch khám thành công",
+        "Bạn đã đặt lịch khám với {bacSi} vào lúc {gio} ngày {ngay}. Vui lòng chờ bác sĩ xác nhận.",
+        "bacSi", "gio", "ngay"),
+    DAT_LICH_BAC_SI(LoaiThongBao.DAT_LICH_MOI,
+        "Yêu cầu xác nhận lịch khám mới",
+        "Bệnh nhân {benhNhan} đã đặt lịch khám vào lúc {gio} ngày {ngay}. "
+            + "Vui lòng xác nhận hoặc từ chối lịch hẹn này.",
+        "benhNhan", "gio", "ngay"),
+    BAC_SI_XAC_NHAN(LoaiThongBao.BAC_SI_XAC_NHAN,
+        "Bác sĩ đã xác nhận lịch hẹn",
+        "{bacSi} đã xác nhận lịch khám của bạn vào lúc {gio} ngày {ngay}. "
+            + "Vui lòng đến đúng giờ. Mã xác nhận: {maXacNhan}",
+        "bacSi", "gio", "ngay", "maXacNhan"),
+    BAC_SI_TU_CHOI(LoaiThongBao.BAC_SI_TU_CHOI,
+        "Lịch hẹn bị từ chối",
+        "{bacSi} đã từ chối lịch hẹn của bạn vào lúc {gio} ngày {ngay}.{?lyDo}\nLý do: {lyDo}{/lyDo}",
+        "bacSi", "gio", "ngay", "lyDo"),
+    HUY_LICH_BOI_BENH_NHAN(LoaiThongBao.HUY_LICH,
+        "Bệnh nhân đã hủy lịch hẹn",
+        "{nguoiHuy} đã hủy lịch khám vào lúc {gio} ngày {ngay}.{?lyDo}\nLý do: {lyDo}{/lyDo}",
+        "nguoiHuy", "gio", "ngay", "lyDo"),
+    HUY_LICH_BOI_BAC_SI(LoaiThongBao.HUY_LICH,
+        "Bác sĩ đã hủy lịch hẹn",
+        "{nguoiHuy} đã hủy lịch khám vào lúc {gio} ngày {ngay}.{?lyDo}\nLý do: {lyDo}{/lyDo}",
+        "nguoiHuy", "gio", "ngay", "lyDo"),
+    HUY_LICH_DO_NGHI_PHEP(LoaiThongBao.HUY_LICH,
+        "Lịch khám bị hủy do bác sĩ nghỉ",
+        "{bacSi} nghỉ ({moTaNghi}) nên lịch khám của bạn vào lúc {gio} ngày {ngay} đã bị hủy."
+            + "{?soTienHoan}\nSố tiền {soTienHoan} VNĐ sẽ được hoàn lại cho bạn.{/soTienHoan}"
+            + "\nVui lòng đặt lại lịch khám vào thời gian khác.",
+        "bacSi", "moTaNghi", "gio", "ngay", "soTienHoan"),
+    NHAC_LICH_BENH_NHAN(LoaiThongBao.NHAC_LICH_KHAM,
+        "Nhắc nhở lịch khám",
+        "Bạn có lịch khám với {bacSi} vào lúc {gio} {thoiDiem}. Vui lòng đến đúng giờ. Mã xác nhận: {maXacNhan}",
+        "bacSi", "gio", "thoiDiem", "maXacNhan"),
+    NHAC_LICH_BAC_SI(LoaiThongBao.NHAC_LICH_KHAM,
+        "Nhắc nhở lịch khám",
+        "Bạn có lịch khám bệnh nhân {benhNhan} vào lúc {gio} {thoiDiem}. Mã xác nhận: {maXacNhan}",
+        "benhNhan", "gio", "thoiDiem", "maXacNhan"),
+    LICH_KHAM_HOAN_THANH(LoaiThongBao.LICH_KHAM_HON_THANH,
+        "Đã hoàn thành khám bệnh",
+        "Bạn đã hoàn thành buổi khám với {bacSi}. "
+            + "Vui lòng đánh giá trải nghiệm của bạn để cải thiện chất lượng dịch vụ.",
+        "bacSi"),
+
+    // Payment
+    THANH_TOAN_THANH_CONG(LoaiThongBao.THANH_TOAN_THANH_CONG,
+        "Thanh toán thành công",
+        "Bạn đã thanh toán thành công cho lịch khám với {bacSi}. Mã giao dịch: {maGiaoDich}",
+        "bacSi", "maGiaoDich"),
+    THANH_TOAN_THAT_BAI(LoaiThongBao.THANH_TOAN_THAT_BAI,
+        "Thanh toán thất bại",
+        "Thanh toán cho lịch khám với {bacSi} không thành công. "
+            + "Vui lòng thử lại hoặc liên hệ với chúng tôi để được hỗ trợ.",
+        "bacSi"),
+
+    // Email tài khoản (không tạo ThongBao)
+    XAC_THUC_TAI_KHOAN(null,
+        "Xác thực tài khoản",
+        "Cảm ơn bạn đã đăng ký tài khoản tại HealthCare Booking.\n\n"
+            + "Mã xác thực của bạn là: {maXacThuc}\n\n"
+            + "Mã này sẽ hết hạn sau 15 phút.\n\n"
+            + "Nếu bạn không thực hiện đăng ký này, vui lòng bỏ qua email này.",
+        "maXacThuc"),
+    DAT_LAI_MAT_KHAU(null,
+        "Đặt lại mật khẩu",
+        "Chúng tôi nhận được yêu cầu đặt lại mật khẩu cho tài khoản của bạn.\n\n"
+            + "Mã đặt lại mật khẩu của bạn là: {maDatLai}\n\n"
+            + "Mã này sẽ hết hạn sau 15 phút.\n\n"
+            + "Nếu bạn không thực hiện yêu cầu này, vui lòng bỏ qua email này.",
+        "maDatLai"),
+    LICH_DA_XAC_NHAN(null,
+        "Lịch khám đã được xác nhận",
+        "Lịch khám của bạn đã được xác nhận.\n\n"
+            + "Thông tin lịch khám:\n"
+            + "- Bác sĩ: {bacSi}\n"
+            + "- Ngày khám: {ngay}\n"
+            + "- Giờ khám: {gio}\n\n"
+            + "Vui lòng đến đúng giờ. Nếu cần hủy lịch, vui lòng thông báo trước ít nhất 2 giờ.",
+        "bacSi", "ngay", "gio");
+
+    private final LoaiThongBao loaiThongBao;
+    private final String tieuDe;
+    private final String noiDung;
+    private final List<String> thamSo;
+
+    MauThongBao(LoaiThongBao loaiThongBao, String tieuDe, String noiDung, String... thamSo) {
+        this.loaiThongBao = loaiThongBao;
+        this.tieuDe = tieuDe;
+        this.noiDung = noiDung;
+        this.thamSo = List.of(thamSo);
+    }
+
+    public LoaiThongBao getLoaiThongBao() {
+        return loaiThongBao;
+    }
+
+    public String getTieuDe() {
+        return tieuDe;
+    }
+
+    public String getNoiDung() {
+        return noiDung;
+    }
+
+    public List<String> getThamSo() {
+        return thamSo;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.demo.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum nhóm chuỗi thống kê doanh thu
+ * TONG: 1 chuỗi cho toàn hệ thống
+ */
+@Getter
+public enum NhomThongKe {
+    TONG("Toàn hệ thống"),
+    BAC_SI("Theo bác sĩ"),
+    CHUYEN_KHOA("Theo chuyên khoa");
+
+    private final String moTa;
+
+    NhomThongKe(String moTa) {
+        this.moTa = moTa;
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.demo.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum tiêu chí xếp hạng bác sĩ (báo cáo quản lý)
+ * mauToiThieu: số mẫu tối thiểu để được xếp hạng (tránh 1 lượt đánh giá 5 sao đứng đầu)
+ */
+@Getter
+public enum TieuChiXepHang {
+    DOANH_THU("Doanh thu (lịch hoàn thành đã thanh toán)", 0),
+    SO_CA_HOAN_THANH("Số ca khám hoàn thành đã thanh toán", 0),
+    DANH_GIA("Điểm đánh giá trung bình (toàn thời gian)", 3),
+    TY_LE_HUY("Tỷ lệ lịch bị hủy (cao nhất trước)", 5);
+
+    private final String moTa;
+    private final int mauToiThieu;
+
+    TieuChiXepHang(String moTa, int mauToiThieu) {
+        this.moTa = moTa;
+        this.mauToiThieu = mauToiThieu;
+    }
+}
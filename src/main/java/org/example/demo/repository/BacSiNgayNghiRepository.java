@@ -4,7 +4,10 @@ import org.example.demo.entity.BacSiNgayNghi;
 import org.example.demo.enums.CaLamViec;
 import org.example.demo.enums.LoaiNghi;
 import org.example.demo.enums.TrangThaiNghi;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,7 +19,7 @@ import java.util.List;
  * Repository: Yêu cầu nghỉ của bác sĩ (với approval workflow)
  */
 @Repository
-public interface BacSiNgayNghiRepository extends JpaRepository<BacSiNgayNghi, Integer> {
+public interface BacSiNgayNghiRepository extends JpaRepository<BacSiNgayNghi, Integer>, JpaSpecificationExecutor<BacSiNgayNghi> {
 
     // ==========================================
     // QUERIES CHO ADMIN - PHÂN LOẠI THEO TRẠNG THÁI
@@ -28,6 +31,21 @@ public interface BacSiNgayNghiRepository extends JpaRepository<BacSiNgayNghi, In
     @Query("SELECT n FROM BacSiNgayNghi n WHERE n.trangThai = 'CHO_DUYET' AND n.isDeleted = false ORDER BY n.createdAt ASC")
     List<BacSiNgayNghi> findAllPendingRequests();
 
+    /**
+     * Hàng đợi chờ duyệt dạng projection (phân trang, đi theo index idx_pending (TrangThai, CreatedAt))
+     * Mỗi dòng: {nghiID, bacSiID, hoTen, avatarUrl, tenChuyenKhoa, tenTrinhDo, loaiNghi, ngayNghiCuThe,
+     *            thuTrongTuan, ca, lyDo, loaiNghiPhep, fileDinhKem, soNgayPhepNam, soNgayPhepDaSuDung, createdAt,
+     *            soNgayPhepChuyenSang}
+     */
+    @Query(value = "SELECT n.nghiID, b.bacSiID, u.hoTen, u.avatarUrl, ck.tenChuyenKhoa, td.tenTrinhDo, " +
+            "n.loaiNghi, n.ngayNghiCuThe, n.thuTrongTuan, n.ca, n.lyDo, n.loaiNghiPhep, n.fileDinhKem, " +
+            "b.soNgayPhepNam, b.soNgayPhepDaSuDung, n.createdAt, b.soNgayPhepChuyenSang " +
+            "FROM BacSiNgayNghi n JOIN n.bacSi b JOIN b.nguoiDung u " +
+            "LEFT JOIN b.chuyenKhoa ck LEFT JOIN b.trinhDo td " +
+            "WHERE n.trangThai = 'CHO_DUYET' AND n.isDeleted = false",
+            countQuery = "SELECT COUNT(n) FROM BacSiNgayNghi n WHERE n.trangThai = 'CHO_DUYET' AND n.isDeleted = false")
+    Page<Object[]> findPendingQueue(Pageable pageable);
+
     /**
      * Lấy yêu cầu chờ duyệt theo bác sĩ
      */
@@ -93,6 +111,32 @@ public interface BacSiNgayNghiRepository extends JpaRepository<BacSiNgayNghi, In
             "AND n.isDeleted = false")
     List<BacSiNgayNghi> findApprovedWeeklyLeave(@Param("bacSiID") Integer bacSiID, @Param("thu") Integer thu, @Param("ca") CaLamViec ca);
 
+    /**
+     * Kiểm tra yêu cầu nghỉ theo NGÀY (NGAY_CU_THE / CA_CU_THE) có trùng với yêu cầu đã duyệt hoặc đang chờ duyệt
+     * - ca = null (nghỉ cả ngày): trùng với mọi yêu cầu cùng ngày
+     * - ca != null: trùng với yêu cầu cả ngày hoặc cùng ca
+     * Dùng index idx_check_nghi_ngay (BacSiID, TrangThai, NgayNghiCuThe)
+     */
+    @Query("SELECT COUNT(n) > 0 FROM BacSiNgayNghi n WHERE n.bacSi.bacSiID = :bacSiID " +
+            "AND n.trangThai IN ('CHO_DUYET', 'DA_DUYET') " +
+            "AND n.ngayNghiCuThe = :ngay " +
+            "AND n.loaiNghi IN ('NGAY_CU_THE', 'CA_CU_THE') " +
+            "AND (:ca IS NULL OR n.ca IS NULL OR n.ca = :ca) " +
+            "AND n.isDeleted = false")
+    boolean existsActiveLeaveConflictOnDate(@Param("bacSiID") Integer bacSiID, @Param("ngay") LocalDate ngay, @Param("ca") CaLamViec ca);
+
+    /**
+     * Kiểm tra yêu cầu nghỉ HÀNG TUẦN có trùng với yêu cầu hàng tuần đã duyệt hoặc đang chờ duyệt
+     * Dùng index idx_check_nghi_tuan (BacSiID, TrangThai, ThuTrongTuan)
+     */
+    @Query("SELECT COUNT(n) > 0 FROM BacSiNgayNghi n WHERE n.bacSi.bacSiID = :bacSiID " +
+            "AND n.trangThai IN ('CHO_DUYET', 'DA_DUYET') " +
+            "AND n.thuTrongTuan = :thu " +
+            "AND n.loaiNghi = 'CA_HANG_TUAN' " +
+            "AND (:ca IS NULL OR n.ca IS NULL OR n.ca = :ca) " +
+            "AND n.isDeleted = false")
+    boolean existsActiveWeeklyLeaveConflict(@Param("bacSiID") Integer bacSiID, @Param("thu") Integer thu, @Param("ca") CaLamViec ca);
+
     // ==========================================
     // QUERIES CHO BUSINESS LOGIC - LẤY LỊCH NGHỈ THỰC TẾ
     // ==========================================
@@ -108,6 +152,16 @@ public interface BacSiNgayNghiRepository extends JpaRepository<BacSiNgayNghi, In
             "OR n.loaiNghi = 'CA_HANG_TUAN')")
     List<BacSiNgayNghi> findApprovedLeavesInRange(@Param("bacSiID") Integer bacSiID, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
+    /**
+     * Lấy lịch nghỉ đã duyệt của TẤT CẢ bác sĩ trong khoảng thời gian (1 query)
+     * Dùng để tính "còn lịch trống" cho nhiều bác sĩ cùng lúc
+     */
+    @Query("SELECT n FROM BacSiNgayNghi n WHERE n.trangThai = 'DA_DUYET' " +
+            "AND n.isDeleted = false " +
+            "AND ((n.loaiNghi IN ('NGAY_CU_THE', 'CA_CU_THE') AND n.ngayNghiCuThe BETWEEN :startDate AND :endDate) " +
+            "OR n.loaiNghi = 'CA_HANG_TUAN')")
+    List<BacSiNgayNghi> findAllApprovedLeavesInRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
     /**
      * Lấy lịch nghỉ đã duyệt của bác sĩ tại một ngày cụ thể
      * Bao gồm: NGAY_CU_THE, CA_CU_THE (ngày đó) + CA_HANG_TUAN (thứ đó)
@@ -156,6 +210,26 @@ public interface BacSiNgayNghiRepository extends JpaRepository<BacSiNgayNghi, In
     @Query("SELECT n.loaiNghiPhep, COUNT(n) FROM BacSiNgayNghi n WHERE n.bacSi.bacSiID = :bacSiID AND n.trangThai = 'DA_DUYET' AND n.isDeleted = false GROUP BY n.loaiNghiPhep")
     List<Object[]> countByLoaiNghiPhep(@Param("bacSiID") Integer bacSiID);
 
+    /**
+     * Thống kê gộp cho màn hình thống kê nghỉ phép (bacSiID = null: toàn hệ thống)
+     * Mỗi dòng: {trangThai, loaiNghiPhep, loaiNghi, tháng tạo, số yêu cầu}
+     */
+    @Query("SELECT n.trangThai, n.loaiNghiPhep, n.loaiNghi, MONTH(n.createdAt), COUNT(n) FROM BacSiNgayNghi n " +
+            "WHERE n.isDeleted = false " +
+            "AND (:bacSiID IS NULL OR n.bacSi.bacSiID = :bacSiID) " +
+            "GROUP BY n.trangThai, n.loaiNghiPhep, n.loaiNghi, MONTH(n.createdAt)")
+    List<Object[]> countGroupedForStatistics(@Param("bacSiID") Integer bacSiID);
+
+    /**
+     * Chỉ số tổng hợp: {số bác sĩ có yêu cầu, số ngày xử lý trung bình, createdAt của yêu cầu chờ lâu nhất}
+     */
+    @Query(value = "SELECT COUNT(DISTINCT BacSiID), " +
+            "AVG(CASE WHEN NgayDuyet IS NOT NULL THEN DATEDIFF(NgayDuyet, CreatedAt) END), " +
+            "MIN(CASE WHEN TrangThai = 'CHO_DUYET' THEN CreatedAt END) " +
+            "FROM BacSiNgayNghi " +
+            "WHERE IsDeleted = 0 AND (:bacSiID IS NULL OR BacSiID = :bacSiID)", nativeQuery = true)
+    List<Object[]> summarizeForStatistics(@Param("bacSiID") Integer bacSiID);
+
     // ==========================================
     // QUERIES CHO ADMIN - QUẢN LÝ YÊU CẦU
     // ==========================================
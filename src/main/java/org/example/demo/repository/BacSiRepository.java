@@ -4,11 +4,11 @@ import org.example.demo.entity.BacSi;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,12 +30,6 @@ public interface BacSiRepository extends JpaRepository<BacSi, Integer> {
      */
     Optional<BacSi> findByNguoiDung_Email(String email);
     
-    /**
-     * Lấy danh sách bác sĩ theo chuyên khoa
-     * Ví dụ: Lấy tất cả bác sĩ khoa Nhi
-     */
-    List<BacSi> findByChuyenKhoa_ChuyenKhoaID(Integer chuyenKhoaId);
-    
     /**
      * Lấy bác sĩ theo chuyên khoa và đang làm việc (CHƯA bị xóa)
      * Dùng khi user tìm bác sĩ để đặt lịch
@@ -46,18 +40,6 @@ public interface BacSiRepository extends JpaRepository<BacSi, Integer> {
             Boolean isDeleted
     );
     
-    /**
-     * Lấy bác sĩ theo trình độ
-     * Ví dụ: Lọc chỉ PGS.TS, Thạc sĩ...
-     */
-    List<BacSi> findByTrinhDo_TrinhDoID(Integer trinhDoId);
-    
-    /**
-     * Tìm bác sĩ có giá khám trong khoảng
-     * Ví dụ: Tìm bác sĩ giá từ 200k - 500k
-     */
-    List<BacSi> findByGiaKhamBetween(BigDecimal minPrice, BigDecimal maxPrice);
-    
     /**
      * Tìm bác sĩ theo tên (search) - CHỈ lấy bác sĩ chưa bị xóa
      * Ví dụ: Search "Nguyễn" hoặc "Tim mạch"
@@ -67,6 +49,59 @@ public interface BacSiRepository extends JpaRepository<BacSi, Integer> {
            "LOWER(b.chuyenKhoa.tenChuyenKhoa) LIKE LOWER(CONCAT('%', :keyword, '%')))")
     Page<BacSi> searchDoctors(@Param("keyword") String keyword, Pageable pageable);
     
+    /**
+     * Lấy tất cả bác sĩ CHƯA bị xóa kèm NguoiDung, ChuyenKhoa, TrinhDo (1 query)
+     * Dùng để nạp search index / facet index trong bộ nhớ
+     */
+    @Query("SELECT b FROM BacSi b " +
+           "JOIN FETCH b.nguoiDung " +
+           "JOIN FETCH b.chuyenKhoa " +
+           "JOIN FETCH b.trinhDo " +
+           "WHERE b.isDeleted = false")
+    List<BacSi> findAllActiveWithDetails();
+    
+    // ===== NGÀY PHÉP (cập nhật nguyên tử, không load entity) =====
+    
+    /**
+     * Cộng số ngày phép đã dùng (duyệt nghỉ PHEP_NAM) chỉ khi còn đủ phép (gồm ngày chuyển sang)
+     * Điều kiện kiểm trong cùng câu UPDATE → 2 admin duyệt cùng lúc không làm âm số phép
+     *
+     * @return 0 nếu không đủ phép (không cập nhật)
+     */
+    @Modifying
+    @Query("UPDATE BacSi b SET b.soNgayPhepDaSuDung = COALESCE(b.soNgayPhepDaSuDung, 0) + :soNgay " +
+           "WHERE b.bacSiID = :bacSiID " +
+           "AND COALESCE(b.soNgayPhepNam, 0) + COALESCE(b.soNgayPhepChuyenSang, 0) " +
+           "- COALESCE(b.soNgayPhepDaSuDung, 0) >= :soNgay")
+    int incrementAnnualLeaveUsed(@Param("bacSiID") Integer bacSiID, @Param("soNgay") int soNgay);
+    
+    /**
+     * Trừ số ngày phép đã dùng, không xuống dưới 0 (hủy nghỉ PHEP_NAM đã duyệt)
+     */
+    @Modifying
+    @Query("UPDATE BacSi b SET b.soNgayPhepDaSuDung = " +
+           "CASE WHEN COALESCE(b.soNgayPhepDaSuDung, 0) > :soNgay THEN b.soNgayPhepDaSuDung - :soNgay ELSE 0 END " +
+           "WHERE b.bacSiID = :bacSiID")
+    int decrementAnnualLeaveUsed(@Param("bacSiID") Integer bacSiID, @Param("soNgay") int soNgay);
+    
+    /**
+     * Chuyển năm ngày phép cho TẤT CẢ bác sĩ chưa chuyển sang năm :nam (1 câu UPDATE, chạy lại an toàn)
+     * - Chuyển sang tối đa :maxCarry ngày chưa dùng, chỉ khi NamApDung là năm liền trước
+     * - MySQL gán SET theo thứ tự: SoNgayPhepChuyenSang phải tính TRƯỚC khi reset SoNgayPhepDaSuDung
+     *
+     * @return số bác sĩ đã chuyển năm
+     */
+    @Modifying
+    @Query(value = "UPDATE BacSi SET " +
+           "SoNgayPhepChuyenSang = CASE WHEN NamApDung = :nam - 1 " +
+           "THEN LEAST(GREATEST(COALESCE(SoNgayPhepNam, 0) + SoNgayPhepChuyenSang - COALESCE(SoNgayPhepDaSuDung, 0), 0), :maxCarry) " +
+           "ELSE 0 END, " +
+           "SoNgayPhepDaSuDung = 0, " +
+           "NamApDung = :nam, " +
+           "UpdatedAt = NOW() " +
+           "WHERE (NamApDung IS NULL OR NamApDung < :nam) AND IsDeleted = 0", nativeQuery = true)
+    int rolloverAnnualLeave(@Param("nam") int nam, @Param("maxCarry") int maxCarry);
+    
     /**
      * Lấy top bác sĩ có kinh nghiệm nhất (CHƯA bị xóa)
      */
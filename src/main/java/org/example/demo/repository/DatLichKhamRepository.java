@@ -1,12 +1,15 @@
 package org.example.demo.repository;
 
 import org.example.demo.entity.DatLichKham;
+import org.example.demo.entity.NguoiDung;
 import org.example.demo.enums.CaLamViec;
 import org.example.demo.enums.TrangThaiDatLich;
 import org.example.demo.enums.PhuongThucThanhToan;
+import org.example.demo.enums.TrangThaiThanhToan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,6 +17,7 @@ import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -191,100 +195,62 @@ public interface DatLichKhamRepository extends JpaRepository<DatLichKham, Intege
 
     // ==========================================
     // THỐNG KÊ DOANH THU / SỐ CA
+    // API thống kê đọc từ ThongKeDatLichNgay; các query dưới đây chỉ dùng
+    // để đối soát bảng tổng hợp với dữ liệu gốc (job hằng đêm)
     // ==========================================
 
+    /**
+     * Tổng hợp theo ngày khám × bác sĩ × trạng thái × trạng thái thanh toán
+     * 
+     * @return List Object[] {ngayKham, bacSiID, trangThai, trangThaiThanhToan,
+     *         soLich, tongGiaKham, soHoanTien, tongTienHoan}
+     */
     @Query("""
-        SELECT new org.example.demo.dto.response.SpecialtyRevenueResponse(
-            d.bacSi.chuyenKhoa.chuyenKhoaID,
-            d.bacSi.chuyenKhoa.tenChuyenKhoa,
-            COALESCE(SUM(d.giaKham), 0),
-            COUNT(d)
-        )
+        SELECT d.ngayKham, d.bacSi.bacSiID, d.trangThai, d.trangThaiThanhToan,
+            COUNT(d), COALESCE(SUM(d.giaKham), 0),
+            COUNT(d.soTienHoan), COALESCE(SUM(d.soTienHoan), 0)
         FROM DatLichKham d
         WHERE d.isDeleted = false
-            AND d.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH
-            AND d.trangThaiThanhToan = org.example.demo.enums.TrangThaiThanhToan.THANH_CONG
-            AND (:fromDate IS NULL OR d.ngayKham >= :fromDate)
-            AND (:toDate IS NULL OR d.ngayKham <= :toDate)
-        GROUP BY d.bacSi.chuyenKhoa.chuyenKhoaID, d.bacSi.chuyenKhoa.tenChuyenKhoa
-        ORDER BY SUM(d.giaKham) DESC
+            AND d.ngayKham BETWEEN :fromDate AND :toDate
+        GROUP BY d.ngayKham, d.bacSi.bacSiID, d.trangThai, d.trangThaiThanhToan
         """)
-    List<org.example.demo.dto.response.SpecialtyRevenueResponse> revenueBySpecialty(
+    List<Object[]> aggregateByNgayKham(
         @Param("fromDate") LocalDate fromDate,
         @Param("toDate") LocalDate toDate
     );
 
+    /**
+     * Tổng hợp lịch đã thanh toán theo ngày thanh toán × bác sĩ × trạng thái
+     * 
+     * @return List Object[] {ngayThanhToan (LocalDate), bacSiID, trangThai, trangThaiThanhToan,
+     *         soThanhToan, doanhThuThanhToan}
+     */
     @Query("""
-        SELECT new org.example.demo.dto.response.DoctorRevenueResponse(
-            d.bacSi.bacSiID,
-            d.bacSi.nguoiDung.hoTen,
-            d.bacSi.chuyenKhoa.chuyenKhoaID,
-            d.bacSi.chuyenKhoa.tenChuyenKhoa,
-            COALESCE(SUM(d.giaKham), 0),
-            COUNT(d)
-        )
-        FROM DatLichKham d
-        WHERE d.isDeleted = false
-            AND d.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH
-            AND d.trangThaiThanhToan = org.example.demo.enums.TrangThaiThanhToan.THANH_CONG
-            AND (:fromDate IS NULL OR d.ngayKham >= :fromDate)
-            AND (:toDate IS NULL OR d.ngayKham <= :toDate)
-        GROUP BY d.bacSi.bacSiID, d.bacSi.nguoiDung.hoTen, d.bacSi.chuyenKhoa.chuyenKhoaID, d.bacSi.chuyenKhoa.tenChuyenKhoa
-        ORDER BY SUM(d.giaKham) DESC
-        """)
-    Page<org.example.demo.dto.response.DoctorRevenueResponse> revenueByDoctor(
-        @Param("fromDate") LocalDate fromDate,
-        @Param("toDate") LocalDate toDate,
-        Pageable pageable
-    );
-
-    @Query("""
-        SELECT new org.example.demo.dto.response.DoctorRevenueResponse(
-            d.bacSi.bacSiID,
-            d.bacSi.nguoiDung.hoTen,
-            d.bacSi.chuyenKhoa.chuyenKhoaID,
-            d.bacSi.chuyenKhoa.tenChuyenKhoa,
-            COALESCE(SUM(d.giaKham), 0),
-            COUNT(d)
-        )
+        SELECT CAST(d.ngayThanhToan AS LocalDate), d.bacSi.bacSiID, d.trangThai, d.trangThaiThanhToan,
+            COUNT(d), COALESCE(SUM(d.giaKham), 0)
         FROM DatLichKham d
         WHERE d.isDeleted = false
-            AND d.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH
             AND d.trangThaiThanhToan = org.example.demo.enums.TrangThaiThanhToan.THANH_CONG
-            AND (:fromDate IS NULL OR d.ngayKham >= :fromDate)
-            AND (:toDate IS NULL OR d.ngayKham <= :toDate)
-        GROUP BY d.bacSi.bacSiID, d.bacSi.nguoiDung.hoTen, d.bacSi.chuyenKhoa.chuyenKhoaID, d.bacSi.chuyenKhoa.tenChuyenKhoa
-        ORDER BY SUM(d.giaKham) DESC
+            AND d.ngayThanhToan >= :fromTime
+            AND d.ngayThanhToan < :toTime
+        GROUP BY CAST(d.ngayThanhToan AS LocalDate), d.bacSi.bacSiID, d.trangThai, d.trangThaiThanhToan
         """)
-    Page<org.example.demo.dto.response.DoctorRevenueResponse> topDoctorRevenue(
-        @Param("fromDate") LocalDate fromDate,
-        @Param("toDate") LocalDate toDate,
-        Pageable pageable
+    List<Object[]> aggregateByNgayThanhToan(
+        @Param("fromTime") LocalDateTime fromTime,
+        @Param("toTime") LocalDateTime toTime
     );
 
+    /**
+     * Khoảng ngày có dữ liệu (để chia khúc đối soát)
+     * 
+     * @return 1 dòng Object[] {minNgayKham, maxNgayKham, minNgayThanhToan, maxNgayThanhToan}
+     */
     @Query("""
-        SELECT new org.example.demo.dto.response.DoctorRevenueResponse(
-            d.bacSi.bacSiID,
-            d.bacSi.nguoiDung.hoTen,
-            d.bacSi.chuyenKhoa.chuyenKhoaID,
-            d.bacSi.chuyenKhoa.tenChuyenKhoa,
-            COALESCE(SUM(d.giaKham), 0),
-            COUNT(d)
-        )
+        SELECT MIN(d.ngayKham), MAX(d.ngayKham), MIN(d.ngayThanhToan), MAX(d.ngayThanhToan)
         FROM DatLichKham d
         WHERE d.isDeleted = false
-            AND d.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH
-            AND d.trangThaiThanhToan = org.example.demo.enums.TrangThaiThanhToan.THANH_CONG
-            AND (:fromDate IS NULL OR d.ngayKham >= :fromDate)
-            AND (:toDate IS NULL OR d.ngayKham <= :toDate)
-        GROUP BY d.bacSi.bacSiID, d.bacSi.nguoiDung.hoTen, d.bacSi.chuyenKhoa.chuyenKhoaID, d.bacSi.chuyenKhoa.tenChuyenKhoa
-        ORDER BY COUNT(d) DESC, SUM(d.giaKham) DESC
         """)
-    Page<org.example.demo.dto.response.DoctorRevenueResponse> topDoctorCompleted(
-        @Param("fromDate") LocalDate fromDate,
-        @Param("toDate") LocalDate toDate,
-        Pageable pageable
-    );
+    List<Object[]> findStatisticsDateBounds();
     
     // ==========================================
     // AVAILABLE SLOTS - Tìm slot trống
@@ -315,6 +281,50 @@ public interface DatLichKhamRepository extends JpaRepository<DatLichKham, Intege
         @Param("activeStatuses") List<TrangThaiDatLich> activeStatuses
     );
     
+    /**
+     * Đếm số slot đã đặt của TẤT CẢ bác sĩ trong khoảng ngày, nhóm theo bác sĩ/ngày/ca
+     * 
+     * Use case: Tính "còn lịch trống" cho nhiều bác sĩ cùng lúc (facet lọc bác sĩ)
+     * 
+     * @return List Object[] {bacSiID, ngayKham, ca, soSlotDaDat}
+     */
+    @Query("""
+        SELECT d.bacSi.bacSiID, d.ngayKham, d.ca, COUNT(d)
+        FROM DatLichKham d
+        WHERE d.ngayKham BETWEEN :fromDate AND :toDate
+            AND d.trangThai IN :activeStatuses
+            AND d.isDeleted = false
+        GROUP BY d.bacSi.bacSiID, d.ngayKham, d.ca
+        """)
+    List<Object[]> countBookedSlotsInRange(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate,
+        @Param("activeStatuses") List<TrangThaiDatLich> activeStatuses
+    );
+    
+    /**
+     * Đếm lịch active của MỘT NHÓM bác sĩ trong khoảng ngày, nhóm theo bác sĩ/ngày/ca
+     * 
+     * Use case: Đếm số lịch bị ảnh hưởng cho cả trang yêu cầu nghỉ chờ duyệt (1 query)
+     * 
+     * @return List Object[] {bacSiID, ngayKham, ca, soLich}
+     */
+    @Query("""
+        SELECT d.bacSi.bacSiID, d.ngayKham, d.ca, COUNT(d)
+        FROM DatLichKham d
+        WHERE d.bacSi.bacSiID IN :bacSiIDs
+            AND d.ngayKham BETWEEN :fromDate AND :toDate
+            AND d.trangThai IN :activeStatuses
+            AND d.isDeleted = false
+        GROUP BY d.bacSi.bacSiID, d.ngayKham, d.ca
+        """)
+    List<Object[]> countActiveBookingsByDoctorsInRange(
+        @Param("bacSiIDs") Collection<Integer> bacSiIDs,
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate,
+        @Param("activeStatuses") List<TrangThaiDatLich> activeStatuses
+    );
+    
     /**
      * Check slot có bị đặt (conflict) không
      * 
@@ -340,6 +350,83 @@ public interface DatLichKhamRepository extends JpaRepository<DatLichKham, Intege
         @Param("activeStatuses") List<TrangThaiDatLich> activeStatuses
     );
     
+    /**
+     * Lịch active của 1 bác sĩ trong khoảng ngày (ca = null: mọi ca)
+     * 
+     * Use case: Duyệt nghỉ phép - tìm lịch bị ảnh hưởng bằng 1 query (index idx_bacsi_ngay)
+     */
+    @Query("""
+        SELECT d
+        FROM DatLichKham d
+        JOIN FETCH d.benhNhan
+        JOIN FETCH d.bacSi b
+        JOIN FETCH b.nguoiDung
+        WHERE d.bacSi.bacSiID = :bacSiID
+            AND d.ngayKham BETWEEN :fromDate AND :toDate
+            AND (:ca IS NULL OR d.ca = :ca)
+            AND d.trangThai IN :activeStatuses
+            AND d.isDeleted = false
+        ORDER BY d.ngayKham, d.gioKham
+        """)
+    List<DatLichKham> findActiveBookingsForLeave(
+        @Param("bacSiID") Integer bacSiID,
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate,
+        @Param("ca") CaLamViec ca,
+        @Param("activeStatuses") List<TrangThaiDatLich> activeStatuses
+    );
+    
+    /**
+     * Khóa (FOR UPDATE) các lịch còn active trong danh sách trước khi hủy do bác sĩ nghỉ
+     * Lịch đã đổi trạng thái (hoàn thành, bệnh nhân hủy...) không được trả về
+     * Mỗi dòng: {DatLichID, TrangThai, TrangThaiThanhToan, SoTienHoan} - trạng thái hiện tại trong DB
+     */
+    @Query(value = """
+        SELECT DatLichID, TrangThai, TrangThaiThanhToan, SoTienHoan
+        FROM DatLichKham
+        WHERE DatLichID IN (:datLichIDs)
+            AND TrangThai IN (:activeStatuses)
+            AND IsDeleted = 0
+        FOR UPDATE
+        """, nativeQuery = true)
+    List<Object[]> lockActiveBookings(
+        @Param("datLichIDs") Collection<Integer> datLichIDs,
+        @Param("activeStatuses") Collection<String> activeStatuses
+    );
+
+    /**
+     * Hủy hàng loạt lịch do bác sĩ nghỉ (1 câu UPDATE)
+     * - Chỉ tác động lịch còn active (lịch đổi trạng thái giữa chừng được bỏ qua)
+     * - Lịch đã thanh toán thành công: ghi SoTienHoan = GiaKham, NgayHoanTien = NULL (chờ hoàn tiền)
+     * 
+     * @return số lịch đã hủy
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE DatLichKham d
+        SET d.trangThai = :huyStatus,
+            d.ngayHuy = :now,
+            d.lyDoHuy = :lyDo,
+            d.nguoiHuy = :nguoiHuy,
+            d.soTienHoan = CASE WHEN d.trangThaiThanhToan = :paidStatus AND d.soTienHoan IS NULL
+                THEN d.giaKham ELSE d.soTienHoan END,
+            d.lyDoHoanTien = CASE WHEN d.trangThaiThanhToan = :paidStatus AND d.soTienHoan IS NULL
+                THEN :lyDo ELSE d.lyDoHoanTien END,
+            d.updatedAt = :now
+        WHERE d.datLichID IN :datLichIDs
+            AND d.trangThai IN :activeStatuses
+            AND d.isDeleted = false
+        """)
+    int cancelBookingsForDoctorLeave(
+        @Param("datLichIDs") List<Integer> datLichIDs,
+        @Param("activeStatuses") List<TrangThaiDatLich> activeStatuses,
+        @Param("huyStatus") TrangThaiDatLich huyStatus,
+        @Param("paidStatus") TrangThaiThanhToan paidStatus,
+        @Param("nguoiHuy") NguoiDung nguoiHuy,
+        @Param("lyDo") String lyDo,
+        @Param("now") LocalDateTime now
+    );
+    
     // ==========================================
     // SEARCH WITH FILTERS - Tìm kiếm nâng cao
     // ==========================================
@@ -469,6 +556,136 @@ public interface DatLichKhamRepository extends JpaRepository<DatLichKham, Intege
         """)
     List<DatLichKham> findBookingsNeedingReminder(@Param("tomorrow") LocalDate tomorrow);
     
+    /**
+     * Lịch cần nhắc 24h dạng projection, phân trang keyset theo DatLichID (job nhắc lịch theo lô)
+     * Bỏ qua lịch đã được nhắc 1h (đặt sát giờ khám)
+     * Mỗi dòng: {datLichID, gioKham, maXacNhan,
+     *            benhNhanID, tenBenhNhan, emailBenhNhan,
+     *            nguoiDungID bác sĩ, tenBacSi, emailBacSi}
+     */
+    @Query("""
+        SELECT d.datLichID, d.gioKham, d.maXacNhan,
+               bn.nguoiDungID, bn.hoTen, bn.email,
+               bsnd.nguoiDungID, bsnd.hoTen, bsnd.email
+        FROM DatLichKham d
+        JOIN d.benhNhan bn
+        JOIN d.bacSi bs
+        JOIN bs.nguoiDung bsnd
+        WHERE d.trangThai = :trangThai
+            AND d.ngayKham = :ngayKham
+            AND d.daNhacNho = false
+            AND d.daNhacNho1h = false
+            AND d.isDeleted = false
+            AND d.datLichID > :afterId
+        ORDER BY d.datLichID ASC
+        """)
+    List<Object[]> findReminderCandidates(
+        @Param("ngayKham") LocalDate ngayKham,
+        @Param("trangThai") TrangThaiDatLich trangThai,
+        @Param("afterId") Integer afterId,
+        Pageable pageable
+    );
+
+    /**
+     * Lịch cần nhắc 1h: giờ khám trong cửa sổ [fromTime, toTime] của ngày ngayKham (index idx_nhac_lich_1h)
+     * Bỏ qua lịch vừa được nhắc 24h sau remindedBefore (tránh nhắc 2 lần sát nhau)
+     * Mỗi dòng cùng cấu trúc findReminderCandidates
+     */
+    @Query("""
+        SELECT d.datLichID, d.gioKham, d.maXacNhan,
+               bn.nguoiDungID, bn.hoTen, bn.email,
+               bsnd.nguoiDungID, bsnd.hoTen, bsnd.email
+        FROM DatLichKham d
+        JOIN d.benhNhan bn
+        JOIN d.bacSi bs
+        JOIN bs.nguoiDung bsnd
+        WHERE d.ngayKham = :ngayKham
+            AND d.gioKham BETWEEN :fromTime AND :toTime
+            AND d.trangThai = :trangThai
+            AND d.daNhacNho1h = false
+            AND (d.ngayNhacNho IS NULL OR d.ngayNhacNho < :remindedBefore)
+            AND d.isDeleted = false
+            AND d.datLichID > :afterId
+        ORDER BY d.datLichID ASC
+        """)
+    List<Object[]> findOneHourReminderCandidates(
+        @Param("ngayKham") LocalDate ngayKham,
+        @Param("fromTime") LocalTime fromTime,
+        @Param("toTime") LocalTime toTime,
+        @Param("trangThai") TrangThaiDatLich trangThai,
+        @Param("remindedBefore") LocalDateTime remindedBefore,
+        @Param("afterId") Integer afterId,
+        Pageable pageable
+    );
+
+    /**
+     * Giành quyền nhắc 24h cho các lịch trong lô: khóa dòng chưa nhắc, bỏ qua dòng đang bị
+     * job / instance khác khóa → 2 lượt chạy chồng nhau không nhắc trùng 1 lịch
+     * Kiểm tra lại điều kiện của findReminderCandidates: lịch bị hủy / xóa / đã nhắc 1h
+     * sau lúc đọc lô thì không nhắc nữa
+     * Gọi trong transaction sẽ đánh dấu DaNhacNho
+     */
+    @Query(value = """
+        SELECT DatLichID FROM DatLichKham
+        WHERE DatLichID IN (:datLichIDs)
+            AND TrangThai = 'DA_XAC_NHAN'
+            AND DaNhacNho = 0
+            AND DaNhacNho1h = 0
+            AND IsDeleted = 0
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<Integer> claimReminders(@Param("datLichIDs") Collection<Integer> datLichIDs);
+
+    /**
+     * Như claimReminders cho nhắc 1h (DaNhacNho1h), kiểm tra lại điều kiện của
+     * findOneHourReminderCandidates kể cả khoảng cách tối thiểu với lần nhắc 24h
+     */
+    @Query(value = """
+        SELECT DatLichID FROM DatLichKham
+        WHERE DatLichID IN (:datLichIDs)
+            AND TrangThai = 'DA_XAC_NHAN'
+            AND DaNhacNho1h = 0
+            AND (NgayNhacNho IS NULL OR NgayNhacNho < :remindedBefore)
+            AND IsDeleted = 0
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<Integer> claimOneHourReminders(
+        @Param("datLichIDs") Collection<Integer> datLichIDs,
+        @Param("remindedBefore") LocalDateTime remindedBefore
+    );
+
+    /**
+     * Đánh dấu đã gửi nhắc 1h cho 1 lô (1 câu UPDATE)
+     */
+    @Modifying
+    @Query("""
+        UPDATE DatLichKham d
+        SET d.daNhacNho1h = true,
+            d.ngayNhacNho1h = :now
+        WHERE d.datLichID IN :datLichIDs
+            AND d.daNhacNho1h = false
+        """)
+    int markOneHourRemindersSent(
+        @Param("datLichIDs") Collection<Integer> datLichIDs,
+        @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Đánh dấu đã gửi nhắc lịch cho 1 lô (1 câu UPDATE)
+     */
+    @Modifying
+    @Query("""
+        UPDATE DatLichKham d
+        SET d.daNhacNho = true,
+            d.ngayNhacNho = :now
+        WHERE d.datLichID IN :datLichIDs
+            AND d.daNhacNho = false
+        """)
+    int markRemindersSent(
+        @Param("datLichIDs") Collection<Integer> datLichIDs,
+        @Param("now") LocalDateTime now
+    );
+    
     /**
      * Tìm lịch quá hạn cần auto-update status
      * 
@@ -554,58 +771,18 @@ public interface DatLichKhamRepository extends JpaRepository<DatLichKham, Intege
     Double calculateTotalRevenue();
     
     /**
-     * Tính doanh thu theo khoảng thời gian
-     */
-    @Query("""
-        SELECT COALESCE(SUM(d.giaKham), 0) 
-        FROM DatLichKham d 
-        WHERE d.trangThaiThanhToan = 'THANH_CONG'
-            AND d.ngayThanhToan BETWEEN :fromDate AND :toDate
-            AND d.isDeleted = false
-        """)
-    Double calculateRevenueByDateRange(
-        @Param("fromDate") LocalDateTime fromDate,
-        @Param("toDate") LocalDateTime toDate
-    );
-    
-    /**
-     * Tính rating trung bình của bác sĩ
-     */
-    @Query("""
-        SELECT AVG(d.soSao) 
-        FROM DatLichKham d 
-        WHERE d.bacSi.bacSiID = :bacSiID
-            AND d.soSao IS NOT NULL
-            AND d.isDeleted = false
-        """)
-    Double calculateDoctorAverageRating(@Param("bacSiID") Integer bacSiID);
-    
-    /**
-     * Đếm số đánh giá của bác sĩ
-     */
-    @Query("""
-        SELECT COUNT(d) 
-        FROM DatLichKham d 
-        WHERE d.bacSi.bacSiID = :bacSiID
-            AND d.soSao IS NOT NULL
-            AND d.isDeleted = false
-        """)
-    Long countDoctorRatings(@Param("bacSiID") Integer bacSiID);
-    
-    /**
-     * Đếm số đánh giá theo số sao
+     * Phân bố đánh giá theo bác sĩ × số sao (job đối soát ThongKeDanhGiaBacSi)
+     * 
+     * @return List Object[] {bacSiID, soSao, count}
      */
     @Query("""
-        SELECT COUNT(d) 
-        FROM DatLichKham d 
-        WHERE d.bacSi.bacSiID = :bacSiID
-            AND d.soSao = :stars
+        SELECT d.bacSi.bacSiID, d.soSao, COUNT(d)
+        FROM DatLichKham d
+        WHERE d.soSao IS NOT NULL
             AND d.isDeleted = false
+        GROUP BY d.bacSi.bacSiID, d.soSao
         """)
-    Long countRatingsByStars(
-        @Param("bacSiID") Integer bacSiID,
-        @Param("stars") Integer stars
-    );
+    List<Object[]> countRatingsGroupByDoctorAndStars();
     
     // ==========================================
     // SPECIAL QUERIES
@@ -690,60 +867,4 @@ public interface DatLichKhamRepository extends JpaRepository<DatLichKham, Intege
             AND d.isDeleted = false
         """)
     Long countRefunds();
-
-    // ==========================================
-    // GLOBAL STATISTICS (Admin dashboard)
-    // ==========================================
-
-    @Query("""
-        SELECT COUNT(d)
-        FROM DatLichKham d
-        WHERE d.isDeleted = false
-        """)
-    Long countAllActive();
-
-    @Query("""
-        SELECT COUNT(d)
-        FROM DatLichKham d
-        WHERE d.ngayKham BETWEEN :from AND :to
-            AND d.isDeleted = false
-        """)
-    Long countByDateRange(
-        @Param("from") LocalDate from,
-        @Param("to") LocalDate to
-    );
-
-    @Query("""
-        SELECT COUNT(d)
-        FROM DatLichKham d
-        WHERE d.trangThaiThanhToan = :status
-            AND d.isDeleted = false
-        """)
-    Long countByPaymentStatus(@Param("status") org.example.demo.enums.TrangThaiThanhToan status);
-
-    @Query("""
-        SELECT COUNT(d)
-        FROM DatLichKham d
-        WHERE d.soSao IS NOT NULL
-            AND d.isDeleted = false
-        """)
-    Long countRatingsAll();
-
-    @Query("""
-        SELECT COUNT(d)
-        FROM DatLichKham d
-        WHERE d.soSao IS NOT NULL
-            AND d.soSao = :stars
-            AND d.isDeleted = false
-        """)
-    Long countRatingsByStarsAll(@Param("stars") Integer stars);
-
-    @Query("""
-        SELECT AVG(d.soSao)
-        FROM DatLichKham d
-        WHERE d.soSao IS NOT NULL
-            AND d.isDeleted = false
-        """)
-    Double calculateAverageRatingAll();
 }
-
@@ -0,0 +1,239 @@
+package org.example.demo.repository;
+
+import org.example.demo.enums.LoaiThongBao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ThongBaoJdbcRepository - Ghi / dọn ThongBao hàng loạt bằng JDBC (job nhắc lịch, job dọn thông báo cũ...)
+ *
+ * Bỏ qua persistence context: 1 câu lệnh / lô, không dirty checking, không giữ entity trong bộ nhớ.
+ * Phải gọi trong transaction (JdbcTemplate dùng chung connection với JPA qua JpaTransactionManager).
+ */
+@Repository
+public class ThongBaoJdbcRepository {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO ThongBao (NguoiNhanID, LoaiThongBao, TieuDe, NoiDung, ThoiGian, DaDoc,
+                              DatLichID, LinkDinhKem, DaGuiEmail, CreatedAt, UpdatedAt, IsDeleted)
+        VALUES (?, ?, ?, ?, ?, 0, ?, ?, 0, ?, ?, 0)
+        """;
+
+    /**
+     * Thông báo hết hạn lưu: đã đọc và cũ hơn mốc (dùng chung cho chọn lô / lưu trữ / xóa)
+     */
+    private static final String EXPIRED_CONDITION = "DaDoc = 1 AND ThoiGian < ?";
+
+    private static final String FIND_EXPIRED_IDS_SQL = """
+        SELECT ThongBaoID FROM ThongBao
+        WHERE ThongBaoID > ? AND %s
+        ORDER BY ThongBaoID
+        LIMIT ?
+        """.formatted(EXPIRED_CONDITION);
+
+    private static final String ARCHIVE_RANGE_SQL = """
+        INSERT INTO ThongBaoLuuTru (ThongBaoID, NguoiNhanID, LoaiThongBao, TieuDe, NoiDung, ThoiGian,
+                                    NgayDoc, DatLichID, LinkDinhKem, DaGuiEmail, NgayGuiEmail, MetaData,
+                                    CreatedAt, IsDeleted, NgayLuuTru)
+        SELECT ThongBaoID, NguoiNhanID, LoaiThongBao, TieuDe, NoiDung, ThoiGian,
+               NgayDoc, DatLichID, LinkDinhKem, DaGuiEmail, NgayGuiEmail, MetaData,
+               CreatedAt, IsDeleted, ?
+        FROM ThongBao
+        WHERE ThongBaoID > ? AND ThongBaoID <= ? AND %s
+        """.formatted(EXPIRED_CONDITION);
+
+    private static final String DELETE_RANGE_SQL = """
+        DELETE FROM ThongBao
+        WHERE ThongBaoID > ? AND ThongBaoID <= ? AND %s
+        """.formatted(EXPIRED_CONDITION);
+
+    private static final String INCREMENT_EMAIL_FAILURE_SQL = """
+        UPDATE ThongBao
+        SET SoLanGuiEmailLoi = SoLanGuiEmailLoi + 1, LoiEmailCuoi = ?
+        WHERE ThongBaoID = ? AND DaGuiEmail = 0
+        """;
+
+    private static final String SCHEDULE_EMAIL_RETRY_SQL = """
+        UPDATE ThongBao
+        SET EmailGuiLaiLuc = ?, LoiEmailCuoi = ?
+        WHERE ThongBaoID = ? AND DaGuiEmail = 0
+        """;
+
+    private static final String INSERT_EMAIL_DEAD_LETTER_SQL = """
+        INSERT INTO ThongBaoEmailLoi (ThongBaoID, NguoiNhanID, Email, LoaiThongBao, TieuDe, SoLanThu, LoiCuoi, NgayTao)
+        SELECT t.ThongBaoID, t.NguoiNhanID, u.Email, t.LoaiThongBao, t.TieuDe, ?, ?, ?
+        FROM ThongBao t
+        JOIN NguoiDung u ON u.NguoiDungID = t.NguoiNhanID
+        WHERE t.ThongBaoID = ? AND t.DaGuiEmail = 0
+        """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 1 lần gửi email thất bại của 1 thông báo
+     *
+     * @param soLanLoi  tổng số lần lỗi (gồm lần này, đọc lại sau khi tăng trong DB)
+     * @param guiLaiLuc thời điểm sớm nhất được gửi lại; null = bỏ cuộc (chuyển dead-letter)
+     */
+    public record EmailFailure(Integer thongBaoID, int soLanLoi, LocalDateTime guiLaiLuc, String loi) {
+    }
+
+    /**
+     * Dữ liệu 1 ThongBao mới
+     */
+    public record NewThongBao(
+        Integer nguoiNhanID,
+        LoaiThongBao loaiThongBao,
+        String tieuDe,
+        String noiDung,
+        Integer datLichID,
+        String linkDinhKem
+    ) {
+    }
+
+    /**
+     * INSERT cả lô trong 1 batch
+     *
+     * @return ThongBaoID sinh ra, đúng thứ tự đầu vào
+     */
+    public List<Integer> insertBatch(List<NewThongBao> rows, LocalDateTime now) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Timestamp timestamp = Timestamp.valueOf(now);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+            con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    NewThongBao row = rows.get(i);
+                    ps.setInt(1, row.nguoiNhanID());
+                    ps.setString(2, row.loaiThongBao().name());
+                    ps.setString(3, row.tieuDe());
+                    ps.setString(4, row.noiDung());
+                    ps.setTimestamp(5, timestamp);
+                    if (row.datLichID() != null) {
+                        ps.setInt(6, row.datLichID());
+                    } else {
+                        ps.setNull(6, Types.INTEGER);
+                    }
+                    ps.setString(7, row.linkDinhKem());
+                    ps.setTimestamp(8, timestamp);
+                    ps.setTimestamp(9, timestamp);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return rows.size();
+                }
+            },
+            keyHolder
+        );
+
+        List<Integer> ids = new ArrayList<>(rows.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).intValue());
+        }
+        return ids;
+    }
+
+    /**
+     * ID thông báo hết hạn tiếp theo sau afterId, theo thứ tự khóa chính (keyset)
+     */
+    public List<Integer> findExpiredIds(int afterId, LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList(FIND_EXPIRED_IDS_SQL, Integer.class,
+            afterId, Timestamp.valueOf(cutoff), limit);
+    }
+
+    /**
+     * Chép thông báo hết hạn trong khoảng ID (fromExclusive, toInclusive] sang ThongBaoLuuTru
+     *
+     * @return số dòng đã chép
+     */
+    public int archiveRange(int fromExclusive, int toInclusive, LocalDateTime cutoff, LocalDateTime now) {
+        return jdbcTemplate.update(ARCHIVE_RANGE_SQL,
+            Timestamp.valueOf(now), fromExclusive, toInclusive, Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * Xóa thông báo hết hạn trong khoảng ID (fromExclusive, toInclusive]
+     * Khóa chỉ nằm trên khoảng khóa chính của lô
+     *
+     * @return số dòng đã xóa
+     */
+    public int deleteRange(int fromExclusive, int toInclusive, LocalDateTime cutoff) {
+        return jdbcTemplate.update(DELETE_RANGE_SQL, fromExclusive, toInclusive, Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * Tăng số lần lỗi ngay trong DB (SoLanGuiEmailLoi + 1, 1 batch UPDATE) và giữ khóa dòng tới hết transaction
+     * → nhiều instance ghi lỗi cùng thông báo không ghi đè nhau; số lần lỗi đọc lại sau câu này là chính xác
+     */
+    public void incrementEmailFailures(List<EmailFailure> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INCREMENT_EMAIL_FAILURE_SQL, failures, failures.size(), (ps, failure) -> {
+            ps.setString(1, truncate(failure.loi()));
+            ps.setInt(2, failure.thongBaoID());
+        });
+    }
+
+    /**
+     * Ghi thời điểm gửi lại (null = bỏ cuộc) + lỗi cuối cho cả lô (1 batch UPDATE), không đổi số lần lỗi
+     */
+    public void scheduleEmailRetries(List<EmailFailure> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(SCHEDULE_EMAIL_RETRY_SQL, failures, failures.size(), (ps, failure) -> {
+            ps.setTimestamp(1, failure.guiLaiLuc() != null ? Timestamp.valueOf(failure.guiLaiLuc()) : null);
+            ps.setString(2, truncate(failure.loi()));
+            ps.setInt(3, failure.thongBaoID());
+        });
+    }
+
+    /**
+     * Chép các thông báo bỏ cuộc gửi email sang ThongBaoEmailLoi (dead-letter)
+     */
+    public void insertEmailDeadLetters(List<EmailFailure> failures, LocalDateTime now) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(INSERT_EMAIL_DEAD_LETTER_SQL, failures, failures.size(), (ps, failure) -> {
+            ps.setInt(1, failure.soLanLoi());
+            ps.setString(2, truncate(failure.loi()));
+            ps.setTimestamp(3, timestamp);
+            ps.setInt(4, failure.thongBaoID());
+        });
+    }
+
+    /**
+     * Tổng số email trong dead-letter
+     */
+    public long countEmailDeadLetters() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ThongBaoEmailLoi", Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -122,6 +123,79 @@ public interface ThongBaoRepository extends JpaRepository<ThongBao, Integer> {
         """)
     List<ThongBao> findPendingEmails(@Param("beforeTime") LocalDateTime beforeTime);
     
+    /**
+     * Thông báo sau afterId của 1 người dùng (SSE phát lại theo Last-Event-ID)
+     * Mỗi dòng: {thongBaoID, loaiThongBao, tieuDe, noiDung, thoiGian, daDoc, datLichID, linkDinhKem}
+     */
+    @Query("""
+        SELECT t.thongBaoID, t.loaiThongBao, t.tieuDe, t.noiDung, t.thoiGian, t.daDoc, d.datLichID, t.linkDinhKem
+        FROM ThongBao t
+        LEFT JOIN t.datLichKham d
+        WHERE t.nguoiNhan.nguoiDungID = :nguoiDungID
+            AND t.thongBaoID > :afterId
+            AND t.isDeleted = false
+        ORDER BY t.thongBaoID ASC
+        """)
+    List<Object[]> findStreamResume(
+        @Param("nguoiDungID") Integer nguoiDungID,
+        @Param("afterId") Integer afterId,
+        Pageable pageable
+    );
+
+    /**
+     * Thông báo chưa từng gửi email (chưa lỗi, chưa hẹn gửi lại) tạo trong [fromTime, toTime]
+     * - job quét email tồn (hàng đợi từng đầy, restart...)
+     * - mọi loại thông báo: cùng quy tắc với NotificationService (loại nào cũng gửi email)
+     * Mỗi dòng: {thongBaoID, email, hoTen, tieuDe, noiDung, loaiThongBao, soLanGuiEmailLoi}
+     */
+    @Query("""
+        SELECT t.thongBaoID, u.email, u.hoTen, t.tieuDe, t.noiDung, t.loaiThongBao, t.soLanGuiEmailLoi
+        FROM ThongBao t
+        JOIN t.nguoiNhan u
+        WHERE t.daGuiEmail = false
+            AND t.createdAt BETWEEN :fromTime AND :toTime
+            AND t.soLanGuiEmailLoi = 0
+            AND t.emailGuiLaiLuc IS NULL
+        ORDER BY t.thongBaoID ASC
+        """)
+    List<Object[]> findPendingEmailJobs(
+        @Param("fromTime") LocalDateTime fromTime,
+        @Param("toTime") LocalDateTime toTime,
+        Pageable pageable
+    );
+
+    /**
+     * Thông báo đã hẹn gửi lại email (lỗi trước đó, backoff) và đã đến EmailGuiLaiLuc, chưa quá maxAttempts
+     * Không giới hạn tuổi thông báo: email lỗi lâu vẫn được gửi lại tới khi gửi được hoặc vào dead-letter
+     * Mỗi dòng: {thongBaoID, email, hoTen, tieuDe, noiDung, loaiThongBao, soLanGuiEmailLoi}
+     */
+    @Query("""
+        SELECT t.thongBaoID, u.email, u.hoTen, t.tieuDe, t.noiDung, t.loaiThongBao, t.soLanGuiEmailLoi
+        FROM ThongBao t
+        JOIN t.nguoiNhan u
+        WHERE t.daGuiEmail = false
+            AND t.emailGuiLaiLuc <= :now
+            AND t.soLanGuiEmailLoi < :maxAttempts
+        ORDER BY t.emailGuiLaiLuc ASC
+        """)
+    List<Object[]> findDueEmailRetries(
+        @Param("maxAttempts") int maxAttempts,
+        @Param("now") LocalDateTime now,
+        Pageable pageable
+    );
+
+    /**
+     * Số lần gửi email đã lỗi của các thông báo chưa gửi được (đọc lại sau khi tăng → tính backoff)
+     * Mỗi dòng: {thongBaoID, soLanGuiEmailLoi}
+     */
+    @Query("""
+        SELECT t.thongBaoID, t.soLanGuiEmailLoi
+        FROM ThongBao t
+        WHERE t.thongBaoID IN :thongBaoIDs
+            AND t.daGuiEmail = false
+        """)
+    List<Object[]> findEmailFailureCounts(@Param("thongBaoIDs") Collection<Integer> thongBaoIDs);
+    
     /**
      * Đánh dấu email đã gửi
      */
@@ -200,6 +274,32 @@ public interface ThongBaoRepository extends JpaRepository<ThongBao, Integer> {
         """)
     Long countByUser(@Param("nguoiNhanID") Integer nguoiNhanID);
     
+    /**
+     * Đếm thông báo chưa đọc (chưa xóa) của 1 user - nạp bộ đếm badge khi chưa có trong cache
+     */
+    @Query("""
+        SELECT COUNT(t) 
+        FROM ThongBao t 
+        WHERE t.nguoiNhan.nguoiDungID = :nguoiNhanID
+            AND t.daDoc = false
+            AND t.isDeleted = false
+        """)
+    long countUnread(@Param("nguoiNhanID") Integer nguoiNhanID);
+    
+    /**
+     * Đếm thông báo chưa đọc theo từng user (đối soát bộ đếm badge)
+     * Row: {nguoiNhanID, soChuaDoc}; user không còn thông báo chưa đọc không có dòng
+     */
+    @Query("""
+        SELECT t.nguoiNhan.nguoiDungID, COUNT(t) 
+        FROM ThongBao t 
+        WHERE t.nguoiNhan.nguoiDungID IN :nguoiNhanIDs
+            AND t.daDoc = false
+            AND t.isDeleted = false
+        GROUP BY t.nguoiNhan.nguoiDungID
+        """)
+    List<Object[]> countUnreadByUsers(@Param("nguoiNhanIDs") Collection<Integer> nguoiNhanIDs);
+    
     /**
      * Đếm số email đã gửi
      */
@@ -0,0 +1,102 @@
+package org.example.demo.repository;
+
+import org.example.demo.entity.ThongKeDanhGiaBacSi;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository cho bảng tổng hợp đánh giá ThongKeDanhGiaBacSi
+ */
+@Repository
+public interface ThongKeDanhGiaBacSiRepository extends JpaRepository<ThongKeDanhGiaBacSi, Integer> {
+
+    /**
+     * Cộng 1 đánh giá soSao sao cho bác sĩ (tạo dòng nếu chưa có)
+     * Atomic ở mức DB: nhiều bệnh nhân đánh giá cùng lúc không mất số liệu
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO ThongKeDanhGiaBacSi
+            (BacSiID, SoDanhGia, TongSoSao, SoMotSao, SoHaiSao, SoBaSao, SoBonSao, SoNamSao, UpdatedAt)
+        VALUES
+            (:bacSiID, 1, :soSao,
+             IF(:soSao = 1, 1, 0), IF(:soSao = 2, 1, 0), IF(:soSao = 3, 1, 0),
+             IF(:soSao = 4, 1, 0), IF(:soSao = 5, 1, 0), NOW())
+        ON DUPLICATE KEY UPDATE
+            SoDanhGia = SoDanhGia + 1,
+            TongSoSao = TongSoSao + VALUES(TongSoSao),
+            SoMotSao = SoMotSao + VALUES(SoMotSao),
+            SoHaiSao = SoHaiSao + VALUES(SoHaiSao),
+            SoBaSao = SoBaSao + VALUES(SoBaSao),
+            SoBonSao = SoBonSao + VALUES(SoBonSao),
+            SoNamSao = SoNamSao + VALUES(SoNamSao),
+            UpdatedAt = NOW()
+        """, nativeQuery = true)
+    int addRating(
+        @Param("bacSiID") Integer bacSiID,
+        @Param("soSao") int soSao
+    );
+
+    /**
+     * Cộng phần chênh lệch (job đối soát), cùng đường upsert atomic với addRating
+     * nên đánh giá commit xen giữa lúc đối soát không bị ghi đè mất
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO ThongKeDanhGiaBacSi
+            (BacSiID, SoDanhGia, TongSoSao, SoMotSao, SoHaiSao, SoBaSao, SoBonSao, SoNamSao, UpdatedAt)
+        VALUES
+            (:bacSiID, :soDanhGia, :tongSoSao, :mot, :hai, :ba, :bon, :nam, NOW())
+        ON DUPLICATE KEY UPDATE
+            SoDanhGia = SoDanhGia + VALUES(SoDanhGia),
+            TongSoSao = TongSoSao + VALUES(TongSoSao),
+            SoMotSao = SoMotSao + VALUES(SoMotSao),
+            SoHaiSao = SoHaiSao + VALUES(SoHaiSao),
+            SoBaSao = SoBaSao + VALUES(SoBaSao),
+            SoBonSao = SoBonSao + VALUES(SoBonSao),
+            SoNamSao = SoNamSao + VALUES(SoNamSao),
+            UpdatedAt = NOW()
+        """, nativeQuery = true)
+    int addDelta(
+        @Param("bacSiID") Integer bacSiID,
+        @Param("soDanhGia") long soDanhGia,
+        @Param("tongSoSao") long tongSoSao,
+        @Param("mot") long mot,
+        @Param("hai") long hai,
+        @Param("ba") long ba,
+        @Param("bon") long bon,
+        @Param("nam") long nam
+    );
+
+    /**
+     * Phân bố số sao toàn hệ thống (dashboard admin)
+     *
+     * @return 1 dòng Object[] {soMotSao, soHaiSao, soBaSao, soBonSao, soNamSao}
+     */
+    @Query("""
+        SELECT SUM(t.soMotSao), SUM(t.soHaiSao), SUM(t.soBaSao), SUM(t.soBonSao), SUM(t.soNamSao)
+        FROM ThongKeDanhGiaBacSi t
+        """)
+    List<Object[]> sumHistogram();
+
+    /**
+     * Tổng hợp đánh giá kèm thông tin bác sĩ (xếp hạng theo đánh giá), bỏ bác sĩ đã xóa
+     *
+     * @return List Object[] {bacSiID, hoTen, chuyenKhoaID, tenChuyenKhoa, soDanhGia, tongSoSao}
+     */
+    @Query("""
+        SELECT b.bacSiID, b.nguoiDung.hoTen, b.chuyenKhoa.chuyenKhoaID, b.chuyenKhoa.tenChuyenKhoa,
+            t.soDanhGia, t.tongSoSao
+        FROM ThongKeDanhGiaBacSi t
+        JOIN BacSi b ON b.bacSiID = t.bacSiID
+        WHERE b.isDeleted = false
+            AND t.soDanhGia > 0
+            AND (:chuyenKhoaID IS NULL OR b.chuyenKhoa.chuyenKhoaID = :chuyenKhoaID)
+        """)
+    List<Object[]> findAllWithDoctor(@Param("chuyenKhoaID") Integer chuyenKhoaID);
+}
@@ -0,0 +1,305 @@
+package org.example.demo.repository;
+
+import org.example.demo.dto.response.DoctorRevenueResponse;
+import org.example.demo.dto.response.SpecialtyRevenueResponse;
+import org.example.demo.entity.ThongKeDatLichNgay;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository cho bảng tổng hợp ThongKeDatLichNgay
+ *
+ * Mọi API thống kê đọc từ đây: chi phí phụ thuộc số ngày × số bác sĩ,
+ * không phụ thuộc tổng số booking
+ */
+@Repository
+public interface ThongKeDatLichNgayRepository extends JpaRepository<ThongKeDatLichNgay, Long> {
+
+    // ==========================================
+    // GHI - CẬP NHẬT TĂNG DẦN / ĐỐI SOÁT
+    // ==========================================
+
+    /**
+     * Cộng delta vào 1 dòng tổng hợp (tạo mới nếu chưa có)
+     * Atomic ở mức DB nên nhiều transaction cùng cập nhật 1 dòng không mất số liệu
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO ThongKeDatLichNgay
+            (Ngay, BacSiID, TrangThai, TrangThaiThanhToan,
+             SoLich, TongGiaKham, SoHoanTien, TongTienHoan, SoThanhToan, DoanhThuThanhToan, UpdatedAt)
+        VALUES
+            (:ngay, :bacSiID, :trangThai, :trangThaiThanhToan,
+             :soLich, :tongGiaKham, :soHoanTien, :tongTienHoan, :soThanhToan, :doanhThuThanhToan, NOW())
+        ON DUPLICATE KEY UPDATE
+            SoLich = SoLich + VALUES(SoLich),
+            TongGiaKham = TongGiaKham + VALUES(TongGiaKham),
+            SoHoanTien = SoHoanTien + VALUES(SoHoanTien),
+            TongTienHoan = TongTienHoan + VALUES(TongTienHoan),
+            SoThanhToan = SoThanhToan + VALUES(SoThanhToan),
+            DoanhThuThanhToan = DoanhThuThanhToan + VALUES(DoanhThuThanhToan),
+            UpdatedAt = NOW()
+        """, nativeQuery = true)
+    int addDelta(
+        @Param("ngay") LocalDate ngay,
+        @Param("bacSiID") Integer bacSiID,
+        @Param("trangThai") String trangThai,
+        @Param("trangThaiThanhToan") String trangThaiThanhToan,
+        @Param("soLich") long soLich,
+        @Param("tongGiaKham") BigDecimal tongGiaKham,
+        @Param("soHoanTien") long soHoanTien,
+        @Param("tongTienHoan") BigDecimal tongTienHoan,
+        @Param("soThanhToan") long soThanhToan,
+        @Param("doanhThuThanhToan") BigDecimal doanhThuThanhToan
+    );
+
+    /**
+     * Lấy các dòng tổng hợp trong khoảng ngày (đối soát theo từng khúc)
+     */
+    @Query("""
+        SELECT t
+        FROM ThongKeDatLichNgay t
+        WHERE t.ngay BETWEEN :fromDate AND :toDate
+        """)
+    List<ThongKeDatLichNgay> findByNgayBetween(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate
+    );
+
+    /**
+     * Xóa dòng đã về 0 hết (lịch đổi trạng thái/ngày để lại dòng rỗng)
+     */
+    @Modifying
+    @Query("""
+        DELETE FROM ThongKeDatLichNgay t
+        WHERE t.ngay BETWEEN :fromDate AND :toDate
+            AND t.soLich = 0 AND t.tongGiaKham = 0
+            AND t.soHoanTien = 0 AND t.tongTienHoan = 0
+            AND t.soThanhToan = 0 AND t.doanhThuThanhToan = 0
+        """)
+    int deleteEmptyRows(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate
+    );
+
+    /**
+     * Ngày nhỏ nhất / lớn nhất đang có trong bảng tổng hợp
+     *
+     * @return 1 dòng Object[] {minNgay, maxNgay}
+     */
+    @Query("""
+        SELECT MIN(t.ngay), MAX(t.ngay)
+        FROM ThongKeDatLichNgay t
+        """)
+    List<Object[]> findDateBounds();
+
+    // ==========================================
+    // ĐỌC - DASHBOARD
+    // ==========================================
+
+    /**
+     * Tổng hợp cho admin dashboard: gộp theo trạng thái lịch × trạng thái thanh toán,
+     * kèm số lịch/doanh thu theo 3 cửa sổ (hôm nay / tuần này / tháng này)
+     *
+     * - Số lịch theo cửa sổ: theo ngày khám (SoLich)
+     * - Doanh thu theo cửa sổ: theo ngày thanh toán (DoanhThuThanhToan)
+     *
+     * @return List Object[] {trangThai, trangThaiThanhToan, soLich, tongGiaKham,
+     *         todayCount, weekCount, monthCount, todayRevenue, weekRevenue, monthRevenue,
+     *         soHoanTien, tongTienHoan}
+     */
+    @Query("""
+        SELECT t.trangThai, t.trangThaiThanhToan,
+            SUM(t.soLich), SUM(t.tongGiaKham),
+            SUM(CASE WHEN t.ngay = :today THEN t.soLich ELSE 0 END),
+            SUM(CASE WHEN t.ngay BETWEEN :weekStart AND :weekEnd THEN t.soLich ELSE 0 END),
+            SUM(CASE WHEN t.ngay BETWEEN :monthStart AND :monthEnd THEN t.soLich ELSE 0 END),
+            SUM(CASE WHEN t.ngay = :today THEN t.doanhThuThanhToan ELSE 0 END),
+            SUM(CASE WHEN t.ngay BETWEEN :weekStart AND :weekEnd THEN t.doanhThuThanhToan ELSE 0 END),
+            SUM(CASE WHEN t.ngay BETWEEN :monthStart AND :monthEnd THEN t.doanhThuThanhToan ELSE 0 END),
+            SUM(t.soHoanTien), SUM(t.tongTienHoan)
+        FROM ThongKeDatLichNgay t
+        GROUP BY t.trangThai, t.trangThaiThanhToan
+        """)
+    List<Object[]> summarizeDashboard(
+        @Param("today") LocalDate today,
+        @Param("weekStart") LocalDate weekStart,
+        @Param("weekEnd") LocalDate weekEnd,
+        @Param("monthStart") LocalDate monthStart,
+        @Param("monthEnd") LocalDate monthEnd
+    );
+
+    // ==========================================
+    // ĐỌC - DOANH THU (lịch HOAN_THANH + THANH_CONG, theo ngày khám)
+    // Trả List + Pageable: chỉ áp LIMIT, không chạy thêm query COUNT
+    // ==========================================
+
+    @Query("""
+        SELECT new org.example.demo.dto.response.SpecialtyRevenueResponse(
+            t.bacSi.chuyenKhoa.chuyenKhoaID,
+            t.bacSi.chuyenKhoa.tenChuyenKhoa,
+            COALESCE(SUM(t.tongGiaKham), 0),
+            SUM(t.soLich)
+        )
+        FROM ThongKeDatLichNgay t
+        WHERE t.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH
+            AND t.trangThaiThanhToan = org.example.demo.enums.TrangThaiThanhToan.THANH_CONG
+            AND (:fromDate IS NULL OR t.ngay >= :fromDate)
+            AND (:toDate IS NULL OR t.ngay <= :toDate)
+        GROUP BY t.bacSi.chuyenKhoa.chuyenKhoaID, t.bacSi.chuyenKhoa.tenChuyenKhoa
+        HAVING SUM(t.soLich) > 0
+        ORDER BY SUM(t.tongGiaKham) DESC
+        """)
+    List<SpecialtyRevenueResponse> revenueBySpecialty(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate
+    );
+
+    @Query("""
+        SELECT new org.example.demo.dto.response.DoctorRevenueResponse(
+            t.bacSi.bacSiID,
+            t.bacSi.nguoiDung.hoTen,
+            t.bacSi.chuyenKhoa.chuyenKhoaID,
+            t.bacSi.chuyenKhoa.tenChuyenKhoa,
+            COALESCE(SUM(t.tongGiaKham), 0),
+            SUM(t.soLich)
+        )
+        FROM ThongKeDatLichNgay t
+        WHERE t.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH
+            AND t.trangThaiThanhToan = org.example.demo.enums.TrangThaiThanhToan.THANH_CONG
+            AND (:fromDate IS NULL OR t.ngay >= :fromDate)
+            AND (:toDate IS NULL OR t.ngay <= :toDate)
+        GROUP BY t.bacSi.bacSiID, t.bacSi.nguoiDung.hoTen, t.bacSi.chuyenKhoa.chuyenKhoaID, t.bacSi.chuyenKhoa.tenChuyenKhoa
+        HAVING SUM(t.soLich) > 0
+        ORDER BY SUM(t.tongGiaKham) DESC
+        """)
+    List<DoctorRevenueResponse> revenueByDoctor(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate,
+        Pageable pageable
+    );
+
+    // ==========================================
+    // ĐỌC - XẾP HẠNG (DoctorRankingService chọn top-K bằng min-heap)
+    // ==========================================
+
+    /**
+     * Số liệu theo bác sĩ trong khoảng ngày khám, tùy chọn lọc chuyên khoa
+     * doanhThu / soCaHoanThanh chỉ tính lịch HOAN_THANH đã thanh toán THANH_CONG (giống top-completed cũ)
+     *
+     * @return List Object[] {bacSiID, hoTen, chuyenKhoaID, tenChuyenKhoa,
+     *         doanhThu, soCaHoanThanh, soLich, soLichHuy}
+     */
+    @Query("""
+        SELECT t.bacSi.bacSiID, t.bacSi.nguoiDung.hoTen,
+            t.bacSi.chuyenKhoa.chuyenKhoaID, t.bacSi.chuyenKhoa.tenChuyenKhoa,
+            SUM(CASE WHEN t.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH
+                      AND t.trangThaiThanhToan = org.example.demo.enums.TrangThaiThanhToan.THANH_CONG
+                     THEN t.tongGiaKham ELSE 0 END),
+            SUM(CASE WHEN t.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH
+                      AND t.trangThaiThanhToan = org.example.demo.enums.TrangThaiThanhToan.THANH_CONG
+                     THEN t.soLich ELSE 0 END),
+            SUM(t.soLich),
+            SUM(CASE WHEN t.trangThai IN (
+                        org.example.demo.enums.TrangThaiDatLich.HUY_BOI_BENH_NHAN,
+                        org.example.demo.enums.TrangThaiDatLich.HUY_BOI_BAC_SI,
+                        org.example.demo.enums.TrangThaiDatLich.HUY_BOI_ADMIN)
+                     THEN t.soLich ELSE 0 END)
+        FROM ThongKeDatLichNgay t
+        WHERE (:fromDate IS NULL OR t.ngay >= :fromDate)
+            AND (:toDate IS NULL OR t.ngay <= :toDate)
+            AND (:chuyenKhoaID IS NULL OR t.bacSi.chuyenKhoa.chuyenKhoaID = :chuyenKhoaID)
+        GROUP BY t.bacSi.bacSiID, t.bacSi.nguoiDung.hoTen, t.bacSi.chuyenKhoa.chuyenKhoaID, t.bacSi.chuyenKhoa.tenChuyenKhoa
+        HAVING SUM(t.soLich) > 0
+        """)
+    List<Object[]> summarizeByDoctor(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate,
+        @Param("chuyenKhoaID") Integer chuyenKhoaID
+    );
+
+    // ==========================================
+    // ĐỌC - CHUỖI THỜI GIAN (gộp theo ngày, chia kỳ tuần/tháng ở service)
+    // Cột chung: {..., doanhThu, soLich, soHoanThanh, soHoanTien, tongTienHoan}
+    // ==========================================
+
+    /**
+     * @return List Object[] {ngay, doanhThu, soLich, soHoanThanh, soHoanTien, tongTienHoan}
+     */
+    @Query("""
+        SELECT t.ngay,
+            SUM(t.doanhThuThanhToan), SUM(t.soLich),
+            SUM(CASE WHEN t.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH THEN t.soLich ELSE 0 END),
+            SUM(t.soHoanTien), SUM(t.tongTienHoan)
+        FROM ThongKeDatLichNgay t
+        WHERE t.ngay BETWEEN :fromDate AND :toDate
+        GROUP BY t.ngay
+        """)
+    List<Object[]> timeSeriesByDay(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate
+    );
+
+    /**
+     * @return List Object[] {ngay, bacSiID, hoTen, doanhThu, soLich, soHoanThanh, soHoanTien, tongTienHoan}
+     */
+    @Query("""
+        SELECT t.ngay, t.bacSi.bacSiID, t.bacSi.nguoiDung.hoTen,
+            SUM(t.doanhThuThanhToan), SUM(t.soLich),
+            SUM(CASE WHEN t.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH THEN t.soLich ELSE 0 END),
+            SUM(t.soHoanTien), SUM(t.tongTienHoan)
+        FROM ThongKeDatLichNgay t
+        WHERE t.ngay BETWEEN :fromDate AND :toDate
+        GROUP BY t.ngay, t.bacSi.bacSiID, t.bacSi.nguoiDung.hoTen
+        """)
+    List<Object[]> timeSeriesByDayAndDoctor(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate
+    );
+
+    /**
+     * @return List Object[] {ngay, chuyenKhoaID, tenChuyenKhoa, doanhThu, soLich, soHoanThanh, soHoanTien, tongTienHoan}
+     */
+    @Query("""
+        SELECT t.ngay, t.bacSi.chuyenKhoa.chuyenKhoaID, t.bacSi.chuyenKhoa.tenChuyenKhoa,
+            SUM(t.doanhThuThanhToan), SUM(t.soLich),
+            SUM(CASE WHEN t.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH THEN t.soLich ELSE 0 END),
+            SUM(t.soHoanTien), SUM(t.tongTienHoan)
+        FROM ThongKeDatLichNgay t
+        WHERE t.ngay BETWEEN :fromDate AND :toDate
+        GROUP BY t.ngay, t.bacSi.chuyenKhoa.chuyenKhoaID, t.bacSi.chuyenKhoa.tenChuyenKhoa
+        """)
+    List<Object[]> timeSeriesByDayAndSpecialty(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate
+    );
+
+    // ==========================================
+    // ĐỌC - CÔNG SUẤT BÁC SĨ
+    // ==========================================
+
+    /**
+     * Số lịch theo bác sĩ × ngày khám × trạng thái (gộp mọi trạng thái thanh toán)
+     *
+     * @return List Object[] {bacSiID, ngay, trangThai, soLich}
+     */
+    @Query("""
+        SELECT t.bacSiID, t.ngay, t.trangThai, SUM(t.soLich)
+        FROM ThongKeDatLichNgay t
+        WHERE t.ngay BETWEEN :fromDate AND :toDate
+            AND t.soLich > 0
+        GROUP BY t.bacSiID, t.ngay, t.trangThai
+        """)
+    List<Object[]> countByDoctorDayAndStatus(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate
+    );
+}
@@ -1,5 +1,6 @@
 package org.example.demo.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -92,6 +93,9 @@ public class SecurityConfig {
             
             // Configure authorization
             .authorizeHttpRequests(auth -> auth
+                // Async dispatch của SSE stream: request gốc đã được xác thực
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 // PUBLIC endpoints (không cần authentication)
                 .requestMatchers(
                     "/api/auth/**",
@@ -0,0 +1,56 @@
+package org.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.repository.BacSiRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * AnnualLeaveRolloverService - Chuyển năm ngày phép cho bác sĩ
+ *
+ * Mỗi ngày chạy 1 câu UPDATE cho mọi bác sĩ có NamApDung < năm hiện tại:
+ * reset SoNgayPhepDaSuDung = 0, chuyển tối đa carry-over-max-days ngày chưa dùng sang năm mới.
+ * Điều kiện NamApDung giúp job chạy lại không tác động gì, và tự bù nếu server tắt đúng ngày 1/1.
+ */
+@Slf4j
+@Service
+public class AnnualLeaveRolloverService {
+
+    @Autowired
+    private BacSiRepository bacSiRepository;
+
+    @Value("${app.annual-leave.carry-over-max-days:0}")
+    private int carryOverMaxDays;
+
+    /**
+     * Mặc định 00:05 mỗi ngày (app.annual-leave.rollover-cron)
+     */
+    @Scheduled(cron = "${app.annual-leave.rollover-cron:0 5 0 * * *}")
+    public void scheduledRollover() {
+        try {
+            rollover(LocalDate.now().getYear());
+        } catch (Exception e) {
+            log.error("❌ Annual leave rollover failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Chuyển ngày phép sang năm nam cho tất cả bác sĩ chưa chuyển
+     *
+     * @return số bác sĩ đã chuyển năm
+     */
+    @Transactional
+    public int rollover(int nam) {
+        int updated = bacSiRepository.rolloverAnnualLeave(nam, Math.max(carryOverMaxDays, 0));
+        if (updated > 0) {
+            log.info("📅 Annual leave rolled over to {} for {} doctors (carry-over max {} days)",
+                nam, updated, carryOverMaxDays);
+        }
+        return updated;
+    }
+}
@@ -59,6 +59,15 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
+    @Autowired
+    private DoctorSearchIndex doctorSearchIndex;
+
+    @Autowired
+    private DoctorFacetIndex doctorFacetIndex;
+
+    @Autowired
+    private AutocompleteService autocompleteService;
+
     @Autowired
     private EmailService emailService;
 
@@ -326,6 +335,13 @@ public class AuthService {
         nguoiDung.setAvatarUrl(request.getAvatarUrl());
 
         nguoiDungRepository.save(nguoiDung);
+
+        // Bác sĩ đổi tên/avatar → search index cần nạp lại
+        if (nguoiDung.getVaiTro() == VaiTro.BacSi) {
+            doctorSearchIndex.invalidate();
+            doctorFacetIndex.invalidate();
+            autocompleteService.renameDoctor(nguoiDung.getNguoiDungID(), nguoiDung.getHoTen());
+        }
         return convertToUserResponse(nguoiDung);
     }
 
@@ -0,0 +1,295 @@
+package org.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.dto.response.AutocompleteSuggestionResponse;
+import org.example.demo.entity.BacSi;
+import org.example.demo.entity.ChuyenKhoa;
+import org.example.demo.entity.TrinhDo;
+import org.example.demo.repository.BacSiRepository;
+import org.example.demo.repository.ChuyenKhoaRepository;
+import org.example.demo.repository.TrinhDoRepository;
+import org.example.demo.util.TextNormalizer;
+import org.example.demo.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * AutocompleteService - Gợi ý tìm kiếm theo tiền tố (typeahead)
+ *
+ * Cấu trúc: mảng khóa đã sắp xếp (sorted array) + binary search theo tiền tố
+ * - Khóa chính: toàn bộ tên đã bỏ dấu ("nguyen van an")
+ * - Khóa phụ: phần tên bắt đầu từ mỗi từ ("van an", "an") → gõ "an" vẫn ra "Nguyễn Văn An"
+ * Gợi ý khớp từ đầu tên được ưu tiên trước gợi ý khớp giữa tên.
+ *
+ * Snapshot bất biến, thay bằng tham chiếu volatile → đọc không cần khóa.
+ * Cập nhật tăng dần (sau commit) khi admin CRUD bác sĩ / chuyên khoa / trình độ.
+ */
+@Slf4j
+@Service
+public class AutocompleteService {
+
+    public static final String LOAI_BAC_SI = "DOCTOR";
+    public static final String LOAI_CHUYEN_KHOA = "SPECIALTY";
+    public static final String LOAI_TRINH_DO = "DEGREE";
+
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 20;
+
+    @Autowired
+    private BacSiRepository bacSiRepository;
+
+    @Autowired
+    private ChuyenKhoaRepository chuyenKhoaRepository;
+
+    @Autowired
+    private TrinhDoRepository trinhDoRepository;
+
+    /** Nguồn dữ liệu gốc, chỉ sửa khi giữ writeLock */
+    private final Map<String, Item> items = new HashMap<>();
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot;
+
+    // ========================================
+    // QUERY
+    // ========================================
+
+    /**
+     * Lấy tối đa limit gợi ý cho tiền tố đã nhập
+     * Không mở transaction: chỉ lần nạp đầu tiên mới chạm DB
+     */
+    public List<AutocompleteSuggestionResponse> suggest(String prefix, Integer limit) {
+        int k = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        String folded = TextNormalizer.fold(prefix);
+        if (folded.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Snapshot current = ensureLoaded();
+        LinkedHashSet<Item> picked = new LinkedHashSet<>();
+        current.primary.collect(folded, k, picked);
+        if (picked.size() < k) {
+            current.secondary.collect(folded, k, picked);
+        }
+
+        List<AutocompleteSuggestionResponse> result = new ArrayList<>(picked.size());
+        for (Item item : picked) {
+            result.add(item.toResponse());
+        }
+        return result;
+    }
+
+    // ========================================
+    // INCREMENTAL UPDATES (gọi từ service CRUD)
+    // ========================================
+
+    public void upsertDoctor(Integer bacSiID, String hoTen, Integer chuyenKhoaID, String tenChuyenKhoa) {
+        put(new Item(LOAI_BAC_SI, bacSiID, hoTen, tenChuyenKhoa, chuyenKhoaID));
+    }
+
+    /**
+     * Bác sĩ tự đổi tên hồ sơ (giữ nguyên chuyên khoa)
+     */
+    public void renameDoctor(Integer bacSiID, String hoTen) {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (writeLock) {
+                if (snapshot == null) {
+                    return;
+                }
+                Item old = items.get(key(LOAI_BAC_SI, bacSiID));
+                if (old != null) {
+                    items.put(key(LOAI_BAC_SI, bacSiID),
+                        new Item(LOAI_BAC_SI, bacSiID, hoTen, old.subtitle, old.groupId));
+                    publish();
+                }
+            }
+        });
+    }
+
+    public void removeDoctor(Integer bacSiID) {
+        remove(LOAI_BAC_SI, bacSiID);
+    }
+
+    /**
+     * Thêm/đổi tên chuyên khoa, đồng thời cập nhật dòng phụ của các bác sĩ thuộc chuyên khoa đó
+     */
+    public void upsertSpecialty(Integer chuyenKhoaID, String tenChuyenKhoa) {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (writeLock) {
+                if (snapshot == null) {
+                    return;
+                }
+                items.put(key(LOAI_CHUYEN_KHOA, chuyenKhoaID),
+                    new Item(LOAI_CHUYEN_KHOA, chuyenKhoaID, tenChuyenKhoa, null, null));
+                items.replaceAll((k, item) -> LOAI_BAC_SI.equals(item.loai) && chuyenKhoaID.equals(item.groupId)
+                    ? new Item(LOAI_BAC_SI, item.id, item.label, tenChuyenKhoa, chuyenKhoaID)
+                    : item);
+                publish();
+            }
+        });
+    }
+
+    public void removeSpecialty(Integer chuyenKhoaID) {
+        remove(LOAI_CHUYEN_KHOA, chuyenKhoaID);
+    }
+
+    public void upsertDegree(Integer trinhDoID, String tenTrinhDo) {
+        put(new Item(LOAI_TRINH_DO, trinhDoID, tenTrinhDo, null, null));
+    }
+
+    public void removeDegree(Integer trinhDoID) {
+        remove(LOAI_TRINH_DO, trinhDoID);
+    }
+
+    // ========================================
+    // INTERNAL
+    // ========================================
+
+    private void put(Item item) {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (writeLock) {
+                if (snapshot == null) {
+                    return; // chưa nạp: lần nạp đầu sẽ đọc từ DB
+                }
+                items.put(key(item.loai, item.id), item);
+                publish();
+            }
+        });
+    }
+
+    private void remove(String loai, Integer id) {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (writeLock) {
+                if (snapshot == null) {
+                    return;
+                }
+                if (items.remove(key(loai, id)) != null) {
+                    publish();
+                }
+            }
+        });
+    }
+
+    private Snapshot ensureLoaded() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (writeLock) {
+            if (snapshot == null) {
+                loadAll();
+            }
+            return snapshot;
+        }
+    }
+
+    private void loadAll() {
+        items.clear();
+        for (BacSi bacSi : bacSiRepository.findAllActiveWithDetails()) {
+            ChuyenKhoa chuyenKhoa = bacSi.getChuyenKhoa();
+            Item item = new Item(LOAI_BAC_SI, bacSi.getBacSiID(), bacSi.getNguoiDung().getHoTen(),
+                chuyenKhoa.getTenChuyenKhoa(), chuyenKhoa.getChuyenKhoaID());
+            items.put(key(item.loai, item.id), item);
+        }
+        for (ChuyenKhoa chuyenKhoa : chuyenKhoaRepository.findAll()) {
+            if (!Boolean.TRUE.equals(chuyenKhoa.getIsDeleted())) {
+                items.put(key(LOAI_CHUYEN_KHOA, chuyenKhoa.getChuyenKhoaID()),
+                    new Item(LOAI_CHUYEN_KHOA, chuyenKhoa.getChuyenKhoaID(), chuyenKhoa.getTenChuyenKhoa(), null, null));
+            }
+        }
+        for (TrinhDo trinhDo : trinhDoRepository.findAll()) {
+            if (!Boolean.TRUE.equals(trinhDo.getIsDeleted())) {
+                items.put(key(LOAI_TRINH_DO, trinhDo.getTrinhDoID()),
+                    new Item(LOAI_TRINH_DO, trinhDo.getTrinhDoID(), trinhDo.getTenTrinhDo(), null, null));
+            }
+        }
+        publish();
+        log.info("🔤 Autocomplete index loaded with {} entries", items.size());
+    }
+
+    /**
+     * Dựng lại 2 mảng khóa đã sắp xếp từ items (gọi khi giữ writeLock)
+     */
+    private void publish() {
+        List<Map.Entry<String, Item>> primary = new ArrayList<>(items.size());
+        List<Map.Entry<String, Item>> secondary = new ArrayList<>(items.size() * 2);
+        for (Item item : items.values()) {
+            String folded = TextNormalizer.fold(item.label);
+            if (folded.isEmpty()) {
+                continue;
+            }
+            primary.add(Map.entry(folded, item));
+            for (int i = 1; i < folded.length(); i++) {
+                if (folded.charAt(i - 1) == ' ') {
+                    secondary.add(Map.entry(folded.substring(i), item));
+                }
+            }
+        }
+        snapshot = new Snapshot(new SortedKeys(primary), new SortedKeys(secondary));
+    }
+
+    private static String key(String loai, Integer id) {
+        return loai + ":" + id;
+    }
+
+    /**
+     * 1 mục gợi ý. groupId = chuyenKhoaID đối với bác sĩ (để cập nhật khi đổi tên chuyên khoa)
+     */
+    private record Item(String loai, Integer id, String label, String subtitle, Integer groupId) {
+        AutocompleteSuggestionResponse toResponse() {
+            return AutocompleteSuggestionResponse.builder()
+                .loai(loai)
+                .id(id)
+                .ten(label)
+                .moTa(subtitle)
+                .build();
+        }
+    }
+
+    private record Snapshot(SortedKeys primary, SortedKeys secondary) {
+    }
+
+    /**
+     * Mảng khóa đã sắp xếp + mảng item song song
+     */
+    private static final class SortedKeys {
+        private final String[] keys;
+        private final Item[] values;
+
+        SortedKeys(List<Map.Entry<String, Item>> entries) {
+            entries.sort(Map.Entry.comparingByKey());
+            keys = new String[entries.size()];
+            values = new Item[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                keys[i] = entries.get(i).getKey();
+                values[i] = entries.get(i).getValue();
+            }
+        }
+
+        /**
+         * Thêm vào out các item có khóa bắt đầu bằng prefix (theo thứ tự alphabet) cho đến khi đủ k
+         */
+        void collect(String prefix, int k, Set<Item> out) {
+            int i = lowerBound(prefix);
+            while (i < keys.length && out.size() < k && keys[i].startsWith(prefix)) {
+                out.add(values[i]);
+                i++;
+            }
+        }
+
+        private int lowerBound(String prefix) {
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid].compareTo(prefix) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
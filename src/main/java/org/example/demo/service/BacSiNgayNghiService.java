@@ -1,34 +1,59 @@
 package org.example.demo.service;
 
+import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.example.demo.dto.request.ApproveNgayNghiRequest;
 import org.example.demo.dto.request.CreateNgayNghiRequest;
 import org.example.demo.dto.request.SearchNgayNghiRequest;
 import org.example.demo.dto.request.UpdateNgayNghiRequest;
+import org.example.demo.dto.response.NgayNghiApprovalResponse;
 import org.example.demo.dto.response.NgayNghiMyRequestResponse;
 import org.example.demo.dto.response.NgayNghiPendingResponse;
 import org.example.demo.dto.response.NgayNghiResponse;
 import org.example.demo.dto.response.NgayNghiStatisticsResponse;
 import org.example.demo.entity.BacSi;
 import org.example.demo.entity.BacSiNgayNghi;
+import org.example.demo.entity.DatLichKham;
 import org.example.demo.entity.NguoiDung;
+import org.example.demo.enums.CaLamViec;
+import org.example.demo.enums.LoaiNghi;
 import org.example.demo.enums.LoaiNghiPhep;
+import org.example.demo.enums.TrangThaiDatLich;
 import org.example.demo.enums.TrangThaiNghi;
+import org.example.demo.enums.TrangThaiThanhToan;
 import org.example.demo.exception.BadRequestException;
 import org.example.demo.exception.ConflictException;
 import org.example.demo.exception.ResourceNotFoundException;
 import org.example.demo.exception.UnauthorizedException;
 import org.example.demo.repository.BacSiNgayNghiRepository;
 import org.example.demo.repository.BacSiRepository;
+import org.example.demo.repository.DatLichKhamRepository;
 import org.example.demo.security.CustomUserDetails;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
@@ -44,6 +69,7 @@ import java.util.stream.Collectors;
  * @author Healthcare System Team
  * @version 1.0
  */
+@Slf4j
 @Service
 @Transactional
 @RequiredArgsConstructor
@@ -51,6 +77,34 @@ public class BacSiNgayNghiService {
     
     private final BacSiNgayNghiRepository ngayNghiRepository;
     private final BacSiRepository bacSiRepository;
+    private final DatLichKhamRepository datLichKhamRepository;
+    private final BookingStatsRollupService bookingStatsRollupService;
+    private final NotificationService notificationService;
+    
+    private static final List<TrangThaiDatLich> ACTIVE_BOOKING_STATUSES = List.of(
+        TrangThaiDatLich.CHO_XAC_NHAN_BAC_SI,
+        TrangThaiDatLich.CHO_THANH_TOAN,
+        TrangThaiDatLich.DA_XAC_NHAN
+    );
+    
+    /**
+     * Nghỉ hàng tuần: quét lịch đã đặt trong khoảng này (lớn hơn giới hạn đặt trước của hệ thống)
+     */
+    private static final int WEEKLY_LEAVE_IMPACT_DAYS = 90;
+    
+    private static final String LEAVE_CANCEL_REASON = "Bác sĩ nghỉ phép (yêu cầu nghỉ đã được duyệt)";
+    
+    /**
+     * Field được phép sort khi search (tránh sort theo field tùy ý từ client)
+     */
+    private static final Set<String> SEARCH_SORT_FIELDS = Set.of("createdAt", "ngayNghiCuThe", "trangThai");
+    
+    /**
+     * Field được phép sort trong hàng đợi chờ duyệt
+     */
+    private static final Set<String> PENDING_SORT_FIELDS = Set.of("createdAt", "ngayNghiCuThe", "loaiNghiPhep");
+    
+    private static final int MAX_PAGE_SIZE = 100;
     
     /**
      * Bác sĩ tạo yêu cầu nghỉ mới
@@ -129,16 +183,29 @@ public class BacSiNgayNghiService {
     }
     
     /**
-     * Lấy yêu cầu nghỉ CHỜ DUYỆT (cho Admin)
-     * Sắp xếp theo thời gian tạo ASC (yêu cầu cũ nhất trước)
+     * Hàng đợi yêu cầu nghỉ CHỜ DUYỆT (cho Admin), có phân trang + sắp xếp
+     * Mặc định theo thời gian tạo ASC (yêu cầu cũ nhất trước)
      * 
-     * @return List<NgayNghiPendingResponse>
+     * - 1 query projection (không load entity, không lazy-load bác sĩ/chuyên khoa)
+     * - 1 query đếm gộp số lịch bị ảnh hưởng cho cả trang
+     * 
+     * @return Page<NgayNghiPendingResponse>
+     * @throws BadRequestException nếu sort theo trường không hỗ trợ
      */
-    public List<NgayNghiPendingResponse> getPendingRequests() {
-        return ngayNghiRepository.findAllPendingRequests()
-                .stream()
-                .map(NgayNghiPendingResponse::fromEntity)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public Page<NgayNghiPendingResponse> getPendingRequests(int page, int size, String sortBy, Sort.Direction direction) {
+        String sortField = requireSortField(sortBy != null ? sortBy : "createdAt", PENDING_SORT_FIELDS);
+        Pageable pageable = PageRequest.of(
+                Math.max(page, 0),
+                Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+                Sort.by(direction, sortField).and(Sort.by(direction, "nghiID"))
+        );
+        
+        Page<Object[]> rows = ngayNghiRepository.findPendingQueue(pageable);
+        Map<Integer, Long> impactCounts = countImpactedBookings(rows.getContent());
+        
+        return rows.map(row -> NgayNghiPendingResponse.fromProjection(
+                row, impactCounts.getOrDefault((Integer) row[0], 0L)));
     }
     
     /**
@@ -155,58 +222,55 @@ public class BacSiNgayNghiService {
     }
     
     /**
-     * Search/Filter yêu cầu nghỉ với nhiều criteria
+     * Search/Filter yêu cầu nghỉ với nhiều criteria (Specification + phân trang)
      * 
      * @param searchRequest SearchNgayNghiRequest
-     * @return List<NgayNghiResponse> - TODO: Add pagination support
+     * @return Page<NgayNghiResponse>
+     * @throws BadRequestException nếu sort theo trường không hỗ trợ
      */
-    public List<NgayNghiResponse> search(SearchNgayNghiRequest searchRequest) {
+    @Transactional(readOnly = true)
+    public Page<NgayNghiResponse> search(SearchNgayNghiRequest searchRequest) {
         // Validate business rules
         searchRequest.validateBusinessRules();
         
-        // TODO: Implement full search with Specification pattern
-        // For now, return basic results
-        List<BacSiNgayNghi> entities;
-        
-        if (searchRequest.getBacSiID() != null) {
-            entities = ngayNghiRepository.findByBacSi(searchRequest.getBacSiID());
-        } else if (searchRequest.getLoaiNghi() != null) {
-            entities = ngayNghiRepository.findByLoaiNghi(searchRequest.getLoaiNghi());
-        } else {
-            entities = ngayNghiRepository.findAll();
-        }
+        String sortBy = requireSortField(searchRequest.getSortByOrDefault(), SEARCH_SORT_FIELDS);
+        Sort.Direction direction = "ASC".equals(searchRequest.getSortDirectionOrDefault())
+                ? Sort.Direction.ASC
+                : Sort.Direction.DESC;
+        Pageable pageable = PageRequest.of(
+                searchRequest.getPageOrDefault(),
+                searchRequest.getSizeOrDefault(),
+                Sort.by(direction, sortBy).and(Sort.by(direction, "nghiID"))
+        );
         
-        // Filter by trangThai if provided
-        if (searchRequest.getTrangThai() != null) {
-            entities = entities.stream()
-                    .filter(e -> e.getTrangThai() == searchRequest.getTrangThai())
-                    .collect(Collectors.toList());
+        return ngayNghiRepository.findAll(buildSearchSpecification(searchRequest), pageable)
+                .map(NgayNghiResponse::fromEntity);
+    }
+    
+    /**
+     * Trường sắp xếp client gửi lên phải nằm trong danh sách cho phép, không thì báo lỗi
+     * (không âm thầm đổi sang createdAt khiến client tưởng đã sắp xếp đúng)
+     */
+    private static String requireSortField(String sortBy, Set<String> allowed) {
+        if (sortBy == null || !allowed.contains(sortBy)) {
+            throw new BadRequestException("Không hỗ trợ sắp xếp theo '" + sortBy
+                    + "'. Trường hợp lệ: " + String.join(", ", new TreeSet<>(allowed)));
         }
-        
-        // Convert to Response DTO
-        return entities.stream()
-                .map(NgayNghiResponse::fromEntity)
-                .collect(Collectors.toList());
+        return sortBy;
     }
     
     /**
-     * Lấy thống kê yêu cầu nghỉ
+     * Lấy thống kê yêu cầu nghỉ (GROUP BY trên DB, không load entity)
      * 
      * @param bacSiID Optional - nếu null thì lấy tất cả, nếu có thì chỉ lấy của bác sĩ này
      * @return NgayNghiStatisticsResponse
      */
+    @Transactional(readOnly = true)
     public NgayNghiStatisticsResponse getStatistics(Integer bacSiID) {
-        List<BacSiNgayNghi> entities;
-        
-        if (bacSiID != null) {
-            // Thống kê của 1 bác sĩ
-            entities = ngayNghiRepository.findByBacSi(bacSiID);
-        } else {
-            // Thống kê tất cả
-            entities = ngayNghiRepository.findAll();
-        }
+        List<Object[]> groups = ngayNghiRepository.countGroupedForStatistics(bacSiID);
+        List<Object[]> summary = ngayNghiRepository.summarizeForStatistics(bacSiID);
         
-        return NgayNghiStatisticsResponse.fromEntities(entities);
+        return NgayNghiStatisticsResponse.fromAggregates(groups, summary.isEmpty() ? null : summary.get(0));
     }
     
     /**
@@ -253,20 +317,26 @@ public class BacSiNgayNghiService {
      * 
      * Business Rules:
      * - CHỈ duyệt được yêu cầu có status = CHO_DUYET
-     * - Nếu APPROVE: Update status = DA_DUYET, trừ ngày phép (nếu PHEP_NAM)
+     * - Nếu APPROVE: Update status = DA_DUYET, trừ ngày phép (nếu PHEP_NAM),
+     *   hủy các lịch khám active trùng ca nghỉ (HUY_BOI_BAC_SI), đánh dấu hoàn tiền
+     *   cho lịch đã thanh toán và gửi thông báo cho bệnh nhân
      * - Nếu REJECT: Update status = TU_CHOI, ghi lý do từ chối
+     * - dryRun = true: chỉ kiểm tra + trả về tác động, không lưu gì
      * 
      * @param request ApproveNgayNghiRequest
-     * @return List<NgayNghiResponse>
+     * @return NgayNghiApprovalResponse
      */
-    public List<NgayNghiResponse> approve(ApproveNgayNghiRequest request) {
+    public NgayNghiApprovalResponse approve(ApproveNgayNghiRequest request) {
         // Validate business rules
         request.validateBusinessRules();
         
         // Get current user (Admin)
         NguoiDung currentUser = getCurrentUser();
+        boolean dryRun = request.isDryRun();
         
         List<NgayNghiResponse> results = new ArrayList<>();
+        // datLichID → lịch bị ảnh hưởng (1 lịch có thể trùng nhiều yêu cầu nghỉ, chỉ tính 1 lần)
+        Map<Integer, ImpactedBooking> impacted = new LinkedHashMap<>();
         
         for (Integer nghiID : request.getNghiIDs()) {
             // Tìm yêu cầu
@@ -282,6 +352,18 @@ public class BacSiNgayNghiService {
                 );
             }
             
+            if (request.isApprove()) {
+                String moTaNghi = NgayNghiResponse.fromEntity(entity).getThoiGianNghiDisplay();
+                for (DatLichKham booking : findImpactedBookings(entity)) {
+                    impacted.putIfAbsent(booking.getDatLichID(), new ImpactedBooking(nghiID, moTaNghi, booking));
+                }
+            }
+            
+            if (dryRun) {
+                results.add(NgayNghiResponse.fromEntity(entity));
+                continue;
+            }
+            
             // Process approval
             if (request.isApprove()) {
                 // APPROVE
@@ -307,7 +389,15 @@ public class BacSiNgayNghiService {
             results.add(NgayNghiResponse.fromEntity(updated));
         }
         
-        return results;
+        List<ImpactedBooking> affected = new ArrayList<>(impacted.values());
+        int soThongBao = 0;
+        if (!dryRun && !affected.isEmpty()) {
+            CancelResult cancelled = cancelImpactedBookings(affected, currentUser);
+            affected = cancelled.cancelled();
+            soThongBao = cancelled.soThongBao();
+        }
+        
+        return buildApprovalResponse(dryRun, results, affected, soThongBao);
     }
     
     /**
@@ -370,6 +460,68 @@ public class BacSiNgayNghiService {
     
     // ===== PRIVATE HELPER METHODS =====
     
+    /**
+     * Specification cho search: chỉ thêm điều kiện cho field có giá trị;
+     * fetch join bác sĩ/người dùng/chuyên khoa/người duyệt để map DTO không phát sinh N+1
+     */
+    @SuppressWarnings("unchecked")
+    private Specification<BacSiNgayNghi> buildSearchSpecification(SearchNgayNghiRequest request) {
+        return (root, query, cb) -> {
+            Join<BacSiNgayNghi, BacSi> bacSi;
+            Join<BacSi, NguoiDung> nguoiDung;
+            boolean isCountQuery = Long.class == query.getResultType() || long.class == query.getResultType();
+            if (isCountQuery) {
+                bacSi = root.join("bacSi");
+                nguoiDung = bacSi.join("nguoiDung");
+            } else {
+                Fetch<BacSiNgayNghi, BacSi> bacSiFetch = root.fetch("bacSi");
+                Fetch<BacSi, NguoiDung> nguoiDungFetch = bacSiFetch.fetch("nguoiDung");
+                nguoiDung = (Join<BacSi, NguoiDung>) nguoiDungFetch;
+                bacSiFetch.fetch("chuyenKhoa");
+                root.fetch("nguoiDuyet", JoinType.LEFT);
+                bacSi = (Join<BacSiNgayNghi, BacSi>) bacSiFetch;
+            }
+            
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.isFalse(root.get("isDeleted")));
+            if (request.getBacSiID() != null) {
+                predicates.add(cb.equal(bacSi.get("bacSiID"), request.getBacSiID()));
+            }
+            if (request.getTrangThai() != null) {
+                predicates.add(cb.equal(root.get("trangThai"), request.getTrangThai()));
+            }
+            if (request.getLoaiNghi() != null) {
+                predicates.add(cb.equal(root.get("loaiNghi"), request.getLoaiNghi()));
+            }
+            if (request.getLoaiNghiPhep() != null) {
+                predicates.add(cb.equal(root.get("loaiNghiPhep"), request.getLoaiNghiPhep()));
+            }
+            if (request.getFromDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("ngayNghiCuThe"), request.getFromDate()));
+            }
+            if (request.getToDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("ngayNghiCuThe"), request.getToDate()));
+            }
+            if (request.getTenBacSi() != null && !request.getTenBacSi().isBlank()) {
+                String like = "%" + request.getTenBacSi().trim().toLowerCase() + "%";
+                predicates.add(cb.like(cb.lower(nguoiDung.get("hoTen")), like));
+            }
+            if (request.getChuyenKhoaID() != null) {
+                predicates.add(cb.equal(bacSi.get("chuyenKhoa").get("chuyenKhoaID"), request.getChuyenKhoaID()));
+            }
+            if (request.getNguoiDuyetID() != null) {
+                predicates.add(cb.equal(root.get("nguoiDuyet").get("nguoiDungID"), request.getNguoiDuyetID()));
+            }
+            if (request.getFromCreatedDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), request.getFromCreatedDate().atStartOfDay()));
+            }
+            if (request.getToCreatedDate() != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), request.getToCreatedDate().plusDays(1).atStartOfDay()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+    
     /**
      * Get current user from Security Context
      */
@@ -382,65 +534,244 @@ public class BacSiNgayNghiService {
     }
     
     /**
-     * Check conflict với yêu cầu đã được duyệt
+     * Check conflict với yêu cầu đã duyệt hoặc đang chờ duyệt
+     * 1 query exists theo đúng (ngày | thứ, ca) được yêu cầu, đi qua index idx_check_nghi_ngay / idx_check_nghi_tuan
      */
     private void checkConflict(BacSi bacSi, CreateNgayNghiRequest request) {
-        // Get approved leaves
-        // Use a large date range to include all leaves
-        LocalDateTime startDate = LocalDateTime.now().minusYears(1);
-        LocalDateTime endDate = LocalDateTime.now().plusYears(5);
-        
-        List<BacSiNgayNghi> approvedLeaves = ngayNghiRepository.findApprovedLeavesInRange(
-            bacSi.getBacSiID(),
-            startDate.toLocalDate(),
-            endDate.toLocalDate()
+        boolean conflict = request.getLoaiNghi() == LoaiNghi.CA_HANG_TUAN
+                ? ngayNghiRepository.existsActiveWeeklyLeaveConflict(
+                        bacSi.getBacSiID(), request.getThuTrongTuan(), request.getCa())
+                : ngayNghiRepository.existsActiveLeaveConflictOnDate(
+                        bacSi.getBacSiID(), request.getNgayNghiCuThe(), request.getCa());
+        
+        if (conflict) {
+            throw new ConflictException(
+                "Yêu cầu nghỉ bị trùng với lịch nghỉ đã duyệt hoặc đang chờ duyệt: " + request.getMoTaThoiGianNghi()
+            );
+        }
+    }
+    
+    /**
+     * Tìm lịch khám active trùng ca nghỉ: 1 range query trên (BacSiID, NgayKham, Ca)
+     * - NGAY_CU_THE / CA_CU_THE: đúng ngày nghỉ (ca = null → mọi ca)
+     * - CA_HANG_TUAN: từ hôm nay tới hết khoảng cho phép đặt lịch, lọc đúng thứ trong tuần
+     */
+    private List<DatLichKham> findImpactedBookings(BacSiNgayNghi leave) {
+        Integer bacSiID = leave.getBacSi().getBacSiID();
+        if (leave.getLoaiNghi() != LoaiNghi.CA_HANG_TUAN) {
+            return datLichKhamRepository.findActiveBookingsForLeave(
+                bacSiID, leave.getNgayNghiCuThe(), leave.getNgayNghiCuThe(), leave.getCa(), ACTIVE_BOOKING_STATUSES);
+        }
+        
+        LocalDate today = LocalDate.now();
+        return datLichKhamRepository.findActiveBookingsForLeave(
+                bacSiID, today, today.plusDays(WEEKLY_LEAVE_IMPACT_DAYS), leave.getCa(), ACTIVE_BOOKING_STATUSES)
+            .stream()
+            .filter(b -> toThuTrongTuan(b.getNgayKham()) == leave.getThuTrongTuan())
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Đếm số lịch active bị ảnh hưởng cho nhiều yêu cầu nghỉ cùng lúc (cùng quy tắc với findImpactedBookings)
+     * 1 query GROUP BY (bác sĩ, ngày, ca) trên khoảng ngày bao trọn cả trang, ghép trong bộ nhớ
+     * 
+     * @param rows projection từ findPendingQueue
+     * @return nghiID → số lịch
+     */
+    private Map<Integer, Long> countImpactedBookings(List<Object[]> rows) {
+        Map<Integer, Long> result = new HashMap<>();
+        if (rows.isEmpty()) {
+            return result;
+        }
+        
+        LocalDate today = LocalDate.now();
+        LocalDate weeklyTo = today.plusDays(WEEKLY_LEAVE_IMPACT_DAYS);
+        LocalDate from = null;
+        LocalDate to = null;
+        Set<Integer> bacSiIDs = new HashSet<>();
+        for (Object[] row : rows) {
+            bacSiIDs.add((Integer) row[1]);
+            boolean weekly = row[6] == LoaiNghi.CA_HANG_TUAN;
+            LocalDate rowFrom = weekly ? today : (LocalDate) row[7];
+            LocalDate rowTo = weekly ? weeklyTo : (LocalDate) row[7];
+            from = from == null || rowFrom.isBefore(from) ? rowFrom : from;
+            to = to == null || rowTo.isAfter(to) ? rowTo : to;
+        }
+        
+        // bacSiID → {bacSiID, ngayKham, ca, soLich}
+        Map<Integer, List<Object[]>> countsByDoctor = new HashMap<>();
+        for (Object[] count : datLichKhamRepository.countActiveBookingsByDoctorsInRange(
+                bacSiIDs, from, to, ACTIVE_BOOKING_STATUSES)) {
+            countsByDoctor.computeIfAbsent((Integer) count[0], k -> new ArrayList<>()).add(count);
+        }
+        
+        for (Object[] row : rows) {
+            LoaiNghi loaiNghi = (LoaiNghi) row[6];
+            LocalDate ngay = (LocalDate) row[7];
+            Integer thu = (Integer) row[8];
+            CaLamViec ca = (CaLamViec) row[9];
+            long total = 0;
+            for (Object[] count : countsByDoctor.getOrDefault((Integer) row[1], List.of())) {
+                LocalDate ngayKham = (LocalDate) count[1];
+                boolean sameDay = loaiNghi == LoaiNghi.CA_HANG_TUAN
+                        ? !ngayKham.isBefore(today) && !ngayKham.isAfter(weeklyTo)
+                            && thu != null && toThuTrongTuan(ngayKham) == thu
+                        : ngayKham.equals(ngay);
+                if (sameDay && (ca == null || ca == count[2])) {
+                    total += ((Number) count[3]).longValue();
+                }
+            }
+            result.put((Integer) row[0], total);
+        }
+        return result;
+    }
+    
+    /**
+     * Hủy các lịch bị ảnh hưởng bằng 1 câu UPDATE, cập nhật bảng thống kê, gửi thông báo hàng loạt
+     * 
+     * Khóa (FOR UPDATE) các lịch còn active trước khi UPDATE: lịch đổi trạng thái giữa lúc đọc và lúc khóa
+     * (hoàn thành, bệnh nhân hủy...) bị loại → chỉ lịch thực sự bị hủy được ghi thống kê, thông báo và báo cáo
+     * 
+     * @return các lịch đã hủy + số thông báo đã gửi
+     */
+    private CancelResult cancelImpactedBookings(List<ImpactedBooking> affected, NguoiDung admin) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> candidateIds = affected.stream().map(item -> item.booking().getDatLichID()).toList();
+        Map<Integer, Object[]> locked = new HashMap<>();
+        for (Object[] row : datLichKhamRepository.lockActiveBookings(
+                candidateIds, ACTIVE_BOOKING_STATUSES.stream().map(Enum::name).toList())) {
+            locked.put(((Number) row[0]).intValue(), row);
+        }
+        if (locked.size() != candidateIds.size()) {
+            log.warn("⚠️ Leave approval: {}/{} bookings changed concurrently, skipped",
+                candidateIds.size() - locked.size(), candidateIds.size());
+        }
+        if (locked.isEmpty()) {
+            return new CancelResult(List.of(), 0);
+        }
+        
+        // Snapshot thống kê lấy theo trạng thái đang khóa trong DB (bản đã nạp có thể cũ)
+        List<ImpactedBooking> cancelled = new ArrayList<>(locked.size());
+        Map<Integer, BookingStatsRollupService.Snapshot> before = new HashMap<>();
+        for (ImpactedBooking item : affected) {
+            Object[] row = locked.get(item.booking().getDatLichID());
+            if (row == null) {
+                continue;
+            }
+            DatLichKham booking = item.booking();
+            booking.setTrangThai(TrangThaiDatLich.valueOf((String) row[1]));
+            booking.setTrangThaiThanhToan(TrangThaiThanhToan.valueOf((String) row[2]));
+            booking.setSoTienHoan((BigDecimal) row[3]);
+            cancelled.add(new ImpactedBooking(item.nghiID(), item.moTaNghi(), booking));
+            before.put(booking.getDatLichID(), bookingStatsRollupService.capture(booking));
+        }
+        
+        // UPDATE xong persistence context bị clear → các booking đã nạp trở thành detached,
+        // cập nhật trên bản detached chỉ để tính delta thống kê + nội dung thông báo
+        int updated = datLichKhamRepository.cancelBookingsForDoctorLeave(
+            new ArrayList<>(locked.keySet()),
+            ACTIVE_BOOKING_STATUSES,
+            TrangThaiDatLich.HUY_BOI_BAC_SI,
+            TrangThaiThanhToan.THANH_CONG,
+            admin,
+            LEAVE_CANCEL_REASON,
+            now
         );
         
-        for (BacSiNgayNghi approved : approvedLeaves) {
-            // Logic check conflict tùy vào loaiNghi
-            boolean conflict = false;
-            
-            switch (request.getLoaiNghi()) {
-                case NGAY_CU_THE:
-                    // Conflict nếu cùng ngày
-                    if (approved.getNgayNghiCuThe() != null &&
-                        approved.getNgayNghiCuThe().equals(request.getNgayNghiCuThe())) {
-                        conflict = true;
-                    }
-                    break;
-                    
-                case CA_CU_THE:
-                    // Conflict nếu cùng ngày + cùng ca
-                    if (approved.getNgayNghiCuThe() != null &&
-                        approved.getNgayNghiCuThe().equals(request.getNgayNghiCuThe()) &&
-                        (approved.getCa() == null || approved.getCa() == request.getCa())) {
-                        conflict = true;
-                    }
-                    break;
-                    
-                case CA_HANG_TUAN:
-                    // Conflict nếu cùng thứ + cùng ca
-                    if (approved.getThuTrongTuan() != null &&
-                        approved.getThuTrongTuan().equals(request.getThuTrongTuan()) &&
-                        (approved.getCa() == null || approved.getCa() == request.getCa())) {
-                        conflict = true;
-                    }
-                    break;
+        Map<String, List<DatLichKham>> byLeave = new LinkedHashMap<>();
+        for (ImpactedBooking item : cancelled) {
+            DatLichKham booking = item.booking();
+            if (booking.getTrangThaiThanhToan() == TrangThaiThanhToan.THANH_CONG && booking.getSoTienHoan() == null) {
+                booking.setSoTienHoan(booking.getGiaKham());
+                booking.setLyDoHoanTien(LEAVE_CANCEL_REASON);
             }
-            
-            if (conflict) {
-                throw new ConflictException(
-                    "Yêu cầu nghỉ bị trùng với lịch nghỉ đã được duyệt: " + request.getMoTaThoiGianNghi()
-                );
+            booking.setTrangThai(TrangThaiDatLich.HUY_BOI_BAC_SI);
+            booking.setNgayHuy(now);
+            booking.setLyDoHuy(LEAVE_CANCEL_REASON);
+            bookingStatsRollupService.record(before.get(booking.getDatLichID()), booking);
+            byLeave.computeIfAbsent(item.moTaNghi(), k -> new ArrayList<>()).add(booking);
+        }
+        
+        int soThongBao = 0;
+        for (Map.Entry<String, List<DatLichKham>> entry : byLeave.entrySet()) {
+            try {
+                soThongBao += notificationService.sendLeaveCancellationNotifications(entry.getValue(), entry.getKey());
+            } catch (Exception e) {
+                log.error("❌ Failed to send leave cancellation notifications: {}", e.getMessage());
+            }
+        }
+        
+        log.info("✅ Leave approval cancelled {} bookings", updated);
+        return new CancelResult(cancelled, soThongBao);
+    }
+    
+    private NgayNghiApprovalResponse buildApprovalResponse(
+            boolean dryRun, List<NgayNghiResponse> results, List<ImpactedBooking> affected, int soThongBao) {
+        List<NgayNghiApprovalResponse.LichBiAnhHuong> items = new ArrayList<>(affected.size());
+        int soLichHoanTien = 0;
+        BigDecimal tongTienHoan = BigDecimal.ZERO;
+        for (ImpactedBooking item : affected) {
+            DatLichKham booking = item.booking();
+            BigDecimal soTienHoan = booking.getSoTienHoan();
+            if (soTienHoan == null && booking.getTrangThaiThanhToan() == TrangThaiThanhToan.THANH_CONG) {
+                soTienHoan = booking.getGiaKham(); // dryRun: số tiền sẽ hoàn
             }
+            if (soTienHoan != null) {
+                soLichHoanTien++;
+                tongTienHoan = tongTienHoan.add(soTienHoan);
+            }
+            items.add(NgayNghiApprovalResponse.LichBiAnhHuong.builder()
+                .datLichID(booking.getDatLichID())
+                .nghiID(item.nghiID())
+                .maXacNhan(booking.getMaXacNhan())
+                .tenBenhNhan(booking.getBenhNhan().getHoTen())
+                .ngayKham(booking.getNgayKham())
+                .ca(booking.getCa())
+                .gioKham(booking.getGioKham())
+                .trangThaiTruoc(item.trangThaiTruoc())
+                .trangThaiThanhToan(booking.getTrangThaiThanhToan())
+                .soTienHoan(soTienHoan)
+                .build());
         }
+        
+        return NgayNghiApprovalResponse.builder()
+            .dryRun(dryRun)
+            .yeuCau(results)
+            .soLichBiHuy(items.size())
+            .soLichHoanTien(soLichHoanTien)
+            .tongTienHoan(tongTienHoan)
+            .soThongBao(soThongBao)
+            .lichBiAnhHuong(items)
+            .build();
     }
     
     /**
-     * Check số ngày phép còn lại
+     * Thứ trong tuần theo quy ước hệ thống: 2 = Thứ 2 ... 8 = Chủ nhật
+     */
+    private static int toThuTrongTuan(LocalDate date) {
+        return date.getDayOfWeek().getValue() + 1;
+    }
+    
+    /**
+     * Lịch bị ảnh hưởng + trạng thái trước khi hủy (booking bị cập nhật sau UPDATE)
+     */
+    private record ImpactedBooking(Integer nghiID, String moTaNghi, DatLichKham booking, TrangThaiDatLich trangThaiTruoc) {
+        ImpactedBooking(Integer nghiID, String moTaNghi, DatLichKham booking) {
+            this(nghiID, moTaNghi, booking, booking.getTrangThai());
+        }
+    }
+    
+    /**
+     * Kết quả hủy lịch khi duyệt nghỉ: chỉ gồm lịch đã khóa và hủy thực sự
+     */
+    private record CancelResult(List<ImpactedBooking> cancelled, int soThongBao) {
+    }
+    
+    /**
+     * Check số ngày phép còn lại (gồm ngày chuyển sang từ năm trước)
      */
     private void checkSoNgayPhep(BacSi bacSi) {
-        Integer conLai = bacSi.getSoNgayPhepNam() - bacSi.getSoNgayPhepDaSuDung();
+        Integer conLai = bacSi.getSoNgayPhepConLai();
         
         if (conLai <= 0) {
             throw new BadRequestException(
@@ -451,33 +782,27 @@ public class BacSiNgayNghiService {
     
     /**
      * Trừ ngày phép khi approve PHEP_NAM
+     * UPDATE cộng dồn có điều kiện trên DB → nhiều admin duyệt cùng lúc không ghi đè lẫn nhau,
+     * không đủ phép → không cập nhật, báo lỗi (rollback cả lần duyệt)
      */
     private void deductAnnualLeave(BacSi bacSi, BacSiNgayNghi ngayNghi) {
-        // Tính số ngày nghỉ
         int soNgayNghi = calculateLeaveDays(ngayNghi);
-        
-        // Trừ
-        Integer daSuDung = bacSi.getSoNgayPhepDaSuDung() + soNgayNghi;
-        bacSi.setSoNgayPhepDaSuDung(daSuDung);
-        
-        // Lưu
-        bacSiRepository.save(bacSi);
+        if (soNgayNghi > 0 && bacSiRepository.incrementAnnualLeaveUsed(bacSi.getBacSiID(), soNgayNghi) == 0) {
+            throw new BadRequestException(
+                String.format("Yêu cầu #%d: bác sĩ không đủ ngày phép năm để duyệt (%d ngày)",
+                    ngayNghi.getNghiID(), soNgayNghi)
+            );
+        }
     }
     
     /**
-     * Hoàn lại ngày phép khi cancel PHEP_NAM đã duyệt
+     * Hoàn lại ngày phép khi cancel PHEP_NAM đã duyệt (UPDATE nguyên tử, không xuống dưới 0)
      */
     private void refundAnnualLeave(BacSi bacSi, BacSiNgayNghi ngayNghi) {
-        // Tính số ngày nghỉ
         int soNgayNghi = calculateLeaveDays(ngayNghi);
-        
-        // Hoàn lại
-        Integer daSuDung = bacSi.getSoNgayPhepDaSuDung() - soNgayNghi;
-        if (daSuDung < 0) daSuDung = 0;
-        bacSi.setSoNgayPhepDaSuDung(daSuDung);
-        
-        // Lưu
-        bacSiRepository.save(bacSi);
+        if (soNgayNghi > 0) {
+            bacSiRepository.decrementAnnualLeaveUsed(bacSi.getBacSiID(), soNgayNghi);
+        }
     }
     
     /**
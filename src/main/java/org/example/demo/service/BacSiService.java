@@ -3,11 +3,14 @@ package org.example.demo.service;
 import lombok.RequiredArgsConstructor;
 import org.example.demo.dto.request.BacSiRequest;
 import org.example.demo.dto.request.CreateDoctorAccountRequest;
+import org.example.demo.dto.request.DoctorFacetFilterRequest;
 import org.example.demo.dto.response.BacSiDetailResponse;
 import org.example.demo.dto.response.BacSiResponse;
+import org.example.demo.dto.response.DoctorFacetSearchResponse;
 import org.example.demo.entity.BacSi;
 import org.example.demo.entity.ChuyenKhoa;
 import org.example.demo.entity.NguoiDung;
+import org.example.demo.entity.ThongKeDanhGiaBacSi;
 import org.example.demo.entity.TrinhDo;
 import org.example.demo.enums.VaiTro;
 import org.example.demo.exception.BadRequestException;
@@ -17,13 +20,18 @@ import org.example.demo.repository.BacSiRepository;
 import org.example.demo.repository.ChuyenKhoaRepository;
 import org.example.demo.repository.NguoiDungRepository;
 import org.example.demo.repository.TrinhDoRepository;
+import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +46,11 @@ public class BacSiService {
     private final ChuyenKhoaRepository chuyenKhoaRepository;
     private final TrinhDoRepository trinhDoRepository;
     private final PasswordEncoder passwordEncoder;
+    private final DoctorSearchIndex doctorSearchIndex;
+    private final AutocompleteService autocompleteService;
+    private final DoctorFacetIndex doctorFacetIndex;
+    private final BookingService bookingService;
+    private final DoctorRatingSummaryService doctorRatingSummaryService;
     
     /**
      * COMBINED API: Tạo tài khoản bác sĩ (NguoiDung + BacSi) trong 1 transaction
@@ -108,7 +121,9 @@ public class BacSiService {
         BacSi savedBacSi = bacSiRepository.save(bacSi);
         
         // 9. Convert sang Response
-        return convertToResponse(savedBacSi);
+        BacSiResponse response = convertToResponse(savedBacSi);
+        syncSearchIndex(savedBacSi, response);
+        return response;
     }
     
     /**
@@ -165,7 +180,9 @@ public class BacSiService {
         BacSi saved = bacSiRepository.save(bacSi);
         
         // 9. Convert sang Response
-        return convertToResponse(saved);
+        BacSiResponse response = convertToResponse(saved);
+        syncSearchIndex(saved, response);
+        return response;
     }
     
     /**
@@ -173,8 +190,10 @@ public class BacSiService {
      */
     @Transactional(readOnly = true)
     public Page<BacSiResponse> getAll(Pageable pageable) {
-        return bacSiRepository.findAllByIsDeleted(false, pageable)
+        Page<BacSiResponse> page = bacSiRepository.findAllByIsDeleted(false, pageable)
                 .map(this::convertToResponse);
+        applyRatings(page.getContent());
+        return page;
     }
     
     /**
@@ -185,7 +204,19 @@ public class BacSiService {
         BacSi bacSi = bacSiRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Bác sĩ không tồn tại"));
         
-        return convertToDetailResponse(bacSi);
+        BacSiDetailResponse response = convertToDetailResponse(bacSi);
+        doctorRatingSummaryService.findById(id).ifPresentOrElse(
+                summary -> {
+                    response.setDanhGiaTrungBinh(summary.getTrungBinh());
+                    response.setSoDanhGia(summary.getSoDanhGia());
+                    long[] phanBo = summary.getPhanBo();
+                    response.setPhanBoDanhGia(List.of(phanBo[1], phanBo[2], phanBo[3], phanBo[4], phanBo[5]));
+                },
+                () -> {
+                    response.setSoDanhGia(0L);
+                    response.setPhanBoDanhGia(List.of(0L, 0L, 0L, 0L, 0L));
+                });
+        return response;
     }
     
     /**
@@ -199,20 +230,55 @@ public class BacSiService {
         }
         
         // Chỉ lấy bác sĩ đang làm việc VÀ chưa bị xóa
-        return bacSiRepository.findByChuyenKhoa_ChuyenKhoaIDAndTrangThaiCongViecAndIsDeleted(
+        return applyRatings(bacSiRepository.findByChuyenKhoa_ChuyenKhoaIDAndTrangThaiCongViecAndIsDeleted(
                         chuyenKhoaId, true, false)
                 .stream()
                 .map(this::convertToResponse)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
     
     /**
      * Tìm kiếm bác sĩ theo keyword (tên hoặc chuyên khoa)
+     * Phục vụ từ DoctorSearchIndex (không dấu, có xếp hạng), nạp lười ở lần gọi đầu
      */
     @Transactional(readOnly = true)
     public Page<BacSiResponse> search(String keyword, Pageable pageable) {
-        return bacSiRepository.searchDoctors(keyword, pageable)
-                .map(this::convertToResponse);
+        if (!doctorSearchIndex.isLoaded()) {
+            long startVersion = doctorSearchIndex.version();
+            List<BacSiResponse> doctors = bacSiRepository.findAllActiveWithDetails()
+                    .stream()
+                    .map(this::convertToResponse)
+                    .collect(Collectors.toList());
+            doctorSearchIndex.rebuild(doctors, startVersion);
+        }
+        Page<BacSiResponse> page = doctorSearchIndex.search(keyword, pageable);
+        return new PageImpl<>(copyWithRatings(page.getContent()), pageable, page.getTotalElements());
+    }
+    
+    /**
+     * Lọc bác sĩ theo facet (chuyên khoa, trình độ, khoảng giá, kinh nghiệm, còn lịch 7 ngày tới)
+     * kèm số lượng từng giá trị facet. Chỉ gồm bác sĩ chưa xóa và đang nhận khám.
+     * Phục vụ từ DoctorFacetIndex, nạp lại khi bị invalidate hoặc hết hạn làm mới
+     */
+    @Transactional(readOnly = true)
+    public DoctorFacetSearchResponse facetSearch(DoctorFacetFilterRequest filter, Pageable pageable) {
+        if (doctorFacetIndex.needsRebuild()) {
+            long startVersion = doctorFacetIndex.version();
+            List<BacSiResponse> doctors = bacSiRepository.findAllActiveWithDetails()
+                    .stream()
+                    .filter(b -> Boolean.TRUE.equals(b.getTrangThaiCongViec()))
+                    .map(this::convertToResponse)
+                    .collect(Collectors.toList());
+            LocalDate today = LocalDate.now();
+            Set<Integer> coLichIds = bookingService.findDoctorsWithFreeSlots(
+                    doctors.stream().map(BacSiResponse::getBacSiID).toList(),
+                    today,
+                    today.plusDays(6));
+            doctorFacetIndex.rebuild(doctors, coLichIds, startVersion);
+        }
+        DoctorFacetSearchResponse response = doctorFacetIndex.search(filter, pageable);
+        response.setContent(copyWithRatings(response.getContent()));
+        return response;
     }
     
     /**
@@ -260,7 +326,9 @@ public class BacSiService {
         // 6. Lưu vào DB
         BacSi updated = bacSiRepository.save(bacSi);
         
-        return convertToResponse(updated);
+        BacSiResponse response = convertToResponse(updated);
+        syncSearchIndex(updated, response);
+        return response;
     }
     
     /**
@@ -282,6 +350,10 @@ public class BacSiService {
         nguoiDung.setIsDeleted(true);
         nguoiDung.setTrangThai(false); // Cũng disable tài khoản
         nguoiDungRepository.save(nguoiDung);
+        
+        doctorSearchIndex.remove(id);
+        autocompleteService.removeDoctor(id);
+        doctorFacetIndex.invalidate();
     }
     
     /**
@@ -296,7 +368,9 @@ public class BacSiService {
         bacSi.setTrangThaiCongViec(!bacSi.getTrangThaiCongViec());
         BacSi updated = bacSiRepository.save(bacSi);
         
-        return convertToResponse(updated);
+        BacSiResponse response = convertToResponse(updated);
+        syncSearchIndex(updated, response);
+        return response;
     }
     
     /**
@@ -324,7 +398,9 @@ public class BacSiService {
         nguoiDung.setTrangThai(true); // Enable tài khoản
         nguoiDungRepository.save(nguoiDung);
         
-        return convertToResponse(bacSi);
+        BacSiResponse response = convertToResponse(bacSi);
+        syncSearchIndex(bacSi, response);
+        return response;
     }
     
     /**
@@ -332,15 +408,62 @@ public class BacSiService {
      */
     @Transactional(readOnly = true)
     public List<BacSiResponse> getTopExperienced() {
-        return bacSiRepository.findTop10ByTrangThaiCongViecAndIsDeletedOrderBySoNamKinhNghiemDesc(
+        return applyRatings(bacSiRepository.findTop10ByTrangThaiCongViecAndIsDeletedOrderBySoNamKinhNghiemDesc(
                         true, false)
                 .stream()
                 .map(this::convertToResponse)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
     
     // ==================== HELPER METHODS ====================
     
+    /**
+     * Gắn điểm đánh giá từ ThongKeDanhGiaBacSi (1 query cho cả danh sách)
+     */
+    private List<BacSiResponse> applyRatings(List<BacSiResponse> doctors) {
+        Map<Integer, ThongKeDanhGiaBacSi> summaries = doctorRatingSummaryService.findByIds(
+                doctors.stream().map(BacSiResponse::getBacSiID).toList());
+        for (BacSiResponse doctor : doctors) {
+            ThongKeDanhGiaBacSi summary = summaries.get(doctor.getBacSiID());
+            doctor.setDanhGiaTrungBinh(summary != null ? summary.getTrungBinh() : null);
+            doctor.setSoDanhGia(summary != null ? summary.getSoDanhGia() : 0L);
+        }
+        return doctors;
+    }
+    
+    /**
+     * Bản sao kèm đánh giá cho kết quả từ index trong bộ nhớ
+     * (object trong index dùng chung giữa các request nên không sửa trực tiếp)
+     */
+    private List<BacSiResponse> copyWithRatings(List<BacSiResponse> shared) {
+        List<BacSiResponse> copies = shared.stream()
+                .map(source -> {
+                    BacSiResponse copy = new BacSiResponse();
+                    BeanUtils.copyProperties(source, copy);
+                    return copy;
+                })
+                .collect(Collectors.toList());
+        return applyRatings(copies);
+    }
+    
+    /**
+     * Đồng bộ search index + autocomplete + facet: bác sĩ đã xóa mềm thì gỡ khỏi index
+     */
+    private void syncSearchIndex(BacSi bacSi, BacSiResponse response) {
+        doctorFacetIndex.invalidate();
+        if (Boolean.TRUE.equals(bacSi.getIsDeleted())) {
+            doctorSearchIndex.remove(bacSi.getBacSiID());
+            autocompleteService.removeDoctor(bacSi.getBacSiID());
+        } else {
+            doctorSearchIndex.upsert(response);
+            autocompleteService.upsertDoctor(
+                    response.getBacSiID(),
+                    response.getHoTen(),
+                    response.getChuyenKhoaID(),
+                    response.getTenChuyenKhoa());
+        }
+    }
+    
     /**
      * Convert BacSi entity sang BacSiResponse (thông tin cơ bản)
      */
@@ -424,10 +547,9 @@ public class BacSiService {
         response.setThanhTich(bacSi.getThanhTich());
         response.setChungChi(bacSi.getChungChi());
         
-        // Thống kê (tạm thời set null, sẽ implement sau)
+        // Thống kê (tạm thời set null, sẽ implement sau); đánh giá gắn ở getById
         response.setTongLichKham(null);
         response.setLichDaHoanThanh(null);
-        response.setDanhGiaTrungBinh(null);
         
         return response;
     }
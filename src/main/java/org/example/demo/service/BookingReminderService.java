@@ -0,0 +1,323 @@
+package org.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.dto.response.ThongBaoResponse;
+import org.example.demo.enums.MauThongBao;
+import org.example.demo.enums.TrangThaiDatLich;
+import org.example.demo.repository.DatLichKhamRepository;
+import org.example.demo.repository.ThongBaoJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * BookingReminderService - Gửi nhắc lịch khám theo lô
+ *
+ * - Nhắc 24h: đầu mỗi giờ, lịch ngày mai chưa nhắc (DaNhacNho)
+ * - Nhắc 1h: vài phút / lần, cửa sổ (NgayKham, GioKham) trên index idx_nhac_lich_1h (DaNhacNho1h)
+ *   Hai loại nhắc không trùng nhau trong khoảng app.reminder.min-gap-minutes
+ *
+ * Mỗi lô (app.reminder.chunk-size lịch):
+ * 1. 1 query projection lấy lịch + bệnh nhân + bác sĩ (keyset theo DatLichID)
+ * 2. 1 transaction: giành các lịch chưa nhắc (SELECT ... FOR UPDATE SKIP LOCKED), 1 UPDATE cờ đã nhắc
+ *    + JDBC batch INSERT ThongBao (2 / lịch) CHỈ cho các lịch đã giành được
+ * 3. Sau commit: badge + SSE + email cho đúng các ThongBao đã ghi
+ * Cờ đã nhắc được đánh dấu cùng transaction với ThongBao; lịch đang bị lượt chạy / instance khác giữ
+ * hoặc đã được nhắc thì bị bỏ qua → chạy chồng hay chạy lại đều không gửi trùng.
+ */
+@Slf4j
+@Service
+public class BookingReminderService {
+
+    private static final String THOI_DIEM_24H = "ngày mai";
+    private static final String THOI_DIEM_1H = "1 giờ nữa";
+    private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59);
+
+    @Autowired
+    private DatLichKhamRepository datLichKhamRepository;
+
+    @Autowired
+    private ThongBaoJdbcRepository thongBaoJdbcRepository;
+
+    @Autowired
+    private NotificationTemplateService templateService;
+
+    @Autowired
+    private EmailDeliveryService emailDeliveryService;
+
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.reminder.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.reminder.1h-lead-minutes:60}")
+    private int oneHourLeadMinutes;
+
+    @Value("${app.reminder.min-gap-minutes:120}")
+    private int minGapMinutes;
+
+    /**
+     * Email chờ gửi sau commit (cùng thứ tự với ThongBao trong lô)
+     */
+    private record ReminderEmail(String email, String hoTen, MauThongBao mau, Object[] values) {
+    }
+
+    /**
+     * Cờ đã nhắc của 1 loại nhắc lịch
+     *
+     * @param claim khóa các lịch chưa nhắc trong lô, trả DatLichID giành được
+     * @param mark  UPDATE cờ đã nhắc cho các DatLichID đã giành
+     */
+    private record ReminderFlag(Function<List<Integer>, List<Integer>> claim,
+                                BiFunction<List<Integer>, LocalDateTime, Integer> mark) {
+    }
+
+    /**
+     * Mặc định đầu mỗi giờ (app.reminder.24h-cron)
+     */
+    @Scheduled(cron = "${app.reminder.24h-cron:0 0 * * * *}")
+    public void scheduled24HourReminders() {
+        try {
+            send24HourReminders(LocalDate.now().plusDays(1));
+        } catch (Exception e) {
+            log.error("❌ 24h reminder job failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Mặc định 5 phút / lần (app.reminder.1h-interval-ms)
+     */
+    @Scheduled(
+        fixedDelayString = "${app.reminder.1h-interval-ms:300000}",
+        initialDelayString = "${app.reminder.1h-interval-ms:300000}"
+    )
+    public void scheduledOneHourReminders() {
+        try {
+            sendOneHourReminders(LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("❌ 1h reminder job failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Nhắc tất cả lịch DA_XAC_NHAN ngày ngayKham chưa được nhắc
+     *
+     * @return số lịch đã nhắc
+     */
+    public int send24HourReminders(LocalDate ngayKham) {
+        int total = sendInChunks(
+            afterId -> datLichKhamRepository.findReminderCandidates(
+                ngayKham, TrangThaiDatLich.DA_XAC_NHAN, afterId, PageRequest.of(0, chunkSize)),
+            THOI_DIEM_24H,
+            new ReminderFlag(datLichKhamRepository::claimReminders, datLichKhamRepository::markRemindersSent)
+        );
+        if (total > 0) {
+            log.info("✅ Sent 24h reminders for {} bookings on {}", total, ngayKham);
+        }
+        return total;
+    }
+
+    /**
+     * Nhắc các lịch có giờ khám trong (now, now + 1h-lead-minutes] chưa nhắc 1h
+     * Lịch vừa nhắc 24h trong vòng min-gap-minutes được bỏ qua (không nhắc 2 lần sát nhau)
+     *
+     * @return số lịch đã nhắc
+     */
+    public int sendOneHourReminders(LocalDateTime now) {
+        LocalDateTime windowEnd = now.plusMinutes(oneHourLeadMinutes);
+        LocalDateTime remindedBefore = now.minusMinutes(minGapMinutes);
+
+        int total;
+        if (windowEnd.toLocalDate().equals(now.toLocalDate())) {
+            total = sendOneHourWindow(now.toLocalDate(), now.toLocalTime(), windowEnd.toLocalTime(), remindedBefore);
+        } else {
+            // Cửa sổ vắt qua nửa đêm → 2 khoảng trên 2 ngày
+            total = sendOneHourWindow(now.toLocalDate(), now.toLocalTime(), END_OF_DAY, remindedBefore)
+                + sendOneHourWindow(windowEnd.toLocalDate(), LocalTime.MIDNIGHT, windowEnd.toLocalTime(), remindedBefore);
+        }
+        if (total > 0) {
+            log.info("✅ Sent 1h reminders for {} bookings", total);
+        }
+        return total;
+    }
+
+    private int sendOneHourWindow(LocalDate ngayKham, LocalTime fromTime, LocalTime toTime,
+                                  LocalDateTime remindedBefore) {
+        return sendInChunks(
+            afterId -> datLichKhamRepository.findOneHourReminderCandidates(
+                ngayKham, fromTime, toTime, TrangThaiDatLich.DA_XAC_NHAN, remindedBefore, afterId,
+                PageRequest.of(0, chunkSize)),
+            THOI_DIEM_1H,
+            new ReminderFlag(datLichIDs -> datLichKhamRepository.claimOneHourReminders(datLichIDs, remindedBefore),
+                datLichKhamRepository::markOneHourRemindersSent)
+        );
+    }
+
+    /**
+     * Đọc lịch cần nhắc theo keyset (afterId) và xử lý từng lô
+     *
+     * @param page afterId → tối đa chunkSize dòng projection
+     * @param flag giành + đánh dấu cờ đã nhắc
+     */
+    private int sendInChunks(IntFunction<List<Object[]>> page, String thoiDiem, ReminderFlag flag) {
+        TransactionTemplate readTx = new TransactionTemplate(transactionManager);
+        readTx.setReadOnly(true);
+
+        int total = 0;
+        int afterId = 0;
+        while (true) {
+            int cursor = afterId;
+            List<Object[]> rows = readTx.execute(status -> page.apply(cursor));
+            if (rows == null || rows.isEmpty()) {
+                break;
+            }
+            afterId = (Integer) rows.get(rows.size() - 1)[0];
+            total += sendChunk(rows, thoiDiem, flag);
+            if (rows.size() < chunkSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Giành + ghi nhắc lịch cho 1 lô trong 1 transaction rồi đưa email vào hàng đợi
+     *
+     * @return số lịch đã nhắc (đã giành được)
+     */
+    private int sendChunk(List<Object[]> rows, String thoiDiem, ReminderFlag flag) {
+        List<Integer> datLichIDs = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            datLichIDs.add((Integer) row[0]);
+        }
+        List<ThongBaoJdbcRepository.NewThongBao> notifications = new ArrayList<>(rows.size() * 2);
+        List<ReminderEmail> emails = new ArrayList<>(rows.size() * 2);
+
+        LocalDateTime now = LocalDateTime.now();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Integer> thongBaoIDs = tx.execute(status -> {
+            Set<Integer> claimed = new HashSet<>(flag.claim().apply(datLichIDs));
+            if (claimed.isEmpty()) {
+                return List.of();
+            }
+            if (claimed.size() != datLichIDs.size()) {
+                log.info("Reminder chunk: skipped {} of {} bookings (already reminded or claimed by another run)",
+                    datLichIDs.size() - claimed.size(), datLichIDs.size());
+            }
+            flag.mark().apply(new ArrayList<>(claimed), now);
+            for (Object[] row : rows) {
+                if (claimed.contains((Integer) row[0])) {
+                    addReminders(notifications, emails, row, thoiDiem);
+                }
+            }
+            return thongBaoJdbcRepository.insertBatch(notifications, now);
+        });
+        if (thongBaoIDs == null || thongBaoIDs.isEmpty()) {
+            return 0;
+        }
+
+        // Badge + SSE + email sau khi commit (ThongBao + cờ đã nhắc đã lưu)
+        for (int i = 0; i < emails.size(); i++) {
+            ReminderEmail email = emails.get(i);
+            ThongBaoJdbcRepository.NewThongBao notification = notifications.get(i);
+            unreadCounter.increment(notification.nguoiNhanID(), 1);
+            notificationStreamService.publish(notification.nguoiNhanID(), ThongBaoResponse.builder()
+                .thongBaoID(thongBaoIDs.get(i))
+                .loaiThongBao(notification.loaiThongBao())
+                .mauSac(notification.loaiThongBao().getMauSac())
+                .tieuDe(notification.tieuDe())
+                .noiDung(notification.noiDung())
+                .thoiGian(now)
+                .daDoc(false)
+                .datLichID(notification.datLichID())
+                .linkDinhKem(notification.linkDinhKem())
+                .build());
+            try {
+                emailDeliveryService.enqueue(
+                    thongBaoIDs.get(i),
+                    email.email(),
+                    email.hoTen(),
+                    notification.loaiThongBao(),
+                    notification.tieuDe(),
+                    notification.noiDung(),
+                    templateService.renderEmailHtml(email.mau(), email.hoTen(), email.values())
+                );
+            } catch (Exception e) {
+                log.error("❌ Failed to queue reminder email for notification #{}: {}", thongBaoIDs.get(i),
+                    e.getMessage());
+            }
+        }
+        return emails.size() / 2;
+    }
+
+    /**
+     * 2 nhắc nhở (bệnh nhân + bác sĩ) cho 1 dòng projection
+     */
+    private void addReminders(
+        List<ThongBaoJdbcRepository.NewThongBao> notifications,
+        List<ReminderEmail> emails,
+        Object[] row,
+        String thoiDiem
+    ) {
+        Integer datLichID = (Integer) row[0];
+        LocalTime gioKham = (LocalTime) row[1];
+        String maXacNhan = (String) row[2];
+        String tenBenhNhan = (String) row[4];
+        String tenBacSi = (String) row[7];
+
+        // 1. Nhắc nhở cho BỆNH NHÂN
+        Object[] patientValues = {tenBacSi, gioKham, thoiDiem, maXacNhan};
+        addReminder(notifications, emails, MauThongBao.NHAC_LICH_BENH_NHAN, patientValues,
+            (Integer) row[3], tenBenhNhan, (String) row[5], datLichID, "/bookings/" + datLichID);
+
+        // 2. Nhắc nhở cho BÁC SĨ
+        Object[] doctorValues = {tenBenhNhan, gioKham, thoiDiem, maXacNhan};
+        addReminder(notifications, emails, MauThongBao.NHAC_LICH_BAC_SI, doctorValues,
+            (Integer) row[6], tenBacSi, (String) row[8], datLichID, "/doctor/appointments/" + datLichID);
+    }
+
+    private void addReminder(
+        List<ThongBaoJdbcRepository.NewThongBao> notifications,
+        List<ReminderEmail> emails,
+        MauThongBao mau,
+        Object[] values,
+        Integer nguoiNhanID,
+        String hoTen,
+        String email,
+        Integer datLichID,
+        String link
+    ) {
+        NotificationTemplateService.RenderedNotification rendered = templateService.render(mau, values);
+        notifications.add(new ThongBaoJdbcRepository.NewThongBao(
+            nguoiNhanID,
+            mau.getLoaiThongBao(),
+            rendered.tieuDe(),
+            rendered.noiDung(),
+            datLichID,
+            link
+        ));
+        emails.add(new ReminderEmail(email, hoTen, mau, values));
+    }
+}
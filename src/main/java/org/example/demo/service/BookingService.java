@@ -9,6 +9,9 @@ import org.example.demo.dto.response.TimeSlotResponse;
 import org.example.demo.dto.response.BookingStatisticsResponse;
 import org.example.demo.dto.response.SpecialtyRevenueResponse;
 import org.example.demo.dto.response.DoctorRevenueResponse;
+import org.example.demo.dto.response.DoctorRankingResponse;
+import org.example.demo.dto.response.RevenueTimeSeriesResponse;
+import org.example.demo.dto.response.DoctorUtilizationResponse;
 import org.example.demo.service.MedicalRecordService;
 import org.example.demo.entity.*;
 import org.example.demo.enums.*;
@@ -75,6 +78,18 @@ public class BookingService {
     @Autowired
     private LichLamViecMacDinhRepository lichLamViecMacDinhRepository;
 
+    @Autowired
+    private ThongKeDatLichNgayRepository thongKeDatLichNgayRepository;
+
+    @Autowired
+    private BookingStatsRollupService bookingStatsRollupService;
+
+    @Autowired
+    private DoctorRatingSummaryService doctorRatingSummaryService;
+
+    @Autowired
+    private DoctorRankingService doctorRankingService;
+
     private static final int MAX_BOOKING_DAYS_AHEAD = 30;
     private static final int CANCELLATION_HOURS_BEFORE = 24;
     private static final int MAX_SCHEDULE_RANGE_DAYS = 31;
@@ -177,6 +192,7 @@ public class BookingService {
 
         try {
             booking = datLichKhamRepository.save(booking);
+            bookingStatsRollupService.record(null, booking);
         } catch (DataIntegrityViolationException e) {
             // Nếu DB còn unique index cũ gây trùng dù booking đã hủy/hoàn thành
             if (e.getMessage() != null && e.getMessage().contains("unique_booking_slot_active")) {
@@ -323,10 +339,12 @@ public class BookingService {
             throw new BadRequestException("Chỉ có thể xử lý lịch hẹn ở trạng thái CHỜ XÁC NHẬN");
         }
 
+        BookingStatsRollupService.Snapshot before = bookingStatsRollupService.capture(booking);
         if (request.isApprove()) {
             booking.setTrangThai(TrangThaiDatLich.DA_XAC_NHAN);
             booking.setNgayBacSiXacNhan(LocalDateTime.now());
             booking = datLichKhamRepository.save(booking);
+            bookingStatsRollupService.record(before, booking);
 
             try {
                 notificationService.sendDoctorConfirmation(booking.getDatLichID());
@@ -339,6 +357,7 @@ public class BookingService {
             booking.setTrangThai(TrangThaiDatLich.TU_CHOI);
             booking.setLyDoTuChoi(request.getLyDoTuChoi());
             datLichKhamRepository.save(booking);
+            bookingStatsRollupService.record(before, booking);
 
             try {
                 notificationService.sendDoctorRejection(
@@ -393,12 +412,14 @@ public class BookingService {
         NguoiDung cancelledBy = nguoiDungRepository.findById(currentUserId)
             .orElseThrow(() -> new ResourceNotFoundException("Người dùng không tồn tại"));
         
+        BookingStatsRollupService.Snapshot before = bookingStatsRollupService.capture(booking);
         booking.setTrangThai(isPatient ? TrangThaiDatLich.HUY_BOI_BENH_NHAN : TrangThaiDatLich.HUY_BOI_BAC_SI);
         booking.setNguoiHuy(cancelledBy);
         booking.setLyDoHuy(request.getLyDoHuy());
         booking.setNgayHuy(LocalDateTime.now());
 
         datLichKhamRepository.save(booking);
+        bookingStatsRollupService.record(before, booking);
 
         // Send notification
         try {
@@ -431,10 +452,12 @@ public class BookingService {
             throw new BadRequestException("Chỉ có thể check-in vào đúng ngày hẹn");
         }
 
+        BookingStatsRollupService.Snapshot before = bookingStatsRollupService.capture(booking);
         booking.setTrangThai(TrangThaiDatLich.DANG_KHAM);
         booking.setNgayCheckIn(LocalDateTime.now());
 
         booking = datLichKhamRepository.save(booking);
+        bookingStatsRollupService.record(before, booking);
 
         log.info("✅ Patient checked in for booking #{}", booking.getDatLichID());
         return BookingResponse.of(booking);
@@ -459,6 +482,7 @@ public class BookingService {
         }
 
         // Update booking
+        BookingStatsRollupService.Snapshot before = bookingStatsRollupService.capture(booking);
         booking.setTrangThai(TrangThaiDatLich.HOAN_THANH);
         booking.setKetQuaKham(request.getKetQuaKham());
         booking.setDonThuoc(request.getDonThuoc());
@@ -476,6 +500,7 @@ public class BookingService {
         }
 
         booking = datLichKhamRepository.save(booking);
+        bookingStatsRollupService.record(before, booking);
 
         // Send notification
         try {
@@ -502,11 +527,13 @@ public class BookingService {
             return BookingResponse.of(booking); // đã thanh toán rồi
         }
 
+        BookingStatsRollupService.Snapshot before = bookingStatsRollupService.capture(booking);
         booking.setTrangThaiThanhToan(TrangThaiThanhToan.THANH_CONG);
         booking.setNgayThanhToan(LocalDateTime.now());
         booking.setMaGiaoDich("CASH_CONFIRM_" + System.currentTimeMillis());
 
         booking = datLichKhamRepository.save(booking);
+        bookingStatsRollupService.record(before, booking);
         return BookingResponse.of(booking);
     }
 
@@ -676,18 +703,7 @@ public class BookingService {
             int thu = convertToThuTrongTuan(currentDate);
             List<LichLamViecMacDinh> schedulesForDay = scheduleByThu.getOrDefault(thu, Collections.emptyList());
 
-            boolean leaveFullDay = leaves.stream().anyMatch(n ->
-                (n.getLoaiNghi() == LoaiNghi.NGAY_CU_THE &&
-                    currentDate.equals(n.getNgayNghiCuThe())) ||
-                // Nghỉ ca cụ thể nhưng ca = null => nghỉ cả ngày đó
-                (n.getLoaiNghi() == LoaiNghi.CA_CU_THE &&
-                    n.getCa() == null &&
-                    currentDate.equals(n.getNgayNghiCuThe())) ||
-                // Nghỉ hàng tuần với ca = null => nghỉ cả ngày của thứ đó
-                (n.getLoaiNghi() == LoaiNghi.CA_HANG_TUAN &&
-                    n.getCa() == null &&
-                    Objects.equals(n.getThuTrongTuan(), thu))
-            );
+            boolean leaveFullDay = isLeaveFullDay(leaves, currentDate, thu);
 
             for (LichLamViecMacDinh schedule : schedulesForDay) {
                 boolean onLeave = leaveFullDay || isLeaveForShift(leaves, currentDate, thu, schedule.getCa());
@@ -836,6 +852,77 @@ public class BookingService {
         return result;
     }
 
+    /**
+     * Tìm các bác sĩ còn ít nhất 1 slot trống trong khoảng [from, to]
+     * Dùng cho facet "còn lịch tuần này": cả khoảng ngày chỉ tốn 3 query
+     * (lịch mặc định, nghỉ đã duyệt của mọi bác sĩ, số slot đã đặt nhóm theo bác sĩ/ngày/ca)
+     */
+    @Transactional(readOnly = true)
+    public Set<Integer> findDoctorsWithFreeSlots(Collection<Integer> bacSiIds, LocalDate from, LocalDate to) {
+        Map<Integer, List<LichLamViecMacDinh>> scheduleByThu = lichLamViecMacDinhRepository.findAllActive()
+            .stream()
+            .filter(LichLamViecMacDinh::getIsActive)
+            .collect(Collectors.groupingBy(LichLamViecMacDinh::getThuTrongTuan));
+
+        Map<Integer, List<BacSiNgayNghi>> leavesByDoctor = bacSiNgayNghiRepository.findAllApprovedLeavesInRange(from, to)
+            .stream()
+            .collect(Collectors.groupingBy(n -> n.getBacSi().getBacSiID()));
+
+        List<TrangThaiDatLich> activeStatuses = Arrays.asList(
+            TrangThaiDatLich.CHO_THANH_TOAN,
+            TrangThaiDatLich.CHO_XAC_NHAN_BAC_SI,
+            TrangThaiDatLich.DA_XAC_NHAN,
+            TrangThaiDatLich.DANG_KHAM
+        );
+        // key: bacSiID|ngay|ca
+        Map<String, Long> bookedCounts = new HashMap<>();
+        for (Object[] row : datLichKhamRepository.countBookedSlotsInRange(from, to, activeStatuses)) {
+            bookedCounts.put(row[0] + "|" + row[1] + "|" + row[2], (Long) row[3]);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<Integer> result = new HashSet<>();
+        for (Integer bacSiId : bacSiIds) {
+            List<BacSiNgayNghi> leaves = leavesByDoctor.getOrDefault(bacSiId, Collections.emptyList());
+            doctorLoop:
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                int thu = convertToThuTrongTuan(date);
+                if (isLeaveFullDay(leaves, date, thu)) {
+                    continue;
+                }
+                for (LichLamViecMacDinh schedule : scheduleByThu.getOrDefault(thu, Collections.emptyList())) {
+                    // Ca đã kết thúc thì không còn đặt được
+                    if (!LocalDateTime.of(date, schedule.getThoiGianKetThuc()).isAfter(now)
+                        || isLeaveForShift(leaves, date, thu, schedule.getCa())) {
+                        continue;
+                    }
+                    int totalSlots = calculateTotalSlots(schedule.getThoiGianBatDau(), schedule.getThoiGianKetThuc());
+                    long booked = bookedCounts.getOrDefault(bacSiId + "|" + date + "|" + schedule.getCa(), 0L);
+                    if (booked < totalSlots) {
+                        result.add(bacSiId);
+                        break doctorLoop;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean isLeaveFullDay(List<BacSiNgayNghi> leaves, LocalDate date, int thu) {
+        return leaves.stream().anyMatch(n ->
+            (n.getLoaiNghi() == LoaiNghi.NGAY_CU_THE &&
+                date.equals(n.getNgayNghiCuThe())) ||
+            // Nghỉ ca cụ thể nhưng ca = null => nghỉ cả ngày đó
+            (n.getLoaiNghi() == LoaiNghi.CA_CU_THE &&
+                n.getCa() == null &&
+                date.equals(n.getNgayNghiCuThe())) ||
+            // Nghỉ hàng tuần với ca = null => nghỉ cả ngày của thứ đó
+            (n.getLoaiNghi() == LoaiNghi.CA_HANG_TUAN &&
+                n.getCa() == null &&
+                Objects.equals(n.getThuTrongTuan(), thu))
+        );
+    }
+
     private boolean isLeaveForShift(List<BacSiNgayNghi> leaves, LocalDate date, int thu, CaLamViec ca) {
         return leaves.stream().anyMatch(n -> {
             if (n.getLoaiNghi() == LoaiNghi.CA_CU_THE) {
@@ -940,12 +1027,19 @@ public class BookingService {
         return result;
     }
 
-    private long safeCount(Long value) {
-        return value != null ? value : 0L;
+    private long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
     }
 
-    private BigDecimal toBigDecimal(Double value) {
-        return value != null ? BigDecimal.valueOf(value).setScale(0, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+    /**
+     * Kết quả SUM/COALESCE của query tổng hợp (BigDecimal/Long/Double tùy dialect) → tiền làm tròn đồng
+     */
+    private BigDecimal toMoney(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal money = value instanceof BigDecimal bd ? bd : new BigDecimal(value.toString());
+        return money.setScale(0, RoundingMode.HALF_UP);
     }
 
     /**
@@ -1076,6 +1170,7 @@ public class BookingService {
         booking.setNgayDanhGia(LocalDateTime.now());
 
         booking = datLichKhamRepository.save(booking);
+        doctorRatingSummaryService.record(booking.getBacSi().getBacSiID(), request.getSoSao());
 
         log.info("✅ Booking #{} rated with {} stars", booking.getDatLichID(), request.getSoSao());
         return BookingResponse.of(booking);
@@ -1083,6 +1178,8 @@ public class BookingService {
 
     /**
      * Thống kê booking cho admin dashboard
+     * Đọc từ bảng tổng hợp ThongKeDatLichNgay (1 query gộp theo trạng thái × thanh toán)
+     * + phân bố số sao từ ThongKeDanhGiaBacSi, không quét DatLichKham
      */
     @Transactional(readOnly = true)
     public BookingStatisticsResponse getBookingStatistics() {
@@ -1092,45 +1189,62 @@ public class BookingService {
         LocalDate monthStart = today.with(TemporalAdjusters.firstDayOfMonth());
         LocalDate monthEnd = today.with(TemporalAdjusters.lastDayOfMonth());
 
-        long total = safeCount(datLichKhamRepository.countAllActive());
-
-        long pendingApproval = safeCount(datLichKhamRepository.countByTrangThai(TrangThaiDatLich.CHO_XAC_NHAN_BAC_SI));
-        long pendingPayment = safeCount(datLichKhamRepository.countByTrangThai(TrangThaiDatLich.CHO_THANH_TOAN));
-        long confirmed = safeCount(datLichKhamRepository.countByTrangThai(TrangThaiDatLich.DA_XAC_NHAN));
-        long inProgress = safeCount(datLichKhamRepository.countByTrangThai(TrangThaiDatLich.DANG_KHAM));
-        long completed = safeCount(datLichKhamRepository.countByTrangThai(TrangThaiDatLich.HOAN_THANH));
-        long rejected = safeCount(datLichKhamRepository.countByTrangThai(TrangThaiDatLich.TU_CHOI));
-        long cancelled = safeCount(datLichKhamRepository.countByTrangThai(TrangThaiDatLich.HUY_BOI_BENH_NHAN))
-                + safeCount(datLichKhamRepository.countByTrangThai(TrangThaiDatLich.HUY_BOI_BAC_SI))
-                + safeCount(datLichKhamRepository.countByTrangThai(TrangThaiDatLich.HUY_BOI_ADMIN));
-        long noShow = safeCount(datLichKhamRepository.countByTrangThai(TrangThaiDatLich.KHONG_DEN));
-
-        long todayBookings = safeCount(datLichKhamRepository.countByDateRange(today, today));
-        long weekBookings = safeCount(datLichKhamRepository.countByDateRange(weekStart, weekEnd));
-        long monthBookings = safeCount(datLichKhamRepository.countByDateRange(monthStart, monthEnd));
-
-        BigDecimal totalRevenue = toBigDecimal(datLichKhamRepository.calculateTotalRevenue());
-        BigDecimal todayRevenue = toBigDecimal(datLichKhamRepository.calculateRevenueByDateRange(
-                today.atStartOfDay(), today.plusDays(1).atStartOfDay().minusNanos(1)));
-        BigDecimal weekRevenue = toBigDecimal(datLichKhamRepository.calculateRevenueByDateRange(
-                weekStart.atStartOfDay(), weekEnd.plusDays(1).atStartOfDay().minusNanos(1)));
-        BigDecimal monthRevenue = toBigDecimal(datLichKhamRepository.calculateRevenueByDateRange(
-                monthStart.atStartOfDay(), monthEnd.plusDays(1).atStartOfDay().minusNanos(1)));
-
-        long paidBookings = safeCount(datLichKhamRepository.countByPaymentStatus(TrangThaiThanhToan.THANH_CONG));
-        long unpaidBookings = safeCount(datLichKhamRepository.countByPaymentStatus(TrangThaiThanhToan.CHUA_THANH_TOAN))
-                + safeCount(datLichKhamRepository.countByPaymentStatus(TrangThaiThanhToan.DANG_XU_LY))
-                + safeCount(datLichKhamRepository.countByPaymentStatus(TrangThaiThanhToan.THAT_BAI));
-        long refundCount = safeCount(datLichKhamRepository.countRefunds());
-        BigDecimal totalRefund = toBigDecimal(datLichKhamRepository.calculateTotalRefund());
-
-        Double averageRating = datLichKhamRepository.calculateAverageRatingAll();
-        long totalRatings = safeCount(datLichKhamRepository.countRatingsAll());
-        long fiveStars = safeCount(datLichKhamRepository.countRatingsByStarsAll(5));
-        long fourStars = safeCount(datLichKhamRepository.countRatingsByStarsAll(4));
-        long threeStars = safeCount(datLichKhamRepository.countRatingsByStarsAll(3));
-        long twoStars = safeCount(datLichKhamRepository.countRatingsByStarsAll(2));
-        long oneStar = safeCount(datLichKhamRepository.countRatingsByStarsAll(1));
+        // 1 + 2. Theo trạng thái lịch / thanh toán, cửa sổ thời gian, hoàn tiền
+        Map<TrangThaiDatLich, Long> byStatus = new EnumMap<>(TrangThaiDatLich.class);
+        long paidBookings = 0;
+        long unpaidBookings = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        long todayBookings = 0;
+        long weekBookings = 0;
+        long monthBookings = 0;
+        BigDecimal todayRevenue = BigDecimal.ZERO;
+        BigDecimal weekRevenue = BigDecimal.ZERO;
+        BigDecimal monthRevenue = BigDecimal.ZERO;
+        long refundCount = 0;
+        BigDecimal totalRefund = BigDecimal.ZERO;
+        for (Object[] row : thongKeDatLichNgayRepository.summarizeDashboard(
+                today, weekStart, weekEnd, monthStart, monthEnd)) {
+            TrangThaiDatLich trangThai = (TrangThaiDatLich) row[0];
+            TrangThaiThanhToan thanhToan = (TrangThaiThanhToan) row[1];
+            long count = toLong(row[2]);
+            byStatus.merge(trangThai, count, Long::sum);
+
+            // tổng doanh thu = tổng giá khám của lịch THANH_CONG
+            if (thanhToan == TrangThaiThanhToan.THANH_CONG) {
+                paidBookings += count;
+                totalRevenue = totalRevenue.add(toMoney(row[3]));
+            } else if (thanhToan == TrangThaiThanhToan.CHUA_THANH_TOAN
+                    || thanhToan == TrangThaiThanhToan.DANG_XU_LY
+                    || thanhToan == TrangThaiThanhToan.THAT_BAI) {
+                unpaidBookings += count;
+            }
+
+            todayBookings += toLong(row[4]);
+            weekBookings += toLong(row[5]);
+            monthBookings += toLong(row[6]);
+            todayRevenue = todayRevenue.add(toMoney(row[7]));
+            weekRevenue = weekRevenue.add(toMoney(row[8]));
+            monthRevenue = monthRevenue.add(toMoney(row[9]));
+            refundCount += toLong(row[10]);
+            totalRefund = totalRefund.add(toMoney(row[11]));
+        }
+        long total = byStatus.values().stream().mapToLong(Long::longValue).sum();
+        long pendingApproval = byStatus.getOrDefault(TrangThaiDatLich.CHO_XAC_NHAN_BAC_SI, 0L);
+        long pendingPayment = byStatus.getOrDefault(TrangThaiDatLich.CHO_THANH_TOAN, 0L);
+        long confirmed = byStatus.getOrDefault(TrangThaiDatLich.DA_XAC_NHAN, 0L);
+        long inProgress = byStatus.getOrDefault(TrangThaiDatLich.DANG_KHAM, 0L);
+        long completed = byStatus.getOrDefault(TrangThaiDatLich.HOAN_THANH, 0L);
+        long rejected = byStatus.getOrDefault(TrangThaiDatLich.TU_CHOI, 0L);
+        long cancelled = byStatus.getOrDefault(TrangThaiDatLich.HUY_BOI_BENH_NHAN, 0L)
+                + byStatus.getOrDefault(TrangThaiDatLich.HUY_BOI_BAC_SI, 0L)
+                + byStatus.getOrDefault(TrangThaiDatLich.HUY_BOI_ADMIN, 0L);
+        long noShow = byStatus.getOrDefault(TrangThaiDatLich.KHONG_DEN, 0L);
+
+        // 3. Phân bố số sao (trung bình tính lại từ histogram)
+        long[] stars = doctorRatingSummaryService.totalHistogram();
+        long totalRatings = stars[1] + stars[2] + stars[3] + stars[4] + stars[5];
+        long starSum = stars[1] + 2 * stars[2] + 3 * stars[3] + 4 * stars[4] + 5 * stars[5];
+        Double averageRating = totalRatings > 0 ? (double) starSum / totalRatings : null;
 
         BookingStatisticsResponse response = BookingStatisticsResponse.builder()
                 .totalBookings(total)
@@ -1151,11 +1265,11 @@ public class BookingService {
                 .thisMonthRevenue(monthRevenue)
                 .averageRating(averageRating != null ? averageRating : 0.0)
                 .totalRatings(totalRatings)
-                .fiveStars(fiveStars)
-                .fourStars(fourStars)
-                .threeStars(threeStars)
-                .twoStars(twoStars)
-                .oneStar(oneStar)
+                .fiveStars(stars[5])
+                .fourStars(stars[4])
+                .threeStars(stars[3])
+                .twoStars(stars[2])
+                .oneStar(stars[1])
                 .paidBookings(paidBookings)
                 .unpaidBookings(unpaidBookings)
                 .refundCount(refundCount)
@@ -1171,26 +1285,303 @@ public class BookingService {
 
     @Transactional(readOnly = true)
     public List<SpecialtyRevenueResponse> getRevenueBySpecialty(LocalDate fromDate, LocalDate toDate) {
-        return datLichKhamRepository.revenueBySpecialty(fromDate, toDate);
+        return thongKeDatLichNgayRepository.revenueBySpecialty(fromDate, toDate);
     }
 
     @Transactional(readOnly = true)
     public List<DoctorRevenueResponse> getRevenueByDoctor(LocalDate fromDate, LocalDate toDate) {
         // trả tối đa 200 bản ghi để tránh trả quá lớn
-        Page<DoctorRevenueResponse> page = datLichKhamRepository.revenueByDoctor(fromDate, toDate, PageRequest.of(0, 200));
-        return page.getContent();
+        return thongKeDatLichNgayRepository.revenueByDoctor(fromDate, toDate, PageRequest.of(0, 200));
     }
 
     @Transactional(readOnly = true)
     public List<DoctorRevenueResponse> getTopDoctorRevenue(LocalDate fromDate, LocalDate toDate, int size) {
-        int limit = Math.max(1, Math.min(size, 50)); // giới hạn tối đa 50
-        return datLichKhamRepository.topDoctorRevenue(fromDate, toDate, PageRequest.of(0, limit)).getContent();
+        return toRevenueResponses(
+            doctorRankingService.topDoctors(TieuChiXepHang.DOANH_THU, fromDate, toDate, Math.min(size, 50), null)); // giới hạn tối đa 50
     }
 
     @Transactional(readOnly = true)
     public List<DoctorRevenueResponse> getTopDoctorCompleted(LocalDate fromDate, LocalDate toDate, int size) {
-        int limit = Math.max(1, Math.min(size, 50)); // giới hạn tối đa 50
-        return datLichKhamRepository.topDoctorCompleted(fromDate, toDate, PageRequest.of(0, limit)).getContent();
+        return toRevenueResponses(
+            doctorRankingService.topDoctors(TieuChiXepHang.SO_CA_HOAN_THANH, fromDate, toDate, Math.min(size, 50), null)); // giới hạn tối đa 50
+    }
+
+    private List<DoctorRevenueResponse> toRevenueResponses(List<DoctorRankingResponse> ranking) {
+        return ranking.stream()
+            .map(r -> new DoctorRevenueResponse(
+                r.getBacSiID(),
+                r.getTenBacSi(),
+                r.getChuyenKhoaID(),
+                r.getTenChuyenKhoa(),
+                r.getDoanhThu(),
+                r.getSoCaHoanThanh()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Chuỗi doanh thu theo ngày/tuần/tháng, tùy chọn tách theo bác sĩ/chuyên khoa
+     * 1 query gộp theo ngày trên bảng tổng hợp, chia kỳ tuần/tháng trong bộ nhớ
+     */
+    @Transactional(readOnly = true)
+    public RevenueTimeSeriesResponse getRevenueTimeSeries(
+            LocalDate fromDate, LocalDate toDate, KyThongKe ky, NhomThongKe nhom) {
+        KyThongKe period = ky != null ? ky : KyThongKe.NGAY;
+        NhomThongKe group = nhom != null ? nhom : NhomThongKe.TONG;
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : switch (period) {
+            case NGAY -> to.minusDays(29);
+            case TUAN -> period.bucketStart(to).minusWeeks(11);
+            case THANG -> period.bucketStart(to).minusMonths(11);
+        };
+
+        if (from.isAfter(to)) {
+            throw new BadRequestException("Từ ngày phải trước hoặc bằng đến ngày");
+        }
+        if (ChronoUnit.DAYS.between(from, to) + 1 > period.getMaxDays()) {
+            throw new BadRequestException(
+                String.format("Khoảng thời gian tối đa %d ngày khi xem %s", period.getMaxDays(), period.getMoTa().toLowerCase())
+            );
+        }
+
+        // Danh sách kỳ trong khoảng
+        List<LocalDate> buckets = new ArrayList<>();
+        for (LocalDate b = period.bucketStart(from); !b.isAfter(to); b = period.nextBucket(b)) {
+            buckets.add(b);
+        }
+        Map<LocalDate, Integer> bucketIndex = new HashMap<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            bucketIndex.put(buckets.get(i), i);
+        }
+
+        List<Object[]> rows = switch (group) {
+            case TONG -> thongKeDatLichNgayRepository.timeSeriesByDay(from, to);
+            case BAC_SI -> thongKeDatLichNgayRepository.timeSeriesByDayAndDoctor(from, to);
+            case CHUYEN_KHOA -> thongKeDatLichNgayRepository.timeSeriesByDayAndSpecialty(from, to);
+        };
+        int offset = group == NhomThongKe.TONG ? 1 : 3;
+
+        Map<Integer, TimeSeriesAccumulator> seriesById = new LinkedHashMap<>();
+        if (group == NhomThongKe.TONG) {
+            seriesById.put(null, new TimeSeriesAccumulator(null, group.getMoTa(), buckets.size()));
+        }
+        for (Object[] row : rows) {
+            Integer id = group == NhomThongKe.TONG ? null : (Integer) row[1];
+            String ten = group == NhomThongKe.TONG ? group.getMoTa() : (String) row[2];
+            TimeSeriesAccumulator acc = seriesById.computeIfAbsent(
+                id, k -> new TimeSeriesAccumulator(id, ten, buckets.size()));
+            int i = bucketIndex.get(period.bucketStart((LocalDate) row[0]));
+            acc.doanhThu[i] = acc.doanhThu[i].add(toMoney(row[offset]));
+            acc.soLich[i] += toLong(row[offset + 1]);
+            acc.soHoanThanh[i] += toLong(row[offset + 2]);
+            acc.soHoanTien[i] += toLong(row[offset + 3]);
+            acc.tongTienHoan[i] = acc.tongTienHoan[i].add(toMoney(row[offset + 4]));
+        }
+
+        List<RevenueTimeSeriesResponse.Series> series = new ArrayList<>();
+        for (TimeSeriesAccumulator acc : seriesById.values()) {
+            List<RevenueTimeSeriesResponse.Point> points = new ArrayList<>(buckets.size());
+            BigDecimal tongDoanhThu = BigDecimal.ZERO;
+            long tongSoLich = 0;
+            for (int i = 0; i < buckets.size(); i++) {
+                points.add(RevenueTimeSeriesResponse.Point.builder()
+                    .tuNgay(buckets.get(i))
+                    .denNgay(period.nextBucket(buckets.get(i)).minusDays(1))
+                    .doanhThu(acc.doanhThu[i])
+                    .soLich(acc.soLich[i])
+                    .soHoanThanh(acc.soHoanThanh[i])
+                    .soHoanTien(acc.soHoanTien[i])
+                    .tongTienHoan(acc.tongTienHoan[i])
+                    .build());
+                tongDoanhThu = tongDoanhThu.add(acc.doanhThu[i]);
+                tongSoLich += acc.soLich[i];
+            }
+            series.add(RevenueTimeSeriesResponse.Series.builder()
+                .id(acc.id)
+                .ten(acc.ten)
+                .tongDoanhThu(tongDoanhThu)
+                .tongSoLich(tongSoLich)
+                .points(points)
+                .build());
+        }
+        series.sort(Comparator.comparing(RevenueTimeSeriesResponse.Series::getTongDoanhThu).reversed());
+
+        return RevenueTimeSeriesResponse.builder()
+            .fromDate(from)
+            .toDate(to)
+            .ky(period)
+            .nhom(group)
+            .series(series)
+            .build();
+    }
+
+    /**
+     * Báo cáo công suất: tỷ lệ slot được đặt / hoàn thành / hủy / không đến của MỌI bác sĩ theo kỳ
+     *
+     * 4 query cho cả khoảng (bác sĩ, lịch làm việc mặc định, nghỉ đã duyệt, số lịch từ bảng tổng hợp),
+     * sau đó 1 lượt duyệt bác sĩ × ngày dùng chung cách tính slot/nghỉ phép với getDoctorSchedule
+     */
+    @Transactional(readOnly = true)
+    public DoctorUtilizationResponse getUtilizationReport(
+            LocalDate fromDate, LocalDate toDate, KyThongKe ky, Integer chuyenKhoaID) {
+        KyThongKe period = ky != null ? ky : KyThongKe.TUAN;
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : switch (period) {
+            case NGAY -> to.minusDays(6);
+            case TUAN -> period.bucketStart(to).minusWeeks(3);
+            case THANG -> period.bucketStart(to).minusMonths(2);
+        };
+        if (from.isAfter(to)) {
+            throw new BadRequestException("Từ ngày phải trước hoặc bằng đến ngày");
+        }
+        if (ChronoUnit.DAYS.between(from, to) + 1 > period.getMaxDays()) {
+            throw new BadRequestException(
+                String.format("Khoảng thời gian tối đa %d ngày khi xem %s", period.getMaxDays(), period.getMoTa().toLowerCase())
+            );
+        }
+
+        List<BacSi> doctors = bacSiRepository.findAllActiveWithDetails().stream()
+            .filter(b -> chuyenKhoaID == null || chuyenKhoaID.equals(b.getChuyenKhoa().getChuyenKhoaID()))
+            .sorted(Comparator.comparing((BacSi b) -> b.getNguoiDung().getHoTen()).thenComparing(BacSi::getBacSiID))
+            .toList();
+
+        List<LocalDate> buckets = new ArrayList<>();
+        for (LocalDate b = period.bucketStart(from); !b.isAfter(to); b = period.nextBucket(b)) {
+            buckets.add(b);
+        }
+        Map<LocalDate, Integer> bucketIndex = new HashMap<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            bucketIndex.put(buckets.get(i), i);
+        }
+
+        Map<Integer, UtilizationAccumulator[]> accByDoctor = new HashMap<>();
+        for (BacSi doctor : doctors) {
+            UtilizationAccumulator[] accs = new UtilizationAccumulator[buckets.size()];
+            for (int i = 0; i < accs.length; i++) {
+                accs[i] = new UtilizationAccumulator();
+            }
+            accByDoctor.put(doctor.getBacSiID(), accs);
+        }
+
+        // Kết quả lịch hẹn (bảng tổng hợp theo ngày khám)
+        for (Object[] row : thongKeDatLichNgayRepository.countByDoctorDayAndStatus(from, to)) {
+            UtilizationAccumulator[] accs = accByDoctor.get((Integer) row[0]);
+            if (accs == null) {
+                continue;
+            }
+            UtilizationAccumulator acc = accs[bucketIndex.get(period.bucketStart((LocalDate) row[1]))];
+            TrangThaiDatLich trangThai = (TrangThaiDatLich) row[2];
+            long count = toLong(row[3]);
+            switch (trangThai) {
+                case TU_CHOI -> { }
+                case HUY_BOI_BENH_NHAN, HUY_BOI_BAC_SI, HUY_BOI_ADMIN -> acc.soHuy += count;
+                default -> {
+                    acc.soLichDat += count;
+                    if (trangThai == TrangThaiDatLich.HOAN_THANH) {
+                        acc.soHoanThanh += count;
+                    } else if (trangThai == TrangThaiDatLich.KHONG_DEN) {
+                        acc.soKhongDen += count;
+                    }
+                }
+            }
+        }
+
+        // Công suất: lịch làm việc mặc định trừ nghỉ phép đã duyệt
+        Map<Integer, List<LichLamViecMacDinh>> scheduleByThu = lichLamViecMacDinhRepository.findAllActive()
+            .stream()
+            .filter(LichLamViecMacDinh::getIsActive)
+            .collect(Collectors.groupingBy(LichLamViecMacDinh::getThuTrongTuan));
+        Map<Integer, List<BacSiNgayNghi>> leavesByDoctor = bacSiNgayNghiRepository.findAllApprovedLeavesInRange(from, to)
+            .stream()
+            .collect(Collectors.groupingBy(n -> n.getBacSi().getBacSiID()));
+
+        for (BacSi doctor : doctors) {
+            UtilizationAccumulator[] accs = accByDoctor.get(doctor.getBacSiID());
+            List<BacSiNgayNghi> leaves = leavesByDoctor.getOrDefault(doctor.getBacSiID(), Collections.emptyList());
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                UtilizationAccumulator acc = accs[bucketIndex.get(period.bucketStart(date))];
+                int thu = convertToThuTrongTuan(date);
+                boolean leaveFullDay = !leaves.isEmpty() && isLeaveFullDay(leaves, date, thu);
+                for (LichLamViecMacDinh schedule : scheduleByThu.getOrDefault(thu, Collections.emptyList())) {
+                    int slots = calculateTotalSlots(schedule.getThoiGianBatDau(), schedule.getThoiGianKetThuc());
+                    if (leaveFullDay || (!leaves.isEmpty() && isLeaveForShift(leaves, date, thu, schedule.getCa()))) {
+                        acc.soSlotNghi += slots;
+                    } else {
+                        acc.soSlot += slots;
+                    }
+                }
+            }
+        }
+
+        List<DoctorUtilizationResponse.Row> rows = new ArrayList<>(doctors.size() * buckets.size());
+        for (BacSi doctor : doctors) {
+            UtilizationAccumulator[] accs = accByDoctor.get(doctor.getBacSiID());
+            for (int i = 0; i < buckets.size(); i++) {
+                UtilizationAccumulator acc = accs[i];
+                LocalDate bucketEnd = period.nextBucket(buckets.get(i)).minusDays(1);
+                rows.add(DoctorUtilizationResponse.Row.builder()
+                    .bacSiID(doctor.getBacSiID())
+                    .tenBacSi(doctor.getNguoiDung().getHoTen())
+                    .tenChuyenKhoa(doctor.getChuyenKhoa().getTenChuyenKhoa())
+                    .tuNgay(buckets.get(i).isBefore(from) ? from : buckets.get(i))
+                    .denNgay(bucketEnd.isAfter(to) ? to : bucketEnd)
+                    .soSlot(acc.soSlot)
+                    .soSlotNghi(acc.soSlotNghi)
+                    .soLichDat(acc.soLichDat)
+                    .soHoanThanh(acc.soHoanThanh)
+                    .soHuy(acc.soHuy)
+                    .soKhongDen(acc.soKhongDen)
+                    .tyLeDat(percentOf(acc.soLichDat, acc.soSlot))
+                    .tyLeHoanThanh(percentOf(acc.soHoanThanh, acc.soSlot))
+                    .tyLeHuy(percentOf(acc.soHuy, acc.soSlot))
+                    .tyLeKhongDen(percentOf(acc.soKhongDen, acc.soSlot))
+                    .build());
+            }
+        }
+
+        return DoctorUtilizationResponse.builder()
+            .fromDate(from)
+            .toDate(to)
+            .ky(period)
+            .rows(rows)
+            .build();
+    }
+
+    private Double percentOf(long count, int slots) {
+        if (slots <= 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(100.0 * count / slots).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private static final class UtilizationAccumulator {
+        int soSlot;
+        int soSlotNghi;
+        long soLichDat;
+        long soHoanThanh;
+        long soHuy;
+        long soKhongDen;
+    }
+
+    private static final class TimeSeriesAccumulator {
+        final Integer id;
+        final String ten;
+        final BigDecimal[] doanhThu;
+        final long[] soLich;
+        final long[] soHoanThanh;
+        final long[] soHoanTien;
+        final BigDecimal[] tongTienHoan;
+
+        TimeSeriesAccumulator(Integer id, String ten, int size) {
+            this.id = id;
+            this.ten = ten;
+            this.doanhThu = new BigDecimal[size];
+            this.tongTienHoan = new BigDecimal[size];
+            Arrays.fill(doanhThu, BigDecimal.ZERO);
+            Arrays.fill(tongTienHoan, BigDecimal.ZERO);
+            this.soLich = new long[size];
+            this.soHoanThanh = new long[size];
+            this.soHoanTien = new long[size];
+        }
     }
 
     // ========================================
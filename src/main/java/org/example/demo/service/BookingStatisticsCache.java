@@ -0,0 +1,167 @@
+package org.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.demo.dto.response.BookingStatisticsResponse;
+import org.example.demo.dto.response.DoctorRankingResponse;
+import org.example.demo.dto.response.DoctorRevenueResponse;
+import org.example.demo.dto.response.DoctorUtilizationResponse;
+import org.example.demo.dto.response.RevenueTimeSeriesResponse;
+import org.example.demo.dto.response.SpecialtyRankingResponse;
+import org.example.demo.dto.response.SpecialtyRevenueResponse;
+import org.example.demo.enums.KyThongKe;
+import org.example.demo.enums.NhomThongKe;
+import org.example.demo.enums.TieuChiXepHang;
+import org.example.demo.util.StaleWhileRevalidateCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BookingStatisticsCache - Cache cho dashboard thống kê / doanh thu (Admin)
+ *
+ * Dashboard hay để auto-refresh nên cùng 1 khoảng ngày bị hỏi lại liên tục:
+ * - Key = khoảng ngày (+ size với top bác sĩ; + ngày hiện tại với dashboard tổng quan)
+ * - Trả ngay bản đã cache, quá app.stats-cache.fresh-seconds thì làm mới nền
+ * - Nhiều request giống nhau cùng lúc chỉ tính 1 lần
+ *
+ * Số liệu có thể trễ tối đa fresh-seconds so với DB (chấp nhận được cho dashboard).
+ */
+@Service
+public class BookingStatisticsCache {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private DoctorRankingService doctorRankingService;
+
+    private final ThreadPoolExecutor refreshExecutor;
+    private final StaleWhileRevalidateCache<LocalDate, BookingStatisticsResponse> statisticsCache;
+    private final StaleWhileRevalidateCache<DateRange, List<SpecialtyRevenueResponse>> specialtyRevenueCache;
+    private final StaleWhileRevalidateCache<DateRange, List<DoctorRevenueResponse>> doctorRevenueCache;
+    private final StaleWhileRevalidateCache<TopKey, List<DoctorRevenueResponse>> topRevenueCache;
+    private final StaleWhileRevalidateCache<TopKey, List<DoctorRevenueResponse>> topCompletedCache;
+    private final StaleWhileRevalidateCache<TimeSeriesKey, RevenueTimeSeriesResponse> timeSeriesCache;
+    private final StaleWhileRevalidateCache<RankingKey, List<DoctorRankingResponse>> rankingCache;
+    private final StaleWhileRevalidateCache<RankingKey, List<SpecialtyRankingResponse>> specialtyRankingCache;
+    private final StaleWhileRevalidateCache<UtilizationKey, DoctorUtilizationResponse> utilizationCache;
+
+    public BookingStatisticsCache(
+        @Value("${app.stats-cache.fresh-seconds:60}") long freshSeconds,
+        @Value("${app.stats-cache.max-stale-seconds:900}") long maxStaleSeconds,
+        @Value("${app.stats-cache.max-entries:200}") int maxEntries
+    ) {
+        AtomicInteger threadNo = new AtomicInteger();
+        // 2 luồng làm mới nền, hàng đợi nhỏ: đầy thì bỏ lượt làm mới (vẫn trả bản cũ)
+        this.refreshExecutor = new ThreadPoolExecutor(
+            2, 2, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(32),
+            r -> {
+                Thread t = new Thread(r, "stats-cache-refresh-" + threadNo.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        long fresh = TimeUnit.SECONDS.toMillis(freshSeconds);
+        long maxStale = TimeUnit.SECONDS.toMillis(maxStaleSeconds);
+        this.statisticsCache = new StaleWhileRevalidateCache<>("statistics", fresh, maxStale, 4, refreshExecutor);
+        this.specialtyRevenueCache = new StaleWhileRevalidateCache<>("revenue-specialty", fresh, maxStale, maxEntries, refreshExecutor);
+        this.doctorRevenueCache = new StaleWhileRevalidateCache<>("revenue-doctor", fresh, maxStale, maxEntries, refreshExecutor);
+        this.topRevenueCache = new StaleWhileRevalidateCache<>("top-revenue", fresh, maxStale, maxEntries, refreshExecutor);
+        this.topCompletedCache = new StaleWhileRevalidateCache<>("top-completed", fresh, maxStale, maxEntries, refreshExecutor);
+        this.timeSeriesCache = new StaleWhileRevalidateCache<>("revenue-time-series", fresh, maxStale, maxEntries, refreshExecutor);
+        this.rankingCache = new StaleWhileRevalidateCache<>("ranking", fresh, maxStale, maxEntries, refreshExecutor);
+        this.specialtyRankingCache = new StaleWhileRevalidateCache<>("ranking-specialty", fresh, maxStale, maxEntries, refreshExecutor);
+        this.utilizationCache = new StaleWhileRevalidateCache<>("utilization", fresh, maxStale, maxEntries, refreshExecutor);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    // ========================================
+    // READ-THROUGH
+    // ========================================
+
+    /**
+     * Dashboard tổng quan: key theo ngày hiện tại (cửa sổ hôm nay/tuần/tháng đổi lúc nửa đêm)
+     */
+    public BookingStatisticsResponse getBookingStatistics() {
+        return statisticsCache.get(LocalDate.now(), bookingService::getBookingStatistics);
+    }
+
+    public List<SpecialtyRevenueResponse> getRevenueBySpecialty(LocalDate fromDate, LocalDate toDate) {
+        return specialtyRevenueCache.get(new DateRange(fromDate, toDate),
+            () -> List.copyOf(bookingService.getRevenueBySpecialty(fromDate, toDate)));
+    }
+
+    public List<DoctorRevenueResponse> getRevenueByDoctor(LocalDate fromDate, LocalDate toDate) {
+        return doctorRevenueCache.get(new DateRange(fromDate, toDate),
+            () -> List.copyOf(bookingService.getRevenueByDoctor(fromDate, toDate)));
+    }
+
+    public List<DoctorRevenueResponse> getTopDoctorRevenue(LocalDate fromDate, LocalDate toDate, int size) {
+        return topRevenueCache.get(new TopKey(fromDate, toDate, size),
+            () -> List.copyOf(bookingService.getTopDoctorRevenue(fromDate, toDate, size)));
+    }
+
+    public List<DoctorRevenueResponse> getTopDoctorCompleted(LocalDate fromDate, LocalDate toDate, int size) {
+        return topCompletedCache.get(new TopKey(fromDate, toDate, size),
+            () -> List.copyOf(bookingService.getTopDoctorCompleted(fromDate, toDate, size)));
+    }
+
+    /**
+     * Chuỗi doanh thu: khoảng ngày mặc định (null) phụ thuộc hôm nay nên đưa ngày hiện tại vào key
+     */
+    public RevenueTimeSeriesResponse getRevenueTimeSeries(
+            LocalDate fromDate, LocalDate toDate, KyThongKe ky, NhomThongKe nhom) {
+        return timeSeriesCache.get(new TimeSeriesKey(LocalDate.now(), fromDate, toDate, ky, nhom),
+            () -> bookingService.getRevenueTimeSeries(fromDate, toDate, ky, nhom));
+    }
+
+    public List<DoctorRankingResponse> getRanking(
+            TieuChiXepHang tieuChi, LocalDate fromDate, LocalDate toDate, int k, Integer chuyenKhoaID) {
+        return rankingCache.get(new RankingKey(tieuChi, fromDate, toDate, k, chuyenKhoaID),
+            () -> List.copyOf(doctorRankingService.topDoctors(tieuChi, fromDate, toDate, k, chuyenKhoaID)));
+    }
+
+    public List<SpecialtyRankingResponse> getRankingBySpecialty(
+            TieuChiXepHang tieuChi, LocalDate fromDate, LocalDate toDate, int k) {
+        return specialtyRankingCache.get(new RankingKey(tieuChi, fromDate, toDate, k, null),
+            () -> List.copyOf(doctorRankingService.topDoctorsBySpecialty(tieuChi, fromDate, toDate, k)));
+    }
+
+    /**
+     * Báo cáo công suất: khoảng ngày mặc định phụ thuộc hôm nay nên đưa ngày hiện tại vào key
+     */
+    public DoctorUtilizationResponse getUtilizationReport(
+            LocalDate fromDate, LocalDate toDate, KyThongKe ky, Integer chuyenKhoaID) {
+        return utilizationCache.get(new UtilizationKey(LocalDate.now(), fromDate, toDate, ky, chuyenKhoaID),
+            () -> bookingService.getUtilizationReport(fromDate, toDate, ky, chuyenKhoaID));
+    }
+
+    private record DateRange(LocalDate fromDate, LocalDate toDate) {
+    }
+
+    private record TopKey(LocalDate fromDate, LocalDate toDate, int size) {
+    }
+
+    private record RankingKey(TieuChiXepHang tieuChi, LocalDate fromDate, LocalDate toDate, int k, Integer chuyenKhoaID) {
+    }
+
+    private record UtilizationKey(LocalDate today, LocalDate fromDate, LocalDate toDate, KyThongKe ky, Integer chuyenKhoaID) {
+    }
+
+    private record TimeSeriesKey(LocalDate today, LocalDate fromDate, LocalDate toDate, KyThongKe ky, NhomThongKe nhom) {
+    }
+}
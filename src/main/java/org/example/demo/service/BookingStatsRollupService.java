@@ -0,0 +1,331 @@
+package org.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.entity.DatLichKham;
+import org.example.demo.entity.ThongKeDatLichNgay;
+import org.example.demo.enums.TrangThaiDatLich;
+import org.example.demo.enums.TrangThaiThanhToan;
+import org.example.demo.repository.DatLichKhamRepository;
+import org.example.demo.repository.ThongKeDatLichNgayRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * BookingStatsRollupService - Duy trì bảng tổng hợp ThongKeDatLichNgay
+ *
+ * Cập nhật tăng dần:
+ *   Snapshot before = rollupService.capture(booking);   // trước khi đổi trạng thái
+ *   ... đổi trạng thái / thanh toán, save ...
+ *   rollupService.record(before, booking);              // cùng transaction
+ * → trừ đóng góp cũ, cộng đóng góp mới vào đúng dòng (ngày, bác sĩ, trạng thái, thanh toán)
+ *
+ * Đối soát: mỗi đêm tính lại từ DatLichKham theo từng khúc 31 ngày và sửa các dòng lệch
+ * (thay đổi không đi qua service, VD: sửa tay trong DB, job hết hạn...)
+ * Phần sửa được cộng dưới dạng delta (đúng - hiện có) qua cùng câu upsert với record(),
+ * nên delta của booking commit xen giữa lúc đối soát không bị ghi đè mất
+ */
+@Slf4j
+@Service
+public class BookingStatsRollupService {
+
+    private static final int RECONCILE_CHUNK_DAYS = 31;
+
+    @Autowired
+    private ThongKeDatLichNgayRepository thongKeRepository;
+
+    @Autowired
+    private DatLichKhamRepository datLichKhamRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Các trường của booking ảnh hưởng tới bảng tổng hợp
+     */
+    public record Snapshot(
+        LocalDate ngayKham,
+        Integer bacSiID,
+        TrangThaiDatLich trangThai,
+        TrangThaiThanhToan trangThaiThanhToan,
+        BigDecimal giaKham,
+        LocalDate ngayThanhToan,
+        BigDecimal soTienHoan,
+        boolean deleted
+    ) {
+    }
+
+    // ========================================
+    // CẬP NHẬT TĂNG DẦN
+    // ========================================
+
+    /**
+     * Chụp trạng thái hiện tại của booking (gọi TRƯỚC khi thay đổi)
+     * Booking mới tạo (chưa lưu) → null
+     */
+    public Snapshot capture(DatLichKham booking) {
+        if (booking == null || booking.getDatLichID() == null) {
+            return null;
+        }
+        return new Snapshot(
+            booking.getNgayKham(),
+            booking.getBacSi() != null ? booking.getBacSi().getBacSiID() : null,
+            booking.getTrangThai(),
+            booking.getTrangThaiThanhToan(),
+            booking.getGiaKham(),
+            booking.getNgayThanhToan() != null ? booking.getNgayThanhToan().toLocalDate() : null,
+            booking.getSoTienHoan(),
+            Boolean.TRUE.equals(booking.getIsDeleted())
+        );
+    }
+
+    /**
+     * Ghi nhận thay đổi của booking vào bảng tổng hợp (gọi SAU khi save, trong cùng transaction)
+     *
+     * @param before snapshot chụp trước khi thay đổi (null nếu booking mới)
+     */
+    public void record(Snapshot before, DatLichKham booking) {
+        Map<Key, Counters> deltas = new HashMap<>();
+        contribute(deltas, before, -1);
+        contribute(deltas, capture(booking), 1);
+
+        deltas.forEach((key, delta) -> {
+            if (!delta.isZero()) {
+                thongKeRepository.addDelta(
+                    key.ngay(),
+                    key.bacSiID(),
+                    key.trangThai().name(),
+                    key.trangThaiThanhToan().name(),
+                    delta.soLich,
+                    delta.tongGiaKham,
+                    delta.soHoanTien,
+                    delta.tongTienHoan,
+                    delta.soThanhToan,
+                    delta.doanhThuThanhToan
+                );
+            }
+        });
+    }
+
+    private void contribute(Map<Key, Counters> deltas, Snapshot s, int sign) {
+        if (s == null || s.deleted() || s.ngayKham() == null || s.bacSiID() == null || s.trangThai() == null) {
+            return;
+        }
+        TrangThaiThanhToan thanhToan = s.trangThaiThanhToan() != null
+            ? s.trangThaiThanhToan()
+            : TrangThaiThanhToan.CHUA_THANH_TOAN;
+        BigDecimal giaKham = s.giaKham() != null ? s.giaKham() : BigDecimal.ZERO;
+        BigDecimal signed = BigDecimal.valueOf(sign);
+
+        // Theo ngày khám
+        Counters byNgayKham = deltas.computeIfAbsent(
+            new Key(s.ngayKham(), s.bacSiID(), s.trangThai(), thanhToan), k -> new Counters());
+        byNgayKham.soLich += sign;
+        byNgayKham.tongGiaKham = byNgayKham.tongGiaKham.add(giaKham.multiply(signed));
+        if (s.soTienHoan() != null) {
+            byNgayKham.soHoanTien += sign;
+            byNgayKham.tongTienHoan = byNgayKham.tongTienHoan.add(s.soTienHoan().multiply(signed));
+        }
+
+        // Theo ngày thanh toán (chỉ lịch đã thanh toán thành công)
+        if (thanhToan == TrangThaiThanhToan.THANH_CONG && s.ngayThanhToan() != null) {
+            Counters byNgayThanhToan = deltas.computeIfAbsent(
+                new Key(s.ngayThanhToan(), s.bacSiID(), s.trangThai(), thanhToan), k -> new Counters());
+            byNgayThanhToan.soThanhToan += sign;
+            byNgayThanhToan.doanhThuThanhToan = byNgayThanhToan.doanhThuThanhToan.add(giaKham.multiply(signed));
+        }
+    }
+
+    // ========================================
+    // ĐỐI SOÁT HẰNG ĐÊM
+    // ========================================
+
+    /**
+     * Job đối soát: tính lại từ DatLichKham và sửa các dòng lệch
+     * Mặc định 02:30 mỗi đêm (app.stats-rollup.reconcile-cron)
+     */
+    @Scheduled(cron = "${app.stats-rollup.reconcile-cron:0 30 2 * * *}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("❌ Booking statistics rollup reconcile failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Đối soát toàn bộ bảng tổng hợp, mỗi khúc 31 ngày là 1 transaction riêng
+     * REPEATABLE READ: số liệu gốc và dòng tổng hợp đọc trên cùng 1 snapshot,
+     * nên delta (đúng - hiện có) không tính trùng thay đổi commit sau snapshot
+     *
+     * @return số dòng đã sửa
+     */
+    public int reconcile() {
+        long start = System.currentTimeMillis();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        LocalDate[] bounds = tx.execute(status -> findBounds());
+        if (bounds == null) {
+            log.info("📊 Booking statistics rollup: no data to reconcile");
+            return 0;
+        }
+
+        int fixed = 0;
+        for (LocalDate from = bounds[0]; !from.isAfter(bounds[1]); from = from.plusDays(RECONCILE_CHUNK_DAYS)) {
+            LocalDate chunkFrom = from;
+            LocalDate chunkTo = from.plusDays(RECONCILE_CHUNK_DAYS - 1L);
+            Integer chunkFixed = tx.execute(status -> reconcileChunk(chunkFrom, chunkTo));
+            fixed += chunkFixed != null ? chunkFixed : 0;
+        }
+
+        log.info("📊 Booking statistics rollup reconciled {} → {}: {} rows fixed in {} ms",
+            bounds[0], bounds[1], fixed, System.currentTimeMillis() - start);
+        return fixed;
+    }
+
+    private LocalDate[] findBounds() {
+        LocalDate min = null;
+        LocalDate max = null;
+        List<Object[]> source = datLichKhamRepository.findStatisticsDateBounds();
+        List<Object[]> rollup = thongKeRepository.findDateBounds();
+        List<Object> candidates = new ArrayList<>();
+        if (!source.isEmpty()) {
+            candidates.addAll(Arrays.asList(source.get(0)));
+        }
+        if (!rollup.isEmpty()) {
+            candidates.addAll(Arrays.asList(rollup.get(0)));
+        }
+        for (Object value : candidates) {
+            LocalDate date = value instanceof LocalDateTime dt ? dt.toLocalDate() : (LocalDate) value;
+            if (date == null) {
+                continue;
+            }
+            min = min == null || date.isBefore(min) ? date : min;
+            max = max == null || date.isAfter(max) ? date : max;
+        }
+        return min != null ? new LocalDate[] {min, max} : null;
+    }
+
+    private int reconcileChunk(LocalDate from, LocalDate to) {
+        Map<Key, Counters> expected = new HashMap<>();
+        for (Object[] row : datLichKhamRepository.aggregateByNgayKham(from, to)) {
+            Counters c = expected.computeIfAbsent(keyOf(row), k -> new Counters());
+            c.soLich = ((Number) row[4]).longValue();
+            c.tongGiaKham = toDecimal(row[5]);
+            c.soHoanTien = ((Number) row[6]).longValue();
+            c.tongTienHoan = toDecimal(row[7]);
+        }
+        for (Object[] row : datLichKhamRepository.aggregateByNgayThanhToan(
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+            Counters c = expected.computeIfAbsent(keyOf(row), k -> new Counters());
+            c.soThanhToan = ((Number) row[4]).longValue();
+            c.doanhThuThanhToan = toDecimal(row[5]);
+        }
+
+        Map<Key, Counters> actual = new HashMap<>();
+        for (ThongKeDatLichNgay t : thongKeRepository.findByNgayBetween(from, to)) {
+            Counters c = new Counters();
+            c.soLich = t.getSoLich();
+            c.tongGiaKham = t.getTongGiaKham();
+            c.soHoanTien = t.getSoHoanTien();
+            c.tongTienHoan = t.getTongTienHoan();
+            c.soThanhToan = t.getSoThanhToan();
+            c.doanhThuThanhToan = t.getDoanhThuThanhToan();
+            actual.put(new Key(t.getNgay(), t.getBacSiID(), t.getTrangThai(), t.getTrangThaiThanhToan()), c);
+        }
+
+        Set<Key> keys = new HashSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        int fixed = 0;
+        for (Key key : keys) {
+            Counters want = expected.getOrDefault(key, new Counters());
+            Counters have = actual.getOrDefault(key, new Counters());
+            if (want.sameAs(have)) {
+                continue;
+            }
+            // Cộng phần chênh thay vì ghi đè: delta của record() commit sau snapshot vẫn được giữ
+            Counters delta = want.minus(have);
+            thongKeRepository.addDelta(
+                key.ngay(),
+                key.bacSiID(),
+                key.trangThai().name(),
+                key.trangThaiThanhToan().name(),
+                delta.soLich,
+                delta.tongGiaKham,
+                delta.soHoanTien,
+                delta.tongTienHoan,
+                delta.soThanhToan,
+                delta.doanhThuThanhToan
+            );
+            fixed++;
+        }
+        thongKeRepository.deleteEmptyRows(from, to);
+        return fixed;
+    }
+
+    private static Key keyOf(Object[] row) {
+        return new Key(
+            (LocalDate) row[0],
+            (Integer) row[1],
+            (TrangThaiDatLich) row[2],
+            (TrangThaiThanhToan) row[3]
+        );
+    }
+
+    private static BigDecimal toDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal bd ? bd : new BigDecimal(value.toString());
+    }
+
+    private record Key(
+        LocalDate ngay,
+        Integer bacSiID,
+        TrangThaiDatLich trangThai,
+        TrangThaiThanhToan trangThaiThanhToan
+    ) {
+    }
+
+    private static final class Counters {
+        long soLich;
+        BigDecimal tongGiaKham = BigDecimal.ZERO;
+        long soHoanTien;
+        BigDecimal tongTienHoan = BigDecimal.ZERO;
+        long soThanhToan;
+        BigDecimal doanhThuThanhToan = BigDecimal.ZERO;
+
+        boolean isZero() {
+            return sameAs(new Counters());
+        }
+
+        Counters minus(Counters other) {
+            Counters diff = new Counters();
+            diff.soLich = soLich - other.soLich;
+            diff.tongGiaKham = tongGiaKham.subtract(other.tongGiaKham);
+            diff.soHoanTien = soHoanTien - other.soHoanTien;
+            diff.tongTienHoan = tongTienHoan.subtract(other.tongTienHoan);
+            diff.soThanhToan = soThanhToan - other.soThanhToan;
+            diff.doanhThuThanhToan = doanhThuThanhToan.subtract(other.doanhThuThanhToan);
+            return diff;
+        }
+
+        boolean sameAs(Counters other) {
+            return soLich == other.soLich
+                && soHoanTien == other.soHoanTien
+                && soThanhToan == other.soThanhToan
+                && tongGiaKham.compareTo(other.tongGiaKham) == 0
+                && tongTienHoan.compareTo(other.tongTienHoan) == 0
+                && doanhThuThanhToan.compareTo(other.doanhThuThanhToan) == 0;
+        }
+    }
+}
@@ -25,6 +25,15 @@ public class ChuyenKhoaService {
     @Autowired
     private CoSoYTeRepository coSoYTeRepository;
 
+    @Autowired
+    private DoctorSearchIndex doctorSearchIndex;
+
+    @Autowired
+    private DoctorFacetIndex doctorFacetIndex;
+
+    @Autowired
+    private AutocompleteService autocompleteService;
+
     /**
      * Tạo chuyên khoa mới
      * Tự động lấy cơ sở y tế đầu tiên trong hệ thống
@@ -46,6 +55,7 @@ public class ChuyenKhoaService {
         
         // Lưu vào database
         ChuyenKhoa saved = chuyenKhoaRepository.save(chuyenKhoa);
+        autocompleteService.upsertSpecialty(saved.getChuyenKhoaID(), saved.getTenChuyenKhoa());
         
         return convertToResponse(saved);
     }
@@ -129,6 +139,11 @@ public class ChuyenKhoaService {
         // Lưu thay đổi
         ChuyenKhoa updated = chuyenKhoaRepository.save(chuyenKhoa);
         
+        // Tên chuyên khoa nằm trong search index của bác sĩ
+        doctorSearchIndex.invalidate();
+        doctorFacetIndex.invalidate();
+        autocompleteService.upsertSpecialty(updated.getChuyenKhoaID(), updated.getTenChuyenKhoa());
+        
         return convertToResponse(updated);
     }
 
@@ -148,6 +163,7 @@ public class ChuyenKhoaService {
         chuyenKhoa.setDeletedAt(LocalDateTime.now());
         
         chuyenKhoaRepository.save(chuyenKhoa);
+        autocompleteService.removeSpecialty(id);
     }
 
     /**
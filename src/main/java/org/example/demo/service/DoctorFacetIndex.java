@@ -0,0 +1,299 @@
+package org.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.dto.request.DoctorFacetFilterRequest;
+import org.example.demo.dto.response.BacSiResponse;
+import org.example.demo.dto.response.DoctorFacetSearchResponse;
+import org.example.demo.dto.response.DoctorFacetSearchResponse.FacetValue;
+import org.example.demo.enums.KhoangGiaKham;
+import org.example.demo.enums.KhoangKinhNghiem;
+import org.example.demo.util.TextNormalizer;
+import org.example.demo.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DoctorFacetIndex - Chỉ mục facet bác sĩ dạng cột trong bộ nhớ
+ *
+ * Mỗi bác sĩ đang nhận khám là 1 "dòng", mỗi facet là 1 mảng cột:
+ * chuyên khoa / trình độ (ordinal), khoảng giá, khoảng kinh nghiệm (ordinal enum),
+ * còn lịch trống 7 ngày tới (BitSet).
+ *
+ * Một lượt quét duy nhất vừa lọc vừa đếm facet:
+ * - Dòng khớp mọi facet → vào kết quả + cộng vào count của mọi facet
+ * - Dòng chỉ trượt đúng 1 facet → chỉ cộng vào count của facet đó
+ *   (count của facet = số bác sĩ nếu bỏ bộ lọc của chính facet đó)
+ *
+ * Snapshot bất biến, thay nguyên khối khi rebuild nên đọc không cần khóa.
+ * Dữ liệu bác sĩ thay đổi → invalidate (sau commit); cột "còn lịch" phụ thuộc
+ * booking/nghỉ phép nên snapshot tự hết hạn sau app.doctor-facet.refresh-seconds.
+ */
+@Slf4j
+@Component
+public class DoctorFacetIndex {
+
+    private static final int DIM_CHUYEN_KHOA = 0;
+    private static final int DIM_TRINH_DO = 1;
+    private static final int DIM_GIA = 2;
+    private static final int DIM_KINH_NGHIEM = 3;
+    private static final int DIM_CO_LICH = 4;
+    private static final int DIM_COUNT = 5;
+
+    private static final KhoangGiaKham[] GIA_VALUES = KhoangGiaKham.values();
+    private static final KhoangKinhNghiem[] KINH_NGHIEM_VALUES = KhoangKinhNghiem.values();
+
+    @Value("${app.doctor-facet.refresh-seconds:300}")
+    private long refreshSeconds;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    // ========================================
+    // LIFECYCLE
+    // ========================================
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Cần nạp lại khi: chưa nạp, bị invalidate, quá hạn làm mới hoặc đã sang ngày mới
+     */
+    public boolean needsRebuild() {
+        Snapshot current = snapshot;
+        return current == null
+            || current.version() != version.get()
+            || !current.ngayTinh().equals(LocalDate.now())
+            || System.currentTimeMillis() - current.builtAtMillis() > refreshSeconds * 1000;
+    }
+
+    /**
+     * Nạp lại toàn bộ index
+     *
+     * @param doctors       bác sĩ chưa xóa và đang nhận khám
+     * @param coLichIds     ID bác sĩ còn slot trống trong 7 ngày tới
+     * @param startVersion  version() đọc được TRƯỚC khi query DB
+     */
+    public void rebuild(List<BacSiResponse> doctors, Set<Integer> coLichIds, long startVersion) {
+        List<BacSiResponse> sorted = new ArrayList<>(doctors);
+        sorted.sort(Comparator
+            .comparing((BacSiResponse d) -> TextNormalizer.fold(d.getHoTen()))
+            .thenComparing(BacSiResponse::getBacSiID));
+
+        int n = sorted.size();
+        Map<Integer, Integer> chuyenKhoaOrd = new HashMap<>();
+        List<String[]> chuyenKhoaLabels = new ArrayList<>();
+        Map<Integer, Integer> trinhDoOrd = new HashMap<>();
+        List<String[]> trinhDoLabels = new ArrayList<>();
+
+        int[] chuyenKhoa = new int[n];
+        int[] trinhDo = new int[n];
+        byte[] gia = new byte[n];
+        byte[] kinhNghiem = new byte[n];
+        BitSet coLich = new BitSet(n);
+
+        for (int i = 0; i < n; i++) {
+            BacSiResponse d = sorted.get(i);
+            chuyenKhoa[i] = ordinal(chuyenKhoaOrd, chuyenKhoaLabels, d.getChuyenKhoaID(), d.getTenChuyenKhoa());
+            trinhDo[i] = ordinal(trinhDoOrd, trinhDoLabels, d.getTrinhDoID(), d.getTenTrinhDo());
+            gia[i] = (byte) KhoangGiaKham.of(d.getGiaKham()).ordinal();
+            kinhNghiem[i] = (byte) KhoangKinhNghiem.of(d.getSoNamKinhNghiem()).ordinal();
+            coLich.set(i, coLichIds.contains(d.getBacSiID()));
+        }
+
+        snapshot = new Snapshot(
+            sorted.toArray(new BacSiResponse[0]),
+            chuyenKhoa, trinhDo, gia, kinhNghiem, coLich,
+            chuyenKhoaOrd, chuyenKhoaLabels.toArray(new String[0][]),
+            trinhDoOrd, trinhDoLabels.toArray(new String[0][]),
+            LocalDate.now(),
+            System.currentTimeMillis(),
+            startVersion
+        );
+        log.info("📊 Doctor facet index rebuilt with {} doctors ({} available this week)", n, coLich.cardinality());
+    }
+
+    /**
+     * Đánh dấu index cần nạp lại (sau khi transaction hiện tại commit)
+     */
+    public void invalidate() {
+        TransactionUtils.afterCommit(version::incrementAndGet);
+    }
+
+    // ========================================
+    // QUERY
+    // ========================================
+
+    /**
+     * Lọc + đếm facet trên snapshot hiện tại
+     */
+    public DoctorFacetSearchResponse search(DoctorFacetFilterRequest filter, Pageable pageable) {
+        Snapshot s = snapshot;
+        if (s == null) {
+            throw new IllegalStateException("Doctor facet index chưa được nạp");
+        }
+
+        boolean[][] allowed = new boolean[DIM_COUNT][];
+        allowed[DIM_CHUYEN_KHOA] = allowedIds(filter.getChuyenKhoaIDs(), s.chuyenKhoaOrd(), s.chuyenKhoaLabels().length);
+        allowed[DIM_TRINH_DO] = allowedIds(filter.getTrinhDoIDs(), s.trinhDoOrd(), s.trinhDoLabels().length);
+        allowed[DIM_GIA] = allowedEnums(filter.getKhoangGia(), GIA_VALUES.length);
+        allowed[DIM_KINH_NGHIEM] = allowedEnums(filter.getKinhNghiem(), KINH_NGHIEM_VALUES.length);
+        allowed[DIM_CO_LICH] = Boolean.TRUE.equals(filter.getCoLichTuanNay()) ? new boolean[] {false, true} : null;
+
+        long[] chuyenKhoaCounts = new long[s.chuyenKhoaLabels().length];
+        long[] trinhDoCounts = new long[s.trinhDoLabels().length];
+        long[] giaCounts = new long[GIA_VALUES.length];
+        long[] kinhNghiemCounts = new long[KINH_NGHIEM_VALUES.length];
+        long coLichCount = 0;
+
+        long offset = pageable.getOffset();
+        int pageSize = pageable.getPageSize();
+        List<BacSiResponse> content = new ArrayList<>(Math.min(pageSize, s.doctors().length));
+        long total = 0;
+
+        int[] values = new int[DIM_COUNT];
+        for (int i = 0; i < s.doctors().length; i++) {
+            values[DIM_CHUYEN_KHOA] = s.chuyenKhoa()[i];
+            values[DIM_TRINH_DO] = s.trinhDo()[i];
+            values[DIM_GIA] = s.gia()[i];
+            values[DIM_KINH_NGHIEM] = s.kinhNghiem()[i];
+            values[DIM_CO_LICH] = s.coLich().get(i) ? 1 : 0;
+
+            int failedDim = -1;
+            int failures = 0;
+            for (int dim = 0; dim < DIM_COUNT && failures < 2; dim++) {
+                if (allowed[dim] != null && !allowed[dim][values[dim]]) {
+                    failedDim = dim;
+                    failures++;
+                }
+            }
+            if (failures >= 2) {
+                continue;
+            }
+
+            boolean match = failures == 0;
+            if (match || failedDim == DIM_CHUYEN_KHOA) chuyenKhoaCounts[values[DIM_CHUYEN_KHOA]]++;
+            if (match || failedDim == DIM_TRINH_DO) trinhDoCounts[values[DIM_TRINH_DO]]++;
+            if (match || failedDim == DIM_GIA) giaCounts[values[DIM_GIA]]++;
+            if (match || failedDim == DIM_KINH_NGHIEM) kinhNghiemCounts[values[DIM_KINH_NGHIEM]]++;
+            if ((match || failedDim == DIM_CO_LICH) && values[DIM_CO_LICH] == 1) coLichCount++;
+
+            if (match) {
+                if (total >= offset && content.size() < pageSize) {
+                    content.add(s.doctors()[i]);
+                }
+                total++;
+            }
+        }
+
+        List<FacetValue> khoangGia = new ArrayList<>();
+        for (KhoangGiaKham khoang : GIA_VALUES) {
+            khoangGia.add(facet(khoang.name(), khoang.getLabel(), giaCounts[khoang.ordinal()],
+                allowed[DIM_GIA] != null && allowed[DIM_GIA][khoang.ordinal()]));
+        }
+        List<FacetValue> kinhNghiem = new ArrayList<>();
+        for (KhoangKinhNghiem khoang : KINH_NGHIEM_VALUES) {
+            kinhNghiem.add(facet(khoang.name(), khoang.getLabel(), kinhNghiemCounts[khoang.ordinal()],
+                allowed[DIM_KINH_NGHIEM] != null && allowed[DIM_KINH_NGHIEM][khoang.ordinal()]));
+        }
+
+        return DoctorFacetSearchResponse.builder()
+            .content(content)
+            .totalElements(total)
+            .page(pageable.getPageNumber())
+            .size(pageSize)
+            .totalPages(pageSize == 0 ? 1 : (int) Math.ceil((double) total / pageSize))
+            .chuyenKhoa(idFacets(s.chuyenKhoaLabels(), chuyenKhoaCounts, allowed[DIM_CHUYEN_KHOA]))
+            .trinhDo(idFacets(s.trinhDoLabels(), trinhDoCounts, allowed[DIM_TRINH_DO]))
+            .khoangGia(khoangGia)
+            .kinhNghiem(kinhNghiem)
+            .coLichTuanNay(facet("true", "Còn lịch trống 7 ngày tới", coLichCount, allowed[DIM_CO_LICH] != null))
+            .build();
+    }
+
+    // ========================================
+    // INTERNAL
+    // ========================================
+
+    private static int ordinal(Map<Integer, Integer> ords, List<String[]> labels, Integer id, String label) {
+        return ords.computeIfAbsent(id, k -> {
+            labels.add(new String[] {String.valueOf(id), label});
+            return labels.size() - 1;
+        });
+    }
+
+    /**
+     * null = không lọc; ID không có bác sĩ nào thì bỏ qua (không khớp dòng nào)
+     */
+    private static boolean[] allowedIds(List<Integer> ids, Map<Integer, Integer> ords, int size) {
+        if (ids == null || ids.isEmpty()) {
+            return null;
+        }
+        boolean[] allowed = new boolean[size];
+        for (Integer id : ids) {
+            Integer ord = ords.get(id);
+            if (ord != null) {
+                allowed[ord] = true;
+            }
+        }
+        return allowed;
+    }
+
+    private static boolean[] allowedEnums(List<? extends Enum<?>> values, int size) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        boolean[] allowed = new boolean[size];
+        for (Enum<?> value : values) {
+            if (value != null) {
+                allowed[value.ordinal()] = true;
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Facet theo ID (chuyên khoa/trình độ): sắp theo count giảm dần rồi theo tên
+     */
+    private static List<FacetValue> idFacets(String[][] labels, long[] counts, boolean[] allowed) {
+        List<FacetValue> result = new ArrayList<>(labels.length);
+        for (int ord = 0; ord < labels.length; ord++) {
+            result.add(facet(labels[ord][0], labels[ord][1], counts[ord], allowed != null && allowed[ord]));
+        }
+        result.sort(Comparator
+            .comparingLong(FacetValue::getCount).reversed()
+            .thenComparing(f -> TextNormalizer.fold(f.getLabel())));
+        return result;
+    }
+
+    private static FacetValue facet(String key, String label, long count, boolean selected) {
+        return FacetValue.builder()
+            .key(key)
+            .label(label)
+            .count(count)
+            .selected(selected)
+            .build();
+    }
+
+    private record Snapshot(
+        BacSiResponse[] doctors,
+        int[] chuyenKhoa,
+        int[] trinhDo,
+        byte[] gia,
+        byte[] kinhNghiem,
+        BitSet coLich,
+        Map<Integer, Integer> chuyenKhoaOrd,
+        String[][] chuyenKhoaLabels,
+        Map<Integer, Integer> trinhDoOrd,
+        String[][] trinhDoLabels,
+        LocalDate ngayTinh,
+        long builtAtMillis,
+        long version
+    ) {
+    }
+}
@@ -0,0 +1,228 @@
+package org.example.demo.service;
+
+import org.example.demo.dto.response.DoctorRankingResponse;
+import org.example.demo.dto.response.SpecialtyRankingResponse;
+import org.example.demo.enums.TieuChiXepHang;
+import org.example.demo.exception.BadRequestException;
+import org.example.demo.repository.ThongKeDanhGiaBacSiRepository;
+import org.example.demo.repository.ThongKeDatLichNgayRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * DoctorRankingService - Xếp hạng top-K bác sĩ cho báo cáo quản lý
+ *
+ * - Doanh thu / số ca hoàn thành / tỷ lệ hủy: 1 query gộp theo bác sĩ trên ThongKeDatLichNgay
+ * - Đánh giá: đọc ThongKeDanhGiaBacSi (toàn thời gian, không phụ thuộc khoảng ngày)
+ * Chọn top-K bằng min-heap giới hạn K phần tử (O(n log K)), không sort toàn bộ;
+ * xếp hạng theo chuyên khoa dùng 1 heap / chuyên khoa trên cùng 1 lần quét.
+ */
+@Service
+public class DoctorRankingService {
+
+    public static final int MAX_K = 200;
+
+    @Autowired
+    private ThongKeDatLichNgayRepository thongKeDatLichNgayRepository;
+
+    @Autowired
+    private ThongKeDanhGiaBacSiRepository thongKeDanhGiaBacSiRepository;
+
+    /**
+     * Top-K bác sĩ theo tiêu chí (chuyenKhoaID = null: toàn hệ thống)
+     */
+    @Transactional(readOnly = true)
+    public List<DoctorRankingResponse> topDoctors(
+            TieuChiXepHang tieuChi, LocalDate fromDate, LocalDate toDate, int k, Integer chuyenKhoaID) {
+        validateRange(fromDate, toDate);
+        TopK heap = new TopK(clampK(k));
+        for (Candidate candidate : loadCandidates(tieuChi, fromDate, toDate, chuyenKhoaID)) {
+            heap.offer(candidate);
+        }
+        return heap.toRanking();
+    }
+
+    /**
+     * Top-K bác sĩ của TỪNG chuyên khoa (1 query, 1 heap / chuyên khoa)
+     */
+    @Transactional(readOnly = true)
+    public List<SpecialtyRankingResponse> topDoctorsBySpecialty(
+            TieuChiXepHang tieuChi, LocalDate fromDate, LocalDate toDate, int k) {
+        validateRange(fromDate, toDate);
+        int limit = clampK(k);
+        Map<Integer, TopK> heaps = new HashMap<>();
+        Map<Integer, String> names = new HashMap<>();
+        for (Candidate candidate : loadCandidates(tieuChi, fromDate, toDate, null)) {
+            heaps.computeIfAbsent(candidate.chuyenKhoaID(), id -> new TopK(limit)).offer(candidate);
+            names.putIfAbsent(candidate.chuyenKhoaID(), candidate.tenChuyenKhoa());
+        }
+
+        List<SpecialtyRankingResponse> result = new ArrayList<>();
+        heaps.forEach((chuyenKhoaID, heap) -> result.add(SpecialtyRankingResponse.builder()
+                .chuyenKhoaID(chuyenKhoaID)
+                .tenChuyenKhoa(names.get(chuyenKhoaID))
+                .bacSi(heap.toRanking())
+                .build()));
+        result.sort(Comparator.comparing(SpecialtyRankingResponse::getTenChuyenKhoa,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
+    }
+
+    // ========================================
+    // INTERNAL
+    // ========================================
+
+    private List<Candidate> loadCandidates(
+            TieuChiXepHang tieuChi, LocalDate fromDate, LocalDate toDate, Integer chuyenKhoaID) {
+        List<Candidate> candidates = new ArrayList<>();
+
+        if (tieuChi == TieuChiXepHang.DANH_GIA) {
+            for (Object[] row : thongKeDanhGiaBacSiRepository.findAllWithDoctor(chuyenKhoaID)) {
+                long soDanhGia = toLong(row[4]);
+                if (soDanhGia < tieuChi.getMauToiThieu()) {
+                    continue;
+                }
+                double trungBinh = (double) toLong(row[5]) / soDanhGia;
+                DoctorRankingResponse item = DoctorRankingResponse.builder()
+                        .bacSiID((Integer) row[0])
+                        .tenBacSi((String) row[1])
+                        .chuyenKhoaID((Integer) row[2])
+                        .tenChuyenKhoa((String) row[3])
+                        .giaTri(BigDecimal.valueOf(trungBinh).setScale(2, RoundingMode.HALF_UP))
+                        .danhGiaTrungBinh(trungBinh)
+                        .soDanhGia(soDanhGia)
+                        .build();
+                // bằng điểm: nhiều lượt đánh giá hơn xếp trước
+                candidates.add(new Candidate(item, trungBinh, soDanhGia));
+            }
+            return candidates;
+        }
+
+        for (Object[] row : thongKeDatLichNgayRepository.summarizeByDoctor(fromDate, toDate, chuyenKhoaID)) {
+            BigDecimal doanhThu = toMoney(row[4]);
+            long soCaHoanThanh = toLong(row[5]);
+            long soLich = toLong(row[6]);
+            long soLichHuy = toLong(row[7]);
+            if (soLich < tieuChi.getMauToiThieu()) {
+                continue;
+            }
+
+            BigDecimal giaTri;
+            double score;
+            double tieBreak;
+            switch (tieuChi) {
+                case DOANH_THU -> {
+                    giaTri = doanhThu;
+                    score = doanhThu.doubleValue();
+                    tieBreak = soCaHoanThanh;
+                }
+                case SO_CA_HOAN_THANH -> {
+                    giaTri = BigDecimal.valueOf(soCaHoanThanh);
+                    score = soCaHoanThanh;
+                    tieBreak = doanhThu.doubleValue();
+                }
+                default -> { // TY_LE_HUY (%)
+                    double tyLe = soLich > 0 ? 100.0 * soLichHuy / soLich : 0;
+                    giaTri = BigDecimal.valueOf(tyLe).setScale(2, RoundingMode.HALF_UP);
+                    score = tyLe;
+                    tieBreak = soLichHuy;
+                }
+            }
+            if (tieuChi != TieuChiXepHang.TY_LE_HUY && score <= 0) {
+                continue; // chưa có doanh thu / ca hoàn thành trong khoảng
+            }
+            DoctorRankingResponse item = DoctorRankingResponse.builder()
+                    .bacSiID((Integer) row[0])
+                    .tenBacSi((String) row[1])
+                    .chuyenKhoaID((Integer) row[2])
+                    .tenChuyenKhoa((String) row[3])
+                    .giaTri(giaTri)
+                    .doanhThu(doanhThu)
+                    .soCaHoanThanh(soCaHoanThanh)
+                    .soLich(soLich)
+                    .soLichHuy(soLichHuy)
+                    .build();
+            candidates.add(new Candidate(item, score, tieBreak));
+        }
+        return candidates;
+    }
+
+    private static void validateRange(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new BadRequestException("Từ ngày phải trước hoặc bằng đến ngày");
+        }
+    }
+
+    private static int clampK(int k) {
+        return Math.max(1, Math.min(k, MAX_K));
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static BigDecimal toMoney(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal money = value instanceof BigDecimal bd ? bd : new BigDecimal(value.toString());
+        return money.setScale(0, RoundingMode.HALF_UP);
+    }
+
+    private record Candidate(DoctorRankingResponse item, double score, double tieBreak) {
+        Integer chuyenKhoaID() {
+            return item.getChuyenKhoaID();
+        }
+
+        String tenChuyenKhoa() {
+            return item.getTenChuyenKhoa();
+        }
+    }
+
+    /**
+     * Min-heap giữ K ứng viên tốt nhất: phần tử yếu nhất ở đỉnh, bị đẩy ra khi có ứng viên tốt hơn
+     */
+    private static final class TopK {
+
+        // tăng dần: điểm thấp → tieBreak thấp → bacSiID LỚN (bacSiID nhỏ thắng khi hòa)
+        private static final Comparator<Candidate> WEAKEST_FIRST = Comparator
+                .comparingDouble(Candidate::score)
+                .thenComparingDouble(Candidate::tieBreak)
+                .thenComparing(c -> c.item().getBacSiID(), Comparator.reverseOrder());
+
+        private final int k;
+        private final PriorityQueue<Candidate> heap;
+
+        TopK(int k) {
+            this.k = k;
+            this.heap = new PriorityQueue<>(k + 1, WEAKEST_FIRST);
+        }
+
+        void offer(Candidate candidate) {
+            if (heap.size() < k) {
+                heap.add(candidate);
+            } else if (WEAKEST_FIRST.compare(candidate, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+
+        List<DoctorRankingResponse> toRanking() {
+            List<Candidate> sorted = new ArrayList<>(heap);
+            sorted.sort(WEAKEST_FIRST.reversed());
+            List<DoctorRankingResponse> result = new ArrayList<>(sorted.size());
+            for (int i = 0; i < sorted.size(); i++) {
+                DoctorRankingResponse item = sorted.get(i).item();
+                item.setHang(i + 1);
+                result.add(item);
+            }
+            return result;
+        }
+    }
+}
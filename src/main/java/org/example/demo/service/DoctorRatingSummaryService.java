@@ -0,0 +1,162 @@
+package org.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.entity.ThongKeDanhGiaBacSi;
+import org.example.demo.repository.DatLichKhamRepository;
+import org.example.demo.repository.ThongKeDanhGiaBacSiRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * DoctorRatingSummaryService - Tổng hợp đánh giá theo bác sĩ (ThongKeDanhGiaBacSi)
+ *
+ * - record(): gọi trong transaction của rateBooking, cộng atomic ở DB
+ * - findByIds()/findById(): đọc cho trang chi tiết, danh sách, xếp hạng (1 query / trang)
+ * - verify(): job định kỳ tính lại từ DatLichKham, sửa dòng lệch
+ */
+@Slf4j
+@Service
+public class DoctorRatingSummaryService {
+
+    @Autowired
+    private ThongKeDanhGiaBacSiRepository thongKeDanhGiaBacSiRepository;
+
+    @Autowired
+    private DatLichKhamRepository datLichKhamRepository;
+
+    /**
+     * Ghi nhận 1 đánh giá mới (phải gọi trong transaction lưu đánh giá)
+     */
+    public void record(Integer bacSiID, int soSao) {
+        thongKeDanhGiaBacSiRepository.addRating(bacSiID, soSao);
+    }
+
+    /**
+     * Tổng hợp của nhiều bác sĩ (bác sĩ chưa có đánh giá không có trong map)
+     */
+    public Map<Integer, ThongKeDanhGiaBacSi> findByIds(Collection<Integer> bacSiIDs) {
+        Map<Integer, ThongKeDanhGiaBacSi> result = new HashMap<>();
+        if (bacSiIDs.isEmpty()) {
+            return result;
+        }
+        for (ThongKeDanhGiaBacSi summary : thongKeDanhGiaBacSiRepository.findAllById(bacSiIDs)) {
+            result.put(summary.getBacSiID(), summary);
+        }
+        return result;
+    }
+
+    public Optional<ThongKeDanhGiaBacSi> findById(Integer bacSiID) {
+        return thongKeDanhGiaBacSiRepository.findById(bacSiID);
+    }
+
+    /**
+     * Phân bố số sao toàn hệ thống, index = số sao (index 0 bỏ trống)
+     */
+    public long[] totalHistogram() {
+        long[] stars = new long[6];
+        List<Object[]> rows = thongKeDanhGiaBacSiRepository.sumHistogram();
+        if (!rows.isEmpty()) {
+            Object[] row = rows.get(0);
+            for (int soSao = 1; soSao <= 5; soSao++) {
+                Object value = row[soSao - 1];
+                stars[soSao] = value != null ? ((Number) value).longValue() : 0L;
+            }
+        }
+        return stars;
+    }
+
+    // ========================================
+    // ĐỐI SOÁT ĐỊNH KỲ
+    // ========================================
+
+    @Scheduled(cron = "${app.rating-summary.verify-cron:0 0 3 * * *}")
+    public void scheduledVerify() {
+        try {
+            verify();
+        } catch (Exception e) {
+            log.error("❌ Doctor rating summary verification failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Tính lại phân bố từ DatLichKham (1 query GROUP BY) và sửa các dòng lệch
+     * Lệch = khác phân bố số sao HOẶC SoDanhGia / TongSoSao không khớp phân bố (điểm trung bình đọc từ 2 cột này)
+     * Sửa bằng delta (đúng - hiện có); REPEATABLE READ để 2 phía đọc trên cùng 1 snapshot,
+     * đánh giá commit sau snapshot được addRating cộng riêng và vẫn còn sau khi sửa
+     *
+     * @return số bác sĩ đã sửa
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int verify() {
+        Map<Integer, long[]> expected = new HashMap<>();
+        for (Object[] row : datLichKhamRepository.countRatingsGroupByDoctorAndStars()) {
+            int soSao = ((Number) row[1]).intValue();
+            if (soSao >= 1 && soSao <= 5) {
+                expected.computeIfAbsent((Integer) row[0], k -> new long[6])[soSao] = ((Number) row[2]).longValue();
+            }
+        }
+
+        Map<Integer, ThongKeDanhGiaBacSi> actual = new HashMap<>();
+        for (ThongKeDanhGiaBacSi summary : thongKeDanhGiaBacSiRepository.findAll()) {
+            actual.put(summary.getBacSiID(), summary);
+        }
+
+        Set<Integer> ids = new HashSet<>(expected.keySet());
+        ids.addAll(actual.keySet());
+        int fixed = 0;
+        for (Integer bacSiID : ids) {
+            long[] want = expected.getOrDefault(bacSiID, new long[6]);
+            ThongKeDanhGiaBacSi have = actual.get(bacSiID);
+            if (have == null ? Arrays.stream(want).allMatch(v -> v == 0) : matches(want, have)) {
+                continue;
+            }
+            applyDelta(bacSiID, want, have);
+            fixed++;
+        }
+
+        if (fixed > 0) {
+            log.warn("⚠️ Doctor rating summary drift fixed for {} doctors", fixed);
+        } else {
+            log.info("⭐ Doctor rating summary verified ({} doctors)", ids.size());
+        }
+        return fixed;
+    }
+
+    private void applyDelta(Integer bacSiID, long[] want, ThongKeDanhGiaBacSi have) {
+        long[] phanBo = have != null ? have.getPhanBo() : new long[6];
+        long soDanhGia = 0;
+        long tongSoSao = 0;
+        long[] delta = new long[6];
+        for (int soSao = 1; soSao <= 5; soSao++) {
+            soDanhGia += want[soSao];
+            tongSoSao += soSao * want[soSao];
+            delta[soSao] = want[soSao] - phanBo[soSao];
+        }
+        if (have != null) {
+            soDanhGia -= have.getSoDanhGia() != null ? have.getSoDanhGia() : 0L;
+            tongSoSao -= have.getTongSoSao() != null ? have.getTongSoSao() : 0L;
+        }
+        thongKeDanhGiaBacSiRepository.addDelta(bacSiID, soDanhGia, tongSoSao,
+            delta[1], delta[2], delta[3], delta[4], delta[5]);
+    }
+
+    /**
+     * Dòng tổng hợp khớp phân bố mong đợi (cả số lượt và tổng số sao)
+     */
+    private static boolean matches(long[] want, ThongKeDanhGiaBacSi have) {
+        long soDanhGia = 0;
+        long tongSoSao = 0;
+        for (int soSao = 1; soSao <= 5; soSao++) {
+            soDanhGia += want[soSao];
+            tongSoSao += soSao * want[soSao];
+        }
+        return Arrays.equals(want, have.getPhanBo())
+            && have.getSoDanhGia() != null && have.getSoDanhGia() == soDanhGia
+            && have.getTongSoSao() != null && have.getTongSoSao() == tongSoSao;
+    }
+}
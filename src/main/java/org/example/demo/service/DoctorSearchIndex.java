@@ -0,0 +1,319 @@
+package org.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.dto.response.BacSiResponse;
+import org.example.demo.exception.BadRequestException;
+import org.example.demo.util.TextNormalizer;
+import org.example.demo.util.TransactionUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * DoctorSearchIndex - Chỉ mục tìm kiếm bác sĩ trong bộ nhớ
+ *
+ * Thay cho LIKE '%keyword%' trên DB:
+ * - Bỏ dấu tiếng Việt ("Nguyen" tìm được "Nguyễn")
+ * - Inverted index theo trigram trên tên bác sĩ + tên chuyên khoa
+ * - Xếp hạng: khớp tên > khớp chuyên khoa, khớp nguyên từ > tiền tố > chuỗi con
+ *
+ * Chỉ chứa bác sĩ CHƯA bị xóa. Nạp lười ở lần search đầu tiên,
+ * cập nhật tăng dần khi BacSiService create/update/delete/restore (sau commit).
+ */
+@Slf4j
+@Component
+public class DoctorSearchIndex {
+
+    private static final int GRAM = 3;
+
+    /** Trường sắp xếp hợp lệ cho search (Pageable không sort → xếp theo độ khớp) */
+    public static final Set<String> SORT_FIELDS = Set.of(
+        "relevance", "hoTen", "tenChuyenKhoa", "soNamKinhNghiem", "giaKham", "danhGiaTrungBinh");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+
+    /** Tăng mỗi lần index thay đổi, dùng để phát hiện rebuild bị "đè" bởi update đồng thời */
+    private final AtomicLong version = new AtomicLong();
+    private volatile boolean loaded = false;
+
+    // ========================================
+    // LIFECYCLE
+    // ========================================
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Nạp lại toàn bộ index từ snapshot
+     *
+     * @param doctors       danh sách bác sĩ chưa bị xóa
+     * @param startVersion  version() đọc được TRƯỚC khi query DB; nếu trong lúc query
+     *                      có update khác thì index vẫn được dùng nhưng lần sau sẽ nạp lại
+     */
+    public void rebuild(Collection<BacSiResponse> doctors, long startVersion) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+            for (BacSiResponse doctor : doctors) {
+                addInternal(doctor);
+            }
+            loaded = version.compareAndSet(startVersion, startVersion + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("🔎 Doctor search index rebuilt with {} doctors", doctors.size());
+    }
+
+    /**
+     * Đánh dấu index cần nạp lại (VD: đổi tên chuyên khoa, bác sĩ đổi tên hồ sơ)
+     */
+    public void invalidate() {
+        TransactionUtils.afterCommit(() -> {
+            version.incrementAndGet();
+            loaded = false;
+        });
+    }
+
+    /**
+     * Thêm/cập nhật 1 bác sĩ
+     */
+    public void upsert(BacSiResponse doctor) {
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeInternal(doctor.getBacSiID());
+                addInternal(doctor);
+                version.incrementAndGet();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Gỡ bác sĩ khỏi index (soft delete)
+     */
+    public void remove(Integer bacSiID) {
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeInternal(bacSiID);
+                version.incrementAndGet();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // ========================================
+    // SEARCH
+    // ========================================
+
+    /**
+     * Tìm kiếm theo tên bác sĩ hoặc tên chuyên khoa (không phân biệt dấu/hoa thường)
+     * Mỗi từ trong keyword phải xuất hiện trong tên hoặc chuyên khoa
+     *
+     * Sắp xếp theo pageable.getSort() (chỉ nhận SORT_FIELDS), hòa thì theo độ khớp;
+     * không sort → theo độ khớp
+     *
+     * @throws BadRequestException nếu sort theo trường không hỗ trợ
+     */
+    public Page<BacSiResponse> search(String keyword, Pageable pageable) {
+        Comparator<Scored> order = comparator(pageable.getSort());
+        String query = TextNormalizer.fold(keyword);
+        List<String> queryTokens = TextNormalizer.tokenize(query);
+
+        List<Scored> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Integer id : candidates(queryTokens)) {
+                Entry entry = entries.get(id);
+                int score = score(entry, query, queryTokens);
+                if (score > 0) {
+                    matches.add(new Scored(entry, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(order);
+
+        int total = matches.size();
+        int from = (int) Math.min(pageable.getOffset(), total);
+        int to = Math.min(from + pageable.getPageSize(), total);
+        List<BacSiResponse> content = matches.subList(from, to).stream()
+            .map(s -> s.entry().doctor())
+            .toList();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    // ========================================
+    // INTERNAL
+    // ========================================
+
+    private Comparator<Scored> comparator(Sort sort) {
+        Comparator<Scored> result = null;
+        for (Sort.Order order : sort) {
+            Comparator<Scored> field = switch (order.getProperty()) {
+                case "relevance" -> by(Scored::score, order.isAscending());
+                case "hoTen" -> by(s -> s.entry().name(), order.isAscending());
+                case "tenChuyenKhoa" -> by(s -> s.entry().specialty(), order.isAscending());
+                case "soNamKinhNghiem" -> by(s -> s.entry().doctor().getSoNamKinhNghiem(), order.isAscending());
+                case "giaKham" -> by(s -> s.entry().doctor().getGiaKham(), order.isAscending());
+                case "danhGiaTrungBinh" -> by(s -> s.entry().doctor().getDanhGiaTrungBinh(), order.isAscending());
+                default -> throw new BadRequestException("Không hỗ trợ sắp xếp theo '" + order.getProperty()
+                        + "'. Trường hợp lệ: " + String.join(", ", new TreeSet<>(SORT_FIELDS)));
+            };
+            result = result == null ? field : result.thenComparing(field);
+        }
+        // Mặc định / hòa: độ khớp giảm dần → tên → ID (thứ tự ổn định giữa các trang)
+        Comparator<Scored> relevance = Comparator
+            .comparingInt(Scored::score).reversed()
+            .thenComparing(s -> s.entry().name())
+            .thenComparing(s -> s.entry().doctor().getBacSiID());
+        return result == null ? relevance : result.thenComparing(relevance);
+    }
+
+    /** So sánh theo 1 trường, giá trị null luôn xếp cuối bất kể chiều */
+    private static <T extends Comparable<? super T>> Comparator<Scored> by(Function<Scored, T> key, boolean ascending) {
+        Comparator<T> natural = ascending ? Comparator.naturalOrder() : Comparator.reverseOrder();
+        return Comparator.comparing(key, Comparator.nullsLast(natural));
+    }
+
+    private Collection<Integer> candidates(List<String> queryTokens) {
+        Set<Integer> result = null;
+        for (String token : queryTokens) {
+            if (token.length() < GRAM) {
+                continue; // token ngắn: không lọc được bằng trigram, kiểm tra ở bước score
+            }
+            for (String gram : grams(token)) {
+                Set<Integer> posting = postings.getOrDefault(gram, Collections.emptySet());
+                if (result == null) {
+                    result = new HashSet<>(posting);
+                } else {
+                    result.retainAll(posting);
+                }
+                if (result.isEmpty()) {
+                    return result;
+                }
+            }
+        }
+        return result != null ? result : new ArrayList<>(entries.keySet());
+    }
+
+    private int score(Entry entry, String query, List<String> queryTokens) {
+        if (queryTokens.isEmpty()) {
+            return 1; // keyword rỗng → trả tất cả (giống LIKE '%%' trước đây)
+        }
+        int score = 0;
+        if (entry.name().equals(query)) {
+            score += 100;
+        } else if (entry.name().startsWith(query)) {
+            score += 50;
+        }
+        for (String token : queryTokens) {
+            int tokenScore = Math.max(
+                tokenScore(token, entry.name(), entry.nameTokens(), 10),
+                tokenScore(token, entry.specialty(), entry.specialtyTokens(), 4)
+            );
+            if (tokenScore == 0) {
+                return 0; // mọi từ khóa đều phải khớp
+            }
+            score += tokenScore;
+        }
+        return score;
+    }
+
+    private int tokenScore(String token, String field, List<String> fieldTokens, int weight) {
+        for (String fieldToken : fieldTokens) {
+            if (fieldToken.equals(token)) {
+                return weight * 3;
+            }
+        }
+        for (String fieldToken : fieldTokens) {
+            if (fieldToken.startsWith(token)) {
+                return weight * 2;
+            }
+        }
+        return field.contains(token) ? weight : 0;
+    }
+
+    private void addInternal(BacSiResponse doctor) {
+        String name = TextNormalizer.fold(doctor.getHoTen());
+        String specialty = TextNormalizer.fold(doctor.getTenChuyenKhoa());
+        Entry entry = new Entry(
+            doctor,
+            name,
+            specialty,
+            TextNormalizer.tokenize(name),
+            TextNormalizer.tokenize(specialty)
+        );
+        entries.put(doctor.getBacSiID(), entry);
+        for (String gram : entryGrams(entry)) {
+            postings.computeIfAbsent(gram, k -> new HashSet<>()).add(doctor.getBacSiID());
+        }
+    }
+
+    private void removeInternal(Integer bacSiID) {
+        Entry old = entries.remove(bacSiID);
+        if (old == null) {
+            return;
+        }
+        for (String gram : entryGrams(old)) {
+            Set<Integer> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(bacSiID);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private Set<String> entryGrams(Entry entry) {
+        Set<String> result = new HashSet<>();
+        for (String token : entry.nameTokens()) {
+            result.addAll(grams(token));
+        }
+        for (String token : entry.specialtyTokens()) {
+            result.addAll(grams(token));
+        }
+        return result;
+    }
+
+    private static List<String> grams(String token) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i + GRAM <= token.length(); i++) {
+            result.add(token.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private record Entry(
+        BacSiResponse doctor,
+        String name,
+        String specialty,
+        List<String> nameTokens,
+        List<String> specialtyTokens
+    ) {
+    }
+
+    private record Scored(Entry entry, int score) {
+    }
+}
@@ -0,0 +1,594 @@
+package org.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.dto.response.EmailDeliveryStatsResponse;
+import org.example.demo.entity.NguoiDung;
+import org.example.demo.entity.ThongBao;
+import org.example.demo.enums.LoaiThongBao;
+import org.example.demo.repository.ThongBaoJdbcRepository;
+import org.example.demo.repository.ThongBaoRepository;
+import org.example.demo.util.CoalescingBuffer;
+import org.example.demo.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EmailDeliveryService - Gửi email thông báo nền, tách khỏi luồng HTTP
+ *
+ * - N worker, mỗi worker 1 hàng đợi có giới hạn; email của cùng 1 người nhận luôn vào cùng hàng đợi
+ *   → gửi đúng thứ tự tạo cho từng người nhận
+ * - Đưa vào hàng đợi SAU KHI transaction commit (rollback thì không gửi)
+ * - Hàng đợi đầy: chờ tối đa offer-timeout-ms rồi bỏ qua, ThongBao giữ DaGuiEmail = false
+ *   → job quét định kỳ đưa lại vào hàng đợi
+ * - DaGuiEmail được đánh dấu gộp bằng markEmailsAsSent (1 UPDATE / lô)
+ * - Gửi lỗi: tăng SoLanGuiEmailLoi + ghi EmailGuiLaiLuc (backoff lũy thừa + jitter), job quét gửi lại khi đến hạn
+ *   (không giới hạn tuổi thông báo); lỗi vĩnh viễn hoặc đủ app.email.retry.max-attempts lần
+ *   → chép sang ThongBaoEmailLoi (dead-letter). Lỗi cả lô (không lấy được kết nối SMTP...) chỉ hẹn gửi lại,
+ *   không tính vào số lần thử
+ * - Loại không gấp (LoaiThongBao.canDigestEmail) được giữ app.email.digest.window-seconds theo người nhận
+ *   rồi gộp thành 1 email tổng hợp; loại gấp gửi ngay, kéo theo phần đang giữ của người nhận đó (giữ thứ tự).
+ *   ThongBao in-app không đổi, chỉ email được gộp.
+ */
+@Slf4j
+@Service
+public class EmailDeliveryService {
+
+    private static final int MARK_SENT_CHUNK = 500;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private ThongBaoRepository thongBaoRepository;
+
+    @Autowired
+    private ThongBaoJdbcRepository thongBaoJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NotificationTemplateService templateService;
+
+    /**
+     * Dữ liệu đủ để gửi 1 email, chụp lúc tạo thông báo (worker không chạm entity / lazy loading)
+     * Email tổng hợp mang nhiều ThongBaoID, tất cả được đánh dấu DaGuiEmail khi gửi xong
+     */
+    public record EmailJob(List<Integer> thongBaoIDs, String toEmail, String subject, String text, String html) {
+    }
+
+    /**
+     * Email chưa render, chờ quyết định gửi riêng hay gộp
+     */
+    private record PendingEmail(Integer thongBaoID, String email, String hoTen, LoaiThongBao loai,
+                                String tieuDe, String noiDung, String html) {
+    }
+
+    /**
+     * 1 lần gửi lỗi, chờ ghi nhận (ThongBaoID vẫn giữ trong inFlight tới khi ghi xong)
+     *
+     * @param counted false: lỗi hạ tầng của cả lô, chỉ hẹn gửi lại, không tăng số lần lỗi
+     */
+    private record FailedEmail(List<Integer> thongBaoIDs, String error, boolean permanent, boolean counted) {
+    }
+
+    private final List<BlockingQueue<EmailJob>> lanes;
+    private final List<Thread> workers = new ArrayList<>();
+    private final long offerTimeoutMillis;
+    private final int batchSize;
+    private final int sweepAgeMinutes;
+    private final int sweepMaxAgeHours;
+    private final int sweepBatchSize;
+    // null: tắt gộp email (window-seconds = 0)
+    private final CoalescingBuffer<String, PendingEmail> digestBuffer;
+    private final int digestMaxHeld;
+    private final int maxAttempts;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+
+    // ThongBaoID đang nằm trong hàng đợi / đã gửi nhưng chưa đánh dấu → job quét không đưa vào lần nữa
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+    private final Queue<Integer> sentIds = new ConcurrentLinkedQueue<>();
+    private final Queue<FailedEmail> failures = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong emailsSent = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+    private final AtomicLong retriesQueued = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile boolean running = true;
+
+    public EmailDeliveryService(
+        @Value("${app.email.workers:4}") int workerCount,
+        @Value("${app.email.queue-capacity:1000}") int queueCapacity,
+        @Value("${app.email.offer-timeout-ms:100}") long offerTimeoutMillis,
+        @Value("${app.email.batch-size:20}") int batchSize,
+        @Value("${app.email.sweep-age-minutes:10}") int sweepAgeMinutes,
+        @Value("${app.email.sweep-max-age-hours:24}") int sweepMaxAgeHours,
+        @Value("${app.email.sweep-batch-size:200}") int sweepBatchSize,
+        @Value("${app.email.digest.window-seconds:300}") long digestWindowSeconds,
+        @Value("${app.email.digest.max-items:10}") int digestMaxItems,
+        @Value("${app.email.digest.max-held:5000}") int digestMaxHeld,
+        @Value("${app.email.retry.max-attempts:5}") int maxAttempts,
+        @Value("${app.email.retry.base-delay-seconds:60}") long retryBaseSeconds,
+        @Value("${app.email.retry.max-delay-seconds:3600}") long retryMaxSeconds
+    ) {
+        int laneCount = Math.max(workerCount, 1);
+        int laneCapacity = Math.max(queueCapacity / laneCount, 1);
+        this.lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new ArrayBlockingQueue<>(laneCapacity));
+        }
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.batchSize = Math.max(batchSize, 1);
+        this.sweepAgeMinutes = sweepAgeMinutes;
+        this.sweepMaxAgeHours = sweepMaxAgeHours;
+        this.sweepBatchSize = sweepBatchSize;
+        this.digestBuffer = digestWindowSeconds > 0
+            ? new CoalescingBuffer<>(TimeUnit.SECONDS.toMillis(digestWindowSeconds), digestMaxItems)
+            : null;
+        this.digestMaxHeld = digestMaxHeld;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.retryBaseMillis = TimeUnit.SECONDS.toMillis(Math.max(retryBaseSeconds, 1));
+        this.retryMaxMillis = Math.max(TimeUnit.SECONDS.toMillis(retryMaxSeconds), retryBaseMillis);
+    }
+
+    @PostConstruct
+    void startWorkers() {
+        for (int i = 0; i < lanes.size(); i++) {
+            BlockingQueue<EmailJob> lane = lanes.get(i);
+            Thread worker = new Thread(() -> runWorker(lane), "email-worker-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("📧 Email delivery started: {} workers, {} slots/worker", lanes.size(), lanes.get(0).remainingCapacity());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Email đang giữ để gộp → gửi luôn trước khi worker dừng
+        if (digestBuffer != null) {
+            digestBuffer.drainAll().forEach(group -> submit(toJob(group)));
+        }
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            flushSentFlags();
+        } catch (Exception e) {
+            log.warn("⚠️ Could not flush email sent flags on shutdown: {}", e.getMessage());
+        }
+    }
+
+    // ========================================
+    // ENQUEUE
+    // ========================================
+
+    /**
+     * Đưa email của thông báo vào hàng đợi sau khi transaction hiện tại commit
+     * Gọi trong transaction đã lưu ThongBao (cần thongBaoID + người nhận đã nạp)
+     *
+     * @param html bản HTML render từ cùng mẫu nội dung (null: dựng từ nội dung đã lưu)
+     */
+    public void enqueue(ThongBao notification, String html) {
+        NguoiDung recipient = notification.getNguoiNhan();
+        if (recipient == null) {
+            return;
+        }
+        enqueue(
+            notification.getThongBaoID(),
+            recipient.getEmail(),
+            recipient.getHoTen(),
+            notification.getLoaiThongBao(),
+            notification.getTieuDe(),
+            notification.getNoiDung(),
+            html
+        );
+    }
+
+    /**
+     * Như enqueue(ThongBao, String) cho ThongBao ghi bằng JDBC (không có entity)
+     */
+    public void enqueue(Integer thongBaoID, String email, String hoTen, LoaiThongBao loai,
+                        String tieuDe, String noiDung, String html) {
+        if (email == null || email.isBlank()) {
+            return;
+        }
+        PendingEmail pending = new PendingEmail(thongBaoID, email, hoTen, loai, tieuDe, noiDung, html);
+        TransactionUtils.afterCommit(() -> accept(pending));
+    }
+
+    /**
+     * Giữ lại để gộp (loại không gấp) hoặc đưa ngay vào hàng đợi
+     *
+     * @return false nếu hàng đợi đầy (email sẽ được job quét gửi lại)
+     */
+    private boolean accept(PendingEmail pending) {
+        Integer id = pending.thongBaoID();
+        if (id != null && !inFlight.add(id)) {
+            return true; // đã nằm trong hàng đợi / đang giữ để gộp
+        }
+        if (digestBuffer == null) {
+            return submit(toJob(List.of(pending)));
+        }
+
+        String key = pending.email().toLowerCase();
+        if (pending.loai() != null && pending.loai().canDigestEmail() && digestBuffer.size() < digestMaxHeld) {
+            List<PendingEmail> full = digestBuffer.add(key, pending, System.currentTimeMillis());
+            if (full != null) {
+                submit(toJob(full));
+            }
+            return true;
+        }
+        // Gửi ngay: phần đang giữ của người nhận đi trước để giữ đúng thứ tự
+        List<PendingEmail> held = digestBuffer.remove(key);
+        if (held != null) {
+            submit(toJob(held));
+        }
+        return submit(toJob(List.of(pending)));
+    }
+
+    /**
+     * 1 thông báo → email thường; nhiều thông báo → email tổng hợp
+     */
+    private EmailJob toJob(List<PendingEmail> group) {
+        PendingEmail first = group.get(0);
+        List<Integer> ids = group.stream().map(PendingEmail::thongBaoID).filter(Objects::nonNull).toList();
+        if (group.size() == 1) {
+            return new EmailJob(
+                ids,
+                first.email(),
+                first.tieuDe(),
+                templateService.renderEmailText(first.hoTen(), first.noiDung()),
+                first.html() != null
+                    ? first.html()
+                    : templateService.renderStoredEmailHtml(first.loai(), first.hoTen(), first.tieuDe(), first.noiDung())
+            );
+        }
+        List<NotificationTemplateService.DigestItem> items = group.stream()
+            .map(p -> new NotificationTemplateService.DigestItem(p.loai(), p.tieuDe(), p.noiDung()))
+            .toList();
+        return new EmailJob(
+            ids,
+            first.email(),
+            templateService.renderDigestSubject(group.size()),
+            templateService.renderDigestText(first.hoTen(), items),
+            templateService.renderDigestHtml(first.hoTen(), items)
+        );
+    }
+
+    /**
+     * @return false nếu hàng đợi đầy (bỏ đánh dấu đang gửi, job quét gửi lại sau)
+     */
+    boolean submit(EmailJob job) {
+        BlockingQueue<EmailJob> lane = laneOf(job.toEmail());
+        try {
+            if (lane.offer(job, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        job.thongBaoIDs().forEach(inFlight::remove);
+        log.warn("⚠️ Email queue full, deferred notifications {} to {}", job.thongBaoIDs(), job.toEmail());
+        return false;
+    }
+
+    private BlockingQueue<EmailJob> laneOf(String email) {
+        return lanes.get(Math.floorMod(email.toLowerCase().hashCode(), lanes.size()));
+    }
+
+    /**
+     * Gửi các nhóm email đã hết cửa sổ gộp (app.email.digest.flush-interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.email.digest.flush-interval-ms:5000}")
+    public void flushDigests() {
+        if (digestBuffer == null) {
+            return;
+        }
+        for (List<PendingEmail> group : digestBuffer.drainDue(System.currentTimeMillis())) {
+            if (group.size() > 1) {
+                log.debug("📧 Coalesced {} notifications into 1 digest email to {}", group.size(), group.get(0).email());
+            }
+            submit(toJob(group));
+        }
+    }
+
+    // ========================================
+    // WORKER
+    // ========================================
+
+    /**
+     * Lấy 1 job, gom thêm các job đang chờ (tối đa batch-size) rồi gửi chung 1 kết nối SMTP
+     */
+    private void runWorker(BlockingQueue<EmailJob> lane) {
+        List<EmailJob> batch = new ArrayList<>(batchSize);
+        while (running || !lane.isEmpty()) {
+            EmailJob first;
+            try {
+                first = lane.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.clear();
+            batch.add(first);
+            lane.drainTo(batch, batchSize - 1);
+            deliver(batch);
+        }
+    }
+
+    private void deliver(List<EmailJob> batch) {
+        List<SmtpMailSender.SendResult> results;
+        try {
+            List<MimeMessage> messages = batch.stream()
+                .map(job -> emailService.buildNotificationMessage(job.toEmail(), job.subject(), job.text(), job.html()))
+                .toList();
+            results = emailService.sendNotificationEmails(messages);
+        } catch (Exception e) {
+            // Không lấy được kết nối SMTP... → cả lô lỗi tạm thời, không phải lỗi của từng email
+            log.error("❌ Failed to send {} notification emails: {}", batch.size(), e.getMessage());
+            batch.forEach(job -> fail(job, e.getMessage(), false, false));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            EmailJob job = batch.get(i);
+            SmtpMailSender.SendResult result = results.get(i);
+            if (result.success()) {
+                sentIds.addAll(job.thongBaoIDs());
+                emailsSent.incrementAndGet();
+            } else {
+                log.error("❌ Failed to send email for notifications {}: {}", job.thongBaoIDs(), result.error());
+                fail(job, result.error(), result.permanent(), true);
+            }
+        }
+    }
+
+    private void fail(EmailJob job, String error, boolean permanent, boolean counted) {
+        sendFailures.incrementAndGet();
+        if (job.thongBaoIDs().isEmpty()) {
+            return;
+        }
+        failures.add(new FailedEmail(job.thongBaoIDs(), error, permanent, counted));
+    }
+
+    // ========================================
+    // SCHEDULED: ĐÁNH DẤU ĐÃ GỬI + QUÉT EMAIL TỒN
+    // ========================================
+
+    /**
+     * Đánh dấu DaGuiEmail cho các email đã gửi + ghi nhận email lỗi, gộp theo lô (app.email.flush-interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.email.flush-interval-ms:2000}")
+    public void flushSentFlags() {
+        flushFailures();
+        if (sentIds.isEmpty()) {
+            return;
+        }
+        List<Integer> batch = new ArrayList<>();
+        Integer id;
+        while ((id = sentIds.poll()) != null) {
+            batch.add(id);
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < batch.size(); from += MARK_SENT_CHUNK) {
+            List<Integer> chunk = batch.subList(from, Math.min(from + MARK_SENT_CHUNK, batch.size()));
+            try {
+                tx.executeWithoutResult(status -> thongBaoRepository.markEmailsAsSent(chunk, now));
+                chunk.forEach(inFlight::remove);
+            } catch (Exception e) {
+                // Trả lại hàng đợi đánh dấu, thử lại ở lượt sau
+                sentIds.addAll(chunk);
+                log.error("❌ Failed to mark {} emails as sent: {}", chunk.size(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ghi số lần lỗi + thời điểm gửi lại (backoff); bỏ cuộc → dead-letter
+     * Mỗi lô trong 1 transaction: tăng số lần lỗi, đọc lại, hẹn gửi lại (+ INSERT dead-letter)
+     */
+    private void flushFailures() {
+        if (failures.isEmpty()) {
+            return;
+        }
+        Map<Integer, FailedEmail> byId = new HashMap<>();
+        FailedEmail polled;
+        while ((polled = failures.poll()) != null) {
+            for (Integer id : polled.thongBaoIDs()) {
+                byId.put(id, polled);
+            }
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Integer> ids = new ArrayList<>(byId.keySet());
+        for (int from = 0; from < ids.size(); from += MARK_SENT_CHUNK) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + MARK_SENT_CHUNK, ids.size()));
+            try {
+                Integer dead = tx.execute(status -> recordFailures(chunk, byId));
+                deadLettered.addAndGet(dead != null ? dead : 0);
+                chunk.forEach(inFlight::remove);
+            } catch (Exception e) {
+                // Giữ trong inFlight (không bị quét gửi lại ngay), thử ghi lại ở lượt sau
+                for (Integer id : chunk) {
+                    FailedEmail failed = byId.get(id);
+                    failures.add(new FailedEmail(List.of(id), failed.error(), failed.permanent(), failed.counted()));
+                }
+                log.error("❌ Failed to record {} email failures: {}", chunk.size(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return số thông báo chuyển sang dead-letter
+     */
+    private int recordFailures(List<Integer> chunk, Map<Integer, FailedEmail> byId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ThongBaoJdbcRepository.EmailFailure> counted = new ArrayList<>(chunk.size());
+        List<ThongBaoJdbcRepository.EmailFailure> schedules = new ArrayList<>(chunk.size());
+        for (Integer id : chunk) {
+            FailedEmail failed = byId.get(id);
+            if (failed.counted()) {
+                counted.add(new ThongBaoJdbcRepository.EmailFailure(id, 0, null, failed.error()));
+            } else {
+                // Lỗi hạ tầng: hẹn lại sau 1 khoảng backoff đầu tiên, giữ nguyên số lần lỗi
+                schedules.add(new ThongBaoJdbcRepository.EmailFailure(
+                    id, 0, now.plus(backoffMillis(1), ChronoUnit.MILLIS), failed.error()));
+            }
+        }
+
+        // Tăng trong DB rồi đọc lại (dòng đang bị khóa bởi UPDATE) → số lần lỗi đúng kể cả khi nhiều instance cùng ghi
+        thongBaoJdbcRepository.incrementEmailFailures(counted);
+        Map<Integer, Integer> attemptsById = new HashMap<>();
+        if (!counted.isEmpty()) {
+            List<Integer> countedIds = counted.stream().map(ThongBaoJdbcRepository.EmailFailure::thongBaoID).toList();
+            for (Object[] row : thongBaoRepository.findEmailFailureCounts(countedIds)) {
+                attemptsById.put((Integer) row[0], ((Number) row[1]).intValue());
+            }
+        }
+
+        List<ThongBaoJdbcRepository.EmailFailure> deadLetters = new ArrayList<>();
+        for (ThongBaoJdbcRepository.EmailFailure pending : counted) {
+            Integer attempts = attemptsById.get(pending.thongBaoID());
+            if (attempts == null) {
+                continue; // đã được gửi (DaGuiEmail = 1) ở lượt / instance khác
+            }
+            boolean giveUp = byId.get(pending.thongBaoID()).permanent() || attempts >= maxAttempts;
+            ThongBaoJdbcRepository.EmailFailure failure = new ThongBaoJdbcRepository.EmailFailure(
+                pending.thongBaoID(), attempts,
+                giveUp ? null : now.plus(backoffMillis(attempts), ChronoUnit.MILLIS), pending.loi());
+            schedules.add(failure);
+            if (giveUp) {
+                deadLetters.add(failure);
+            }
+        }
+        thongBaoJdbcRepository.insertEmailDeadLetters(deadLetters, now);
+        thongBaoJdbcRepository.scheduleEmailRetries(schedules);
+        if (!deadLetters.isEmpty()) {
+            log.warn("⚠️ {} notification emails moved to dead-letter", deadLetters.size());
+        }
+        return deadLetters.size();
+    }
+
+    /**
+     * Backoff lũy thừa có jitter: base * 2^(lần - 1), tối đa max-delay, lấy ngẫu nhiên trong [50%, 100%]
+     * → các email lỗi cùng lúc (SMTP sập) không quay lại cùng 1 thời điểm
+     */
+    private long backoffMillis(int attempts) {
+        int shift = Math.min(attempts - 1, 30);
+        long delay = Math.min(retryBaseMillis << shift, retryMaxMillis);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Đưa lại vào hàng đợi các thông báo chưa gửi email (hàng đợi từng đầy, lỗi SMTP đến hạn gửi lại, restart...)
+     * Đã hẹn gửi lại: EmailGuiLaiLuc đã đến và chưa đủ max-attempts lần (không giới hạn tuổi)
+     * Chưa gửi lần nào: thông báo trong khoảng [now - sweep-max-age-hours, now - sweep-age-minutes]
+     */
+    @Scheduled(
+        fixedDelayString = "${app.email.sweep-interval-ms:60000}",
+        initialDelayString = "${app.email.sweep-interval-ms:60000}"
+    )
+    public void sweepPendingEmails() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            List<Object[]> rows = tx.execute(status -> {
+                List<Object[]> found = new ArrayList<>(thongBaoRepository.findDueEmailRetries(
+                    maxAttempts, now, PageRequest.of(0, sweepBatchSize)));
+                found.addAll(thongBaoRepository.findPendingEmailJobs(
+                    now.minusHours(sweepMaxAgeHours),
+                    now.minusMinutes(sweepAgeMinutes),
+                    PageRequest.of(0, sweepBatchSize)
+                ));
+                return found;
+            });
+            if (rows == null || rows.isEmpty()) {
+                return;
+            }
+
+            int queued = 0;
+            for (Object[] row : rows) {
+                String email = (String) row[1];
+                if (email == null || email.isBlank()) {
+                    continue;
+                }
+                PendingEmail pending = new PendingEmail((Integer) row[0], email, (String) row[2],
+                    (LoaiThongBao) row[5], (String) row[3], (String) row[4], null);
+                if (!accept(pending)) {
+                    break; // hàng đợi đầy, để lượt sau
+                }
+                if (((Number) row[6]).intValue() > 0) {
+                    retriesQueued.incrementAndGet();
+                }
+                queued++;
+            }
+            log.info("📧 Re-queued {}/{} pending notification emails", queued, rows.size());
+        } catch (Exception e) {
+            log.error("❌ Pending email sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // ========================================
+    // METRICS
+    // ========================================
+
+    /**
+     * Số liệu hàng đợi / gửi lại: số lần lỗi, gửi lại tăng nhanh → nhà cung cấp email đang có vấn đề
+     */
+    public EmailDeliveryStatsResponse getStats() {
+        int queued = 0;
+        for (BlockingQueue<EmailJob> lane : lanes) {
+            queued += lane.size();
+        }
+        return EmailDeliveryStatsResponse.builder()
+            .soEmailTrongHangDoi(queued)
+            .soEmailDangGiuDeGop(digestBuffer != null ? digestBuffer.size() : 0)
+            .soThongBaoDangXuLy(inFlight.size())
+            .soLoiChoGhiNhan(failures.size())
+            .soEmailDaGui(emailsSent.get())
+            .soLanGuiLoi(sendFailures.get())
+            .soLanGuiLai(retriesQueued.get())
+            .soChuyenDeadLetter(deadLettered.get())
+            .tongDeadLetter(thongBaoJdbcRepository.countEmailDeadLetters())
+            .build();
+    }
+}
@@ -1,42 +1,40 @@
 package org.example.demo.service;
 
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.example.demo.enums.MauThongBao;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * EmailService - Gửi email cho user
  * Chức năng:
  * 1. Gửi email verification khi đăng ký
  * 2. Gửi email reset password
  * 3. Gửi email thông báo (appointment confirmed, cancelled...)
+ * Mọi email đi qua SmtpMailSender (pool kết nối SMTP dùng lại + giới hạn tốc độ)
+ * Nội dung render từ mẫu MauThongBao đã biên dịch, gửi kèm cả bản text và HTML
  */
 @Service
 public class EmailService {
 
+    private static final String SUBJECT_SUFFIX = " - HealthCare Booking";
+
     @Autowired
-    private JavaMailSender mailSender;
+    private SmtpMailSender smtpMailSender;
+
+    @Autowired
+    private NotificationTemplateService templateService;
 
     /**
      * Gửi email xác thực sau khi đăng ký
      */
     public void sendVerificationEmail(String toEmail, String hoTen, String verificationCode) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(toEmail);
-        message.setSubject("Xác thực tài khoản - HealthCare Booking");
-        message.setText(String.format(
-            "Xin chào %s,\n\n" +
-            "Cảm ơn bạn đã đăng ký tài khoản tại HealthCare Booking.\n\n" +
-            "Mã xác thực của bạn là: %s\n\n" +
-            "Mã này sẽ hết hạn sau 15 phút.\n\n" +
-            "Nếu bạn không thực hiện đăng ký này, vui lòng bỏ qua email này.\n\n" +
-            "Trân trọng,\n" +
-            "HealthCare Booking Team",
-            hoTen, verificationCode
-        ));
-        
-        mailSender.send(message);
+        sendTemplate(toEmail, hoTen, MauThongBao.XAC_THUC_TAI_KHOAN, verificationCode);
         System.out.println("Sent verification email to: " + toEmail);
     }
 
@@ -51,21 +49,7 @@ public class EmailService {
      * Gửi email reset password
      */
     public void sendPasswordResetEmail(String toEmail, String hoTen, String resetCode) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(toEmail);
-        message.setSubject("Đặt lại mật khẩu - HealthCare Booking");
-        message.setText(String.format(
-            "Xin chào %s,\n\n" +
-            "Chúng tôi nhận được yêu cầu đặt lại mật khẩu cho tài khoản của bạn.\n\n" +
-            "Mã đặt lại mật khẩu của bạn là: %s\n\n" +
-            "Mã này sẽ hết hạn sau 15 phút.\n\n" +
-            "Nếu bạn không thực hiện yêu cầu này, vui lòng bỏ qua email này.\n\n" +
-            "Trân trọng,\n" +
-            "HealthCare Booking Team",
-            hoTen, resetCode
-        ));
-        
-        mailSender.send(message);
+        sendTemplate(toEmail, hoTen, MauThongBao.DAT_LAI_MAT_KHAU, resetCode);
         System.out.println("Sent password reset email to: " + toEmail);
     }
 
@@ -73,23 +57,7 @@ public class EmailService {
      * Gửi email thông báo lịch đã được xác nhận
      */
     public void sendAppointmentConfirmedEmail(String toEmail, String hoTen, String ngayKham, String gioKham, String bacSi) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(toEmail);
-        message.setSubject("Lịch khám đã được xác nhận - HealthCare Booking");
-        message.setText(String.format(
-            "Xin chào %s,\n\n" +
-            "Lịch khám của bạn đã được xác nhận.\n\n" +
-            "Thông tin lịch khám:\n" +
-            "- Bác sĩ: %s\n" +
-            "- Ngày khám: %s\n" +
-            "- Giờ khám: %s\n\n" +
-            "Vui lòng đến đúng giờ. Nếu cần hủy lịch, vui lòng thông báo trước ít nhất 2 giờ.\n\n" +
-            "Trân trọng,\n" +
-            "HealthCare Booking Team",
-            hoTen, bacSi, ngayKham, gioKham
-        ));
-        
-        mailSender.send(message);
+        sendTemplate(toEmail, hoTen, MauThongBao.LICH_DA_XAC_NHAN, bacSi, ngayKham, gioKham);
         System.out.println("Sent appointment confirmed email to: " + toEmail);
     }
 
@@ -97,19 +65,50 @@ public class EmailService {
      * Gửi email thông báo chung (dùng cho NotificationService)
      */
     public void sendNotificationEmail(String toEmail, String hoTen, String subject, String content) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(toEmail);
-        message.setSubject(subject + " - HealthCare Booking");
-        message.setText(String.format(
-            "Xin chào %s,\n\n" +
-            "%s\n\n" +
-            "Trân trọng,\n" +
-            "HealthCare Booking Team",
-            hoTen, content
+        smtpMailSender.sendOrThrow(buildNotificationMessage(
+            toEmail,
+            subject,
+            templateService.renderEmailText(hoTen, content),
+            templateService.renderStoredEmailHtml(null, hoTen, subject, content)
         ));
-        
-        mailSender.send(message);
         System.out.println("Sent notification email to: " + toEmail);
     }
-}
 
+    /**
+     * Gửi 1 lô email thông báo trên cùng 1 kết nối SMTP
+     * @return kết quả từng email, theo thứ tự đầu vào
+     */
+    public List<SmtpMailSender.SendResult> sendNotificationEmails(List<MimeMessage> messages) {
+        return smtpMailSender.send(messages);
+    }
+
+    /**
+     * Tạo email thông báo gồm bản text và bản HTML (html = null: chỉ gửi text)
+     */
+    public MimeMessage buildNotificationMessage(String toEmail, String subject, String text, String html) {
+        MimeMessage message = smtpMailSender.createMimeMessage();
+        try {
+            MimeMessageHelper helper = new MimeMessageHelper(message, html != null, "UTF-8");
+            helper.setTo(toEmail);
+            helper.setSubject(subject + SUBJECT_SUFFIX);
+            if (html != null) {
+                helper.setText(text, html);
+            } else {
+                helper.setText(text);
+            }
+        } catch (MessagingException e) {
+            throw new MailPreparationException("Không tạo được email tới " + toEmail, e);
+        }
+        return message;
+    }
+
+    private void sendTemplate(String toEmail, String hoTen, MauThongBao mau, Object... values) {
+        NotificationTemplateService.RenderedNotification rendered = templateService.render(mau, values);
+        smtpMailSender.sendOrThrow(buildNotificationMessage(
+            toEmail,
+            rendered.tieuDe(),
+            templateService.renderEmailText(hoTen, rendered.noiDung()),
+            templateService.renderEmailHtml(mau, hoTen, values)
+        ));
+    }
+}
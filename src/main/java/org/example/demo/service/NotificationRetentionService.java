@@ -0,0 +1,144 @@
+package org.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.repository.ThongBaoJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * NotificationRetentionService - Dọn thông báo đã đọc quá hạn lưu (app.notification-retention.days)
+ *
+ * Thay cho 1 câu DELETE không giới hạn trong 1 transaction (khóa bảng vài phút, phình undo log):
+ * - Đi theo khóa chính (keyset), mỗi lô tối đa chunk-size dòng là 1 transaction ngắn
+ * - Mỗi lô: (tuỳ chọn) chép sang ThongBaoLuuTru rồi DELETE trên đúng khoảng ID của lô
+ * - Nghỉ pause-ms giữa các lô để nhường I/O cho request thật
+ * Báo cáo số dòng / giây khi xong (log + kết quả trả về).
+ */
+@Slf4j
+@Service
+public class NotificationRetentionService {
+
+    @Autowired
+    private ThongBaoJdbcRepository thongBaoJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.notification-retention.days:90}")
+    private int retentionDays;
+
+    @Value("${app.notification-retention.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.notification-retention.pause-ms:200}")
+    private long pauseMillis;
+
+    @Value("${app.notification-retention.archive:false}")
+    private boolean archive;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Kết quả 1 lần dọn
+     */
+    public record RetentionResult(long deleted, long archived, int chunks, long elapsedMillis) {
+
+        public double rowsPerSecond() {
+            return elapsedMillis > 0 ? deleted * 1000.0 / elapsedMillis : deleted;
+        }
+    }
+
+    /**
+     * Mặc định 02:00 mỗi đêm (app.notification-retention.cron)
+     */
+    @Scheduled(cron = "${app.notification-retention.cron:0 0 2 * * *}")
+    public void scheduledCleanup() {
+        try {
+            cleanup(LocalDateTime.now().minusDays(retentionDays));
+        } catch (Exception e) {
+            log.error("❌ Notification retention job failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Dọn thông báo đã đọc có ThoiGian < cutoff
+     *
+     * @return kết quả; null nếu đang có 1 lần dọn khác chạy
+     */
+    public RetentionResult cleanup(LocalDateTime cutoff) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("⚠️ Notification retention already running, skipped");
+            return null;
+        }
+        try {
+            return runChunks(cutoff);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private RetentionResult runChunks(LocalDateTime cutoff) {
+        long start = System.currentTimeMillis();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        long deleted = 0;
+        long archived = 0;
+        int chunks = 0;
+        int afterId = 0;
+        while (true) {
+            int fromExclusive = afterId;
+            List<Integer> ids = thongBaoJdbcRepository.findExpiredIds(fromExclusive, cutoff, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            int toInclusive = ids.get(ids.size() - 1);
+
+            int[] counts = tx.execute(status -> {
+                int copied = archive
+                    ? thongBaoJdbcRepository.archiveRange(fromExclusive, toInclusive, cutoff, LocalDateTime.now())
+                    : 0;
+                return new int[] {thongBaoJdbcRepository.deleteRange(fromExclusive, toInclusive, cutoff), copied};
+            });
+            deleted += counts[0];
+            archived += counts[1];
+            chunks++;
+            afterId = toInclusive;
+
+            if (ids.size() < chunkSize || !pause()) {
+                break;
+            }
+        }
+
+        RetentionResult result = new RetentionResult(deleted, archived, chunks, System.currentTimeMillis() - start);
+        log.info("🧹 Notification retention (< {}): {} deleted, {} archived in {} chunks, {} ms ({} rows/s)",
+            cutoff, result.deleted(), result.archived(), result.chunks(), result.elapsedMillis(),
+            String.format("%.1f", result.rowsPerSecond()));
+        return result;
+    }
+
+    /**
+     * Nghỉ giữa 2 lô
+     *
+     * @return false nếu luồng bị interrupt (tắt app) → dừng, lần sau chạy tiếp từ đầu
+     */
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -4,7 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.example.demo.entity.DatLichKham;
 import org.example.demo.entity.NguoiDung;
 import org.example.demo.entity.ThongBao;
-import org.example.demo.enums.LoaiThongBao;
+import org.example.demo.enums.MauThongBao;
 import org.example.demo.exception.ResourceNotFoundException;
 import org.example.demo.repository.DatLichKhamRepository;
 import org.example.demo.repository.NguoiDungRepository;
@@ -17,7 +17,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -44,10 +44,22 @@ public class NotificationService {
     private DatLichKhamRepository datLichKhamRepository;
 
     @Autowired
-    private EmailService emailService;
+    private EmailDeliveryService emailDeliveryService;
 
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    @Autowired
+    private NotificationTemplateService templateService;
+
+    @Autowired
+    private BookingReminderService bookingReminderService;
+
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+
+    @Autowired
+    private NotificationRetentionService notificationRetentionService;
 
     // ========================================
     // CORE NOTIFICATION METHODS
@@ -61,44 +73,40 @@ public class NotificationService {
         DatLichKham booking = getBooking(datLichID);
         
         // 1. Thông báo cho BỆNH NHÂN
+        Object[] patientValues = {
+            booking.getBacSi().getNguoiDung().getHoTen(),
+            booking.getGioKham(),
+            booking.getNgayKham()
+        };
         ThongBao patientNotif = createNotification(
             booking.getBenhNhan(),
-            LoaiThongBao.DAT_LICH_MOI,
-            "Đặt lịch khám thành công",
-            String.format(
-                "Bạn đã đặt lịch khám với %s vào lúc %s ngày %s. " +
-                "Vui lòng chờ bác sĩ xác nhận.",
-                booking.getBacSi().getNguoiDung().getHoTen(),
-                booking.getGioKham().format(TIME_FORMATTER),
-                booking.getNgayKham().format(DATE_FORMATTER)
-            ),
+            MauThongBao.DAT_LICH_BENH_NHAN,
+            patientValues,
             booking,
             "/bookings/" + datLichID
         );
         thongBaoRepository.save(patientNotif);
 
         // 2. Thông báo cho BÁC SĨ
+        Object[] doctorValues = {
+            booking.getBenhNhan().getHoTen(),
+            booking.getGioKham(),
+            booking.getNgayKham()
+        };
         ThongBao doctorNotif = createNotification(
             booking.getBacSi().getNguoiDung(),
-            LoaiThongBao.DAT_LICH_MOI,
-            "Yêu cầu xác nhận lịch khám mới",
-            String.format(
-                "Bệnh nhân %s đã đặt lịch khám vào lúc %s ngày %s. " +
-                "Vui lòng xác nhận hoặc từ chối lịch hẹn này.",
-                booking.getBenhNhan().getHoTen(),
-                booking.getGioKham().format(TIME_FORMATTER),
-                booking.getNgayKham().format(DATE_FORMATTER)
-            ),
+            MauThongBao.DAT_LICH_BAC_SI,
+            doctorValues,
             booking,
             "/doctor/appointments/" + datLichID
         );
         thongBaoRepository.save(doctorNotif);
 
-        // 3. Gửi email cho bệnh nhân
-        sendEmailAsync(patientNotif);
+        // 3. Đẩy SSE + gửi email cho bệnh nhân
+        deliver(patientNotif, MauThongBao.DAT_LICH_BENH_NHAN, patientValues);
 
-        // 4. Gửi email cho bác sĩ
-        sendEmailAsync(doctorNotif);
+        // 4. Đẩy SSE + gửi email cho bác sĩ
+        deliver(doctorNotif, MauThongBao.DAT_LICH_BAC_SI, doctorValues);
 
         log.info("✅ Sent booking confirmation notifications for booking #{}", datLichID);
     }
@@ -110,25 +118,23 @@ public class NotificationService {
     public void sendDoctorConfirmation(Integer datLichID) {
         DatLichKham booking = getBooking(datLichID);
         
+        Object[] values = {
+            booking.getBacSi().getNguoiDung().getHoTen(),
+            booking.getGioKham(),
+            booking.getNgayKham(),
+            booking.getMaXacNhan()
+        };
         ThongBao notification = createNotification(
             booking.getBenhNhan(),
-            LoaiThongBao.BAC_SI_XAC_NHAN,
-            "Bác sĩ đã xác nhận lịch hẹn",
-            String.format(
-                "%s đã xác nhận lịch khám của bạn vào lúc %s ngày %s. " +
-                "Vui lòng đến đúng giờ. Mã xác nhận: %s",
-                booking.getBacSi().getNguoiDung().getHoTen(),
-                booking.getGioKham().format(TIME_FORMATTER),
-                booking.getNgayKham().format(DATE_FORMATTER),
-                booking.getMaXacNhan()
-            ),
+            MauThongBao.BAC_SI_XAC_NHAN,
+            values,
             booking,
             "/bookings/" + datLichID
         );
         thongBaoRepository.save(notification);
 
-        // Gửi email
-        sendEmailAsync(notification);
+        // Đẩy SSE + gửi email
+        deliver(notification, MauThongBao.BAC_SI_XAC_NHAN, values);
 
         log.info("✅ Sent doctor confirmation notification for booking #{}", datLichID);
     }
@@ -140,29 +146,24 @@ public class NotificationService {
     public void sendDoctorRejection(Integer datLichID, String reason) {
         DatLichKham booking = getBooking(datLichID);
         
-        String content = String.format(
-            "%s đã từ chối lịch hẹn của bạn vào lúc %s ngày %s.",
+        // Lý do rỗng → mẫu tự bỏ dòng "Lý do"
+        Object[] values = {
             booking.getBacSi().getNguoiDung().getHoTen(),
-            booking.getGioKham().format(TIME_FORMATTER),
-            booking.getNgayKham().format(DATE_FORMATTER)
-        );
-        
-        if (reason != null && !reason.isBlank()) {
-            content += "\nLý do: " + reason;
-        }
-
+            booking.getGioKham(),
+            booking.getNgayKham(),
+            reason
+        };
         ThongBao notification = createNotification(
             booking.getBenhNhan(),
-            LoaiThongBao.BAC_SI_TU_CHOI,
-            "Lịch hẹn bị từ chối",
-            content,
+            MauThongBao.BAC_SI_TU_CHOI,
+            values,
             booking,
             "/bookings/" + datLichID
         );
         thongBaoRepository.save(notification);
 
-        // Gửi email
-        sendEmailAsync(notification);
+        // Đẩy SSE + gửi email
+        deliver(notification, MauThongBao.BAC_SI_TU_CHOI, values);
 
         log.info("✅ Sent doctor rejection notification for booking #{}", datLichID);
     }
@@ -177,41 +178,78 @@ public class NotificationService {
             .orElseThrow(() -> new ResourceNotFoundException("Người dùng không tồn tại"));
 
         // Xác định người nhận thông báo (người còn lại)
-        NguoiDung recipient = booking.getBenhNhan().getNguoiDungID().equals(cancelledByUserId)
+        boolean cancelledByPatient = booking.getBenhNhan().getNguoiDungID().equals(cancelledByUserId);
+        NguoiDung recipient = cancelledByPatient
             ? booking.getBacSi().getNguoiDung()
             : booking.getBenhNhan();
 
-        String title = booking.getBenhNhan().getNguoiDungID().equals(cancelledByUserId)
-            ? "Bệnh nhân đã hủy lịch hẹn"
-            : "Bác sĩ đã hủy lịch hẹn";
+        MauThongBao mau = cancelledByPatient
+            ? MauThongBao.HUY_LICH_BOI_BENH_NHAN
+            : MauThongBao.HUY_LICH_BOI_BAC_SI;
 
-        String content = String.format(
-            "%s đã hủy lịch khám vào lúc %s ngày %s.",
+        Object[] values = {
             cancelledBy.getHoTen(),
-            booking.getGioKham().format(TIME_FORMATTER),
-            booking.getNgayKham().format(DATE_FORMATTER)
-        );
-
-        if (reason != null && !reason.isBlank()) {
-            content += "\nLý do: " + reason;
-        }
-
+            booking.getGioKham(),
+            booking.getNgayKham(),
+            reason
+        };
         ThongBao notification = createNotification(
             recipient,
-            LoaiThongBao.HUY_LICH,
-            title,
-            content,
+            mau,
+            values,
             booking,
             "/bookings/" + datLichID
         );
         thongBaoRepository.save(notification);
 
-        // Gửi email
-        sendEmailAsync(notification);
+        // Đẩy SSE + gửi email
+        deliver(notification, mau, values);
 
         log.info("✅ Sent cancellation notification for booking #{}", datLichID);
     }
 
+    /**
+     * Gửi thông báo hàng loạt khi lịch bị hủy do bác sĩ nghỉ phép (1 lần saveAll)
+     * Booking truyền vào phải đã nạp sẵn benhNhan và bacSi.nguoiDung
+     *
+     * @return số thông báo đã tạo
+     */
+    @Transactional
+    public int sendLeaveCancellationNotifications(List<DatLichKham> bookings, String moTaNghi) {
+        if (bookings.isEmpty()) {
+            return 0;
+        }
+
+        List<ThongBao> notifications = new ArrayList<>(bookings.size());
+        List<Object[]> valuesList = new ArrayList<>(bookings.size());
+        for (DatLichKham booking : bookings) {
+            Object[] values = {
+                booking.getBacSi().getNguoiDung().getHoTen(),
+                moTaNghi,
+                booking.getGioKham(),
+                booking.getNgayKham(),
+                booking.getSoTienHoan()
+            };
+            valuesList.add(values);
+            notifications.add(createNotification(
+                booking.getBenhNhan(),
+                MauThongBao.HUY_LICH_DO_NGHI_PHEP,
+                values,
+                booking,
+                "/bookings/" + booking.getDatLichID()
+            ));
+        }
+        thongBaoRepository.saveAll(notifications);
+
+        // Đẩy SSE + gửi email
+        for (int i = 0; i < notifications.size(); i++) {
+            deliver(notifications.get(i), MauThongBao.HUY_LICH_DO_NGHI_PHEP, valuesList.get(i));
+        }
+
+        log.info("✅ Sent {} leave cancellation notifications", notifications.size());
+        return notifications.size();
+    }
+
     /**
      * Gửi nhắc nhở trước giờ hẹn (24h hoặc 1h)
      */
@@ -222,44 +260,40 @@ public class NotificationService {
         String timeText = hoursBefore == 24 ? "ngày mai" : "1 giờ nữa";
         
         // 1. Nhắc nhở cho BỆNH NHÂN
+        Object[] patientValues = {
+            booking.getBacSi().getNguoiDung().getHoTen(),
+            booking.getGioKham(),
+            timeText,
+            booking.getMaXacNhan()
+        };
         ThongBao patientNotif = createNotification(
             booking.getBenhNhan(),
-            LoaiThongBao.NHAC_LICH_KHAM,
-            "Nhắc nhở lịch khám",
-            String.format(
-                "Bạn có lịch khám với %s vào lúc %s %s. " +
-                "Vui lòng đến đúng giờ. Mã xác nhận: %s",
-                booking.getBacSi().getNguoiDung().getHoTen(),
-                booking.getGioKham().format(TIME_FORMATTER),
-                timeText,
-                booking.getMaXacNhan()
-            ),
+            MauThongBao.NHAC_LICH_BENH_NHAN,
+            patientValues,
             booking,
             "/bookings/" + datLichID
         );
         thongBaoRepository.save(patientNotif);
 
         // 2. Nhắc nhở cho BÁC SĨ
+        Object[] doctorValues = {
+            booking.getBenhNhan().getHoTen(),
+            booking.getGioKham(),
+            timeText,
+            booking.getMaXacNhan()
+        };
         ThongBao doctorNotif = createNotification(
             booking.getBacSi().getNguoiDung(),
-            LoaiThongBao.NHAC_LICH_KHAM,
-            "Nhắc nhở lịch khám",
-            String.format(
-                "Bạn có lịch khám bệnh nhân %s vào lúc %s %s. " +
-                "Mã xác nhận: %s",
-                booking.getBenhNhan().getHoTen(),
-                booking.getGioKham().format(TIME_FORMATTER),
-                timeText,
-                booking.getMaXacNhan()
-            ),
+            MauThongBao.NHAC_LICH_BAC_SI,
+            doctorValues,
             booking,
             "/doctor/appointments/" + datLichID
         );
         thongBaoRepository.save(doctorNotif);
 
-        // 3. Gửi email
-        sendEmailAsync(patientNotif);
-        sendEmailAsync(doctorNotif);
+        // 3. Đẩy SSE + gửi email
+        deliver(patientNotif, MauThongBao.NHAC_LICH_BENH_NHAN, patientValues);
+        deliver(doctorNotif, MauThongBao.NHAC_LICH_BAC_SI, doctorValues);
 
         log.info("✅ Sent {}h reminder for booking #{}", hoursBefore, datLichID);
     }
@@ -271,22 +305,18 @@ public class NotificationService {
     public void sendCompletionNotification(Integer datLichID) {
         DatLichKham booking = getBooking(datLichID);
         
+        Object[] values = { booking.getBacSi().getNguoiDung().getHoTen() };
         ThongBao notification = createNotification(
             booking.getBenhNhan(),
-            LoaiThongBao.LICH_KHAM_HON_THANH,
-            "Đã hoàn thành khám bệnh",
-            String.format(
-                "Bạn đã hoàn thành buổi khám với %s. " +
-                "Vui lòng đánh giá trải nghiệm của bạn để cải thiện chất lượng dịch vụ.",
-                booking.getBacSi().getNguoiDung().getHoTen()
-            ),
+            MauThongBao.LICH_KHAM_HOAN_THANH,
+            values,
             booking,
             "/bookings/" + datLichID
         );
         thongBaoRepository.save(notification);
 
-        // Gửi email
-        sendEmailAsync(notification);
+        // Đẩy SSE + gửi email
+        deliver(notification, MauThongBao.LICH_KHAM_HOAN_THANH, values);
 
         log.info("✅ Sent completion notification for booking #{}", datLichID);
     }
@@ -298,23 +328,21 @@ public class NotificationService {
     public void sendPaymentSuccessNotification(Integer datLichID) {
         DatLichKham booking = getBooking(datLichID);
         
+        Object[] values = {
+            booking.getBacSi().getNguoiDung().getHoTen(),
+            booking.getMaGiaoDich()
+        };
         ThongBao notification = createNotification(
             booking.getBenhNhan(),
-            LoaiThongBao.THANH_TOAN_THANH_CONG,
-            "Thanh toán thành công",
-            String.format(
-                "Bạn đã thanh toán thành công cho lịch khám với %s. " +
-                "Mã giao dịch: %s",
-                booking.getBacSi().getNguoiDung().getHoTen(),
-                booking.getMaGiaoDich()
-            ),
+            MauThongBao.THANH_TOAN_THANH_CONG,
+            values,
             booking,
             "/bookings/" + datLichID
         );
         thongBaoRepository.save(notification);
 
-        // Gửi email
-        sendEmailAsync(notification);
+        // Đẩy SSE + gửi email
+        deliver(notification, MauThongBao.THANH_TOAN_THANH_CONG, values);
 
         log.info("✅ Sent payment success notification for booking #{}", datLichID);
     }
@@ -326,22 +354,18 @@ public class NotificationService {
     public void sendPaymentFailedNotification(Integer datLichID) {
         DatLichKham booking = getBooking(datLichID);
         
+        Object[] values = { booking.getBacSi().getNguoiDung().getHoTen() };
         ThongBao notification = createNotification(
             booking.getBenhNhan(),
-            LoaiThongBao.THANH_TOAN_THAT_BAI,
-            "Thanh toán thất bại",
-            String.format(
-                "Thanh toán cho lịch khám với %s không thành công. " +
-                "Vui lòng thử lại hoặc liên hệ với chúng tôi để được hỗ trợ.",
-                booking.getBacSi().getNguoiDung().getHoTen()
-            ),
+            MauThongBao.THANH_TOAN_THAT_BAI,
+            values,
             booking,
             "/bookings/" + datLichID
         );
         thongBaoRepository.save(notification);
 
-        // Gửi email
-        sendEmailAsync(notification);
+        // Đẩy SSE + gửi email
+        deliver(notification, MauThongBao.THANH_TOAN_THAT_BAI, values);
 
         log.info("✅ Sent payment failed notification for booking #{}", datLichID);
     }
@@ -367,11 +391,10 @@ public class NotificationService {
     }
 
     /**
-     * Đếm số thông báo chưa đọc
+     * Đếm số thông báo chưa đọc (badge) - đọc từ bộ đếm trong bộ nhớ, chỉ đếm DB khi chưa có
      */
-    @Transactional(readOnly = true)
     public long countUnread(Integer nguoiDungID) {
-        return thongBaoRepository.countByNguoiNhan_NguoiDungIDAndDaDoc(nguoiDungID, false);
+        return unreadCounter.get(nguoiDungID);
     }
 
     /**
@@ -387,8 +410,12 @@ public class NotificationService {
             throw new ResourceNotFoundException("Thông báo không tồn tại");
         }
 
+        if (Boolean.TRUE.equals(notification.getDaDoc())) {
+            return;
+        }
         notification.markAsRead();
         thongBaoRepository.save(notification);
+        unreadCounter.decrement(nguoiDungID);
 
         log.info("✅ Marked notification #{} as read", thongBaoID);
     }
@@ -399,6 +426,7 @@ public class NotificationService {
     @Transactional
     public void markAllAsRead(Integer nguoiDungID) {
         thongBaoRepository.markAllAsRead(nguoiDungID, LocalDateTime.now());
+        unreadCounter.reset(nguoiDungID);
         log.info("✅ Marked all notifications as read for user #{}", nguoiDungID);
     }
 
@@ -415,8 +443,13 @@ public class NotificationService {
             throw new ResourceNotFoundException("Thông báo không tồn tại");
         }
 
+        boolean wasUnread = !Boolean.TRUE.equals(notification.getDaDoc())
+            && !Boolean.TRUE.equals(notification.getIsDeleted());
         notification.setIsDeleted(true);
         thongBaoRepository.save(notification);
+        if (wasUnread) {
+            unreadCounter.decrement(nguoiDungID);
+        }
 
         log.info("✅ Deleted notification #{}", thongBaoID);
     }
@@ -435,60 +468,26 @@ public class NotificationService {
 
     /**
      * Gửi reminder cho các booking sắp tới (24h trước)
-     * Chạy mỗi giờ
-     * 
-     * TODO: Implement after adding reminder tracking fields to DatLichKham entity:
-     * - daGuiNhacNho24h (Boolean)
-     * - daGuiNhacNho1h (Boolean)
+     * Job định kỳ nằm ở BookingReminderService (chạy theo lô, đánh dấu DaNhacNho)
      */
-    @Transactional
     public void send24HourReminders() {
-        LocalDate tomorrowDate = LocalDate.now().plusDays(1);
-        
-        List<DatLichKham> bookings = datLichKhamRepository
-            .findBookingsNeedingReminder(tomorrowDate);
-
-        int count = 0;
-        for (DatLichKham booking : bookings) {
-            try {
-                sendReminder(booking.getDatLichID(), 24);
-                count++;
-            } catch (Exception e) {
-                log.error("Failed to send 24h reminder for booking #{}: {}", 
-                    booking.getDatLichID(), e.getMessage());
-            }
-        }
-
-        log.info("✅ Sent 24h reminders for {}/{} bookings", count, bookings.size());
+        bookingReminderService.send24HourReminders(LocalDate.now().plusDays(1));
     }
 
     /**
      * Gửi reminder cho các booking sắp tới (1h trước)
-     * Chạy mỗi 15 phút
-     * 
-     * TODO: Implement after adding reminder tracking fields to DatLichKham entity
+     * Job định kỳ nằm ở BookingReminderService (cửa sổ thời gian, đánh dấu DaNhacNho1h)
      */
-    @Transactional
     public void send1HourReminders() {
-        // For now, just log - implement when reminder tracking is added
-        log.info("⏭️ 1h reminder task (pending reminder tracking implementation)");
-        
-        // Future implementation:
-        // - Find bookings in next 1 hour
-        // - Check daGuiNhacNho1h flag
-        // - Send reminders
+        bookingReminderService.sendOneHourReminders(LocalDateTime.now());
     }
 
     /**
-     * Xóa thông báo cũ hơn 90 ngày
-     * Chạy hàng ngày lúc 2:00 AM
+     * Xóa thông báo đã đọc cũ hơn 90 ngày
+     * Job hàng đêm nằm ở NotificationRetentionService (xóa theo lô khóa chính, có nghỉ giữa các lô)
      */
-    @Transactional
     public void cleanupOldNotifications() {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(90);
-        thongBaoRepository.deleteOldReadNotifications(cutoffDate);
-        
-        log.info("✅ Cleaned up old notifications (> 90 days)");
+        notificationRetentionService.cleanup(LocalDateTime.now().minusDays(90));
     }
 
     // ========================================
@@ -496,21 +495,22 @@ public class NotificationService {
     // ========================================
 
     /**
-     * Tạo ThongBao entity
+     * Tạo ThongBao entity, tiêu đề + nội dung render từ mẫu đã biên dịch
      */
     private ThongBao createNotification(
         NguoiDung recipient,
-        LoaiThongBao type,
-        String title,
-        String content,
+        MauThongBao mau,
+        Object[] values,
         DatLichKham booking,
         String link
     ) {
+        NotificationTemplateService.RenderedNotification rendered = templateService.render(mau, values);
+
         ThongBao notification = new ThongBao();
         notification.setNguoiNhan(recipient);
-        notification.setLoaiThongBao(type);
-        notification.setTieuDe(title);
-        notification.setNoiDung(content);
+        notification.setLoaiThongBao(mau.getLoaiThongBao());
+        notification.setTieuDe(rendered.tieuDe());
+        notification.setNoiDung(rendered.noiDung());
         notification.setThoiGian(LocalDateTime.now());
         notification.setDaDoc(false);
         notification.setDatLichKham(booking);
@@ -521,25 +521,21 @@ public class NotificationService {
     }
 
     /**
-     * Gửi email async (không block main thread)
+     * Tăng badge chưa đọc, đẩy thông báo qua SSE + gửi email async, đều sau khi transaction commit
+     * (bản HTML render từ cùng mẫu với nội dung in-app; DaGuiEmail được worker đánh dấu gộp theo lô)
      */
-    private void sendEmailAsync(ThongBao notification) {
+    private void deliver(ThongBao notification, MauThongBao mau, Object[] values) {
+        unreadCounter.increment(notification.getNguoiNhan().getNguoiDungID(), 1);
         try {
-            // TODO: Implement proper async with @Async in future
-            String toEmail = notification.getNguoiNhan().getEmail();
-            String hoTen = notification.getNguoiNhan().getHoTen();
-            String subject = notification.getTieuDe();
-            String body = notification.getNoiDung();
-
-            // Gửi email đơn giản
-            emailService.sendNotificationEmail(toEmail, hoTen, subject, body);
-
-            // Đánh dấu đã gửi email
-            notification.markEmailSent();
-            thongBaoRepository.save(notification);
-
+            notificationStreamService.publish(notification);
+        } catch (Exception e) {
+            log.error("❌ Failed to push notification #{}: {}", notification.getThongBaoID(), e.getMessage());
+        }
+        try {
+            String html = templateService.renderEmailHtml(mau, notification.getNguoiNhan().getHoTen(), values);
+            emailDeliveryService.enqueue(notification, html);
         } catch (Exception e) {
-            log.error("❌ Failed to send email for notification #{}: {}", 
+            log.error("❌ Failed to queue email for notification #{}: {}", 
                 notification.getThongBaoID(), e.getMessage());
             // Không throw exception để không ảnh hưởng đến flow chính
         }
@@ -0,0 +1,335 @@
+package org.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.dto.response.NotificationStreamStatsResponse;
+import org.example.demo.dto.response.ThongBaoResponse;
+import org.example.demo.entity.ThongBao;
+import org.example.demo.repository.ThongBaoRepository;
+import org.example.demo.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NotificationStreamService - Đẩy thông báo in-app qua Server-Sent Events (thay cho polling)
+ *
+ * - Registry trong bộ nhớ: nguoiDungID → các kết nối (mỗi tab 1 kết nối, tối đa max-connections-per-user)
+ * - Mỗi kết nối có buffer giới hạn; ghi ra socket bằng pool dispatcher riêng nên luồng tạo thông báo không bị block.
+ *   Buffer đầy (client quá chậm) → đóng kết nối, client tự kết nối lại và phát lại theo Last-Event-ID
+ * - id sự kiện = ThongBaoID → kết nối lại đọc phần còn thiếu từ ThongBaoRepository
+ * - Heartbeat (comment SSE) định kỳ để proxy không cắt kết nối rảnh
+ * Chỉ phục vụ 1 instance; chạy nhiều instance cần thêm kênh pub/sub chung.
+ */
+@Slf4j
+@Service
+public class NotificationStreamService {
+
+    static final String EVENT_NOTIFICATION = "notification";
+    static final String EVENT_RESYNC = "resync";
+
+    @Autowired
+    private ThongBaoRepository thongBaoRepository;
+
+    private final Map<Integer, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor dispatcher;
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final int maxConnectionsPerUser;
+    private final int resumeLimit;
+
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong eventsReplayed = new AtomicLong();
+    private final AtomicLong slowClientsDropped = new AtomicLong();
+
+    /**
+     * 1 sự kiện chờ gửi (id = 0: heartbeat)
+     */
+    private record Outgoing(int id, ThongBaoResponse data) {
+    }
+
+    public NotificationStreamService(
+        @Value("${app.notification-stream.timeout-ms:1800000}") long timeoutMillis,
+        @Value("${app.notification-stream.buffer-size:64}") int bufferSize,
+        @Value("${app.notification-stream.max-connections-per-user:5}") int maxConnectionsPerUser,
+        @Value("${app.notification-stream.resume-limit:100}") int resumeLimit,
+        @Value("${app.notification-stream.dispatcher-threads:2}") int dispatcherThreads
+    ) {
+        this.timeoutMillis = timeoutMillis;
+        this.bufferSize = Math.max(bufferSize, 1);
+        this.maxConnectionsPerUser = Math.max(maxConnectionsPerUser, 1);
+        this.resumeLimit = Math.max(resumeLimit, 1);
+
+        AtomicInteger threadNo = new AtomicInteger();
+        int threads = Math.max(dispatcherThreads, 1);
+        // Mỗi kết nối có tối đa 1 tác vụ ghi đang chờ → số tác vụ trong hàng đợi ≤ số kết nối
+        this.dispatcher = new ThreadPoolExecutor(
+            threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> {
+                Thread t = new Thread(r, "notification-sse-" + threadNo.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        );
+    }
+
+    @PreDestroy
+    void shutdown() {
+        connections.values().forEach(set -> set.forEach(Connection::close));
+        dispatcher.shutdownNow();
+    }
+
+    // ========================================
+    // SUBSCRIBE
+    // ========================================
+
+    /**
+     * Mở stream cho người dùng; lastEventId != null → phát lại thông báo có ID lớn hơn trước khi nhận sự kiện mới
+     */
+    public SseEmitter subscribe(Integer nguoiDungID, Integer lastEventId) {
+        SseEmitter emitter = createEmitter();
+        Connection connection = new Connection(nguoiDungID, emitter);
+        emitter.onCompletion(() -> unregister(connection));
+        emitter.onTimeout(connection::close);
+        emitter.onError(e -> connection.close());
+
+        register(connection);
+        connectionsOpened.incrementAndGet();
+
+        // Đăng ký trước, phát lại sau: sự kiện mới đến trong lúc phát lại nằm chờ trong buffer,
+        // sự kiện trùng với phần phát lại bị bỏ qua (chỉ so với các ID đã phát lại)
+        try {
+            emitter.send(SseEmitter.event().comment("connected"));
+            if (lastEventId != null) {
+                replay(connection, lastEventId);
+            }
+        } catch (Exception e) {
+            log.debug("SSE subscribe failed for user #{}: {}", nguoiDungID, e.getMessage());
+            connection.close();
+            return emitter;
+        }
+        connection.startDispatching();
+        return emitter;
+    }
+
+    /**
+     * Tạo emitter cho 1 kết nối (test thay bằng emitter ghi lại sự kiện)
+     */
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void replay(Connection connection, Integer lastEventId) throws Exception {
+        List<Object[]> rows = thongBaoRepository.findStreamResume(
+            connection.nguoiDungID, lastEventId, PageRequest.of(0, resumeLimit));
+        for (Object[] row : rows) {
+            ThongBaoResponse event = ThongBaoResponse.fromProjection(row);
+            connection.emitter.send(notificationEvent(event.getThongBaoID(), event));
+            connection.replayedIds.add(event.getThongBaoID());
+            connection.replayedUpTo = Math.max(connection.replayedUpTo, event.getThongBaoID());
+        }
+        eventsReplayed.addAndGet(rows.size());
+        if (rows.size() >= resumeLimit) {
+            // Mất kết nối quá lâu: client nên tải lại danh sách thay vì đọc tiếp từng sự kiện
+            connection.emitter.send(SseEmitter.event().name(EVENT_RESYNC).data(""));
+        }
+    }
+
+    private void register(Connection connection) {
+        Set<Connection> userConnections = connections.computeIfAbsent(
+            connection.nguoiDungID, id -> new CopyOnWriteArraySet<>());
+        userConnections.add(connection);
+        if (userConnections.size() > maxConnectionsPerUser) {
+            // Quá số tab cho phép → đóng kết nối cũ nhất
+            userConnections.stream()
+                .filter(c -> c != connection)
+                .min((a, b) -> Long.compare(a.openedAt, b.openedAt))
+                .ifPresent(Connection::close);
+        }
+    }
+
+    private void unregister(Connection connection) {
+        connections.computeIfPresent(connection.nguoiDungID, (id, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    // ========================================
+    // PUBLISH
+    // ========================================
+
+    /**
+     * Đẩy thông báo vừa lưu tới các kết nối của người nhận, sau khi transaction commit
+     * Gọi trong transaction đã lưu ThongBao (cần thongBaoID)
+     */
+    public void publish(ThongBao notification) {
+        if (notification.getNguoiNhan() == null || notification.getThongBaoID() == null) {
+            return;
+        }
+        Integer nguoiDungID = notification.getNguoiNhan().getNguoiDungID();
+        if (!connections.containsKey(nguoiDungID)) {
+            return; // người nhận không online, lần kết nối sau đọc từ DB
+        }
+        ThongBaoResponse event = ThongBaoResponse.fromEntity(notification);
+        TransactionUtils.afterCommit(() -> publish(nguoiDungID, event));
+    }
+
+    /**
+     * Đẩy ngay (đã commit) tới các kết nối của người dùng
+     */
+    public void publish(Integer nguoiDungID, ThongBaoResponse event) {
+        Set<Connection> userConnections = connections.get(nguoiDungID);
+        if (userConnections == null) {
+            return;
+        }
+        Outgoing outgoing = new Outgoing(event.getThongBaoID(), event);
+        userConnections.forEach(connection -> connection.offer(outgoing));
+    }
+
+    /**
+     * Heartbeat cho mọi kết nối (app.notification-stream.heartbeat-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.notification-stream.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        Outgoing heartbeat = new Outgoing(0, null);
+        connections.values().forEach(set -> set.forEach(connection -> connection.offer(heartbeat)));
+    }
+
+    // ========================================
+    // METRICS
+    // ========================================
+
+    public NotificationStreamStatsResponse getStats() {
+        int soKetNoi = 0;
+        for (Set<Connection> set : connections.values()) {
+            soKetNoi += set.size();
+        }
+        return NotificationStreamStatsResponse.builder()
+            .soNguoiDung(connections.size())
+            .soKetNoi(soKetNoi)
+            .tongKetNoiDaMo(connectionsOpened.get())
+            .soSuKienDaGui(eventsSent.get())
+            .soSuKienPhatLai(eventsReplayed.get())
+            .soKetNoiBiNgatDoTranBuffer(slowClientsDropped.get())
+            .build();
+    }
+
+    private static SseEmitter.SseEventBuilder notificationEvent(Integer id, ThongBaoResponse data) {
+        return SseEmitter.event()
+            .id(String.valueOf(id))
+            .name(EVENT_NOTIFICATION)
+            .data(data);
+    }
+
+    /**
+     * 1 kết nối SSE: buffer giới hạn + tối đa 1 tác vụ ghi đang chạy
+     */
+    private final class Connection {
+
+        private final Integer nguoiDungID;
+        private final SseEmitter emitter;
+        private final long openedAt = System.nanoTime();
+        private final BlockingQueue<Outgoing> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean dispatching;
+        private volatile boolean closed;
+        // ID đã phát lại lúc subscribe + mốc cao nhất; sự kiện live chỉ bị bỏ nếu trùng 1 ID trong đó.
+        // Sự kiện live có thể đến không theo thứ tự ID (commit khác thứ tự) → không so với ID vừa gửi.
+        // Chỉ được đọc/ghi bởi luồng phát lại (trước startDispatching) hoặc tác vụ drain đang chạy
+        private final Set<Integer> replayedIds = new HashSet<>();
+        private int replayedUpTo;
+
+        private Connection(Integer nguoiDungID, SseEmitter emitter) {
+            this.nguoiDungID = nguoiDungID;
+            this.emitter = emitter;
+        }
+
+        private void offer(Outgoing outgoing) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(outgoing)) {
+                slowClientsDropped.incrementAndGet();
+                log.debug("SSE buffer full for user #{}, closing connection", nguoiDungID);
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void startDispatching() {
+            dispatching = true;
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (dispatching && !closed && draining.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (Exception e) {
+                    draining.set(false);
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                List<Outgoing> batch = new ArrayList<>();
+                buffer.drainTo(batch);
+                for (Outgoing outgoing : batch) {
+                    if (outgoing.id() == 0) {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    } else if (outgoing.id() > replayedUpTo || !replayedIds.remove(outgoing.id())) {
+                        emitter.send(notificationEvent(outgoing.id(), outgoing.data()));
+                        eventsSent.incrementAndGet();
+                    }
+                }
+            } catch (Exception e) {
+                // client đã đóng tab / mất mạng
+                close();
+            } finally {
+                draining.set(false);
+                if (!buffer.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unregister(this);
+            buffer.clear();
+            try {
+                emitter.complete();
+            } catch (Exception e) {
+                log.debug("SSE complete failed for user #{}: {}", nguoiDungID, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.enums.LoaiThongBao;
+import org.example.demo.enums.MauThongBao;
+import org.example.demo.util.MessageTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NotificationTemplateService - Render nội dung thông báo in-app và email từ mẫu đã biên dịch
+ *
+ * - Mọi MauThongBao được biên dịch 1 lần lúc khởi động (mẫu sai → app không khởi động)
+ * - Cùng 1 mẫu nội dung cho ra: văn bản thuần (ThongBao + email text) và HTML (email)
+ * - Render vào StringBuilder tái sử dụng theo luồng, không tạo chuỗi trung gian
+ * - Email tổng hợp (digest) ghép nhiều thông báo đã lưu vào 1 layout
+ */
+@Slf4j
+@Service
+public class NotificationTemplateService {
+
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    private static final List<String> LAYOUT_PARAMS = List.of("hoTen", "tieuDe", "noiDung", "mauSac");
+
+    private static final MessageTemplate EMAIL_TEXT_LAYOUT = MessageTemplate.compile(
+        "Xin chào {hoTen},\n\n{!noiDung}\n\nTrân trọng,\nHealthCare Booking Team",
+        LAYOUT_PARAMS
+    );
+
+    private static final MessageTemplate EMAIL_HTML_LAYOUT = MessageTemplate.compileHtml(
+        "<div style=\"font-family:Arial,sans-serif;max-width:600px;margin:0 auto;color:#333\">"
+            + "<div style=\"background:{mauSac};color:#fff;padding:12px 16px;font-size:18px\">{tieuDe}</div>"
+            + "<div style=\"padding:16px;line-height:1.5\">"
+            + "<p>Xin chào {hoTen},</p>"
+            + "<p>{!noiDung}</p>"
+            + "<p>Trân trọng,<br>HealthCare Booking Team</p>"
+            + "</div></div>",
+        LAYOUT_PARAMS
+    );
+
+    private static final List<String> DIGEST_ITEM_PARAMS = List.of("tieuDe", "noiDung", "mauSac");
+
+    private static final MessageTemplate DIGEST_TEXT_ITEM = MessageTemplate.compile(
+        "- {tieuDe}\n  {noiDung}\n",
+        DIGEST_ITEM_PARAMS
+    );
+
+    private static final MessageTemplate DIGEST_HTML_ITEM = MessageTemplate.compileHtml(
+        "<div style=\"border-left:4px solid {mauSac};padding:4px 12px;margin:8px 0\">"
+            + "<strong>{tieuDe}</strong><br>{noiDung}</div>",
+        DIGEST_ITEM_PARAMS
+    );
+
+    private static final String DEFAULT_COLOR = "#007BFF";
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+    private static final ThreadLocal<StringBuilder> BODY_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    /**
+     * Tiêu đề + nội dung văn bản đã render
+     */
+    public record RenderedNotification(String tieuDe, String noiDung) {
+    }
+
+    /**
+     * 1 thông báo trong email tổng hợp
+     */
+    public record DigestItem(LoaiThongBao loai, String tieuDe, String noiDung) {
+    }
+
+    private record CompiledTemplate(MessageTemplate tieuDe, MessageTemplate noiDung) {
+    }
+
+    private final Map<MauThongBao, CompiledTemplate> templates = new EnumMap<>(MauThongBao.class);
+
+    @PostConstruct
+    void compileTemplates() {
+        for (MauThongBao mau : MauThongBao.values()) {
+            templates.put(mau, new CompiledTemplate(
+                MessageTemplate.compile(mau.getTieuDe(), mau.getThamSo()),
+                MessageTemplate.compile(mau.getNoiDung(), mau.getThamSo())
+            ));
+        }
+        log.info("✅ Compiled {} notification templates", templates.size());
+    }
+
+    /**
+     * Render tiêu đề + nội dung văn bản (giá trị theo thứ tự MauThongBao.getThamSo())
+     */
+    public RenderedNotification render(MauThongBao mau, Object... values) {
+        CompiledTemplate template = templates.get(mau);
+        StringBuilder out = buffer(BUFFER);
+        template.tieuDe().renderText(out, values);
+        String tieuDe = out.toString();
+        out.setLength(0);
+        template.noiDung().renderText(out, values);
+        return new RenderedNotification(tieuDe, out.toString());
+    }
+
+    /**
+     * Email văn bản thuần: lời chào + nội dung + chữ ký
+     */
+    public String renderEmailText(String hoTen, String noiDung) {
+        StringBuilder out = buffer(BUFFER);
+        EMAIL_TEXT_LAYOUT.renderText(out, new Object[]{hoTen, null, noiDung, null});
+        return out.toString();
+    }
+
+    /**
+     * Email HTML render trực tiếp từ mẫu nội dung (giá trị được escape)
+     */
+    public String renderEmailHtml(MauThongBao mau, String hoTen, Object... values) {
+        CompiledTemplate template = templates.get(mau);
+        StringBuilder body = buffer(BODY_BUFFER);
+        template.noiDung().renderHtml(body, values);
+        StringBuilder title = buffer(BUFFER);
+        template.tieuDe().renderText(title, values);
+        String tieuDe = title.toString();
+        return renderHtmlLayout(mau.getLoaiThongBao(), hoTen, tieuDe, body);
+    }
+
+    /**
+     * Email HTML từ nội dung ThongBao đã lưu (gửi lại email tồn, không còn giá trị gốc)
+     */
+    public String renderStoredEmailHtml(LoaiThongBao loai, String hoTen, String tieuDe, String noiDung) {
+        StringBuilder body = buffer(BODY_BUFFER);
+        MessageTemplate.escapeHtmlTo(body, noiDung);
+        return renderHtmlLayout(loai, hoTen, tieuDe, body);
+    }
+
+    /**
+     * Tiêu đề email tổng hợp nhiều thông báo
+     */
+    public String renderDigestSubject(int count) {
+        return "Bạn có " + count + " thông báo mới";
+    }
+
+    /**
+     * Email tổng hợp văn bản thuần: mỗi thông báo 1 mục (tiêu đề + nội dung đã lưu)
+     */
+    public String renderDigestText(String hoTen, List<DigestItem> items) {
+        StringBuilder body = buffer(BODY_BUFFER);
+        for (DigestItem item : items) {
+            DIGEST_TEXT_ITEM.renderText(body, new Object[]{item.tieuDe(), item.noiDung(), null});
+        }
+        StringBuilder out = buffer(BUFFER);
+        EMAIL_TEXT_LAYOUT.renderText(out, new Object[]{hoTen, null, body, null});
+        return out.toString();
+    }
+
+    /**
+     * Email tổng hợp HTML: mỗi thông báo 1 khối, viền theo màu loại thông báo
+     */
+    public String renderDigestHtml(String hoTen, List<DigestItem> items) {
+        StringBuilder body = buffer(BODY_BUFFER);
+        for (DigestItem item : items) {
+            String mauSac = item.loai() != null ? item.loai().getMauSac() : DEFAULT_COLOR;
+            DIGEST_HTML_ITEM.renderHtml(body, new Object[]{item.tieuDe(), item.noiDung(), mauSac});
+        }
+        return renderHtmlLayout(null, hoTen, renderDigestSubject(items.size()), body);
+    }
+
+    private String renderHtmlLayout(LoaiThongBao loai, String hoTen, String tieuDe, CharSequence bodyHtml) {
+        StringBuilder out = buffer(BUFFER);
+        String mauSac = loai != null ? loai.getMauSac() : DEFAULT_COLOR;
+        EMAIL_HTML_LAYOUT.renderHtml(out, new Object[]{hoTen, tieuDe, bodyHtml, mauSac});
+        return out.toString();
+    }
+
+    /**
+     * Buffer của luồng hiện tại đã xóa; bỏ buffer quá lớn để không giữ bộ nhớ lâu dài
+     */
+    private static StringBuilder buffer(ThreadLocal<StringBuilder> holder) {
+        StringBuilder out = holder.get();
+        if (out.capacity() > MAX_RETAINED_BUFFER) {
+            out = new StringBuilder(512);
+            holder.set(out);
+        }
+        out.setLength(0);
+        return out;
+    }
+}
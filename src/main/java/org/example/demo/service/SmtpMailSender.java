@@ -0,0 +1,359 @@
+package org.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SmtpMailSender - Gửi email qua pool kết nối SMTP dùng lại
+ *
+ * - Giữ tối đa pool-size Transport đã xác thực (STARTTLS + AUTH chỉ làm 1 lần / kết nối)
+ * - Gửi nhiều email trên 1 kết nối; kết nối được làm mới sau max-messages-per-connection email
+ *   hoặc khi nhàn rỗi quá idle-timeout-seconds (server SMTP thường tự đóng kết nối rảnh)
+ * - Giới hạn tốc độ gửi toàn cục max-per-second (0 = không giới hạn)
+ * - Trả kết quả từng email, 1 email lỗi không làm hỏng cả lô
+ * - Email tương tác (xác thực, quên mật khẩu - gửi đồng bộ trên luồng HTTP) dùng kết nối dành riêng
+ *   (interactive-pool-size) và không bị giới hạn tốc độ → không phải chờ sau các lô email nền
+ * - Kết nối sống lâu nên luôn có timeout connect / đọc / ghi (mặc định JavaMail là chờ vô hạn):
+ *   server SMTP treo chỉ làm hỏng email đang gửi, không giữ worker và kết nối của pool mãi mãi
+ * Host/port/tài khoản lấy từ spring.mail.* → trỏ sang SMTP giả lập (GreenMail...) khi test
+ */
+@Slf4j
+@Component
+public class SmtpMailSender {
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @Value("${spring.mail.username:}")
+    private String fromAddress;
+
+    /**
+     * Kết quả gửi 1 email
+     *
+     * @param permanent lỗi không thể tự khỏi khi gửi lại (địa chỉ sai / bị server từ chối vĩnh viễn)
+     */
+    public record SendResult(String to, boolean success, String error, boolean permanent) {
+    }
+
+    private final TransportPool bulkPool;
+    private final TransportPool interactivePool;
+    private final long borrowTimeoutMillis;
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutMillis;
+    private final long sendIntervalNanos;
+    private final long connectTimeoutMillis;
+    private final long readTimeoutMillis;
+    private final long writeTimeoutMillis;
+    private long nextSendNanos = System.nanoTime();
+    private volatile Session session;
+
+    public SmtpMailSender(
+        @Value("${app.email.smtp.pool-size:4}") int poolSize,
+        @Value("${app.email.smtp.borrow-timeout-ms:10000}") long borrowTimeoutMillis,
+        @Value("${app.email.smtp.max-messages-per-connection:100}") int maxMessagesPerConnection,
+        @Value("${app.email.smtp.idle-timeout-seconds:60}") long idleTimeoutSeconds,
+        @Value("${app.email.smtp.max-per-second:10}") double maxPerSecond,
+        @Value("${app.email.smtp.interactive-pool-size:1}") int interactivePoolSize,
+        @Value("${app.email.smtp.connect-timeout-ms:10000}") long connectTimeoutMillis,
+        @Value("${app.email.smtp.read-timeout-ms:30000}") long readTimeoutMillis,
+        @Value("${app.email.smtp.write-timeout-ms:30000}") long writeTimeoutMillis
+    ) {
+        this.bulkPool = new TransportPool(poolSize);
+        this.interactivePool = new TransportPool(interactivePoolSize);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.maxMessagesPerConnection = Math.max(maxMessagesPerConnection, 1);
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+        this.sendIntervalNanos = maxPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxPerSecond) : 0;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+    }
+
+    /**
+     * Tạo MimeMessage rỗng trên session của mail sender (để build email text + HTML)
+     */
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    /**
+     * Gửi 1 lô email trên cùng 1 kết nối
+     * @return kết quả theo đúng thứ tự đầu vào
+     */
+    public List<SendResult> send(List<MimeMessage> messages) {
+        return send(bulkPool, messages, true);
+    }
+
+    /**
+     * Gửi 1 email tương tác (người dùng đang chờ trên request), ném MailSendException nếu lỗi
+     * (giữ hành vi JavaMailSender.send). Dùng kết nối dành riêng, không qua giới hạn tốc độ
+     */
+    public void sendOrThrow(MimeMessage message) {
+        SendResult result = send(interactivePool, List.of(message), false).get(0);
+        if (!result.success()) {
+            throw new MailSendException("Không gửi được email tới " + result.to() + ": " + result.error());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        bulkPool.shutdown();
+        interactivePool.shutdown();
+    }
+
+    // ========================================
+    // INTERNAL
+    // ========================================
+
+    private List<SendResult> send(TransportPool pool, List<MimeMessage> messages, boolean throttled) {
+        List<SendResult> results = new ArrayList<>(messages.size());
+        if (messages.isEmpty()) {
+            return results;
+        }
+
+        PooledTransport pooled = pool.borrow();
+        try {
+            for (MimeMessage mime : messages) {
+                String to = firstRecipient(mime);
+                try {
+                    prepare(mime);
+                    if (throttled) {
+                        throttle();
+                    }
+                    pooled = sendOne(pooled, mime);
+                    results.add(new SendResult(to, true, null, false));
+                } catch (Exception e) {
+                    log.warn("⚠️ SMTP send to {} failed: {}", to, e.getMessage());
+                    results.add(new SendResult(to, false, e.getMessage(), isPermanent(e)));
+                }
+            }
+        } finally {
+            pool.release(pooled);
+        }
+        return results;
+    }
+
+    /**
+     * Gửi trên kết nối hiện tại; nếu kết nối đã rớt thì mở lại và thử thêm 1 lần
+     */
+    private PooledTransport sendOne(PooledTransport pooled, MimeMessage mime) throws MessagingException {
+        ensureReady(pooled);
+        try {
+            pooled.transport.sendMessage(mime, mime.getAllRecipients());
+        } catch (MessagingException e) {
+            if (pooled.transport.isConnected()) {
+                throw e; // lỗi của chính email này (địa chỉ sai, bị từ chối...)
+            }
+            pooled.close();
+            ensureReady(pooled);
+            pooled.transport.sendMessage(mime, mime.getAllRecipients());
+        }
+        pooled.sentCount++;
+        pooled.lastUsedMillis = System.currentTimeMillis();
+        return pooled;
+    }
+
+    /**
+     * Địa chỉ không hợp lệ / bị từ chối → gửi lại cũng vô ích; lỗi kết nối, timeout, 4xx → thử lại được
+     */
+    private static boolean isPermanent(Exception e) {
+        if (e instanceof AddressException) {
+            return true;
+        }
+        if (e instanceof SendFailedException failed) {
+            Address[] invalid = failed.getInvalidAddresses();
+            return invalid != null && invalid.length > 0;
+        }
+        return false;
+    }
+
+    private void ensureReady(PooledTransport pooled) throws MessagingException {
+        boolean stale = pooled.sentCount >= maxMessagesPerConnection
+            || System.currentTimeMillis() - pooled.lastUsedMillis > idleTimeoutMillis;
+        if (stale) {
+            pooled.close();
+        }
+        if (!pooled.transport.isConnected()) {
+            pooled.transport.connect(
+                mailSender.getHost(),
+                mailSender.getPort(),
+                mailSender.getUsername(),
+                mailSender.getPassword()
+            );
+            pooled.sentCount = 0;
+            pooled.lastUsedMillis = System.currentTimeMillis();
+        }
+    }
+
+    private String protocol() {
+        return mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+    }
+
+    /**
+     * Session riêng cho pool: cấu hình spring.mail.properties.* + timeout của pool
+     * (giá trị mail.&lt;protocol&gt;.*timeout đã khai báo trong spring.mail.properties được giữ nguyên)
+     */
+    private Session session() {
+        Session current = session;
+        if (current == null) {
+            synchronized (this) {
+                current = session;
+                if (current == null) {
+                    Properties props = new Properties();
+                    props.putAll(mailSender.getJavaMailProperties());
+                    String prefix = "mail." + protocol() + ".";
+                    putTimeout(props, prefix + "connectiontimeout", connectTimeoutMillis);
+                    putTimeout(props, prefix + "timeout", readTimeoutMillis);
+                    putTimeout(props, prefix + "writetimeout", writeTimeoutMillis);
+                    current = Session.getInstance(props);
+                    session = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static void putTimeout(Properties props, String key, long millis) {
+        if (millis > 0 && !props.containsKey(key)) {
+            props.setProperty(key, Long.toString(millis));
+        }
+    }
+
+    /**
+     * Giãn cách đều các lần gửi theo max-per-second (dùng chung mọi luồng)
+     */
+    private void throttle() {
+        if (sendIntervalNanos <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSendNanos);
+            nextSendNanos = slot + sendIntervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void prepare(MimeMessage mime) throws MessagingException {
+        if (mime.getFrom() == null && fromAddress != null && !fromAddress.isBlank()) {
+            mime.setFrom(fromAddress);
+        }
+        if (mime.getSentDate() == null) {
+            mime.setSentDate(new Date());
+        }
+        mime.saveChanges();
+    }
+
+    private static String firstRecipient(MimeMessage mime) {
+        try {
+            Address[] recipients = mime.getAllRecipients();
+            return recipients != null && recipients.length > 0 ? recipients[0].toString() : null;
+        } catch (MessagingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 1 pool kết nối: tối đa size Transport, tạo khi cần, chờ borrow-timeout-ms nếu đã dùng hết
+     */
+    private final class TransportPool {
+
+        private final BlockingQueue<PooledTransport> idle;
+        private final AtomicInteger created = new AtomicInteger();
+        private final int size;
+
+        private TransportPool(int size) {
+            this.size = Math.max(size, 1);
+            this.idle = new ArrayBlockingQueue<>(this.size);
+        }
+
+        private PooledTransport borrow() {
+            PooledTransport pooled = idle.poll();
+            if (pooled != null) {
+                return pooled;
+            }
+            if (created.incrementAndGet() <= size) {
+                try {
+                    return new PooledTransport(session().getTransport(protocol()));
+                } catch (MessagingException e) {
+                    created.decrementAndGet();
+                    throw new MailSendException("Không tạo được kết nối SMTP", e);
+                }
+            }
+            created.decrementAndGet();
+            try {
+                pooled = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (pooled == null) {
+                throw new MailSendException("Hết kết nối SMTP khả dụng");
+            }
+            return pooled;
+        }
+
+        private void release(PooledTransport pooled) {
+            if (!idle.offer(pooled)) {
+                pooled.close();
+                created.decrementAndGet();
+            }
+        }
+
+        private void shutdown() {
+            PooledTransport pooled;
+            while ((pooled = idle.poll()) != null) {
+                pooled.close();
+            }
+        }
+    }
+
+    private static final class PooledTransport {
+
+        private final Transport transport;
+        private int sentCount;
+        private long lastUsedMillis = System.currentTimeMillis();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        private void close() {
+            try {
+                if (transport.isConnected()) {
+                    transport.close();
+                }
+            } catch (MessagingException e) {
+                log.debug("SMTP close failed: {}", e.getMessage());
+            }
+        }
+    }
+}
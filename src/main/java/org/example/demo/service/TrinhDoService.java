@@ -20,6 +20,15 @@ public class TrinhDoService {
     @Autowired
     private TrinhDoRepository trinhDoRepository;
 
+    @Autowired
+    private DoctorSearchIndex doctorSearchIndex;
+
+    @Autowired
+    private DoctorFacetIndex doctorFacetIndex;
+
+    @Autowired
+    private AutocompleteService autocompleteService;
+
     public TrinhDoResponse create(TrinhDoRequest request) {
 
         
@@ -31,6 +40,7 @@ public class TrinhDoService {
         trinhDo.setIsDeleted(false);
 
         TrinhDo saved = trinhDoRepository.save(trinhDo);
+        autocompleteService.upsertDegree(saved.getTrinhDoID(), saved.getTenTrinhDo());
         return convertToResponse(saved);
     }
 
@@ -74,6 +84,9 @@ public class TrinhDoService {
             trinhDo.setThuTuUuTien(request.getThuTuUuTien());
 
             TrinhDo updated = trinhDoRepository.save(trinhDo);
+            doctorSearchIndex.invalidate();
+            doctorFacetIndex.invalidate();
+            autocompleteService.upsertDegree(updated.getTrinhDoID(), updated.getTenTrinhDo());
             return convertToResponse(updated);
     }
 
@@ -88,6 +101,7 @@ public class TrinhDoService {
         trinhDo.setIsDeleted(true);
         trinhDo.setDeletedAt(LocalDateTime.now());
         trinhDoRepository.save(trinhDo);
+        autocompleteService.removeDegree(id);
     }
 
     private TrinhDoResponse convertToResponse(TrinhDo trinhDo) {
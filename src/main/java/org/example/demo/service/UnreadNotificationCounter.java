@@ -0,0 +1,247 @@
+package org.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.demo.repository.ThongBaoRepository;
+import org.example.demo.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UnreadNotificationCounter - Bộ đếm thông báo chưa đọc (badge) trong bộ nhớ, theo nguoiDungID
+ *
+ * - Chưa có trong cache → đếm từ DB 1 lần (lazy)
+ * - Tạo thông báo → +n; đọc / xóa 1 thông báo chưa đọc → -1; đọc tất cả → 0
+ *   Mọi thay đổi áp dụng sau khi transaction commit (rollback không làm lệch bộ đếm)
+ * - Job đối soát định kỳ đếm lại từ DB cho các user đang cache (GROUP BY, theo lô)
+ *   và bỏ các user lâu không hỏi tới
+ * Bộ đếm có thể lệch tạm thời (ghi ngoài các luồng trên, nhiều instance) tối đa 1 chu kỳ đối soát.
+ *
+ * Thay đổi commit xen giữa lúc đếm DB: COUNT có thể đã gồm dòng vừa commit trong khi +n/-1 sau commit
+ * chưa chạy. Mỗi thay đổi mang mốc thời điểm gọi (trong transaction), mỗi lần đếm mang mốc SAU khi COUNT
+ * xong; bộ đếm được đếm sau khi thay đổi bắt đầu thì không cộng tiếp mà bỏ bộ đếm để lần đọc sau đếm lại.
+ */
+@Slf4j
+@Service
+public class UnreadNotificationCounter {
+
+    private static final int RECONCILE_CHUNK_SIZE = 500;
+
+    @Autowired
+    private ThongBaoRepository thongBaoRepository;
+
+    @Value("${app.unread-counter.max-entries:50000}")
+    private int maxEntries;
+
+    @Value("${app.unread-counter.idle-seconds:3600}")
+    private long idleSeconds;
+
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+
+    /** Đồng hồ logic: mốc của thay đổi (lúc gọi) và của lần đếm DB (sau khi COUNT xong) */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * 1 bộ đếm; version tăng mỗi lần thay đổi để đối soát không ghi đè thay đổi mới hơn kết quả đếm
+     * syncedAt: mốc lần gần nhất giá trị được lấy từ DB
+     */
+    private static final class Counter {
+        private long count;
+        private long version;
+        private long syncedAt;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private Counter(long count, long syncedAt) {
+            this.count = count;
+            this.syncedAt = syncedAt;
+        }
+
+        private synchronized long get() {
+            return count;
+        }
+
+        private synchronized long version() {
+            return version;
+        }
+
+        /**
+         * @return false nếu giá trị được đếm từ DB sau khi thay đổi bắt đầu (có thể đã gồm thay đổi)
+         */
+        private synchronized boolean add(long delta, long startedAt) {
+            if (syncedAt > startedAt) {
+                return false;
+            }
+            count = Math.max(count + delta, 0);
+            version++;
+            return true;
+        }
+
+        private synchronized boolean reset(long startedAt) {
+            if (syncedAt > startedAt) {
+                return false;
+            }
+            count = 0;
+            version++;
+            return true;
+        }
+
+        /**
+         * Ghi giá trị đếm từ DB nếu không có thay đổi nào kể từ lúc đọc version
+         *
+         * @return true nếu giá trị cũ lệch và đã được sửa
+         */
+        private synchronized boolean reconcile(long expectedVersion, long dbCount, long countedAt) {
+            if (version != expectedVersion) {
+                return false;
+            }
+            syncedAt = countedAt;
+            if (count == dbCount) {
+                return false;
+            }
+            count = dbCount;
+            return true;
+        }
+    }
+
+    // ========================================
+    // READ
+    // ========================================
+
+    /**
+     * Số thông báo chưa đọc của user (đếm DB nếu chưa có trong cache)
+     */
+    public long get(Integer nguoiDungID) {
+        Counter counter = counters.get(nguoiDungID);
+        if (counter == null) {
+            if (counters.size() >= maxEntries) {
+                // Cache đầy → đếm thẳng DB, chờ đối soát dọn user không hoạt động
+                return thongBaoRepository.countUnread(nguoiDungID);
+            }
+            counter = counters.computeIfAbsent(nguoiDungID, id -> {
+                long count = thongBaoRepository.countUnread(id);
+                return new Counter(count, clock.incrementAndGet());
+            });
+        }
+        counter.lastAccess = System.currentTimeMillis();
+        return counter.get();
+    }
+
+    // ========================================
+    // UPDATE (sau commit)
+    // ========================================
+
+    /**
+     * Đã tạo n thông báo chưa đọc cho user
+     */
+    public void increment(Integer nguoiDungID, int n) {
+        long startedAt = clock.incrementAndGet();
+        TransactionUtils.afterCommit(() -> add(nguoiDungID, n, startedAt));
+    }
+
+    /**
+     * 1 thông báo chưa đọc của user vừa được đọc hoặc xóa
+     */
+    public void decrement(Integer nguoiDungID) {
+        long startedAt = clock.incrementAndGet();
+        TransactionUtils.afterCommit(() -> add(nguoiDungID, -1, startedAt));
+    }
+
+    /**
+     * User đã đọc tất cả thông báo
+     */
+    public void reset(Integer nguoiDungID) {
+        long startedAt = clock.incrementAndGet();
+        TransactionUtils.afterCommit(() -> {
+            Counter counter = counters.get(nguoiDungID);
+            if (counter != null && !counter.reset(startedAt)) {
+                counters.remove(nguoiDungID, counter);
+            }
+        });
+    }
+
+    private void add(Integer nguoiDungID, long delta, long startedAt) {
+        // Chưa cache → bỏ qua, lần đọc sau đếm từ DB (đã gồm thay đổi này)
+        Counter counter = counters.get(nguoiDungID);
+        if (counter != null && !counter.add(delta, startedAt)) {
+            // Đếm từ DB xen giữa thay đổi và commit → không biết COUNT đã gồm thay đổi chưa, đếm lại
+            counters.remove(nguoiDungID, counter);
+        }
+    }
+
+    // ========================================
+    // RECONCILE
+    // ========================================
+
+    /**
+     * Mặc định 5 phút / lần (app.unread-counter.reconcile-ms)
+     */
+    @Scheduled(
+        fixedDelayString = "${app.unread-counter.reconcile-ms:300000}",
+        initialDelayString = "${app.unread-counter.reconcile-ms:300000}"
+    )
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("❌ Unread counter reconcile failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Bỏ bộ đếm không được hỏi trong idle-seconds, đếm lại phần còn lại từ DB
+     *
+     * @return số bộ đếm đã sửa
+     */
+    public int reconcile() {
+        long idleBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(idleSeconds);
+        counters.entrySet().removeIf(entry -> entry.getValue().lastAccess < idleBefore);
+
+        List<Integer> ids = new ArrayList<>(counters.keySet());
+        int fixed = 0;
+        for (int from = 0; from < ids.size(); from += RECONCILE_CHUNK_SIZE) {
+            fixed += reconcileChunk(ids.subList(from, Math.min(from + RECONCILE_CHUNK_SIZE, ids.size())));
+        }
+        if (fixed > 0) {
+            log.info("🔢 Unread counters reconciled: {} of {} fixed", fixed, ids.size());
+        }
+        return fixed;
+    }
+
+    private int reconcileChunk(List<Integer> ids) {
+        // Đọc version trước khi đếm: thay đổi xảy ra trong lúc đếm làm kết quả đếm bị bỏ qua ở lượt này
+        Map<Integer, Long> versions = new HashMap<>();
+        for (Integer id : ids) {
+            Counter counter = counters.get(id);
+            if (counter != null) {
+                versions.put(id, counter.version());
+            }
+        }
+        if (versions.isEmpty()) {
+            return 0;
+        }
+
+        Map<Integer, Long> dbCounts = new HashMap<>();
+        for (Object[] row : thongBaoRepository.countUnreadByUsers(versions.keySet())) {
+            dbCounts.put((Integer) row[0], ((Number) row[1]).longValue());
+        }
+        long countedAt = clock.incrementAndGet();
+
+        int fixed = 0;
+        for (Map.Entry<Integer, Long> entry : versions.entrySet()) {
+            Counter counter = counters.get(entry.getKey());
+            if (counter != null && counter.reconcile(entry.getValue(), dbCounts.getOrDefault(entry.getKey(), 0L), countedAt)) {
+                fixed++;
+            }
+        }
+        return fixed;
+    }
+}
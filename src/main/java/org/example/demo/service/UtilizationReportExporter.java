@@ -0,0 +1,75 @@
+package org.example.demo.service;
+
+import org.example.demo.dto.response.DoctorUtilizationResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UtilizationReportExporter - Xuất báo cáo công suất bác sĩ ra CSV
+ * UTF-8 có BOM để Excel hiển thị đúng tiếng Việt; ghi thẳng từng dòng ra stream,
+ * không dựng cả file trong bộ nhớ
+ */
+@Component
+public class UtilizationReportExporter {
+
+    private static final char BOM = '\uFEFF';
+    private static final String[] HEADER = {
+        "BacSiID", "Bác sĩ", "Chuyên khoa", "Từ ngày", "Đến ngày",
+        "Số slot", "Slot nghỉ phép", "Đã đặt", "Hoàn thành", "Hủy", "Không đến",
+        "% Đặt", "% Hoàn thành", "% Hủy", "% Không đến"
+    };
+
+    public void writeCsv(DoctorUtilizationResponse report, OutputStream out) throws IOException {
+        // Không đóng writer: stream thuộc về container, chỉ flush phần đệm
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(BOM);
+        writeLine(writer, (Object[]) HEADER);
+        for (DoctorUtilizationResponse.Row row : report.getRows()) {
+            writeLine(writer,
+                row.getBacSiID(), row.getTenBacSi(), row.getTenChuyenKhoa(), row.getTuNgay(), row.getDenNgay(),
+                row.getSoSlot(), row.getSoSlotNghi(), row.getSoLichDat(), row.getSoHoanThanh(), row.getSoHuy(),
+                row.getSoKhongDen(), row.getTyLeDat(), row.getTyLeHoanThanh(), row.getTyLeHuy(), row.getTyLeKhongDen());
+        }
+        writer.flush();
+    }
+
+    private void writeLine(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        // Chặn CSV injection: ô chữ bắt đầu bằng = + - @ bị Excel hiểu là công thức.
+        // Chỉ áp dụng cho chữ (tên bác sĩ, chuyên khoa), số âm vẫn giữ nguyên
+        if (value instanceof CharSequence && isFormulaStart(text)) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    private boolean isFormulaStart(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        char first = text.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+}
@@ -37,6 +37,7 @@ public class VnPayService {
 
     private final DatLichKhamRepository datLichKhamRepository;
     private final VnPayProperties vnPayProperties;
+    private final BookingStatsRollupService bookingStatsRollupService;
 
     /**
      * Tạo URL thanh toán VNPay cho 1 booking
@@ -175,6 +176,7 @@ public class VnPayService {
         }
 
         boolean success = "00".equals(rspCode) && "00".equals(txnStatus);
+        BookingStatsRollupService.Snapshot before = bookingStatsRollupService.capture(booking);
         booking.setThongTinThanhToan(serialize(params));
         booking.setNgayThanhToan(LocalDateTime.now());
 
@@ -184,11 +186,13 @@ public class VnPayService {
                 booking.setTrangThai(TrangThaiDatLich.CHO_XAC_NHAN_BAC_SI);
             }
             datLichKhamRepository.save(booking);
+            bookingStatsRollupService.record(before, booking);
             response.put("RspCode", "00");
             response.put("Message", "Confirm Success");
         } else {
             booking.setTrangThaiThanhToan(TrangThaiThanhToan.THAT_BAI);
             datLichKhamRepository.save(booking);
+            bookingStatsRollupService.record(before, booking);
             response.put("RspCode", "00");
             response.put("Message", "Payment Failed");
         }
@@ -0,0 +1,99 @@
+package org.example.demo.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CoalescingBuffer - Giữ các phần tử theo key trong 1 cửa sổ thời gian để gộp xử lý 1 lần
+ *
+ * - Cửa sổ tính từ phần tử ĐẦU TIÊN của key (cố định, không trượt) → độ trễ tối đa = windowMillis
+ * - Đủ maxItems phần tử → trả ngay cả nhóm, không chờ hết cửa sổ
+ * - Thứ tự phần tử trong nhóm = thứ tự thêm vào
+ */
+public class CoalescingBuffer<K, T> {
+
+    private final long windowMillis;
+    private final int maxItems;
+
+    private final Map<K, Bucket<T>> buckets = new HashMap<>();
+    private int size;
+
+    private static final class Bucket<T> {
+        private final long dueAt;
+        private final List<T> items = new ArrayList<>();
+
+        private Bucket(long dueAt) {
+            this.dueAt = dueAt;
+        }
+    }
+
+    public CoalescingBuffer(long windowMillis, int maxItems) {
+        this.windowMillis = windowMillis;
+        this.maxItems = Math.max(maxItems, 1);
+    }
+
+    /**
+     * Thêm phần tử vào nhóm của key
+     *
+     * @return cả nhóm nếu vừa đủ maxItems (đã lấy ra khỏi buffer), ngược lại null
+     */
+    public synchronized List<T> add(K key, T item, long now) {
+        Bucket<T> bucket = buckets.computeIfAbsent(key, k -> new Bucket<>(now + windowMillis));
+        bucket.items.add(item);
+        size++;
+        if (bucket.items.size() >= maxItems) {
+            return remove(key);
+        }
+        return null;
+    }
+
+    /**
+     * Lấy ra nhóm của key (null nếu không có)
+     */
+    public synchronized List<T> remove(K key) {
+        Bucket<T> bucket = buckets.remove(key);
+        if (bucket == null) {
+            return null;
+        }
+        size -= bucket.items.size();
+        return bucket.items;
+    }
+
+    /**
+     * Lấy ra các nhóm đã hết cửa sổ
+     */
+    public synchronized List<List<T>> drainDue(long now) {
+        List<List<T>> due = new ArrayList<>();
+        Iterator<Bucket<T>> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            Bucket<T> bucket = it.next();
+            if (bucket.dueAt <= now) {
+                it.remove();
+                size -= bucket.items.size();
+                due.add(bucket.items);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Lấy ra tất cả các nhóm (tắt app)
+     */
+    public synchronized List<List<T>> drainAll() {
+        List<List<T>> all = new ArrayList<>();
+        buckets.values().forEach(bucket -> all.add(bucket.items));
+        buckets.clear();
+        size = 0;
+        return all;
+    }
+
+    /**
+     * Số phần tử đang giữ
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,223 @@
+package org.example.demo.util;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * MessageTemplate - Mẫu nội dung đã biên dịch sẵn thành các đoạn (literal / biến / khối điều kiện)
+ *
+ * Cú pháp:
+ * - {ten}            : chèn giá trị (HTML: escape)
+ * - {!ten}           : chèn giá trị nguyên văn (dùng cho nội dung HTML đã render)
+ * - {?ten}...{/ten}  : chỉ render khối khi giá trị khác null / chuỗi rỗng
+ * Biến được gán vị trí theo danh sách tham số khai báo → render bằng mảng giá trị, không cần Map.
+ * Đối tượng bất biến, dùng chung nhiều luồng; caller tự cấp StringBuilder (tái sử dụng được).
+ */
+public final class MessageTemplate {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+    private static final int LITERAL = 0;
+    private static final int VALUE = 1;
+    private static final int RAW = 2;
+    private static final int SECTION = 3;
+
+    /**
+     * kind = SECTION: slot là biến điều kiện, end là vị trí đoạn ngay sau khối
+     */
+    private record Segment(int kind, String text, String html, int slot, int end) {
+    }
+
+    private final String source;
+    private final Segment[] segments;
+
+    private MessageTemplate(String source, Segment[] segments) {
+        this.source = source;
+        this.segments = segments;
+    }
+
+    /**
+     * Biên dịch mẫu văn bản; ném IllegalArgumentException nếu dùng biến không khai báo hoặc khối không đóng
+     */
+    public static MessageTemplate compile(String source, List<String> params) {
+        return compile(source, params, false);
+    }
+
+    /**
+     * Biên dịch mẫu mà literal đã là HTML (layout email): literal giữ nguyên khi render HTML
+     */
+    public static MessageTemplate compileHtml(String source, List<String> params) {
+        return compile(source, params, true);
+    }
+
+    private static MessageTemplate compile(String source, List<String> params, boolean htmlLiterals) {
+        List<Segment> segments = new ArrayList<>();
+        Deque<int[]> openSections = new ArrayDeque<>(); // {vị trí segment, slot}
+        int pos = 0;
+        while (pos < source.length()) {
+            int open = source.indexOf('{', pos);
+            if (open < 0) {
+                addLiteral(segments, source.substring(pos), htmlLiterals);
+                break;
+            }
+            int close = source.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Thiếu '}' trong mẫu: " + source);
+            }
+            addLiteral(segments, source.substring(pos, open), htmlLiterals);
+
+            String tag = source.substring(open + 1, close);
+            if (tag.startsWith("?")) {
+                int slot = slotOf(tag.substring(1), params, source);
+                openSections.push(new int[]{segments.size(), slot});
+                segments.add(null); // điền khi gặp thẻ đóng
+            } else if (tag.startsWith("/")) {
+                int slot = slotOf(tag.substring(1), params, source);
+                int[] section = openSections.poll();
+                if (section == null || section[1] != slot) {
+                    throw new IllegalArgumentException("Khối {/" + tag.substring(1) + "} không khớp trong mẫu: " + source);
+                }
+                segments.set(section[0], new Segment(SECTION, null, null, slot, segments.size()));
+            } else if (tag.startsWith("!")) {
+                segments.add(new Segment(RAW, null, null, slotOf(tag.substring(1), params, source), 0));
+            } else {
+                segments.add(new Segment(VALUE, null, null, slotOf(tag, params, source), 0));
+            }
+            pos = close + 1;
+        }
+        if (!openSections.isEmpty()) {
+            throw new IllegalArgumentException("Khối điều kiện chưa đóng trong mẫu: " + source);
+        }
+        return new MessageTemplate(source, segments.toArray(new Segment[0]));
+    }
+
+    /**
+     * Render dạng văn bản thuần
+     */
+    public void renderText(StringBuilder out, Object[] values) {
+        render(out, values, false);
+    }
+
+    /**
+     * Render dạng HTML: giá trị được escape, xuống dòng trong literal → &lt;br&gt;
+     */
+    public void renderHtml(StringBuilder out, Object[] values) {
+        render(out, values, true);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    private void render(StringBuilder out, Object[] values, boolean html) {
+        int i = 0;
+        while (i < segments.length) {
+            Segment segment = segments[i];
+            switch (segment.kind()) {
+                case LITERAL -> out.append(html ? segment.html() : segment.text());
+                case RAW -> appendValue(out, values[segment.slot()]);
+                case VALUE -> {
+                    int start = out.length();
+                    appendValue(out, values[segment.slot()]);
+                    if (html) {
+                        escapeHtml(out, start);
+                    }
+                }
+                default -> { // SECTION
+                    if (isEmpty(values[segment.slot()])) {
+                        i = segment.end();
+                        continue;
+                    }
+                }
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Ghi giá trị đã định dạng (ngày dd/MM/yyyy, giờ HH:mm, tiền có phân cách hàng nghìn)
+     */
+    private static void appendValue(StringBuilder out, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof LocalDate date) {
+            DATE_FORMATTER.formatTo(date, out);
+        } else if (value instanceof LocalTime time) {
+            TIME_FORMATTER.formatTo(time, out);
+        } else if (value instanceof LocalDateTime dateTime) {
+            DATE_TIME_FORMATTER.formatTo(dateTime, out);
+        } else if (value instanceof BigDecimal money) {
+            out.append(String.format("%,.0f", money));
+        } else if (value instanceof CharSequence text) {
+            out.append(text);
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static boolean isEmpty(Object value) {
+        return value == null || (value instanceof CharSequence text && text.toString().isBlank());
+    }
+
+    private static int slotOf(String name, List<String> params, String source) {
+        int slot = params.indexOf(name);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Biến {" + name + "} chưa khai báo trong mẫu: " + source);
+        }
+        return slot;
+    }
+
+    private static void addLiteral(List<Segment> segments, String text, boolean htmlLiteral) {
+        if (text.isEmpty()) {
+            return;
+        }
+        StringBuilder html = new StringBuilder(text);
+        if (!htmlLiteral) {
+            escapeHtml(html, 0);
+        }
+        segments.add(new Segment(LITERAL, text, html.toString(), -1, 0));
+    }
+
+    /**
+     * Ghi văn bản thuần dưới dạng HTML (escape, xuống dòng → &lt;br&gt;)
+     */
+    public static void escapeHtmlTo(StringBuilder out, String text) {
+        if (text == null) {
+            return;
+        }
+        int start = out.length();
+        out.append(text);
+        escapeHtml(out, start);
+    }
+
+    /**
+     * Escape HTML tại chỗ từ vị trí start đến hết buffer
+     */
+    private static void escapeHtml(StringBuilder out, int start) {
+        for (int i = start; i < out.length(); i++) {
+            String replacement = switch (out.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                case '\n' -> "<br>";
+                default -> null;
+            };
+            if (replacement != null) {
+                out.replace(i, i + 1, replacement);
+                i += replacement.length() - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.demo.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * StaleWhileRevalidateCache - Cache trong bộ nhớ kiểu "trả bản cũ, làm mới nền"
+ *
+ * - Còn tươi (tuổi ≤ freshMillis)            → trả ngay
+ * - Cũ nhưng chưa quá hạn (≤ maxStaleMillis) → trả ngay bản cũ + làm mới nền
+ * - Chưa có / quá hạn                        → tính đồng bộ
+ *
+ * Nhiều request cùng key trong lúc đang tính chỉ chạy loader 1 lần (dùng chung 1 future).
+ * Làm mới nền lỗi → giữ bản cũ, lần sau thử lại.
+ * Loader lỗi (kể cả Error) → future luôn hoàn tất lỗi, request đang chờ cùng key không bị treo.
+ */
+@Slf4j
+public class StaleWhileRevalidateCache<K, V> {
+
+    private final String name;
+    private final long freshMillis;
+    private final long maxStaleMillis;
+    private final int maxEntries;
+    private final Executor refreshExecutor;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public StaleWhileRevalidateCache(String name, long freshMillis, long maxStaleMillis,
+                                     int maxEntries, Executor refreshExecutor) {
+        this.name = name;
+        this.freshMillis = freshMillis;
+        this.maxStaleMillis = Math.max(freshMillis, maxStaleMillis);
+        this.maxEntries = maxEntries;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * Lấy giá trị theo key, loader chỉ được gọi khi cần tính lại
+     */
+    public V get(K key, Supplier<V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            long age = System.currentTimeMillis() - entry.loadedAt();
+            if (age <= freshMillis) {
+                return entry.value();
+            }
+            if (age <= maxStaleMillis) {
+                load(key, loader, true);
+                return entry.value();
+            }
+        }
+        try {
+            return load(key, loader, false).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private CompletableFuture<V> load(K key, Supplier<V> loader, boolean background) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing; // đã có request khác đang tính cùng key
+        }
+
+        Runnable task = () -> {
+            try {
+                V value = loader.get();
+                put(key, value);
+                created.complete(value);
+            } catch (Throwable e) {
+                if (background) {
+                    log.warn("⚠️ Cache '{}' background refresh failed for {}: {}", name, key, e.toString());
+                }
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, created);
+            }
+        };
+
+        if (background) {
+            try {
+                refreshExecutor.execute(task);
+            } catch (RuntimeException e) {
+                // executor đầy/đã tắt: bỏ lượt làm mới này, vẫn trả bản cũ
+                inFlight.remove(key, created);
+                created.completeExceptionally(e);
+            }
+        } else {
+            task.run();
+        }
+        return created;
+    }
+
+    private void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+        if (entries.size() > maxEntries) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> now - e.getValue().loadedAt() > maxStaleMillis);
+        while (entries.size() > maxEntries) {
+            entries.entrySet().stream()
+                .min(Comparator.comparingLong(e -> e.getValue().loadedAt()))
+                .ifPresent(e -> entries.remove(e.getKey(), e.getValue()));
+        }
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.demo.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * TextNormalizer - Chuẩn hóa chuỗi tiếng Việt cho tìm kiếm
+ *
+ * Ví dụ:
+ * - "Nguyễn Văn Đức" → "nguyen van duc"
+ * - "  Tim   mạch " → "tim mach"
+ *
+ * Dùng chung cho search index, autocomplete, facet...
+ */
+public final class TextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Bỏ dấu tiếng Việt, chuyển về chữ thường, gộp khoảng trắng
+     * Trả về chuỗi rỗng nếu input null
+     */
+    public static String fold(String input) {
+        if (input == null || input.isEmpty()) {
+            return "";
+        }
+        // đ/Đ không tách được bằng NFD nên phải thay thủ công
+        String replaced = input.replace('đ', 'd').replace('Đ', 'D');
+        String decomposed = Normalizer.normalize(replaced, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        String lower = stripped.toLowerCase(java.util.Locale.ROOT);
+        return NON_ALNUM.matcher(lower).replaceAll(" ").trim();
+    }
+
+    /**
+     * Tách chuỗi đã chuẩn hóa thành các token (theo khoảng trắng)
+     */
+    public static List<String> tokenize(String input) {
+        String folded = fold(input);
+        List<String> tokens = new ArrayList<>();
+        if (folded.isEmpty()) {
+            return tokens;
+        }
+        for (String token : folded.split(" ")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,384 @@
+package org.example.demo.service;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+import org.example.demo.dto.request.ApproveNgayNghiRequest;
+import org.example.demo.dto.request.SearchNgayNghiRequest;
+import org.example.demo.dto.response.NgayNghiApprovalResponse;
+import org.example.demo.dto.response.NgayNghiResponse;
+import org.example.demo.dto.response.NgayNghiStatisticsResponse;
+import org.example.demo.entity.BacSi;
+import org.example.demo.entity.BacSiNgayNghi;
+import org.example.demo.entity.ChuyenKhoa;
+import org.example.demo.entity.DatLichKham;
+import org.example.demo.entity.NguoiDung;
+import org.example.demo.enums.LoaiNghi;
+import org.example.demo.enums.LoaiNghiPhep;
+import org.example.demo.enums.TrangThaiDatLich;
+import org.example.demo.enums.TrangThaiNghi;
+import org.example.demo.enums.TrangThaiThanhToan;
+import org.example.demo.exception.BadRequestException;
+import org.example.demo.repository.BacSiNgayNghiRepository;
+import org.example.demo.repository.BacSiRepository;
+import org.example.demo.repository.DatLichKhamRepository;
+import org.example.demo.security.CustomUserDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BacSiNgayNghiServiceTest {
+
+    @Mock
+    private BacSiNgayNghiRepository ngayNghiRepository;
+
+    @Mock
+    private BacSiRepository bacSiRepository;
+
+    @Mock
+    private DatLichKhamRepository datLichKhamRepository;
+
+    @Mock
+    private BookingStatsRollupService bookingStatsRollupService;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @InjectMocks
+    private BacSiNgayNghiService service;
+
+    private final NguoiDung admin = new NguoiDung();
+
+    @BeforeEach
+    void setUp() {
+        admin.setNguoiDungID(1);
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(new CustomUserDetails(admin), null, List.of()));
+        when(ngayNghiRepository.save(any(BacSiNgayNghi.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(notificationService.sendLeaveCancellationNotifications(anyList(), anyString()))
+            .thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void approve_onlyCancelsBookingsStillActiveWhenLocked() {
+        BacSiNgayNghi leave = leave(10, LocalDate.of(2026, 11, 2));
+        when(ngayNghiRepository.findById(10)).thenReturn(Optional.of(leave));
+        DatLichKham b1 = booking(1, TrangThaiDatLich.DA_XAC_NHAN);
+        DatLichKham b2 = booking(2, TrangThaiDatLich.DA_XAC_NHAN);
+        DatLichKham b3 = booking(3, TrangThaiDatLich.CHO_THANH_TOAN);
+        when(datLichKhamRepository.findActiveBookingsForLeave(eq(5), any(), any(), any(), anyList()))
+            .thenReturn(List.of(b1, b2, b3));
+        // Lịch 2 vừa hoàn thành; lịch 3 đã được thanh toán sau lúc đọc
+        when(datLichKhamRepository.lockActiveBookings(List.of(1, 2, 3),
+                List.of("CHO_XAC_NHAN_BAC_SI", "CHO_THANH_TOAN", "DA_XAC_NHAN")))
+            .thenReturn(List.of(
+                new Object[] {1, "DA_XAC_NHAN", "CHUA_THANH_TOAN", null},
+                new Object[] {3, "DA_XAC_NHAN", "THANH_CONG", null}));
+        when(datLichKhamRepository.cancelBookingsForDoctorLeave(
+                anyList(), anyList(), any(), any(), any(), anyString(), any()))
+            .thenReturn(2);
+
+        NgayNghiApprovalResponse response = service.approve(approveRequest(10));
+
+        ArgumentCaptor<List<Integer>> cancelledIds = idListCaptor();
+        verify(datLichKhamRepository).cancelBookingsForDoctorLeave(
+            cancelledIds.capture(), anyList(), any(), any(), any(), anyString(), any());
+        assertThat(cancelledIds.getValue()).containsExactlyInAnyOrder(1, 3);
+
+        verify(bookingStatsRollupService, times(2)).record(any(), any(DatLichKham.class));
+        ArgumentCaptor<List<DatLichKham>> notified = bookingListCaptor();
+        verify(notificationService).sendLeaveCancellationNotifications(notified.capture(), anyString());
+        assertThat(notified.getValue()).extracting(DatLichKham::getDatLichID).containsExactly(1, 3);
+
+        assertThat(response.getSoLichBiHuy()).isEqualTo(2);
+        assertThat(response.getSoThongBao()).isEqualTo(2);
+        assertThat(response.getLichBiAnhHuong())
+            .extracting(NgayNghiApprovalResponse.LichBiAnhHuong::getDatLichID)
+            .containsExactly(1, 3);
+        // Trạng thái trước + hoàn tiền theo dòng đã khóa, không theo bản đọc cũ
+        assertThat(response.getLichBiAnhHuong().get(1).getTrangThaiTruoc()).isEqualTo(TrangThaiDatLich.DA_XAC_NHAN);
+        assertThat(response.getSoLichHoanTien()).isEqualTo(1);
+        assertThat(response.getTongTienHoan()).isEqualByComparingTo("300000");
+    }
+
+    @Test
+    void approve_nothingLocked_cancelsNothing() {
+        BacSiNgayNghi leave = leave(11, LocalDate.of(2026, 11, 3));
+        when(ngayNghiRepository.findById(11)).thenReturn(Optional.of(leave));
+        when(datLichKhamRepository.findActiveBookingsForLeave(eq(5), any(), any(), any(), anyList()))
+            .thenReturn(List.of(booking(7, TrangThaiDatLich.DA_XAC_NHAN)));
+        when(datLichKhamRepository.lockActiveBookings(anyList(), anyList())).thenReturn(List.of());
+
+        NgayNghiApprovalResponse response = service.approve(approveRequest(11));
+
+        verify(datLichKhamRepository, times(0)).cancelBookingsForDoctorLeave(
+            anyList(), anyList(), any(), any(), any(), anyString(), any());
+        verify(notificationService, times(0)).sendLeaveCancellationNotifications(anyList(), anyString());
+        assertThat(response.getSoLichBiHuy()).isZero();
+        assertThat(response.getLichBiAnhHuong()).isEmpty();
+    }
+
+    @Test
+    void approve_annualLeave_deductsWhenEnoughDaysLeft() {
+        BacSiNgayNghi leave = leave(12, LocalDate.of(2026, 11, 4));
+        leave.setLoaiNghiPhep(LoaiNghiPhep.PHEP_NAM);
+        when(ngayNghiRepository.findById(12)).thenReturn(Optional.of(leave));
+        when(bacSiRepository.incrementAnnualLeaveUsed(5, 1)).thenReturn(1);
+
+        NgayNghiApprovalResponse response = service.approve(approveRequest(12));
+
+        verify(bacSiRepository).incrementAnnualLeaveUsed(5, 1);
+        assertThat(leave.getTrangThai()).isEqualTo(TrangThaiNghi.DA_DUYET);
+        assertThat(response.getYeuCau()).hasSize(1);
+    }
+
+    @Test
+    void approve_annualLeave_notEnoughDaysLeft_throws() {
+        BacSiNgayNghi leave = leave(13, LocalDate.of(2026, 11, 5));
+        leave.setLoaiNghiPhep(LoaiNghiPhep.PHEP_NAM);
+        when(ngayNghiRepository.findById(13)).thenReturn(Optional.of(leave));
+        // Điều kiện trong UPDATE không thỏa (admin khác vừa duyệt hết phép)
+        when(bacSiRepository.incrementAnnualLeaveUsed(5, 1)).thenReturn(0);
+
+        assertThatThrownBy(() -> service.approve(approveRequest(13)))
+            .isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("#13");
+        verify(ngayNghiRepository, times(0)).save(any(BacSiNgayNghi.class));
+    }
+
+    @Test
+    void search_unknownSortField_throwsBadRequest() {
+        SearchNgayNghiRequest request = SearchNgayNghiRequest.builder().sortBy("bacSi.nguoiDung.email").build();
+
+        assertThatThrownBy(() -> service.search(request))
+            .isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("bacSi.nguoiDung.email")
+            .hasMessageContaining("createdAt, ngayNghiCuThe, trangThai");
+        verify(ngayNghiRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void search_appliesSortPagingAndOnlyGivenFilters() {
+        LocalDate toCreatedDate = LocalDate.of(2026, 10, 31);
+        SearchNgayNghiRequest request = SearchNgayNghiRequest.builder()
+            .bacSiID(5)
+            .trangThai(TrangThaiNghi.CHO_DUYET)
+            .tenBacSi("  Nguyen ")
+            .toCreatedDate(toCreatedDate)
+            .sortBy("ngayNghiCuThe")
+            .sortDirection("ASC")
+            .page(1)
+            .size(20)
+            .build();
+        when(ngayNghiRepository.findAll(any(Specification.class), any(Pageable.class)))
+            .thenReturn(new PageImpl<>(List.of(leave(21, LocalDate.of(2026, 11, 6)))));
+
+        Page<NgayNghiResponse> result = service.search(request);
+
+        assertThat(result.getContent()).extracting(NgayNghiResponse::getNghiID).containsExactly(21);
+        ArgumentCaptor<Specification<BacSiNgayNghi>> spec = specCaptor();
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(ngayNghiRepository).findAll(spec.capture(), pageable.capture());
+        assertThat(pageable.getValue().getPageNumber()).isEqualTo(1);
+        assertThat(pageable.getValue().getPageSize()).isEqualTo(20);
+        // Hòa theo nghiID để thứ tự ổn định giữa các trang
+        assertThat(pageable.getValue().getSort())
+            .isEqualTo(Sort.by(Sort.Direction.ASC, "ngayNghiCuThe").and(Sort.by(Sort.Direction.ASC, "nghiID")));
+
+        // Chạy Specification ở nhánh count (chỉ join, không fetch) để kiểm tra điều kiện sinh ra
+        Root<BacSiNgayNghi> root = deepMock(Root.class);
+        CriteriaQuery<?> query = mock(CriteriaQuery.class);
+        doReturn(Long.class).when(query).getResultType();
+        CriteriaBuilder cb = deepMock(CriteriaBuilder.class);
+
+        spec.getValue().toPredicate(root, query, cb);
+
+        verify(cb).isFalse(any());
+        verify(cb).equal(any(), eq(5));
+        verify(cb).equal(any(), eq(TrangThaiNghi.CHO_DUYET));
+        verify(cb, times(2)).equal(any(Expression.class), any(Object.class));
+        verify(cb).like(any(), eq("%nguyen%"));
+        verify(cb).lessThan(any(), eq(toCreatedDate.plusDays(1).atStartOfDay()));
+        verify(cb, never()).greaterThanOrEqualTo(any(), any(LocalDate.class));
+        verify(cb, never()).greaterThanOrEqualTo(any(), any(LocalDateTime.class));
+        verify(cb, never()).lessThanOrEqualTo(any(), any(LocalDate.class));
+    }
+
+    @Test
+    void getPendingRequests_unknownSortField_throwsBadRequest() {
+        assertThatThrownBy(() -> service.getPendingRequests(0, 20, "lyDo", Sort.Direction.ASC))
+            .isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("createdAt, loaiNghiPhep, ngayNghiCuThe");
+        verify(ngayNghiRepository, never()).findPendingQueue(any(Pageable.class));
+    }
+
+    @Test
+    void getPendingRequests_clampsPagingAndSortsBySupportedField() {
+        when(ngayNghiRepository.findPendingQueue(any(Pageable.class))).thenReturn(Page.empty());
+
+        service.getPendingRequests(-1, 500, "loaiNghiPhep", Sort.Direction.DESC);
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(ngayNghiRepository).findPendingQueue(pageable.capture());
+        assertThat(pageable.getValue().getPageNumber()).isZero();
+        assertThat(pageable.getValue().getPageSize()).isEqualTo(100);
+        assertThat(pageable.getValue().getSort())
+            .isEqualTo(Sort.by(Sort.Direction.DESC, "loaiNghiPhep").and(Sort.by(Sort.Direction.DESC, "nghiID")));
+    }
+
+    @Test
+    void getStatistics_mapsGroupedCountsAndSummary() {
+        when(ngayNghiRepository.countGroupedForStatistics(null)).thenReturn(List.of(
+            new Object[] {TrangThaiNghi.DA_DUYET, LoaiNghiPhep.PHEP_NAM, LoaiNghi.NGAY_CU_THE, 3, 4L},
+            new Object[] {TrangThaiNghi.TU_CHOI, LoaiNghiPhep.OM, LoaiNghi.NGAY_CU_THE, 3, 1L},
+            new Object[] {TrangThaiNghi.CHO_DUYET, LoaiNghiPhep.OM, LoaiNghi.CA_CU_THE, 5, 2L},
+            // Không có tháng tạo → vẫn tính vào tổng, không vào thống kê theo tháng
+            new Object[] {TrangThaiNghi.HUY, LoaiNghiPhep.PHEP_NAM, LoaiNghi.CA_HANG_TUAN, null, 1L}));
+        when(ngayNghiRepository.summarizeForStatistics(null)).thenReturn(List.<Object[]>of(
+            new Object[] {2L, 1.24, LocalDateTime.now().minusDays(3)}));
+
+        NgayNghiStatisticsResponse stats = service.getStatistics(null);
+
+        assertThat(stats.getTongYeuCau()).isEqualTo(8);
+        assertThat(stats.getDaDuyet()).isEqualTo(4);
+        assertThat(stats.getTuChoi()).isEqualTo(1);
+        assertThat(stats.getChoXuLy()).isEqualTo(2);
+        assertThat(stats.getDaBiHuy()).isEqualTo(1);
+        assertThat(stats.getTyLeDuyet()).isEqualTo(80.0);
+        assertThat(stats.getThongKeTheoLoaiPhep()).isEqualTo(Map.of("PHEP_NAM", 5, "OM", 3));
+        assertThat(stats.getLoaiPhepPhoBienNhat()).isEqualTo("PHEP_NAM");
+        assertThat(stats.getThongKeTheoLoaiNghi())
+            .isEqualTo(Map.of("NGAY_CU_THE", 5, "CA_CU_THE", 2, "CA_HANG_TUAN", 1));
+        assertThat(stats.getLoaiNghiPhoBienNhat()).isEqualTo("NGAY_CU_THE");
+        assertThat(stats.getThongKeTheoThang())
+            .extracting(NgayNghiStatisticsResponse.MonthlyStats::getThang,
+                NgayNghiStatisticsResponse.MonthlyStats::getSoYeuCau,
+                NgayNghiStatisticsResponse.MonthlyStats::getSoDaDuyet,
+                NgayNghiStatisticsResponse.MonthlyStats::getSoTuChoi,
+                NgayNghiStatisticsResponse.MonthlyStats::getSoChoXuLy)
+            .containsExactly(
+                tuple(3, 5, 4, 1, 0),
+                tuple(5, 2, 0, 0, 2));
+        assertThat(stats.getThangNhieuYeuCauNhat()).isEqualTo(3);
+        assertThat(stats.getSoBacSiCoYeuCau()).isEqualTo(2);
+        assertThat(stats.getTrungBinhYeuCauMotBacSi()).isEqualTo(4.0);
+        assertThat(stats.getThoiGianXuLyTrungBinh()).isEqualTo(1.2);
+        assertThat(stats.getYeuCauChoLauNhat()).isEqualTo(3);
+    }
+
+    @Test
+    void getStatistics_noRequests_returnsEmpty() {
+        when(ngayNghiRepository.countGroupedForStatistics(5)).thenReturn(List.of());
+        when(ngayNghiRepository.summarizeForStatistics(5)).thenReturn(List.of());
+
+        NgayNghiStatisticsResponse stats = service.getStatistics(5);
+
+        assertThat(stats.getTongYeuCau()).isZero();
+    }
+
+    private static ApproveNgayNghiRequest approveRequest(Integer nghiID) {
+        ApproveNgayNghiRequest request = new ApproveNgayNghiRequest();
+        request.setNghiIDs(List.of(nghiID));
+        request.setAction(ApproveNgayNghiRequest.ApprovalAction.APPROVE);
+        request.setDryRun(false);
+        return request;
+    }
+
+    private static BacSiNgayNghi leave(Integer nghiID, LocalDate ngay) {
+        NguoiDung nguoiDung = new NguoiDung();
+        nguoiDung.setHoTen("Bác sĩ A");
+        ChuyenKhoa chuyenKhoa = new ChuyenKhoa();
+        chuyenKhoa.setTenChuyenKhoa("Nội");
+        BacSi bacSi = new BacSi();
+        bacSi.setBacSiID(5);
+        bacSi.setNguoiDung(nguoiDung);
+        bacSi.setChuyenKhoa(chuyenKhoa);
+
+        BacSiNgayNghi leave = new BacSiNgayNghi();
+        leave.setNghiID(nghiID);
+        leave.setBacSi(bacSi);
+        leave.setLoaiNghi(LoaiNghi.NGAY_CU_THE);
+        leave.setNgayNghiCuThe(ngay);
+        leave.setLoaiNghiPhep(LoaiNghiPhep.OM);
+        leave.setTrangThai(TrangThaiNghi.CHO_DUYET);
+        leave.setCreatedAt(LocalDateTime.now());
+        return leave;
+    }
+
+    private static DatLichKham booking(Integer datLichID, TrangThaiDatLich trangThai) {
+        NguoiDung benhNhan = new NguoiDung();
+        benhNhan.setHoTen("Bệnh nhân " + datLichID);
+        DatLichKham booking = new DatLichKham();
+        booking.setDatLichID(datLichID);
+        booking.setBenhNhan(benhNhan);
+        booking.setTrangThai(trangThai);
+        booking.setTrangThaiThanhToan(TrangThaiThanhToan.CHUA_THANH_TOAN);
+        booking.setGiaKham(new BigDecimal("300000"));
+        booking.setNgayKham(LocalDate.of(2026, 11, 2));
+        return booking;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Specification<BacSiNgayNghi>> specCaptor() {
+        return ArgumentCaptor.forClass(Specification.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T deepMock(Class<?> type) {
+        return (T) mock(type, RETURNS_DEEP_STUBS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Integer>> idListCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<DatLichKham>> bookingListCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.demo.service;
+
+import org.example.demo.enums.MauThongBao;
+import org.example.demo.enums.TrangThaiDatLich;
+import org.example.demo.repository.DatLichKhamRepository;
+import org.example.demo.repository.ThongBaoJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BookingReminderServiceTest {
+
+    @Mock
+    private DatLichKhamRepository datLichKhamRepository;
+
+    @Mock
+    private ThongBaoJdbcRepository thongBaoJdbcRepository;
+
+    @Mock
+    private NotificationTemplateService templateService;
+
+    @Mock
+    private EmailDeliveryService emailDeliveryService;
+
+    @Mock
+    private NotificationStreamService notificationStreamService;
+
+    @Mock
+    private UnreadNotificationCounter unreadCounter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private BookingReminderService service;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "chunkSize", 200);
+        ReflectionTestUtils.setField(service, "oneHourLeadMinutes", 60);
+        ReflectionTestUtils.setField(service, "minGapMinutes", 120);
+        when(templateService.render(any(MauThongBao.class), any(Object[].class)))
+            .thenReturn(new NotificationTemplateService.RenderedNotification("Nhắc lịch", "Nội dung"));
+        when(thongBaoJdbcRepository.insertBatch(anyList(), any())).thenAnswer(invocation -> {
+            List<?> rows = invocation.getArgument(0);
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                ids.add(100 + i);
+            }
+            return ids;
+        });
+    }
+
+    @Test
+    void send24HourReminders_onlyNotifiesClaimedBookings() {
+        LocalDate ngayKham = LocalDate.of(2026, 10, 20);
+        when(datLichKhamRepository.findReminderCandidates(eq(ngayKham), eq(TrangThaiDatLich.DA_XAC_NHAN), eq(0), any()))
+            .thenReturn(List.of(row(1), row(2), row(3)));
+        // Lịch 2 đang bị lượt chạy khác giữ / đã nhắc
+        when(datLichKhamRepository.claimReminders(List.of(1, 2, 3))).thenReturn(List.of(1, 3));
+
+        int sent = service.send24HourReminders(ngayKham);
+
+        assertThat(sent).isEqualTo(2);
+        ArgumentCaptor<List<Integer>> marked = idListCaptor();
+        verify(datLichKhamRepository).markRemindersSent(marked.capture(), any(LocalDateTime.class));
+        assertThat(marked.getValue()).containsExactlyInAnyOrder(1, 3);
+
+        ArgumentCaptor<List<ThongBaoJdbcRepository.NewThongBao>> inserted = notificationListCaptor();
+        verify(thongBaoJdbcRepository).insertBatch(inserted.capture(), any(LocalDateTime.class));
+        assertThat(inserted.getValue())
+            .extracting(ThongBaoJdbcRepository.NewThongBao::datLichID)
+            .containsExactly(1, 1, 3, 3);
+
+        verify(emailDeliveryService, times(4))
+            .enqueue(anyInt(), anyString(), anyString(), any(), anyString(), anyString(), any());
+        verify(unreadCounter, times(4)).increment(anyInt(), eq(1));
+        verify(notificationStreamService, times(4)).publish(anyInt(), any());
+    }
+
+    @Test
+    void send24HourReminders_nothingClaimed_sendsNothing() {
+        LocalDate ngayKham = LocalDate.of(2026, 10, 20);
+        when(datLichKhamRepository.findReminderCandidates(eq(ngayKham), eq(TrangThaiDatLich.DA_XAC_NHAN), eq(0), any()))
+            .thenReturn(List.of(row(1), row(2)));
+        when(datLichKhamRepository.claimReminders(anyList())).thenReturn(List.of());
+
+        int sent = service.send24HourReminders(ngayKham);
+
+        assertThat(sent).isZero();
+        verify(datLichKhamRepository, never()).markRemindersSent(anyList(), any());
+        verify(thongBaoJdbcRepository, never()).insertBatch(anyList(), any());
+        verify(emailDeliveryService, never())
+            .enqueue(anyInt(), anyString(), anyString(), any(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void sendOneHourReminders_usesOneHourFlag() {
+        LocalDateTime now = LocalDateTime.of(2026, 10, 20, 9, 0);
+        when(datLichKhamRepository.findOneHourReminderCandidates(
+                eq(now.toLocalDate()), any(), any(), eq(TrangThaiDatLich.DA_XAC_NHAN), any(), eq(0), any()))
+            .thenReturn(List.of(row(5), row(6)));
+        // Claim kiểm tra lại khoảng cách tối thiểu với lần nhắc 24h (now - minGapMinutes)
+        when(datLichKhamRepository.claimOneHourReminders(List.of(5, 6), now.minusMinutes(120)))
+            .thenReturn(List.of(6));
+
+        int sent = service.sendOneHourReminders(now);
+
+        assertThat(sent).isEqualTo(1);
+        verify(datLichKhamRepository).markOneHourRemindersSent(eq(List.of(6)), any(LocalDateTime.class));
+        verify(datLichKhamRepository, never()).claimReminders(anyList());
+        verify(datLichKhamRepository, never()).markRemindersSent(anyList(), any());
+        verify(emailDeliveryService, times(2))
+            .enqueue(anyInt(), anyString(), anyString(), any(), anyString(), anyString(), any());
+    }
+
+    private static Object[] row(int datLichID) {
+        return new Object[] {
+            datLichID, LocalTime.of(10, 0), "MXN" + datLichID,
+            1000 + datLichID, "Bệnh nhân " + datLichID, "bn" + datLichID + "@example.com",
+            2000 + datLichID, "Bác sĩ " + datLichID, "bs" + datLichID + "@example.com"
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Integer>> idListCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<ThongBaoJdbcRepository.NewThongBao>> notificationListCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
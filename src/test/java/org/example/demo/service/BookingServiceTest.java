@@ -0,0 +1,37 @@
+package org.example.demo.service;
+
+import org.example.demo.enums.TieuChiXepHang;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BookingServiceTest {
+
+    @Mock
+    private DoctorRankingService doctorRankingService;
+
+    @InjectMocks
+    private BookingService service;
+
+    @Test
+    void getTopDoctorCompleted_keepsLegacyLimitOf50() {
+        service.getTopDoctorCompleted(null, null, 500);
+
+        verify(doctorRankingService).topDoctors(TieuChiXepHang.SO_CA_HOAN_THANH, null, null, 50, null);
+    }
+
+    @Test
+    void getTopDoctorRevenue_keepsLegacyLimitOf50() {
+        service.getTopDoctorRevenue(null, null, 80);
+
+        verify(doctorRankingService).topDoctors(TieuChiXepHang.DOANH_THU, null, null, 50, null);
+    }
+}
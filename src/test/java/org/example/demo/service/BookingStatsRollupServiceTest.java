@@ -0,0 +1,163 @@
+package org.example.demo.service;
+
+import org.example.demo.entity.BacSi;
+import org.example.demo.entity.DatLichKham;
+import org.example.demo.entity.ThongKeDatLichNgay;
+import org.example.demo.enums.TrangThaiDatLich;
+import org.example.demo.enums.TrangThaiThanhToan;
+import org.example.demo.repository.DatLichKhamRepository;
+import org.example.demo.repository.ThongKeDatLichNgayRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BookingStatsRollupServiceTest {
+
+    private static final LocalDate NGAY_KHAM = LocalDate.of(2026, 11, 2);
+    private static final LocalDate NGAY_THANH_TOAN = LocalDate.of(2026, 10, 25);
+    private static final BigDecimal GIA = new BigDecimal("300000");
+
+    @Mock
+    private ThongKeDatLichNgayRepository thongKeRepository;
+
+    @Mock
+    private DatLichKhamRepository datLichKhamRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private BookingStatsRollupService service;
+
+    @Test
+    void record_newBooking_addsOneRow() {
+        DatLichKham booking = booking(TrangThaiDatLich.CHO_XAC_NHAN_BAC_SI, TrangThaiThanhToan.CHUA_THANH_TOAN);
+
+        service.record(null, booking);
+
+        verify(thongKeRepository).addDelta(NGAY_KHAM, 5, "CHO_XAC_NHAN_BAC_SI", "CHUA_THANH_TOAN",
+            1, GIA, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+    }
+
+    @Test
+    void record_paidBookingCancelledWithRefund_movesContributions() {
+        DatLichKham booking = booking(TrangThaiDatLich.DA_XAC_NHAN, TrangThaiThanhToan.THANH_CONG);
+        booking.setNgayThanhToan(NGAY_THANH_TOAN.atTime(9, 0));
+        BookingStatsRollupService.Snapshot before = service.capture(booking);
+
+        booking.setTrangThai(TrangThaiDatLich.HUY_BOI_BAC_SI);
+        booking.setSoTienHoan(GIA);
+        service.record(before, booking);
+
+        // Theo ngày khám: rời dòng DA_XAC_NHAN, vào dòng HUY_BOI_BAC_SI kèm hoàn tiền
+        verify(thongKeRepository).addDelta(NGAY_KHAM, 5, "DA_XAC_NHAN", "THANH_CONG",
+            -1, GIA.negate(), 0, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+        verify(thongKeRepository).addDelta(NGAY_KHAM, 5, "HUY_BOI_BAC_SI", "THANH_CONG",
+            1, GIA, 1, GIA, 0, BigDecimal.ZERO);
+        // Theo ngày thanh toán: doanh thu chuyển sang dòng trạng thái mới
+        verify(thongKeRepository).addDelta(NGAY_THANH_TOAN, 5, "DA_XAC_NHAN", "THANH_CONG",
+            0, BigDecimal.ZERO, 0, BigDecimal.ZERO, -1, GIA.negate());
+        verify(thongKeRepository).addDelta(NGAY_THANH_TOAN, 5, "HUY_BOI_BAC_SI", "THANH_CONG",
+            0, BigDecimal.ZERO, 0, BigDecimal.ZERO, 1, GIA);
+    }
+
+    @Test
+    void record_unchangedBooking_writesNothing() {
+        DatLichKham booking = booking(TrangThaiDatLich.DA_XAC_NHAN, TrangThaiThanhToan.CHUA_THANH_TOAN);
+
+        service.record(service.capture(booking), booking);
+
+        verify(thongKeRepository, never()).addDelta(any(), any(), anyString(), anyString(),
+            anyLong(), any(), anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    void record_softDeletedBooking_removesContribution() {
+        DatLichKham booking = booking(TrangThaiDatLich.DA_XAC_NHAN, TrangThaiThanhToan.CHUA_THANH_TOAN);
+        BookingStatsRollupService.Snapshot before = service.capture(booking);
+
+        booking.setIsDeleted(true);
+        service.record(before, booking);
+
+        verify(thongKeRepository).addDelta(NGAY_KHAM, 5, "DA_XAC_NHAN", "CHUA_THANH_TOAN",
+            -1, GIA.negate(), 0, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+    }
+
+    @Test
+    void reconcile_appliesCorrectionAsDeltaForDriftedAndStaleRowsOnly() {
+        when(datLichKhamRepository.findStatisticsDateBounds())
+            .thenReturn(List.<Object[]>of(new Object[] {NGAY_KHAM, NGAY_KHAM}));
+        when(thongKeRepository.findDateBounds()).thenReturn(List.<Object[]>of(new Object[] {NGAY_KHAM, NGAY_KHAM}));
+        when(datLichKhamRepository.aggregateByNgayKham(any(), any())).thenReturn(List.of(
+            new Object[] {NGAY_KHAM, 5, TrangThaiDatLich.DA_XAC_NHAN, TrangThaiThanhToan.CHUA_THANH_TOAN,
+                2L, new BigDecimal("600000"), 0L, BigDecimal.ZERO},
+            new Object[] {NGAY_KHAM, 6, TrangThaiDatLich.DA_XAC_NHAN, TrangThaiThanhToan.CHUA_THANH_TOAN,
+                1L, GIA, 0L, BigDecimal.ZERO}));
+        when(datLichKhamRepository.aggregateByNgayThanhToan(any(LocalDateTime.class), any(LocalDateTime.class)))
+            .thenReturn(List.of());
+        when(thongKeRepository.findByNgayBetween(any(), any())).thenReturn(List.of(
+            // Khớp
+            row(5, TrangThaiDatLich.DA_XAC_NHAN, 2, new BigDecimal("600000.00")),
+            // Lệch số lịch
+            row(6, TrangThaiDatLich.DA_XAC_NHAN, 3, new BigDecimal("900000")),
+            // Không còn lịch nào → về 0
+            row(7, TrangThaiDatLich.CHO_THANH_TOAN, 1, GIA)));
+
+        int fixed = service.reconcile();
+
+        assertThat(fixed).isEqualTo(2);
+        // Sửa bằng delta (đúng - hiện có) để không ghi đè delta commit xen giữa
+        verify(thongKeRepository).addDelta(NGAY_KHAM, 6, "DA_XAC_NHAN", "CHUA_THANH_TOAN",
+            -2, new BigDecimal("-600000"), 0, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+        verify(thongKeRepository).addDelta(NGAY_KHAM, 7, "CHO_THANH_TOAN", "CHUA_THANH_TOAN",
+            -1, GIA.negate(), 0, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+        verify(thongKeRepository, never()).addDelta(eq(NGAY_KHAM), eq(5), anyString(), anyString(),
+            anyLong(), any(), anyLong(), any(), anyLong(), any());
+        verify(thongKeRepository).deleteEmptyRows(any(), any());
+    }
+
+    private static DatLichKham booking(TrangThaiDatLich trangThai, TrangThaiThanhToan thanhToan) {
+        BacSi bacSi = new BacSi();
+        bacSi.setBacSiID(5);
+        DatLichKham booking = new DatLichKham();
+        booking.setDatLichID(1);
+        booking.setBacSi(bacSi);
+        booking.setNgayKham(NGAY_KHAM);
+        booking.setTrangThai(trangThai);
+        booking.setTrangThaiThanhToan(thanhToan);
+        booking.setGiaKham(GIA);
+        return booking;
+    }
+
+    private static ThongKeDatLichNgay row(int bacSiID, TrangThaiDatLich trangThai, long soLich, BigDecimal tongGiaKham) {
+        ThongKeDatLichNgay row = new ThongKeDatLichNgay();
+        row.setNgay(NGAY_KHAM);
+        row.setBacSiID(bacSiID);
+        row.setTrangThai(trangThai);
+        row.setTrangThaiThanhToan(TrangThaiThanhToan.CHUA_THANH_TOAN);
+        row.setSoLich(soLich);
+        row.setTongGiaKham(tongGiaKham);
+        return row;
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.demo.service;
+
+import org.example.demo.dto.response.DoctorRankingResponse;
+import org.example.demo.enums.TieuChiXepHang;
+import org.example.demo.repository.ThongKeDanhGiaBacSiRepository;
+import org.example.demo.repository.ThongKeDatLichNgayRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DoctorRankingServiceTest {
+
+    @Mock
+    private ThongKeDatLichNgayRepository thongKeDatLichNgayRepository;
+
+    @Mock
+    private ThongKeDanhGiaBacSiRepository thongKeDanhGiaBacSiRepository;
+
+    @InjectMocks
+    private DoctorRankingService service;
+
+    @Test
+    void summarizeByDoctor_countsOnlyPaidCompletedVisits() throws Exception {
+        // Giữ nghĩa của top-completed cũ: ca HOAN_THANH chưa thanh toán không được tính
+        String jpql = ThongKeDatLichNgayRepository.class
+            .getMethod("summarizeByDoctor", LocalDate.class, LocalDate.class, Integer.class)
+            .getAnnotation(Query.class).value()
+            .replaceAll("\\s+", " ");
+
+        assertThat(jpql).contains("SUM(CASE WHEN t.trangThai = org.example.demo.enums.TrangThaiDatLich.HOAN_THANH"
+            + " AND t.trangThaiThanhToan = org.example.demo.enums.TrangThaiThanhToan.THANH_CONG"
+            + " THEN t.soLich ELSE 0 END)");
+    }
+
+    @Test
+    void topDoctors_completed_ranksByCountThenRevenue() {
+        when(thongKeDatLichNgayRepository.summarizeByDoctor(any(), any(), any())).thenReturn(List.of(
+            row(1, "300000", 1, 4, 0),
+            row(2, "900000", 3, 5, 1),
+            row(3, "600000", 3, 3, 0),
+            // Chưa có ca hoàn thành đã thanh toán → không xếp hạng
+            row(4, "0", 0, 6, 2)));
+
+        List<DoctorRankingResponse> ranking = service.topDoctors(TieuChiXepHang.SO_CA_HOAN_THANH, null, null, 10, null);
+
+        assertThat(ranking).extracting(DoctorRankingResponse::getBacSiID).containsExactly(2, 3, 1);
+        assertThat(ranking).extracting(DoctorRankingResponse::getHang).containsExactly(1, 2, 3);
+        assertThat(ranking.get(0).getGiaTri()).isEqualByComparingTo("3");
+    }
+
+    @Test
+    void topDoctors_keepsOnlyK() {
+        when(thongKeDatLichNgayRepository.summarizeByDoctor(any(), any(), any())).thenReturn(List.of(
+            row(1, "100000", 1, 1, 0),
+            row(2, "300000", 3, 3, 0),
+            row(3, "200000", 2, 2, 0)));
+
+        List<DoctorRankingResponse> ranking = service.topDoctors(TieuChiXepHang.DOANH_THU, null, null, 2, null);
+
+        assertThat(ranking).extracting(DoctorRankingResponse::getBacSiID).containsExactly(2, 3);
+    }
+
+    private static Object[] row(int bacSiID, String doanhThu, long soCaHoanThanh, long soLich, long soLichHuy) {
+        return new Object[] {bacSiID, "Bác sĩ " + bacSiID, 1, "Nội",
+            new BigDecimal(doanhThu), soCaHoanThanh, soLich, soLichHuy};
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.demo.service;
+
+import org.example.demo.entity.ThongKeDanhGiaBacSi;
+import org.example.demo.repository.DatLichKhamRepository;
+import org.example.demo.repository.ThongKeDanhGiaBacSiRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DoctorRatingSummaryServiceTest {
+
+    @Mock
+    private ThongKeDanhGiaBacSiRepository thongKeDanhGiaBacSiRepository;
+
+    @Mock
+    private DatLichKhamRepository datLichKhamRepository;
+
+    @InjectMocks
+    private DoctorRatingSummaryService service;
+
+    @Test
+    void record_addsRatingAtomically() {
+        service.record(3, 4);
+
+        verify(thongKeDanhGiaBacSiRepository).addRating(3, 4);
+    }
+
+    @Test
+    void verify_matchingSummary_fixesNothing() {
+        // Bác sĩ 1: 2 x 5 sao + 1 x 3 sao
+        when(datLichKhamRepository.countRatingsGroupByDoctorAndStars())
+            .thenReturn(List.of(new Object[] {1, 5, 2L}, new Object[] {1, 3, 1L}));
+        when(thongKeDanhGiaBacSiRepository.findAll()).thenReturn(List.of(summary(1, 3, 13, 0, 0, 1, 0, 2)));
+
+        assertThat(service.verify()).isZero();
+        verify(thongKeDanhGiaBacSiRepository, never())
+            .addDelta(anyInt(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void verify_histogramDrift_addsDifference() {
+        when(datLichKhamRepository.countRatingsGroupByDoctorAndStars())
+            .thenReturn(List.<Object[]>of(new Object[] {1, 5, 2L}));
+        when(thongKeDanhGiaBacSiRepository.findAll()).thenReturn(List.of(summary(1, 1, 5, 0, 0, 0, 0, 1)));
+
+        assertThat(service.verify()).isEqualTo(1);
+        verify(thongKeDanhGiaBacSiRepository).addDelta(1, 1, 5, 0, 0, 0, 0, 1);
+    }
+
+    @Test
+    void verify_countOrTotalDrift_withCorrectHistogram_addsDifference() {
+        when(datLichKhamRepository.countRatingsGroupByDoctorAndStars())
+            .thenReturn(List.of(new Object[] {1, 4, 1L}, new Object[] {2, 2, 3L}));
+        when(thongKeDanhGiaBacSiRepository.findAll()).thenReturn(List.of(
+            // Phân bố đúng nhưng SoDanhGia lệch
+            summary(1, 2, 4, 0, 0, 0, 1, 0),
+            // Phân bố đúng nhưng TongSoSao lệch
+            summary(2, 3, 7, 0, 3, 0, 0, 0)));
+
+        assertThat(service.verify()).isEqualTo(2);
+        verify(thongKeDanhGiaBacSiRepository).addDelta(1, -1, 0, 0, 0, 0, 0, 0);
+        verify(thongKeDanhGiaBacSiRepository).addDelta(2, 0, -1, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    void verify_summaryWithoutRatings_isZeroed() {
+        when(datLichKhamRepository.countRatingsGroupByDoctorAndStars()).thenReturn(List.of());
+        when(thongKeDanhGiaBacSiRepository.findAll()).thenReturn(List.of(
+            summary(4, 1, 5, 0, 0, 0, 0, 1),
+            summary(5, 0, 0, 0, 0, 0, 0, 0)));
+
+        assertThat(service.verify()).isEqualTo(1);
+        verify(thongKeDanhGiaBacSiRepository).addDelta(4, -1, -5, 0, 0, 0, 0, -1);
+    }
+
+    @Test
+    void verify_missingSummary_isCreated() {
+        when(datLichKhamRepository.countRatingsGroupByDoctorAndStars())
+            .thenReturn(List.<Object[]>of(new Object[] {6, 1, 1L}));
+        when(thongKeDanhGiaBacSiRepository.findAll()).thenReturn(List.of());
+
+        assertThat(service.verify()).isEqualTo(1);
+        verify(thongKeDanhGiaBacSiRepository).addDelta(6, 1, 1, 1, 0, 0, 0, 0);
+    }
+
+    private static ThongKeDanhGiaBacSi summary(int bacSiID, long soDanhGia, long tongSoSao,
+                                               long mot, long hai, long ba, long bon, long nam) {
+        return new ThongKeDanhGiaBacSi(bacSiID, soDanhGia, tongSoSao, mot, hai, ba, bon, nam, null);
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.demo.service;
+
+import org.example.demo.dto.response.BacSiResponse;
+import org.example.demo.exception.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DoctorSearchIndexTest {
+
+    private final DoctorSearchIndex index = new DoctorSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.rebuild(List.of(
+            doctor(1, "Nguyễn Văn An", "Tim mạch", 5, "300000", 4.5),
+            doctor(2, "Trần Thị Bình", "Nội Nguyên", 12, "200000", null),
+            doctor(3, "Lê Nguyên", "Da liễu", 8, "500000", 4.9)), index.version());
+    }
+
+    @Test
+    void search_unsorted_ranksByRelevance() {
+        Page<BacSiResponse> page = index.search("nguyen", PageRequest.of(0, 10));
+
+        // Khớp tên (1, 3) đứng trước khớp chuyên khoa (2)
+        assertThat(ids(page)).hasSize(3).endsWith(2);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void search_sortedByRequestedField_honorsDirection() {
+        assertThat(ids(index.search("nguyen", PageRequest.of(0, 10, Sort.by("soNamKinhNghiem")))))
+            .containsExactly(1, 3, 2);
+        assertThat(ids(index.search("nguyen", PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "giaKham")))))
+            .containsExactly(3, 1, 2);
+    }
+
+    @Test
+    void search_sortedByNullableField_putsNullsLast() {
+        assertThat(ids(index.search("nguyen", PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "danhGiaTrungBinh")))))
+            .containsExactly(3, 1, 2);
+        assertThat(ids(index.search("nguyen", PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "danhGiaTrungBinh")))))
+            .containsExactly(1, 3, 2);
+    }
+
+    @Test
+    void search_sortAppliesBeforePaging() {
+        Page<BacSiResponse> second = index.search("nguyen", PageRequest.of(1, 2, Sort.by("hoTen")));
+
+        // le nguyen, nguyen van an | tran thi binh
+        assertThat(ids(second)).containsExactly(2);
+    }
+
+    @Test
+    void search_unsupportedSortField_isRejected() {
+        assertThatThrownBy(() -> index.search("nguyen", PageRequest.of(0, 10, Sort.by("nguoiDung.email"))))
+            .isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("nguoiDung.email");
+    }
+
+    private static List<Integer> ids(Page<BacSiResponse> page) {
+        return page.getContent().stream().map(BacSiResponse::getBacSiID).toList();
+    }
+
+    private static BacSiResponse doctor(int id, String hoTen, String tenChuyenKhoa, int soNamKinhNghiem,
+                                        String giaKham, Double danhGia) {
+        BacSiResponse doctor = new BacSiResponse();
+        doctor.setBacSiID(id);
+        doctor.setHoTen(hoTen);
+        doctor.setTenChuyenKhoa(tenChuyenKhoa);
+        doctor.setSoNamKinhNghiem(soNamKinhNghiem);
+        doctor.setGiaKham(new BigDecimal(giaKham));
+        doctor.setDanhGiaTrungBinh(danhGia);
+        return doctor;
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.demo.service;
+
+import jakarta.mail.internet.MimeMessage;
+import org.example.demo.enums.LoaiThongBao;
+import org.example.demo.repository.ThongBaoJdbcRepository;
+import org.example.demo.repository.ThongBaoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class EmailDeliveryServiceTest {
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_SECONDS = 60;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private ThongBaoRepository thongBaoRepository;
+
+    @Mock
+    private ThongBaoJdbcRepository thongBaoJdbcRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private NotificationTemplateService templateService;
+
+    private EmailDeliveryService service;
+
+    @BeforeEach
+    void setUp() {
+        // Không khởi động worker: test gọi deliver / flush / sweep trực tiếp; tắt gộp email
+        service = new EmailDeliveryService(1, 10, 10, 20, 10, 24, 200, 0, 10, 5000,
+            MAX_ATTEMPTS, BASE_SECONDS, 3600);
+        ReflectionTestUtils.setField(service, "emailService", emailService);
+        ReflectionTestUtils.setField(service, "thongBaoRepository", thongBaoRepository);
+        ReflectionTestUtils.setField(service, "thongBaoJdbcRepository", thongBaoJdbcRepository);
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(service, "templateService", templateService);
+        when(emailService.buildNotificationMessage(anyString(), any(), any(), any())).thenReturn(mock(MimeMessage.class));
+    }
+
+    @Test
+    void transientFailure_incrementsInDbAndSchedulesBackoffFromUpdatedCount() {
+        sendFails(7, false);
+        when(thongBaoRepository.findEmailFailureCounts(List.of(7))).thenReturn(List.<Object[]>of(new Object[] {7, 2}));
+
+        LocalDateTime before = LocalDateTime.now();
+        service.flushSentFlags();
+
+        assertThat(ids(captureIncremented())).containsExactly(7);
+        ThongBaoJdbcRepository.EmailFailure scheduled = single(captureScheduled());
+        assertThat(scheduled.soLanLoi()).isEqualTo(2);
+        // Lần lỗi thứ 2: base * 2 = 120s, jitter trong [50%, 100%]
+        assertThat(scheduled.guiLaiLuc()).isBetween(before.plusSeconds(59), LocalDateTime.now().plusSeconds(121));
+        assertThat(captureDeadLetters()).isEmpty();
+        assertThat(service.getStats().getSoThongBaoDangXuLy()).isZero();
+    }
+
+    @Test
+    void failureReachingMaxAttempts_isDeadLettered() {
+        sendFails(8, false);
+        when(thongBaoRepository.findEmailFailureCounts(List.of(8)))
+            .thenReturn(List.<Object[]>of(new Object[] {8, MAX_ATTEMPTS}));
+
+        service.flushSentFlags();
+
+        ThongBaoJdbcRepository.EmailFailure dead = single(captureDeadLetters());
+        assertThat(dead.thongBaoID()).isEqualTo(8);
+        assertThat(dead.soLanLoi()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(dead.guiLaiLuc()).isNull();
+        assertThat(single(captureScheduled()).guiLaiLuc()).isNull();
+        assertThat(service.getStats().getSoChuyenDeadLetter()).isEqualTo(1);
+    }
+
+    @Test
+    void permanentFailure_isDeadLetteredOnFirstAttempt() {
+        sendFails(9, true);
+        when(thongBaoRepository.findEmailFailureCounts(List.of(9))).thenReturn(List.<Object[]>of(new Object[] {9, 1}));
+
+        service.flushSentFlags();
+
+        assertThat(single(captureDeadLetters()).soLanLoi()).isEqualTo(1);
+    }
+
+    @Test
+    void alreadySentElsewhere_isNotRescheduled() {
+        sendFails(10, false);
+        when(thongBaoRepository.findEmailFailureCounts(List.of(10))).thenReturn(List.of());
+
+        service.flushSentFlags();
+
+        assertThat(captureScheduled()).isEmpty();
+        assertThat(captureDeadLetters()).isEmpty();
+    }
+
+    @Test
+    void batchLevelFailure_requeuesWithDelayWithoutCountingAttempt() {
+        when(emailService.sendNotificationEmails(anyList())).thenThrow(new MailSendException("Hết kết nối SMTP khả dụng"));
+        deliver(new EmailDeliveryService.EmailJob(List.of(11, 12), "a@example.com", "s", "t", "h"));
+
+        LocalDateTime before = LocalDateTime.now();
+        service.flushSentFlags();
+
+        assertThat(captureIncremented()).isEmpty();
+        verify(thongBaoRepository, never()).findEmailFailureCounts(anyList());
+        List<ThongBaoJdbcRepository.EmailFailure> scheduled = captureScheduled();
+        assertThat(ids(scheduled)).containsExactlyInAnyOrder(11, 12);
+        assertThat(scheduled).allSatisfy(failure -> {
+            assertThat(failure.soLanLoi()).isZero();
+            assertThat(failure.guiLaiLuc()).isBetween(before.plusSeconds(29), LocalDateTime.now().plusSeconds(61));
+        });
+        assertThat(captureDeadLetters()).isEmpty();
+    }
+
+    @Test
+    void sweep_requeuesDueRetriesRegardlessOfAge() {
+        when(thongBaoRepository.findDueEmailRetries(eq(MAX_ATTEMPTS), any(), any()))
+            .thenReturn(List.<Object[]>of(new Object[] {
+                20, "old@example.com", "A", "Tiêu đề", "Nội dung", LoaiThongBao.HUY_LICH, 3}));
+        when(thongBaoRepository.findPendingEmailJobs(any(), any(), any())).thenReturn(List.of());
+
+        service.sweepPendingEmails();
+
+        assertThat(service.getStats().getSoEmailTrongHangDoi()).isEqualTo(1);
+        assertThat(service.getStats().getSoLanGuiLai()).isEqualTo(1);
+    }
+
+    @Test
+    void sweep_requeuesNeverAttemptedEmailOfAnyType() {
+        // deliver() gửi email cho mọi loại → email bị rớt khi hàng đợi đầy cũng phải được quét lại
+        when(thongBaoRepository.findDueEmailRetries(eq(MAX_ATTEMPTS), any(), any())).thenReturn(List.of());
+        when(thongBaoRepository.findPendingEmailJobs(any(), any(), any())).thenReturn(List.<Object[]>of(new Object[] {
+            21, "new@example.com", "B", "Tiêu đề", "Nội dung", LoaiThongBao.HE_THONG, 0}));
+
+        service.sweepPendingEmails();
+
+        assertThat(service.getStats().getSoEmailTrongHangDoi()).isEqualTo(1);
+    }
+
+    private void sendFails(int thongBaoID, boolean permanent) {
+        when(emailService.sendNotificationEmails(anyList())).thenReturn(List.of(
+            new SmtpMailSender.SendResult("a@example.com", false, "550 rejected", permanent)));
+        deliver(new EmailDeliveryService.EmailJob(List.of(thongBaoID), "a@example.com", "s", "t", "h"));
+    }
+
+    private void deliver(EmailDeliveryService.EmailJob job) {
+        ReflectionTestUtils.invokeMethod(service, "deliver", List.of(job));
+    }
+
+    private List<ThongBaoJdbcRepository.EmailFailure> captureIncremented() {
+        ArgumentCaptor<List<ThongBaoJdbcRepository.EmailFailure>> captor = failureListCaptor();
+        verify(thongBaoJdbcRepository).incrementEmailFailures(captor.capture());
+        return captor.getValue();
+    }
+
+    private List<ThongBaoJdbcRepository.EmailFailure> captureScheduled() {
+        ArgumentCaptor<List<ThongBaoJdbcRepository.EmailFailure>> captor = failureListCaptor();
+        verify(thongBaoJdbcRepository).scheduleEmailRetries(captor.capture());
+        return captor.getValue();
+    }
+
+    private List<ThongBaoJdbcRepository.EmailFailure> captureDeadLetters() {
+        ArgumentCaptor<List<ThongBaoJdbcRepository.EmailFailure>> captor = failureListCaptor();
+        verify(thongBaoJdbcRepository).insertEmailDeadLetters(captor.capture(), any());
+        return captor.getValue();
+    }
+
+    private static ThongBaoJdbcRepository.EmailFailure single(List<ThongBaoJdbcRepository.EmailFailure> failures) {
+        assertThat(failures).hasSize(1);
+        return failures.get(0);
+    }
+
+    private static List<Integer> ids(List<ThongBaoJdbcRepository.EmailFailure> failures) {
+        return failures.stream().map(ThongBaoJdbcRepository.EmailFailure::thongBaoID).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<ThongBaoJdbcRepository.EmailFailure>> failureListCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.demo.service;
+
+import org.example.demo.repository.ThongBaoJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class NotificationRetentionServiceTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2026, 7, 21, 0, 0);
+    private static final int CHUNK_SIZE = 3;
+
+    @Mock
+    private ThongBaoJdbcRepository thongBaoJdbcRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private NotificationRetentionService service;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "chunkSize", CHUNK_SIZE);
+        ReflectionTestUtils.setField(service, "pauseMillis", 0L);
+        ReflectionTestUtils.setField(service, "archive", false);
+    }
+
+    @Test
+    void cleanup_walksKeysetRangesChunkByChunk() {
+        when(thongBaoJdbcRepository.findExpiredIds(0, CUTOFF, CHUNK_SIZE)).thenReturn(List.of(2, 5, 9));
+        when(thongBaoJdbcRepository.findExpiredIds(9, CUTOFF, CHUNK_SIZE)).thenReturn(List.of(10, 11, 40));
+        when(thongBaoJdbcRepository.findExpiredIds(40, CUTOFF, CHUNK_SIZE)).thenReturn(List.of(41));
+        when(thongBaoJdbcRepository.deleteRange(0, 9, CUTOFF)).thenReturn(3);
+        when(thongBaoJdbcRepository.deleteRange(9, 40, CUTOFF)).thenReturn(2); // 1 dòng vừa được đọc lại
+        when(thongBaoJdbcRepository.deleteRange(40, 41, CUTOFF)).thenReturn(1);
+
+        NotificationRetentionService.RetentionResult result = service.cleanup(CUTOFF);
+
+        InOrder order = inOrder(thongBaoJdbcRepository);
+        order.verify(thongBaoJdbcRepository).deleteRange(0, 9, CUTOFF);
+        order.verify(thongBaoJdbcRepository).deleteRange(9, 40, CUTOFF);
+        order.verify(thongBaoJdbcRepository).deleteRange(40, 41, CUTOFF);
+        // Lô cuối chưa đầy → không query thêm
+        verify(thongBaoJdbcRepository, never()).findExpiredIds(41, CUTOFF, CHUNK_SIZE);
+        verify(thongBaoJdbcRepository, never()).archiveRange(anyInt(), anyInt(), any(), any());
+        assertThat(result.chunks()).isEqualTo(3);
+        assertThat(result.deleted()).isEqualTo(6);
+        assertThat(result.archived()).isZero();
+    }
+
+    @Test
+    void cleanup_fullLastChunk_stopsOnEmptyQuery() {
+        when(thongBaoJdbcRepository.findExpiredIds(0, CUTOFF, CHUNK_SIZE)).thenReturn(List.of(1, 2, 3));
+        when(thongBaoJdbcRepository.findExpiredIds(3, CUTOFF, CHUNK_SIZE)).thenReturn(List.of());
+        when(thongBaoJdbcRepository.deleteRange(0, 3, CUTOFF)).thenReturn(3);
+
+        NotificationRetentionService.RetentionResult result = service.cleanup(CUTOFF);
+
+        verify(thongBaoJdbcRepository).findExpiredIds(3, CUTOFF, CHUNK_SIZE);
+        verify(thongBaoJdbcRepository, times(1)).deleteRange(anyInt(), anyInt(), any());
+        assertThat(result.chunks()).isEqualTo(1);
+        assertThat(result.deleted()).isEqualTo(3);
+    }
+
+    @Test
+    void cleanup_withArchive_copiesEachRangeBeforeDeleting() {
+        ReflectionTestUtils.setField(service, "archive", true);
+        when(thongBaoJdbcRepository.findExpiredIds(0, CUTOFF, CHUNK_SIZE)).thenReturn(List.of(4, 7));
+        when(thongBaoJdbcRepository.archiveRange(anyInt(), anyInt(), any(), any())).thenReturn(2);
+        when(thongBaoJdbcRepository.deleteRange(0, 7, CUTOFF)).thenReturn(2);
+
+        NotificationRetentionService.RetentionResult result = service.cleanup(CUTOFF);
+
+        InOrder order = inOrder(thongBaoJdbcRepository);
+        order.verify(thongBaoJdbcRepository).archiveRange(eq(0), eq(7), eq(CUTOFF), any(LocalDateTime.class));
+        order.verify(thongBaoJdbcRepository).deleteRange(0, 7, CUTOFF);
+        assertThat(result.archived()).isEqualTo(2);
+        assertThat(result.deleted()).isEqualTo(2);
+    }
+
+    @Test
+    void cleanup_nothingExpired_returnsEmptyResult() {
+        when(thongBaoJdbcRepository.findExpiredIds(0, CUTOFF, CHUNK_SIZE)).thenReturn(List.of());
+
+        NotificationRetentionService.RetentionResult result = service.cleanup(CUTOFF);
+
+        verify(thongBaoJdbcRepository, never()).deleteRange(anyInt(), anyInt(), any());
+        assertThat(result.chunks()).isZero();
+        assertThat(result.deleted()).isZero();
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.demo.service;
+
+import org.example.demo.dto.response.NotificationStreamStatsResponse;
+import org.example.demo.dto.response.ThongBaoResponse;
+import org.example.demo.enums.LoaiThongBao;
+import org.example.demo.repository.ThongBaoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class NotificationStreamServiceTest {
+
+    private static final int USER = 1;
+
+    @Mock
+    private ThongBaoRepository thongBaoRepository;
+
+    private NotificationStreamService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void subscribe_replayThenLiveEvents_skipsOnlyReplayedDuplicates() throws Exception {
+        service = newService(64, 5, 100);
+        // Sự kiện live đến trong lúc đang phát lại: 8 trùng phần phát lại, 7 commit muộn (ID nhỏ hơn 8)
+        when(thongBaoRepository.findStreamResume(eq(USER), eq(5), any())).thenAnswer(invocation -> {
+            service.publish(USER, event(8));
+            service.publish(USER, event(7));
+            return List.of(row(6), row(8));
+        });
+
+        RecordingEmitter emitter = (RecordingEmitter) service.subscribe(USER, 5);
+        service.publish(USER, event(9));
+
+        await(() -> emitter.notificationIds().size() >= 4);
+        assertThat(emitter.notificationIds()).containsExactly(6, 8, 7, 9);
+        assertThat(emitter.eventNames()).doesNotContain(NotificationStreamService.EVENT_RESYNC);
+        NotificationStreamStatsResponse stats = service.getStats();
+        assertThat(stats.getSoSuKienPhatLai()).isEqualTo(2);
+        assertThat(stats.getSoSuKienDaGui()).isEqualTo(2);
+    }
+
+    @Test
+    void subscribe_replayReachingResumeLimit_sendsResync() throws Exception {
+        service = newService(64, 5, 2);
+        when(thongBaoRepository.findStreamResume(eq(USER), eq(3), any())).thenReturn(List.of(row(4), row(5)));
+
+        RecordingEmitter emitter = (RecordingEmitter) service.subscribe(USER, 3);
+
+        assertThat(emitter.notificationIds()).containsExactly(4, 5);
+        assertThat(emitter.eventNames()).endsWith(NotificationStreamService.EVENT_RESYNC);
+    }
+
+    @Test
+    void publish_slowClientOverflowingBuffer_isDisconnected() throws Exception {
+        service = newService(2, 5, 100);
+        RecordingEmitter emitter = (RecordingEmitter) service.subscribe(USER, null);
+        emitter.blockNotifications();
+
+        service.publish(USER, event(1));
+        assertThat(emitter.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        // Đang ghi sự kiện 1 → 2, 3 lấp đầy buffer, 4 tràn
+        service.publish(USER, event(2));
+        service.publish(USER, event(3));
+        service.publish(USER, event(4));
+
+        assertThat(emitter.completed).isTrue();
+        NotificationStreamStatsResponse stats = service.getStats();
+        assertThat(stats.getSoKetNoiBiNgatDoTranBuffer()).isEqualTo(1);
+        assertThat(stats.getSoKetNoi()).isZero();
+        emitter.release.countDown();
+    }
+
+    @Test
+    void subscribe_overMaxConnections_evictsOldestTab() throws Exception {
+        service = newService(64, 2, 100);
+        RecordingEmitter oldest = (RecordingEmitter) service.subscribe(USER, null);
+        RecordingEmitter second = (RecordingEmitter) service.subscribe(USER, null);
+        RecordingEmitter newest = (RecordingEmitter) service.subscribe(USER, null);
+
+        assertThat(oldest.completed).isTrue();
+        assertThat(second.completed).isFalse();
+        assertThat(newest.completed).isFalse();
+        assertThat(service.getStats().getSoKetNoi()).isEqualTo(2);
+
+        service.publish(USER, event(10));
+        await(() -> second.notificationIds().size() == 1 && newest.notificationIds().size() == 1);
+        assertThat(oldest.notificationIds()).isEmpty();
+    }
+
+    private NotificationStreamService newService(int bufferSize, int maxConnections, int resumeLimit) {
+        NotificationStreamService stream = new NotificationStreamService(60_000, bufferSize, maxConnections, resumeLimit, 1) {
+            @Override
+            SseEmitter createEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+        ReflectionTestUtils.setField(stream, "thongBaoRepository", thongBaoRepository);
+        return stream;
+    }
+
+    private static ThongBaoResponse event(int thongBaoID) {
+        return ThongBaoResponse.builder().thongBaoID(thongBaoID).tieuDe("TB " + thongBaoID).build();
+    }
+
+    private static Object[] row(int thongBaoID) {
+        return new Object[] {thongBaoID, LoaiThongBao.HUY_LICH, "TB " + thongBaoID, "Nội dung",
+            LocalDateTime.now(), false, null, null};
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    /**
+     * Emitter ghi lại sự kiện đã gửi thay vì ghi ra response; có thể chặn để giả lập client chậm
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private static final Pattern ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+        private static final Pattern NAME = Pattern.compile("^event:(\\w+)$", Pattern.MULTILINE);
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blocking;
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                text.append(part.getData());
+            }
+            String event = text.toString();
+            if (blocking && NAME.matcher(event).find()) {
+                sending.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(event);
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        void blockNotifications() {
+            blocking = true;
+        }
+
+        List<Integer> notificationIds() {
+            List<Integer> ids = new ArrayList<>();
+            for (String event : events) {
+                Matcher matcher = ID.matcher(event);
+                if (event.contains("event:" + NotificationStreamService.EVENT_NOTIFICATION) && matcher.find()) {
+                    ids.add(Integer.valueOf(matcher.group(1)));
+                }
+            }
+            return ids;
+        }
+
+        List<String> eventNames() {
+            List<String> names = new ArrayList<>();
+            for (String event : events) {
+                Matcher matcher = NAME.matcher(event);
+                if (matcher.find()) {
+                    names.add(matcher.group(1));
+                }
+            }
+            return names;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.demo.service;
+
+import org.example.demo.enums.LoaiThongBao;
+import org.example.demo.enums.MauThongBao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationTemplateServiceTest {
+
+    private final NotificationTemplateService service = new NotificationTemplateService();
+
+    @BeforeEach
+    void setUp() {
+        // Mọi MauThongBao phải biên dịch được (mẫu sai → ném lỗi ngay tại đây)
+        service.compileTemplates();
+    }
+
+    @Test
+    void render_fillsTitleAndBody() {
+        NotificationTemplateService.RenderedNotification rendered = service.render(MauThongBao.BAC_SI_TU_CHOI,
+            "BS. An", LocalTime.of(9, 0), LocalDate.of(2026, 11, 2), "Bận họp");
+
+        assertThat(rendered.tieuDe()).isEqualTo("Lịch hẹn bị từ chối");
+        assertThat(rendered.noiDung())
+            .isEqualTo("BS. An đã từ chối lịch hẹn của bạn vào lúc 09:00 ngày 02/11/2026.\nLý do: Bận họp");
+    }
+
+    @Test
+    void render_emptyOptionalValue_dropsSection() {
+        NotificationTemplateService.RenderedNotification rendered = service.render(MauThongBao.HUY_LICH_DO_NGHI_PHEP,
+            "BS. An", "ốm", LocalTime.of(9, 0), LocalDate.of(2026, 11, 2), null);
+
+        assertThat(rendered.noiDung()).doesNotContain("hoàn lại").contains("Vui lòng đặt lại lịch khám");
+
+        rendered = service.render(MauThongBao.HUY_LICH_DO_NGHI_PHEP,
+            "BS. An", "ốm", LocalTime.of(9, 0), LocalDate.of(2026, 11, 2), new BigDecimal("300000"));
+        assertThat(rendered.noiDung()).contains("Số tiền " + String.format("%,.0f", 300_000.0) + " VNĐ sẽ được hoàn lại");
+    }
+
+    @Test
+    void renderEmailHtml_escapesUserValues() {
+        String html = service.renderEmailHtml(MauThongBao.BAC_SI_TU_CHOI, "<b>An</b>",
+            "BS. <script>", LocalTime.of(9, 0), LocalDate.of(2026, 11, 2), "a & b");
+
+        assertThat(html)
+            .contains("Xin chào &lt;b&gt;An&lt;/b&gt;,")
+            .contains("BS. &lt;script&gt; đã từ chối")
+            .contains("<br>Lý do: a &amp; b")
+            .contains(LoaiThongBao.BAC_SI_TU_CHOI.getMauSac())
+            .doesNotContain("<script>");
+    }
+
+    @Test
+    void renderEmailText_keepsBodyVerbatim() {
+        assertThat(service.renderEmailText("An", "Dòng 1 <b>\nDòng 2"))
+            .isEqualTo("Xin chào An,\n\nDòng 1 <b>\nDòng 2\n\nTrân trọng,\nHealthCare Booking Team");
+    }
+
+    @Test
+    void renderStoredEmailHtml_escapesStoredContent() {
+        String html = service.renderStoredEmailHtml(LoaiThongBao.HUY_LICH, "An", "Tiêu đề", "<img src=x>\nHết");
+
+        assertThat(html).contains("&lt;img src=x&gt;<br>Hết").doesNotContain("<img");
+    }
+
+    @Test
+    void renderDigest_listsEveryItem() {
+        List<NotificationTemplateService.DigestItem> items = List.of(
+            new NotificationTemplateService.DigestItem(LoaiThongBao.HUY_LICH, "Hủy lịch", "Lịch <1> bị hủy"),
+            new NotificationTemplateService.DigestItem(null, "Khác", "Nội dung 2"));
+
+        assertThat(service.renderDigestSubject(items.size())).isEqualTo("Bạn có 2 thông báo mới");
+        assertThat(service.renderDigestText("An", items))
+            .contains("- Hủy lịch\n  Lịch <1> bị hủy\n- Khác\n  Nội dung 2\n");
+        assertThat(service.renderDigestHtml("An", items))
+            .contains("<strong>Hủy lịch</strong><br>Lịch &lt;1&gt; bị hủy")
+            .contains("<strong>Khác</strong><br>Nội dung 2")
+            .contains("Bạn có 2 thông báo mới");
+    }
+}
@@ -0,0 +1,198 @@
+package org.example.demo.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Gửi thật qua SMTP giả lập (GreenMail): dùng lại kết nối, mở lại kết nối, lỗi từng email trong lô, server treo
+ */
+class SmtpMailSenderTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP.dynamicPort());
+
+    private SmtpMailSender sender;
+
+    @AfterEach
+    void tearDown() {
+        if (sender != null) {
+            sender.shutdown();
+        }
+    }
+
+    @Test
+    void send_reusesPooledConnectionAcrossBatches() throws Exception {
+        sender = newSender(4, 100, 60, 0);
+
+        assertThat(sender.send(List.of(message("a@example.com"), message("b@example.com"))))
+            .allMatch(SmtpMailSender.SendResult::success);
+        Object first = idleConnection("bulkPool");
+        Transport transport = transportOf(first);
+
+        assertThat(sender.send(List.of(message("c@example.com")))).allMatch(SmtpMailSender.SendResult::success);
+
+        assertThat(idleConnections("bulkPool")).hasSize(1);
+        assertThat(idleConnection("bulkPool")).isSameAs(first);
+        assertThat(transport.isConnected()).isTrue();
+        assertThat(sentCountOf(first)).isEqualTo(3);
+        assertThat(greenMail.getReceivedMessages()).hasSize(3);
+    }
+
+    @Test
+    void send_reconnectsAfterMaxMessagesPerConnection() throws Exception {
+        sender = newSender(1, 2, 60, 0);
+
+        List<SmtpMailSender.SendResult> results = sender.send(List.of(
+            message("a@example.com"), message("b@example.com"), message("c@example.com"),
+            message("d@example.com"), message("e@example.com")));
+
+        assertThat(results).allMatch(SmtpMailSender.SendResult::success);
+        // 2 + 2 + 1: kết nối được làm mới 2 lần
+        assertThat(sentCountOf(idleConnection("bulkPool"))).isEqualTo(1);
+        assertThat(greenMail.getReceivedMessages()).hasSize(5);
+    }
+
+    @Test
+    void send_reconnectsAfterIdleTimeout() throws Exception {
+        sender = newSender(1, 100, 0, 0);
+
+        sender.send(List.of(message("a@example.com")));
+        TimeUnit.MILLISECONDS.sleep(20);
+        sender.send(List.of(message("b@example.com")));
+
+        // Nhàn rỗi quá idle-timeout → mở kết nối mới, bộ đếm tính lại từ đầu
+        assertThat(sentCountOf(idleConnection("bulkPool"))).isEqualTo(1);
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+    }
+
+    @Test
+    void send_reconnectsWhenServerDroppedConnection() throws Exception {
+        sender = newSender(1, 100, 60, 0);
+
+        sender.send(List.of(message("a@example.com")));
+        transportOf(idleConnection("bulkPool")).close();
+
+        assertThat(sender.send(List.of(message("b@example.com")))).allMatch(SmtpMailSender.SendResult::success);
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+    }
+
+    @Test
+    void send_reportsPerMessageFailureWithoutFailingBatch() throws Exception {
+        sender = newSender(1, 100, 60, 0);
+        MimeMessage noRecipient = message("x@example.com");
+        noRecipient.setRecipients(Message.RecipientType.TO, new InternetAddress[0]);
+
+        List<SmtpMailSender.SendResult> results = sender.send(List.of(
+            message("a@example.com"), noRecipient, message("c@example.com")));
+
+        assertThat(results).extracting(SmtpMailSender.SendResult::success).containsExactly(true, false, true);
+        assertThat(results.get(1).error()).isNotBlank();
+        assertThat(results.get(0).to()).isEqualTo("a@example.com");
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+    }
+
+    @Test
+    void sendOrThrow_usesReservedConnectionAndSkipsThrottle() throws Exception {
+        // 1 kết nối nền, 0.5 email/giây → email nền thứ 2 giữ kết nối ~2 giây
+        sender = newSender(1, 100, 60, 0.5);
+        CompletableFuture<List<SmtpMailSender.SendResult>> bulk = CompletableFuture.supplyAsync(
+            () -> sender.send(List.of(message("a@example.com"), message("b@example.com"))));
+        assertThat(greenMail.waitForIncomingEmail(5000, 1)).isTrue();
+
+        long start = System.nanoTime();
+        sender.sendOrThrow(message("user@example.com"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis).isLessThan(1000);
+        assertThat(bulk.get(10, TimeUnit.SECONDS)).allMatch(SmtpMailSender.SendResult::success);
+        assertThat(idleConnections("interactivePool")).hasSize(1);
+        assertThat(greenMail.getReceivedMessages()).hasSize(3);
+    }
+
+    private SmtpMailSender newSender(int poolSize, int maxMessages, long idleSeconds, double maxPerSecond) {
+        return newSender(greenMail.getSmtp().getPort(), poolSize, maxMessages, idleSeconds, maxPerSecond, 5000);
+    }
+
+    private SmtpMailSender newSender(int port, int poolSize, int maxMessages, long idleSeconds, double maxPerSecond,
+                                     long timeoutMillis) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(port);
+        SmtpMailSender smtp = new SmtpMailSender(poolSize, 2000, maxMessages, idleSeconds, maxPerSecond, 1,
+            timeoutMillis, timeoutMillis, timeoutMillis);
+        ReflectionTestUtils.setField(smtp, "mailSender", mailSender);
+        ReflectionTestUtils.setField(smtp, "fromAddress", "noreply@example.com");
+        return smtp;
+    }
+
+    @Test
+    void send_hungServer_failsWithinTimeoutAndFreesConnection() throws Exception {
+        // Server nhận kết nối TCP (backlog) nhưng không bao giờ gửi lời chào SMTP
+        try (ServerSocket hung = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+            sender = newSender(hung.getLocalPort(), 1, 100, 60, 0, 300);
+
+            long start = System.nanoTime();
+            List<SmtpMailSender.SendResult> results = sender.send(List.of(message("a@example.com")));
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertThat(elapsedMillis).isLessThan(3000);
+            assertThat(results).singleElement().satisfies(result -> {
+                assertThat(result.success()).isFalse();
+                assertThat(result.permanent()).isFalse();
+            });
+            // Kết nối được trả về pool → lần gửi sau không bị "Hết kết nối SMTP khả dụng"
+            assertThat(idleConnections("bulkPool")).hasSize(1);
+            assertThatThrownBy(() -> sender.sendOrThrow(message("user@example.com")))
+                .isInstanceOf(MailSendException.class);
+        }
+    }
+
+    private MimeMessage message(String to) {
+        try {
+            MimeMessage mime = sender.createMimeMessage();
+            mime.setRecipients(Message.RecipientType.TO, to);
+            mime.setSubject("Test");
+            mime.setText("Nội dung");
+            return mime;
+        } catch (MessagingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Queue<?> idleConnections(String pool) {
+        return (Queue<?>) ReflectionTestUtils.getField(ReflectionTestUtils.getField(sender, pool), "idle");
+    }
+
+    private Object idleConnection(String pool) {
+        return idleConnections(pool).peek();
+    }
+
+    private static Transport transportOf(Object pooled) {
+        return (Transport) ReflectionTestUtils.getField(pooled, "transport");
+    }
+
+    private static int sentCountOf(Object pooled) {
+        return (Integer) ReflectionTestUtils.getField(pooled, "sentCount");
+    }
+}
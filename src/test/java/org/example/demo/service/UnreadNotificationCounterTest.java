@@ -0,0 +1,179 @@
+package org.example.demo.service;
+
+import org.example.demo.repository.ThongBaoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class UnreadNotificationCounterTest {
+
+    private static final int USER = 7;
+
+    @Mock
+    private ThongBaoRepository thongBaoRepository;
+
+    @InjectMocks
+    private UnreadNotificationCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(counter, "maxEntries", 100);
+        ReflectionTestUtils.setField(counter, "idleSeconds", 3600L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void get_loadsFromDbOnceThenServesFromMemory() {
+        when(thongBaoRepository.countUnread(USER)).thenReturn(4L);
+
+        assertThat(counter.get(USER)).isEqualTo(4);
+        counter.increment(USER, 2);
+        assertThat(counter.get(USER)).isEqualTo(6);
+
+        verify(thongBaoRepository, times(1)).countUnread(USER);
+    }
+
+    @Test
+    void get_cacheFull_countsFromDbWithoutCaching() {
+        ReflectionTestUtils.setField(counter, "maxEntries", 0);
+        when(thongBaoRepository.countUnread(USER)).thenReturn(3L);
+
+        counter.get(USER);
+        counter.get(USER);
+
+        verify(thongBaoRepository, times(2)).countUnread(USER);
+    }
+
+    @Test
+    void decrement_neverGoesBelowZero() {
+        when(thongBaoRepository.countUnread(USER)).thenReturn(1L);
+        counter.get(USER);
+
+        counter.decrement(USER);
+        counter.decrement(USER);
+
+        assertThat(counter.get(USER)).isZero();
+    }
+
+    @Test
+    void reset_setsZero() {
+        when(thongBaoRepository.countUnread(USER)).thenReturn(5L);
+        counter.get(USER);
+
+        counter.reset(USER);
+
+        assertThat(counter.get(USER)).isZero();
+    }
+
+    @Test
+    void changeBeforeCommit_notAppliedUntilCommit() {
+        when(thongBaoRepository.countUnread(USER)).thenReturn(2L);
+        counter.get(USER);
+
+        TransactionSynchronizationManager.initSynchronization();
+        counter.increment(USER, 1);
+        assertThat(counter.get(USER)).isEqualTo(2);
+        commit();
+
+        assertThat(counter.get(USER)).isEqualTo(3);
+    }
+
+    @Test
+    void loadDuringUncommittedChange_doesNotDoubleCount() {
+        TransactionSynchronizationManager.initSynchronization();
+        counter.increment(USER, 1);
+        // Transaction đã commit trước COUNT nhưng afterCommit chưa chạy → COUNT đã gồm thông báo mới
+        when(thongBaoRepository.countUnread(USER)).thenReturn(1L);
+        assertThat(counter.get(USER)).isEqualTo(1);
+
+        commit();
+
+        assertThat(counter.get(USER)).isEqualTo(1);
+    }
+
+    @Test
+    void reconcile_fixesDriftedCounter() {
+        when(thongBaoRepository.countUnread(USER)).thenReturn(3L);
+        counter.get(USER);
+        when(thongBaoRepository.countUnreadByUsers(anyCollection()))
+            .thenReturn(List.<Object[]>of(new Object[] {USER, 5L}));
+
+        assertThat(counter.reconcile()).isEqualTo(1);
+        assertThat(counter.get(USER)).isEqualTo(5);
+    }
+
+    @Test
+    void reconcile_changeAppliedDuringCount_keepsNewerValue() {
+        when(thongBaoRepository.countUnread(USER)).thenReturn(3L);
+        counter.get(USER);
+        // Thay đổi áp dụng trong lúc đếm → version khác → không ghi đè bằng kết quả đếm cũ
+        when(thongBaoRepository.countUnreadByUsers(anyCollection())).thenAnswer(invocation -> {
+            counter.increment(USER, 1);
+            return List.<Object[]>of(new Object[] {USER, 3L});
+        });
+
+        assertThat(counter.reconcile()).isZero();
+        assertThat(counter.get(USER)).isEqualTo(4);
+    }
+
+    @Test
+    void reconcile_commitBeforeCountWithLateCallback_doesNotDoubleCount() {
+        when(thongBaoRepository.countUnread(USER)).thenReturn(0L);
+        counter.get(USER);
+        TransactionSynchronizationManager.initSynchronization();
+        counter.increment(USER, 1);
+        when(thongBaoRepository.countUnreadByUsers(anyCollection()))
+            .thenReturn(List.<Object[]>of(new Object[] {USER, 1L}));
+
+        counter.reconcile();
+        when(thongBaoRepository.countUnread(USER)).thenReturn(1L);
+        commit();
+
+        assertThat(counter.get(USER)).isEqualTo(1);
+    }
+
+    @Test
+    void reconcile_evictsIdleCounters() throws Exception {
+        when(thongBaoRepository.countUnread(USER)).thenReturn(2L);
+        counter.get(USER);
+        ReflectionTestUtils.setField(counter, "idleSeconds", 0L);
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        counter.reconcile();
+        counter.get(USER);
+
+        verify(thongBaoRepository, times(2)).countUnread(USER);
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.demo.service;
+
+import org.example.demo.dto.response.DoctorUtilizationResponse;
+import org.example.demo.enums.KyThongKe;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UtilizationReportExporterTest {
+
+    private static final LocalDate TU_NGAY = LocalDate.of(2026, 11, 2);
+    private static final LocalDate DEN_NGAY = LocalDate.of(2026, 11, 8);
+
+    private final UtilizationReportExporter exporter = new UtilizationReportExporter();
+
+    @Test
+    void writeCsv_writesBomHeaderAndRows() throws Exception {
+        String csv = export(row("Bác sĩ A", "Nội", 0.5));
+
+        assertThat(csv).startsWith("\uFEFFBacSiID,Bác sĩ,Chuyên khoa,");
+        String[] lines = csv.split("\r\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[1]).isEqualTo("1,Bác sĩ A,Nội,2026-11-02,2026-11-08,20,2,10,8,1,1,0.5,0.8,0.1,0.1");
+    }
+
+    @Test
+    void writeCsv_formulaLikeText_isPrefixedWithQuote() throws Exception {
+        String[] lines = export(
+            row("=HYPERLINK(\"http://x\")", "+Nội", 0.5),
+            row("-Bác sĩ", "@SUM(A1)", 0.5)).split("\r\n");
+
+        assertThat(lines[1]).startsWith("1,\"'=HYPERLINK(\"\"http://x\"\")\",'+Nội,");
+        assertThat(lines[2]).startsWith("1,'-Bác sĩ,'@SUM(A1),");
+    }
+
+    @Test
+    void writeCsv_negativeNumber_isNotPrefixed() throws Exception {
+        String[] lines = export(row("Bác sĩ A", "Nội", -0.25)).split("\r\n");
+
+        assertThat(lines[1]).contains(",-0.25,").doesNotContain("'");
+    }
+
+    @Test
+    void writeCsv_textWithSeparators_isQuoted() throws Exception {
+        String[] lines = export(row("Nguyễn, Văn \"A\"", "Nội", 0.5)).split("\r\n");
+
+        assertThat(lines[1]).startsWith("1,\"Nguyễn, Văn \"\"A\"\"\",Nội,");
+    }
+
+    private String export(DoctorUtilizationResponse.Row... rows) throws Exception {
+        DoctorUtilizationResponse report = DoctorUtilizationResponse.builder()
+            .fromDate(TU_NGAY)
+            .toDate(DEN_NGAY)
+            .ky(KyThongKe.TUAN)
+            .rows(List.of(rows))
+            .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writeCsv(report, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static DoctorUtilizationResponse.Row row(String tenBacSi, String tenChuyenKhoa, double tyLeDat) {
+        return DoctorUtilizationResponse.Row.builder()
+            .bacSiID(1)
+            .tenBacSi(tenBacSi)
+            .tenChuyenKhoa(tenChuyenKhoa)
+            .tuNgay(TU_NGAY)
+            .denNgay(DEN_NGAY)
+            .soSlot(20)
+            .soSlotNghi(2)
+            .soLichDat(10L)
+            .soHoanThanh(8L)
+            .soHuy(1L)
+            .soKhongDen(1L)
+            .tyLeDat(tyLeDat)
+            .tyLeHoanThanh(0.8)
+            .tyLeHuy(0.1)
+            .tyLeKhongDen(0.1)
+            .build();
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoalescingBufferTest {
+
+    @Test
+    void add_belowMaxItems_holdsItems() {
+        CoalescingBuffer<String, Integer> buffer = new CoalescingBuffer<>(1_000, 3);
+
+        assertThat(buffer.add("a", 1, 0)).isNull();
+        assertThat(buffer.add("a", 2, 10)).isNull();
+        assertThat(buffer.add("b", 3, 10)).isNull();
+
+        assertThat(buffer.size()).isEqualTo(3);
+    }
+
+    @Test
+    void add_reachingMaxItems_returnsGroupInOrder() {
+        CoalescingBuffer<String, Integer> buffer = new CoalescingBuffer<>(1_000, 3);
+        buffer.add("a", 1, 0);
+        buffer.add("b", 9, 0);
+        buffer.add("a", 2, 0);
+
+        assertThat(buffer.add("a", 3, 0)).containsExactly(1, 2, 3);
+        assertThat(buffer.size()).isEqualTo(1);
+        // Nhóm đã lấy ra → key bắt đầu nhóm mới
+        assertThat(buffer.add("a", 4, 0)).isNull();
+        assertThat(buffer.size()).isEqualTo(2);
+    }
+
+    @Test
+    void add_maxItemsBelowOne_flushesEveryItem() {
+        CoalescingBuffer<String, Integer> buffer = new CoalescingBuffer<>(1_000, 0);
+
+        assertThat(buffer.add("a", 1, 0)).containsExactly(1);
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void drainDue_windowFixedFromFirstItem() {
+        CoalescingBuffer<String, Integer> buffer = new CoalescingBuffer<>(1_000, 10);
+        buffer.add("a", 1, 0);
+        // Thêm muộn không kéo dài cửa sổ của "a"
+        buffer.add("a", 2, 900);
+        buffer.add("b", 3, 500);
+
+        assertThat(buffer.drainDue(999)).isEmpty();
+        assertThat(buffer.drainDue(1_000)).containsExactly(List.of(1, 2));
+        assertThat(buffer.size()).isEqualTo(1);
+        assertThat(buffer.drainDue(1_499)).isEmpty();
+        assertThat(buffer.drainDue(1_500)).containsExactly(List.of(3));
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void remove_takesOnlyThatKey() {
+        CoalescingBuffer<String, Integer> buffer = new CoalescingBuffer<>(1_000, 10);
+        buffer.add("a", 1, 0);
+        buffer.add("a", 2, 0);
+        buffer.add("b", 3, 0);
+
+        assertThat(buffer.remove("a")).containsExactly(1, 2);
+        assertThat(buffer.remove("a")).isNull();
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void drainAll_emptiesBuffer() {
+        CoalescingBuffer<String, Integer> buffer = new CoalescingBuffer<>(1_000, 10);
+        buffer.add("a", 1, 0);
+        buffer.add("b", 2, 0);
+        buffer.add("b", 3, 0);
+
+        assertThat(buffer.drainAll()).containsExactlyInAnyOrder(List.of(1), List.of(2, 3));
+        assertThat(buffer.size()).isZero();
+        assertThat(buffer.drainDue(Long.MAX_VALUE)).isEmpty();
+    }
+}
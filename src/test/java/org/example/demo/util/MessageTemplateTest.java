@@ -0,0 +1,118 @@
+package org.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageTemplateTest {
+
+    @Test
+    void renderText_formatsValuesByType() {
+        MessageTemplate template = MessageTemplate.compile(
+            "{gio} {ngay} | {luc} | {tien} VNĐ | {ten}", List.of("gio", "ngay", "luc", "tien", "ten"));
+
+        assertThat(text(template, LocalTime.of(8, 5), LocalDate.of(2026, 11, 2),
+            LocalDateTime.of(2026, 11, 2, 14, 30), new BigDecimal("1500000"), "An"))
+            .isEqualTo("08:05 02/11/2026 | 14:30 02/11/2026 | " + String.format("%,.0f", 1_500_000.0) + " VNĐ | An");
+    }
+
+    @Test
+    void renderText_nullValue_rendersEmpty() {
+        MessageTemplate template = MessageTemplate.compile("[{ten}]", List.of("ten"));
+
+        assertThat(text(template, (Object) null)).isEqualTo("[]");
+    }
+
+    @Test
+    void renderHtml_escapesValuesAndLiterals() {
+        MessageTemplate template = MessageTemplate.compile("A & B\n<{ten}>", List.of("ten"));
+
+        assertThat(html(template, "<script>alert('x')</script> \"q\""))
+            .isEqualTo("A &amp; B<br>&lt;&lt;script&gt;alert(&#39;x&#39;)&lt;/script&gt; &quot;q&quot;&gt;");
+    }
+
+    @Test
+    void renderHtml_rawValue_isNotEscaped() {
+        MessageTemplate template = MessageTemplate.compileHtml("<p>{!noiDung}</p><b>{ten}</b>", List.of("noiDung", "ten"));
+
+        assertThat(html(template, "<i>đã render</i>", "<i>"))
+            .isEqualTo("<p><i>đã render</i></p><b>&lt;i&gt;</b>");
+    }
+
+    @Test
+    void renderText_sectionRenderedOnlyWhenValuePresent() {
+        MessageTemplate template = MessageTemplate.compile("Đã hủy.{?lyDo} Lý do: {lyDo}{/lyDo} Hết", List.of("lyDo"));
+
+        assertThat(text(template, "bận")).isEqualTo("Đã hủy. Lý do: bận Hết");
+        assertThat(text(template, (Object) null)).isEqualTo("Đã hủy. Hết");
+        assertThat(text(template, "  ")).isEqualTo("Đã hủy. Hết");
+    }
+
+    @Test
+    void renderText_nestedSections() {
+        MessageTemplate template = MessageTemplate.compile("{?a}A{?b}B{/b}{/a}.", List.of("a", "b"));
+
+        assertThat(text(template, "x", "y")).isEqualTo("AB.");
+        assertThat(text(template, "x", null)).isEqualTo("A.");
+        assertThat(text(template, null, "y")).isEqualTo(".");
+    }
+
+    @Test
+    void renderText_appendsToCallerBuffer() {
+        MessageTemplate template = MessageTemplate.compile("{ten}", List.of("ten"));
+        StringBuilder out = new StringBuilder("Xin chào ");
+
+        template.renderText(out, new Object[]{"An"});
+
+        assertThat(out).hasToString("Xin chào An");
+    }
+
+    @Test
+    void compile_undeclaredVariable_throws() {
+        assertThatThrownBy(() -> MessageTemplate.compile("Chào {ten}", List.of("hoTen")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("{ten}");
+    }
+
+    @Test
+    void compile_missingClosingBrace_throws() {
+        assertThatThrownBy(() -> MessageTemplate.compile("Chào {ten", List.of("ten")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("'}'");
+    }
+
+    @Test
+    void compile_unclosedSection_throws() {
+        assertThatThrownBy(() -> MessageTemplate.compile("{?lyDo}Lý do: {lyDo}", List.of("lyDo")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("chưa đóng");
+    }
+
+    @Test
+    void compile_mismatchedSectionClose_throws() {
+        assertThatThrownBy(() -> MessageTemplate.compile("{?a}{?b}x{/a}{/b}", List.of("a", "b")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("{/a}");
+        assertThatThrownBy(() -> MessageTemplate.compile("x{/a}", List.of("a")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String text(MessageTemplate template, Object... values) {
+        StringBuilder out = new StringBuilder();
+        template.renderText(out, values);
+        return out.toString();
+    }
+
+    private static String html(MessageTemplate template, Object... values) {
+        StringBuilder out = new StringBuilder();
+        template.renderHtml(out, values);
+        return out.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package org.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StaleWhileRevalidateCacheTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    void get_freshEntry_doesNotCallLoader() {
+        StaleWhileRevalidateCache<String, String> cache = new StaleWhileRevalidateCache<>("test", 60_000, 60_000, 10, DIRECT);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThat(cache.get("k", () -> "v" + calls.incrementAndGet())).isEqualTo("v1");
+        assertThat(cache.get("k", () -> "v" + calls.incrementAndGet())).isEqualTo("v1");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void get_staleEntry_returnsOldValueAndRefreshesInBackground() throws Exception {
+        StaleWhileRevalidateCache<String, String> cache = new StaleWhileRevalidateCache<>("test", 0, 60_000, 10, DIRECT);
+        AtomicInteger calls = new AtomicInteger();
+        cache.get("k", () -> "v" + calls.incrementAndGet());
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        assertThat(cache.get("k", () -> "v" + calls.incrementAndGet())).isEqualTo("v1");
+        TimeUnit.MILLISECONDS.sleep(5);
+        assertThat(cache.get("k", () -> "v" + calls.incrementAndGet())).isEqualTo("v2");
+    }
+
+    @Test
+    void get_backgroundRefreshFails_keepsStaleValue() throws Exception {
+        StaleWhileRevalidateCache<String, String> cache = new StaleWhileRevalidateCache<>("test", 0, 60_000, 10, DIRECT);
+        cache.get("k", () -> "v1");
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        assertThat(cache.get("k", () -> {
+            throw new IllegalStateException("db down");
+        })).isEqualTo("v1");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void get_refreshExecutorRejects_keepsStaleValueAndRetriesLater() throws Exception {
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("full");
+        };
+        StaleWhileRevalidateCache<String, String> cache = new StaleWhileRevalidateCache<>("test", 0, 60_000, 10, rejecting);
+        cache.get("k", () -> "v1");
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        assertThat(cache.get("k", () -> "v2")).isEqualTo("v1");
+        assertThat(cache.get("k", () -> "v2")).isEqualTo("v1");
+    }
+
+    @Test
+    void get_concurrentMisses_shareOneLoad() throws Exception {
+        StaleWhileRevalidateCache<String, String> cache = new StaleWhileRevalidateCache<>("test", 60_000, 60_000, 10, DIRECT);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get("k", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "v";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.get("k", () -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        TimeUnit.MILLISECONDS.sleep(50);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void get_loaderThrowsError_failsWaitersAndAllowsRetry() throws Exception {
+        StaleWhileRevalidateCache<String, String> cache = new StaleWhileRevalidateCache<>("test", 60_000, 60_000, 10, DIRECT);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get("k", () -> {
+            started.countDown();
+            await(release);
+            throw new LinkageError("class missing");
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(() -> cache.get("k", () -> "unused"));
+        TimeUnit.MILLISECONDS.sleep(50);
+        release.countDown();
+
+        // Request chờ cùng key nhận lỗi thay vì treo
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasRootCauseInstanceOf(LinkageError.class);
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+            .hasRootCauseInstanceOf(LinkageError.class);
+
+        // Không còn load dang dở → lần sau tính lại
+        assertThat(cache.get("k", () -> "v")).isEqualTo("v");
+    }
+
+    @Test
+    void get_syncLoaderError_isRethrownAsIs() {
+        StaleWhileRevalidateCache<String, String> cache = new StaleWhileRevalidateCache<>("test", 60_000, 60_000, 10, DIRECT);
+
+        assertThatThrownBy(() -> cache.get("k", () -> {
+            throw new LinkageError("boom");
+        })).isInstanceOf(LinkageError.class);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void put_overMaxEntries_evictsOldest() throws Exception {
+        StaleWhileRevalidateCache<Integer, Integer> cache = new StaleWhileRevalidateCache<>("test", 60_000, 60_000, 2, DIRECT);
+        AtomicInteger calls = new AtomicInteger();
+        for (int key = 1; key <= 3; key++) {
+            int value = key;
+            cache.get(key, () -> {
+                calls.incrementAndGet();
+                return value;
+            });
+            TimeUnit.MILLISECONDS.sleep(2);
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+        cache.get(1, () -> {
+            calls.incrementAndGet();
+            return 1;
+        });
+        assertThat(calls).hasValue(4);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}